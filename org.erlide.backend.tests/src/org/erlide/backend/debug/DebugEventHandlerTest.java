@@ -0,0 +1,78 @@
+package org.erlide.backend.debug;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.erlide.backend.debug.events.DebuggerEvent;
+import org.erlide.backend.debug.events.NewStatusEvent;
+import org.erlide.backend.debug.events.StartedEvent;
+import org.erlide.backend.debug.model.ProcessInfoCache;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+public class DebugEventHandlerTest {
+
+    private final OtpErlangPid p1 = new OtpErlangPid("n@h", 1, 0, 0);
+    private final OtpErlangPid p2 = new OtpErlangPid("n@h", 2, 0, 0);
+
+    private static NewStatusEvent status(final OtpErlangPid pid, final String status) {
+        return new NewStatusEvent(new OtpErlangObject[] {
+                new OtpErlangAtom("new_status"), pid, new OtpErlangAtom(status),
+                new OtpErlangAtom("info") });
+    }
+
+    @Test
+    public void onlyTheLastStatusOfAProcessIsKept() {
+        final DebuggerEvent a = status(p1, "running");
+        final DebuggerEvent b = status(p2, "running");
+        final DebuggerEvent c = status(p1, "break");
+        final DebuggerEvent d = status(p1, "running");
+        final List<DebuggerEvent> result = DebugEventHandler.coalesce(Arrays.asList(a,
+                b, c, d));
+        assertThat(result).containsExactly(b, d).inOrder();
+    }
+
+    @Test
+    public void otherEventsAndExitsAreKept() {
+        final DebuggerEvent a = status(p1, "running");
+        final DebuggerEvent b = new StartedEvent(p2);
+        final DebuggerEvent c = status(p1, "break");
+        final DebuggerEvent d = status(p1, "exit");
+        final DebuggerEvent e = status(p1, "idle");
+        final List<DebuggerEvent> result = DebugEventHandler.coalesce(Arrays.asList(a,
+                b, c, d, e));
+        assertThat(result).containsExactly(a, b, d, e).inOrder();
+    }
+
+    @Test
+    public void eventsInvalidateTheProcessInfoCache() {
+        final int[] fetches = { 0 };
+        final ProcessInfoCache cache = new ProcessInfoCache(
+                new ProcessInfoCache.Fetcher() {
+                    @Override
+                    public Map<OtpErlangPid, Map<String, OtpErlangObject>> fetch(
+                            final Collection<OtpErlangPid> pids,
+                            final List<String> items) {
+                        fetches[0]++;
+                        return Maps.newHashMap();
+                    }
+                }, ImmutableList.of(p1), 60000);
+        final DebugEventHandler handler = new DebugEventHandler(null, cache);
+        cache.get(p1, "heap_size");
+        cache.get(p1, "heap_size");
+        assertThat(fetches[0]).isEqualTo(1);
+        handler.handleMessages(Collections.<OtpErlangObject> emptyList());
+        cache.get(p1, "heap_size");
+        assertThat(fetches[0]).isEqualTo(2);
+    }
+}
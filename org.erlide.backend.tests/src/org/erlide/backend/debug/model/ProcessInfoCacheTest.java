@@ -0,0 +1,94 @@
+package org.erlide.backend.debug.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class ProcessInfoCacheTest {
+
+    static final class CountingFetcher implements ProcessInfoCache.Fetcher {
+        final List<List<OtpErlangPid>> pids = Lists.newArrayList();
+        final List<List<String>> items = Lists.newArrayList();
+
+        @Override
+        public Map<OtpErlangPid, Map<String, OtpErlangObject>> fetch(
+                final Collection<OtpErlangPid> which, final List<String> what) {
+            pids.add(ImmutableList.copyOf(which));
+            items.add(what);
+            final Map<OtpErlangPid, Map<String, OtpErlangObject>> result = Maps
+                    .newHashMap();
+            for (final OtpErlangPid pid : which) {
+                final Map<String, OtpErlangObject> info = Maps.newHashMap();
+                for (final String item : what) {
+                    info.put(item, new OtpErlangAtom(item + pids.size()));
+                }
+                result.put(pid, info);
+            }
+            return result;
+        }
+    }
+
+    private final OtpErlangPid p1 = new OtpErlangPid("n@h", 1, 0, 0);
+    private final OtpErlangPid p2 = new OtpErlangPid("n@h", 2, 0, 0);
+    private final CountingFetcher fetcher = new CountingFetcher();
+
+    @Test
+    public void cheapItemsOfAllProcessesAreFetchedTogether() {
+        final ProcessInfoCache cache = new ProcessInfoCache(fetcher,
+                ImmutableList.of(p1, p2), 60000);
+        assertThat(cache.get(p1, "registered_name"))
+                .isEqualTo(new OtpErlangAtom("registered_name1"));
+        assertThat(cache.get(p2, "reductions"))
+                .isEqualTo(new OtpErlangAtom("reductions1"));
+        assertThat(fetcher.pids).containsExactly(ImmutableList.of(p1, p2));
+        assertThat(fetcher.items.get(0)).containsNoneIn(ProcessInfoCache.LAZY_ITEMS);
+    }
+
+    @Test
+    public void expensiveItemsAreFetchedPerProcess() {
+        final ProcessInfoCache cache = new ProcessInfoCache(fetcher,
+                ImmutableList.of(p1, p2), 60000);
+        assertThat(cache.get(p2, "messages"))
+                .isEqualTo(new OtpErlangAtom("messages1"));
+        assertThat(cache.get(p2, "messages"))
+                .isEqualTo(new OtpErlangAtom("messages1"));
+        assertThat(fetcher.pids).containsExactly(ImmutableList.of(p2));
+        assertThat(fetcher.items).containsExactly(ImmutableList.of("messages"));
+    }
+
+    @Test
+    public void snapshotsExpire() throws InterruptedException {
+        final ProcessInfoCache cache = new ProcessInfoCache(fetcher,
+                ImmutableList.of(p1), 50);
+        cache.get(p1, "heap_size");
+        cache.get(p1, "heap_size");
+        assertThat(fetcher.pids).hasSize(1);
+        Thread.sleep(100);
+        assertThat(cache.get(p1, "heap_size"))
+                .isEqualTo(new OtpErlangAtom("heap_size2"));
+        assertThat(fetcher.pids).hasSize(2);
+    }
+
+    @Test
+    public void invalidateDropsAllSnapshots() {
+        final ProcessInfoCache cache = new ProcessInfoCache(fetcher,
+                ImmutableList.of(p1), 60000);
+        cache.get(p1, "heap_size");
+        cache.get(p1, "dictionary");
+        cache.invalidate();
+        cache.get(p1, "heap_size");
+        cache.get(p1, "dictionary");
+        assertThat(fetcher.pids).hasSize(4);
+    }
+}
@@ -36,6 +36,7 @@ public class BackendShell implements IBackendShell {
     private final IBackend backend;
     private OtpErlangPid server;
     private final String fId;
+    private ErlangEventHandler handler;
 
     public BackendShell(final IBackend backend, final String id,
             final OtpErlangPid server) {
@@ -48,12 +49,16 @@ public class BackendShell implements IBackendShell {
 
     @Override
     public void open() {
-        final ErlangEventHandler handler = new ConsoleEventHandler(this);
+        handler = new ConsoleEventHandler(this);
         backend.getRuntime().registerEventListener(handler);
     }
 
     @Override
     public void close() {
+        if (handler != null) {
+            backend.getRuntime().unregisterEventListener(handler);
+            handler = null;
+        }
         if (server != null && backend.getOtpRpc() != null) {
             backend.getOtpRpc().send(server, new OtpErlangAtom("stop"));
         }
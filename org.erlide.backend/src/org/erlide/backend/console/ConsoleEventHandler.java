@@ -26,9 +26,6 @@ public class ConsoleEventHandler extends ErlangEventHandler {
 
     @Subscribe
     public void handleEvent(final ErlEvent event) {
-        if (!event.getTopic().equals(getTopic())) {
-            return;
-        }
 
         try {
             shell.add(event.getEvent());
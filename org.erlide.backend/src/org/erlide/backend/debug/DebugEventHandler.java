@@ -1,35 +1,89 @@
 package org.erlide.backend.debug;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
-import org.eclipse.debug.core.DebugException;
 import org.erlide.backend.debug.events.DebuggerEvent;
 import org.erlide.backend.debug.events.DebuggerEventFactory;
+import org.erlide.backend.debug.events.NewStatusEvent;
 import org.erlide.backend.debug.model.ErlangDebugTarget;
+import org.erlide.backend.debug.model.ProcessInfoCache;
 import org.erlide.util.ErlLogger;
 
 import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 class DebugEventHandler {
 
     private final ErlangDebugTarget debugTarget;
+    private final ProcessInfoCache processInfoCache;
 
     DebugEventHandler(final ErlangDebugTarget erlangDebugTarget) {
+        this(erlangDebugTarget, erlangDebugTarget.getProcessInfoCache());
+    }
+
+    DebugEventHandler(final ErlangDebugTarget erlangDebugTarget,
+            final ProcessInfoCache processInfoCache) {
         debugTarget = erlangDebugTarget;
+        this.processInfoCache = processInfoCache;
     }
 
-    public void handleMessages(final Collection<OtpErlangObject> messages) {
+    /**
+     * Handle a batch of messages from the debugger, in order.
+     *
+     * @return the number of events that were left out because a later event
+     *         made them redundant
+     */
+    public int handleMessages(final Collection<OtpErlangObject> messages) {
+        // the processes have changed, so views refreshed by these events must
+        // see new values
+        processInfoCache.invalidate();
+        final List<DebuggerEvent> events = Lists.newArrayListWithCapacity(messages
+                .size());
         for (final OtpErlangObject message : messages) {
             try {
-                handleMessage(message);
+                events.add(DebuggerEventFactory.parse(message));
             } catch (final Exception e) {
                 ErlLogger.info(e);
             }
         }
+        final List<DebuggerEvent> toExecute = coalesce(events);
+        for (final DebuggerEvent event : toExecute) {
+            try {
+                event.execute(debugTarget);
+            } catch (final Exception e) {
+                ErlLogger.info(e);
+            }
+        }
+        return events.size() - toExecute.size();
     }
 
-    private void handleMessage(final OtpErlangObject message) throws DebugException {
-        final DebuggerEvent event = DebuggerEventFactory.parse(message);
-        event.execute(debugTarget);
+    /**
+     * Leave out the status changes of a process that are followed by another
+     * status change of the same process, with only status changes in between.
+     * Other events may depend on the status a process had when they were sent,
+     * so they are never moved across. Exit statuses are always kept.
+     */
+    static List<DebuggerEvent> coalesce(final List<DebuggerEvent> events) {
+        final List<DebuggerEvent> result = Lists.newArrayListWithCapacity(events
+                .size());
+        final Set<OtpErlangPid> laterStatus = Sets.newHashSet();
+        for (int i = events.size() - 1; i >= 0; i--) {
+            final DebuggerEvent event = events.get(i);
+            if (event instanceof NewStatusEvent) {
+                final NewStatusEvent statusEvent = (NewStatusEvent) event;
+                if (!laterStatus.add(statusEvent.getPid())
+                        && !"exit".equals(statusEvent.getStatus())) {
+                    continue;
+                }
+            } else {
+                laterStatus.clear();
+            }
+            result.add(event);
+        }
+        return Lists.reverse(result);
     }
 }
@@ -1,6 +1,12 @@
 package org.erlide.backend.debug;
 
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.resources.IProject;
 import org.erlide.backend.api.IBackend;
@@ -8,17 +14,24 @@ import org.erlide.backend.api.IBackendListener;
 import org.erlide.backend.debug.model.ErlangDebugTarget;
 import org.erlide.util.ErlLogger;
 
-import com.ericsson.otp.erlang.OtpErlangDecodeException;
 import com.ericsson.otp.erlang.OtpErlangExit;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangPid;
 import com.ericsson.otp.erlang.OtpMbox;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * This daemon is almost a copy of ErlangEventPublisher, but accepts generic
  * messages because the debugger can't be convinced to send erlide_jrpc events.
  * The handler is also hardcoded.
+ *
+ * <p>
+ * One thread moves the messages from the mailbox to a bounded queue and
+ * another hands them to the handler in batches, so that a burst of events is
+ * handled in a few large batches and redundant status changes in a batch can
+ * be left out. Nothing is dropped: when the queue is full, the receiver waits.
+ * </p>
  */
 public class DebuggerEventDaemon implements IBackendListener {
 
@@ -30,10 +43,43 @@ public class DebuggerEventDaemon implements IBackendListener {
     final static boolean DEBUG = Boolean
             .parseBoolean(System.getProperty("erlide.event.daemon"));
 
-    private final class HandlerJob implements Runnable {
+    // messages received but not handled yet; when full, the receiver waits
+    // and the rest stays in the mailbox
+    private static final int QUEUE_CAPACITY = Integer
+            .getInteger("erlide.debug.events.capacity", 10000);
+    private static final int BATCH_SIZE = Integer.getInteger("erlide.debug.events.batch",
+            200);
+    // how long to wait for more messages to fill a batch
+    private static final long BATCH_WINDOW = 20;
+
+    private static final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("erlide-debug-events-%d").build();
+
+    private final BlockingQueue<Received> queue = new ArrayBlockingQueue<>(
+            QUEUE_CAPACITY);
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong handled = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    private static final class Received {
+        final OtpErlangObject message;
+        final long time;
+
+        Received(final OtpErlangObject message, final long time) {
+            this.message = message;
+            this.time = time;
+        }
+    }
+
+    private final class ReceiverJob implements Runnable {
         private final IBackend myBackend;
 
-        public HandlerJob(final IBackend backend) {
+        public ReceiverJob(final IBackend backend) {
             myBackend = backend;
         }
 
@@ -41,14 +87,9 @@ public class DebuggerEventDaemon implements IBackendListener {
         public void run() {
             do {
                 try {
-                    final List<OtpErlangObject> messages = receiveSomeMessages(mbox);
-                    if (messages.size() != 0) {
-                        if (DEBUG) {
-                            for (final OtpErlangObject message : messages) {
-                                ErlLogger.debug("MSG: %s", message);
-                            }
-                        }
-                        handler.handleMessages(messages);
+                    final OtpErlangObject msg = mbox.receive(200);
+                    if (msg != null) {
+                        enqueue(new Received(msg, System.nanoTime()));
                     }
                 } catch (final OtpErlangExit e) {
                     if (myBackend.isRunning()) {
@@ -56,30 +97,99 @@ public class DebuggerEventDaemon implements IBackendListener {
                         // also when it was closed... how do we tell difference?
                         // ErlLogger.warn(e);
                     }
+                } catch (final InterruptedException e) {
+                    break;
                 } catch (final Exception e) {
                     ErlLogger.warn(e);
                 }
             } while (!stopped);
         }
 
-        private List<OtpErlangObject> receiveSomeMessages(final OtpMbox box)
-                throws OtpErlangExit, OtpErlangDecodeException {
-            final List<OtpErlangObject> messages = Lists.newArrayList();
-            OtpErlangObject msg = box.receive(200);
-            if (msg != null) {
-                messages.add(msg);
-                // if there are more queued events, retrieve not
-                // more than 10 of them
-                int count = 0;
-                do {
-                    msg = box.receive(0);
-                    if (msg != null) {
-                        messages.add(msg);
-                        count++;
+        private void enqueue(final Received msg) throws InterruptedException {
+            received.incrementAndGet();
+            if (!queue.offer(msg)) {
+                stalls.incrementAndGet();
+                while (!queue.offer(msg, 200, TimeUnit.MILLISECONDS)) {
+                    if (stopped) {
+                        return;
                     }
-                } while (count < 10 && msg != null && !stopped);
+                }
+            }
+            final int depth = queue.size();
+            int max;
+            while (depth > (max = maxQueueDepth.get())
+                    && !maxQueueDepth.compareAndSet(max, depth)) {
+                // retry
             }
-            return messages;
+        }
+    }
+
+    private final class HandlerJob implements Runnable {
+
+        @Override
+        public void run() {
+            do {
+                try {
+                    final List<Received> batch = takeBatch();
+                    if (batch.isEmpty()) {
+                        continue;
+                    }
+                    final List<OtpErlangObject> messages = Lists
+                            .newArrayListWithCapacity(batch.size());
+                    for (final Received msg : batch) {
+                        messages.add(msg.message);
+                    }
+                    if (DEBUG) {
+                        for (final OtpErlangObject message : messages) {
+                            ErlLogger.debug("MSG: %s", message);
+                        }
+                    }
+                    coalesced.addAndGet(handler.handleMessages(messages));
+                    handled.addAndGet(batch.size());
+                    final long now = System.nanoTime();
+                    for (final Received msg : batch) {
+                        final long latency = now - msg.time;
+                        totalLatency.addAndGet(latency);
+                        long max;
+                        while (latency > (max = maxLatency.get())
+                                && !maxLatency.compareAndSet(max, latency)) {
+                            // retry
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    break;
+                } catch (final Exception e) {
+                    ErlLogger.warn(e);
+                }
+            } while (!stopped);
+        }
+
+        /**
+         * Wait for a message, then take those that follow, until the batch is
+         * full or no more arrive for a little while.
+         */
+        private List<Received> takeBatch() throws InterruptedException {
+            final List<Received> batch = Lists.newArrayList();
+            final Received first = queue.poll(200, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return batch;
+            }
+            batch.add(first);
+            final long deadline = System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(BATCH_WINDOW);
+            while (batch.size() < BATCH_SIZE && !stopped) {
+                queue.drainTo(batch, BATCH_SIZE - batch.size());
+                final long wait = deadline - System.nanoTime();
+                if (batch.size() >= BATCH_SIZE || wait <= 0) {
+                    break;
+                }
+                final Received next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+            }
+            return batch;
         }
     }
 
@@ -91,7 +201,8 @@ public class DebuggerEventDaemon implements IBackendListener {
     public synchronized void start() {
         stopped = false;
         mbox = backend.getRuntime().createMbox();
-        new Thread(new HandlerJob(backend)).start();
+        threadFactory.newThread(new ReceiverJob(backend)).start();
+        threadFactory.newThread(new HandlerJob()).start();
     }
 
     public synchronized void stop() {
@@ -118,4 +229,50 @@ public class DebuggerEventDaemon implements IBackendListener {
     public OtpErlangPid getMBox() {
         return mbox.self();
     }
+
+    /**
+     * The number of messages received but not handled yet.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    public long getHandledCount() {
+        return handled.get();
+    }
+
+    /**
+     * The number of handled messages that were left out as redundant.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * How many times the receiver had to wait because the queue was full.
+     */
+    public long getStallCount() {
+        return stalls.get();
+    }
+
+    /**
+     * The average time in milliseconds from receiving a message to having
+     * handled it.
+     */
+    public double getAverageLatency() {
+        final long n = handled.get();
+        return n == 0 ? 0 : totalLatency.get() / 1e6 / n;
+    }
+
+    public long getMaxLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatency.get());
+    }
 }
@@ -1,7 +1,9 @@
 package org.erlide.backend.debug;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -11,6 +13,8 @@ import org.erlide.backend.api.IBackend;
 import org.erlide.backend.internal.BackendActivator;
 import org.erlide.runtime.rpc.IOtpRpc;
 import org.erlide.runtime.rpc.RpcException;
+import org.erlide.runtime.rpc.RpcRequest;
+import org.erlide.runtime.rpc.RpcResult;
 import org.erlide.runtime.rpc.RpcTimeoutException;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.Util;
@@ -23,11 +27,14 @@ import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangPid;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Maps;
 
 public class ErlideDebug {
 
     private static final String ERLIDE_DEBUG = "erlide_debug";
     private static final OtpErlangAtom PARENT_ATOM = new OtpErlangAtom("parent");
+    // erlide_debug:process_info waits 5s for a remote node
+    private static final long PROCESS_INFO_TIMEOUT = 10000;
 
     @SuppressWarnings("boxing")
     public static OtpErlangList getProcesses(final IOtpRpc backend,
@@ -109,6 +116,45 @@ public class ErlideDebug {
         return null;
     }
 
+    /**
+     * Fetch several process_info items for many processes at once, in one
+     * message to the node. Processes that are dead or that couldn't be queried
+     * are left out of the result.
+     */
+    public static Map<OtpErlangPid, Map<String, OtpErlangObject>> getProcessInfos(
+            final IOtpRpc backend, final Collection<OtpErlangPid> pids,
+            final List<String> items) {
+        final List<OtpErlangPid> pidList = new ArrayList<>(pids);
+        final List<RpcRequest> requests = new ArrayList<>(pidList.size());
+        for (final OtpErlangPid pid : pidList) {
+            requests.add(new RpcRequest(ERLIDE_DEBUG, "process_info", "pla", pid, items));
+        }
+        final Map<OtpErlangPid, Map<String, OtpErlangObject>> result = Maps
+                .newHashMap();
+        final List<RpcResult> results;
+        try {
+            results = backend.call_batch(PROCESS_INFO_TIMEOUT, requests, false);
+        } catch (final RpcException e) {
+            ErlLogger.warn(e);
+            return result;
+        }
+        for (int i = 0; i < results.size(); i++) {
+            final RpcResult res = results.get(i);
+            if (!res.isOk()) {
+                ErlLogger.warn("process_info %s: %s", pidList.get(i), res.getValue());
+            } else if (res.getValue() instanceof OtpErlangList) {
+                final Map<String, OtpErlangObject> info = Maps.newHashMap();
+                for (final OtpErlangObject o : (OtpErlangList) res.getValue()) {
+                    final OtpErlangTuple t = (OtpErlangTuple) o;
+                    final String item = ((OtpErlangAtom) t.elementAt(0)).atomValue();
+                    info.put(item, t.elementAt(1));
+                }
+                result.put(pidList.get(i), info);
+            }
+        }
+        return result;
+    }
+
     public static boolean isErlideProcess(final IOtpRpc backend, final OtpErlangPid pid) {
         boolean res = false;
         try {
@@ -127,19 +173,51 @@ public class ErlideDebug {
         try {
             final OtpErlangObject res = backend.call(ERLIDE_DEBUG, "interpret", "alxoo",
                     moduleName, options, distributed, interpret);
-            if (res instanceof OtpErlangTuple) {
-                final OtpErlangTuple t = (OtpErlangTuple) res;
-                final OtpErlangObject o = t.elementAt(0);
-                if (o instanceof OtpErlangAtom) {
-                    final OtpErlangAtom moduleAtom = (OtpErlangAtom) o;
-                    return moduleAtom.atomValue().equals("module");
+            return isInterpretOk(res);
+        } catch (final RpcException e) {
+            ErlLogger.warn(e);
+        }
+        return false;
+    }
+
+    /**
+     * Interpret (or stop interpreting) several modules in one go. Returns the
+     * modules for which it failed.
+     */
+    public static List<String> interpret(final IOtpRpc backend,
+            final List<String> moduleNames, final List<OtpErlangList> options,
+            final boolean distributed, final boolean interpret) {
+        final List<RpcRequest> requests = new ArrayList<>(moduleNames.size());
+        for (int i = 0; i < moduleNames.size(); i++) {
+            requests.add(new RpcRequest(ERLIDE_DEBUG, "interpret", "alxoo",
+                    moduleNames.get(i), options.get(i), distributed, interpret));
+        }
+        final List<String> failed = new ArrayList<>();
+        try {
+            final List<RpcResult> results = backend.call_batch(requests);
+            for (int i = 0; i < results.size(); i++) {
+                final RpcResult res = results.get(i);
+                if (!res.isOk() || !isInterpretOk(res.getValue())) {
+                    failed.add(moduleNames.get(i));
                 }
             }
-            return Util.isOk(res);
         } catch (final RpcException e) {
             ErlLogger.warn(e);
+            failed.addAll(moduleNames);
         }
-        return false;
+        return failed;
+    }
+
+    private static boolean isInterpretOk(final OtpErlangObject res) {
+        if (res instanceof OtpErlangTuple) {
+            final OtpErlangTuple t = (OtpErlangTuple) res;
+            final OtpErlangObject o = t.elementAt(0);
+            if (o instanceof OtpErlangAtom) {
+                final OtpErlangAtom moduleAtom = (OtpErlangAtom) o;
+                return moduleAtom.atomValue().equals("module");
+            }
+        }
+        return Util.isOk(res);
     }
 
     @SuppressWarnings("boxing")
@@ -14,12 +14,20 @@ public class NewStatusEvent extends IntEvent {
         super(cmds);
     }
 
+    public OtpErlangPid getPid() {
+        return (OtpErlangPid) cmds[1];
+    }
+
+    public String getStatus() {
+        final OtpErlangAtom sa = (OtpErlangAtom) cmds[2];
+        return sa.atomValue();
+    }
+
     @Override
     public void execute(final ErlangDebugTarget debugTarget) {
-        final OtpErlangPid pid = (OtpErlangPid) cmds[1];
-        final ErlangProcess erlangProcess = debugTarget.getOrCreateErlangProcess(pid);
-        final OtpErlangAtom sa = (OtpErlangAtom) cmds[2];
-        final String status = sa.atomValue();
+        final ErlangProcess erlangProcess = debugTarget
+                .getOrCreateErlangProcess(getPid());
+        final String status = getStatus();
         if (status.equals("break")) {
             handleBreakStatus(erlangProcess, status);
         } else if (status.equals("exit")) {
@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IMarkerDelta;
@@ -63,6 +64,8 @@ import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangPid;
 import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
 public class ErlangDebugTarget extends ErlangDebugElement
@@ -90,6 +93,7 @@ public class ErlangDebugTarget extends ErlangDebugElement
     private final Map<OtpErlangPid, OtpErlangPid> pidsFromMeta = new TreeMap<>();
 
     private final DebuggerEventDaemon debuggerDaemon;
+    private final ProcessInfoCache processInfoCache;
     private boolean disposed = false;
 
     public ErlangDebugTarget(final ILaunch launch, final IBackend backend,
@@ -99,9 +103,12 @@ public class ErlangDebugTarget extends ErlangDebugElement
         this.launch = launch;
         this.projects = projects;
 
-        allProcesses = new ArrayList<>();
+        // read by the process info cache while the event thread changes it
+        allProcesses = new CopyOnWriteArrayList<>();
         localProcesses = new ArrayList<>();
         interpretedModules = new HashSet<>();
+        processInfoCache = new ProcessInfoCache(backend.getOtpRpc(),
+                pidsOf(allProcesses));
 
         debuggerDaemon = new DebuggerEventDaemon(backend, this);
         debuggerDaemon.start();
@@ -407,6 +414,20 @@ public class ErlangDebugTarget extends ErlangDebugElement
         }
     }
 
+    private static Iterable<OtpErlangPid> pidsOf(final List<ErlangProcess> processes) {
+        return Iterables.transform(processes,
+                new Function<ErlangProcess, OtpErlangPid>() {
+                    @Override
+                    public OtpErlangPid apply(final ErlangProcess process) {
+                        return process.getPid();
+                    }
+                });
+    }
+
+    public ProcessInfoCache getProcessInfoCache() {
+        return processInfoCache;
+    }
+
     public void sendStarted() {
         ErlideDebug.sendStarted(backend, debuggerDaemon.getMBox());
     }
@@ -453,12 +474,21 @@ public class ErlangDebugTarget extends ErlangDebugElement
 
     public void interpretModules(final Collection<String> modules,
             final boolean distributed) {
+        final List<String> moduleNames = new ArrayList<>(modules.size());
+        final List<OtpErlangList> options = new ArrayList<>(modules.size());
         for (final String pm : modules) {
             final String[] pms = pm.split(":");
             final IProject project = ResourcesPlugin.getWorkspace().getRoot()
                     .getProject(pms[0]);
             final String moduleName = pms[1].replace(".erl", "");
-            interpret(project, moduleName, distributed, true);
+            ErlLogger.debug("interpret %s", moduleName);
+            moduleNames.add(moduleName);
+            options.add(getProjectDirs(project));
+        }
+        final List<String> failed = ErlideDebug.interpret(backend.getOtpRpc(),
+                moduleNames, options, distributed, true);
+        if (!failed.isEmpty()) {
+            ErlLogger.warn("Could not interpret %s", failed);
         }
     }
 
@@ -84,20 +84,23 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
     }
 
     public String getRegisteredName() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "registered_name");
-        if (res != null) {
+        final OtpErlangObject res = getProcessInfo("registered_name");
+        // a process without a name has an empty list instead
+        if (res instanceof OtpErlangAtom) {
             return res.toString();
         }
         return null;
     }
 
     public OtpErlangTuple getCurrentFunction() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "current_function");
+        final OtpErlangObject res = getProcessInfo("current_function");
         return (OtpErlangTuple) res;
     }
 
+    private OtpErlangObject getProcessInfo(final String item) {
+        return getErlangDebugTarget().getProcessInfoCache().get(fPid, item);
+    }
+
     public OtpErlangPid getMeta() {
         if (fCachedMetaPid == null) {
             fCachedMetaPid = getErlangDebugTarget().getMetaFromPid(fPid);
@@ -106,8 +109,7 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
     }
 
     public long getReductions() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "reductions");
+        final OtpErlangObject res = getProcessInfo("reductions");
         if (res != null) {
             return ((OtpErlangLong) res).longValue();
         }
@@ -115,26 +117,22 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
     }
 
     public OtpErlangObject getDictionary() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "dictionary");
+        final OtpErlangObject res = getProcessInfo("dictionary");
         return res;
     }
 
     public OtpErlangObject getErrorHandler() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "error_handler");
+        final OtpErlangObject res = getProcessInfo("error_handler");
         return res;
     }
 
     public OtpErlangObject getGroupLeader() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "group_leader");
+        final OtpErlangObject res = getProcessInfo("group_leader");
         return res;
     }
 
     public OtpErlangObject getHeapSize() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "heap_size");
+        final OtpErlangObject res = getProcessInfo("heap_size");
         return res;
     }
 
@@ -147,32 +145,27 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
     }
 
     public OtpErlangObject getLinks() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "links");
+        final OtpErlangObject res = getProcessInfo("links");
         return res;
     }
 
     public OtpErlangObject getMessageQueueLen() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "message_queue_len");
+        final OtpErlangObject res = getProcessInfo("message_queue_len");
         return res;
     }
 
     public OtpErlangObject getMessages() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "messages");
+        final OtpErlangObject res = getProcessInfo("messages");
         return res;
     }
 
     public OtpErlangObject getErlPriority() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "priority");
+        final OtpErlangObject res = getProcessInfo("priority");
         return res;
     }
 
     public OtpErlangObject getStackSize() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "stack_size");
+        final OtpErlangObject res = getProcessInfo("stack_size");
         return res;
     }
 
@@ -194,9 +187,8 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
     }
 
     public boolean getTrapExit() {
-        final OtpErlangAtom res = (OtpErlangAtom) ErlideDebug
-                .getProcessInfo(fBackend.getOtpRpc(), fPid, "trap_exit");
-        return Boolean.parseBoolean(res.atomValue());
+        final OtpErlangAtom res = (OtpErlangAtom) getProcessInfo("trap_exit");
+        return res != null && Boolean.parseBoolean(res.atomValue());
     }
 
     public void getStackAndBindings(final String module, final int line) {
@@ -301,26 +293,22 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
     }
 
     public OtpErlangObject getLastCalls() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "last_calls");
+        final OtpErlangObject res = getProcessInfo("last_calls");
         return res;
     }
 
     public OtpErlangObject getMemory() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "memory");
+        final OtpErlangObject res = getProcessInfo("memory");
         return res;
     }
 
     public OtpErlangObject getMonitoredBy() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "monitored_by");
+        final OtpErlangObject res = getProcessInfo("monitored_by");
         return res;
     }
 
     public OtpErlangObject getMonitors() {
-        final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend.getOtpRpc(), fPid,
-                "monitors");
+        final OtpErlangObject res = getProcessInfo("monitors");
         return res;
     }
 
@@ -0,0 +1,178 @@
+package org.erlide.backend.debug.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.erlide.backend.debug.ErlideDebug;
+import org.erlide.runtime.rpc.IOtpRpc;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Short lived snapshots of the process_info of the processes of a debug target.
+ *
+ * <p>
+ * When a cheap item of a process is asked for and its snapshot is missing or
+ * too old, the cheap items of all the target's processes that need it are
+ * fetched in one batch, so that the views showing many processes and their
+ * properties don't make one call per process and property. The items that copy
+ * whole terms from the process (messages, dictionary, last calls) are only
+ * fetched for the process they are asked for. Snapshots are dropped when the
+ * debugger reports any event, since that's when processes change state.
+ * </p>
+ */
+public class ProcessInfoCache {
+
+    private static final long TTL = Long.getLong("erlide.debug.processinfo.ttl", 1000);
+
+    static final List<String> ITEMS = ImmutableList.of("registered_name",
+            "current_function", "reductions", "error_handler", "group_leader",
+            "heap_size", "links", "message_queue_len", "priority", "stack_size",
+            "trap_exit", "memory", "monitored_by", "monitors");
+    static final List<String> LAZY_ITEMS = ImmutableList.of("messages",
+            "dictionary", "last_calls");
+
+    /**
+     * Where the process_info items come from.
+     */
+    public interface Fetcher {
+        /**
+         * The items of several processes. Processes that are dead or couldn't
+         * be queried are left out.
+         */
+        Map<OtpErlangPid, Map<String, OtpErlangObject>> fetch(
+                Collection<OtpErlangPid> pids, List<String> items);
+    }
+
+    private static final class Snapshot {
+        final long time;
+        final long generation;
+        final Map<String, OtpErlangObject> info;
+
+        Snapshot(final long time, final long generation,
+                final Map<String, OtpErlangObject> info) {
+            this.time = time;
+            this.generation = generation;
+            this.info = info;
+        }
+    }
+
+    private final Fetcher fetcher;
+    private final Iterable<OtpErlangPid> pids;
+    private final long ttl;
+    private final ConcurrentMap<OtpErlangPid, Snapshot> snapshots = Maps
+            .newConcurrentMap();
+    private final Map<String, ConcurrentMap<OtpErlangPid, Snapshot>> lazySnapshots;
+    private final Object refreshLock = new Object();
+    private volatile long generation;
+
+    /**
+     * @param pids
+     *            the processes to refresh together; it must be safe to iterate
+     *            while it is modified
+     */
+    ProcessInfoCache(final IOtpRpc backend, final Iterable<OtpErlangPid> pids) {
+        this(new Fetcher() {
+            @Override
+            public Map<OtpErlangPid, Map<String, OtpErlangObject>> fetch(
+                    final Collection<OtpErlangPid> which, final List<String> items) {
+                return ErlideDebug.getProcessInfos(backend, which, items);
+            }
+        }, pids, TTL);
+    }
+
+    public ProcessInfoCache(final Fetcher fetcher, final Iterable<OtpErlangPid> pids,
+            final long ttl) {
+        this.fetcher = fetcher;
+        this.pids = pids;
+        this.ttl = ttl;
+        // only read after construction
+        lazySnapshots = Maps.newHashMap();
+        for (final String item : LAZY_ITEMS) {
+            lazySnapshots.put(item, Maps.<OtpErlangPid, Snapshot> newConcurrentMap());
+        }
+    }
+
+    /**
+     * The value of a process_info item, or <code>null</code> if the process
+     * is dead or couldn't be queried.
+     */
+    public OtpErlangObject get(final OtpErlangPid pid, final String item) {
+        final ConcurrentMap<OtpErlangPid, Snapshot> lazy = lazySnapshots.get(item);
+        final ConcurrentMap<OtpErlangPid, Snapshot> map = lazy != null ? lazy
+                : snapshots;
+        Snapshot snapshot = map.get(pid);
+        if (!isValid(snapshot)) {
+            synchronized (refreshLock) {
+                snapshot = map.get(pid);
+                if (!isValid(snapshot)) {
+                    snapshot = lazy != null ? fetchOne(pid, item, lazy) : refresh(pid);
+                }
+            }
+        }
+        return snapshot != null ? snapshot.info.get(item) : null;
+    }
+
+    /**
+     * Forget all snapshots. Lookups in progress may still return the values
+     * they are fetching.
+     */
+    public void invalidate() {
+        generation++;
+        snapshots.clear();
+        for (final Map<OtpErlangPid, Snapshot> lazy : lazySnapshots.values()) {
+            lazy.clear();
+        }
+    }
+
+    private boolean isValid(final Snapshot snapshot) {
+        return snapshot != null && snapshot.generation == generation
+                && System.currentTimeMillis() - snapshot.time < ttl;
+    }
+
+    private Snapshot fetchOne(final OtpErlangPid pid, final String item,
+            final ConcurrentMap<OtpErlangPid, Snapshot> lazy) {
+        final long gen = generation;
+        final long now = System.currentTimeMillis();
+        Map<String, OtpErlangObject> info = fetcher
+                .fetch(Lists.newArrayList(pid), ImmutableList.of(item)).get(pid);
+        if (info == null) {
+            info = Maps.newHashMap();
+        }
+        final Snapshot snapshot = new Snapshot(now, gen, info);
+        lazy.put(pid, snapshot);
+        return snapshot;
+    }
+
+    private Snapshot refresh(final OtpErlangPid pid) {
+        final List<OtpErlangPid> stale = Lists.newArrayList(pid);
+        for (final OtpErlangPid other : pids) {
+            if (!other.equals(pid) && !isValid(snapshots.get(other))) {
+                stale.add(other);
+            }
+        }
+        final long gen = generation;
+        final long now = System.currentTimeMillis();
+        final Map<OtpErlangPid, Map<String, OtpErlangObject>> infos = fetcher
+                .fetch(stale, ITEMS);
+        Snapshot result = null;
+        for (final OtpErlangPid p : stale) {
+            Map<String, OtpErlangObject> info = infos.get(p);
+            if (info == null) {
+                info = Maps.newHashMap();
+            }
+            final Snapshot snapshot = new Snapshot(now, gen, info);
+            snapshots.put(p, snapshot);
+            if (p.equals(pid)) {
+                result = snapshot;
+            }
+        }
+        return result;
+    }
+}
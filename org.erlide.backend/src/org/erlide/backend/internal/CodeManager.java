@@ -11,8 +11,18 @@ package org.erlide.backend.internal;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.erlide.backend.BackendUtils;
@@ -25,6 +35,10 @@ import org.erlide.runtime.runtimeinfo.RuntimeVersion;
 import org.erlide.util.ErlLogger;
 
 import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class CodeManager {
 
@@ -34,6 +48,24 @@ public class CodeManager {
     private final List<PathItem> pathZ;
     private final RuntimeVersion version;
 
+    /**
+     * Beams read from the bundles, kept for the backends started later. Bundles
+     * don't change while running, but the beams are only needed while backends
+     * start, so the cache is bounded and forgets beams that aren't used.
+     */
+    private static final Cache<String, OtpErlangBinary> beamCache = CacheBuilder
+            .newBuilder()
+            .maximumWeight(Integer.getInteger("erlide.beamCache.bytes", 32 << 20))
+            .weigher(new Weigher<String, OtpErlangBinary>() {
+                @Override
+                public int weigh(final String key, final OtpErlangBinary value) {
+                    return value.size();
+                }
+            }).expireAfterAccess(10, TimeUnit.MINUTES).build();
+
+    // shared by all backends; its threads only live while there are beams to read
+    private static final ExecutorService beamReader = newBeamReader();
+
     // only to be called by Backend
     CodeManager(final IOtpRpc site, final String backendName,
             final RuntimeVersion version) {
@@ -93,28 +125,81 @@ public class CodeManager {
         unloadCodeForBundle(context, bundle);
     }
 
-    private boolean loadBeam(final String moduleName, final URL beamPath) {
-        final OtpErlangBinary bin = BeamUtil.getBeamBinary(moduleName, beamPath);
-        if (bin == null) {
-            return false;
-        }
-        return BeamLoader.loadBeam(site, moduleName, bin);
-    }
-
     private void loadCodeForBundle(final CodeContext context, final ICodeBundle bundle,
             final String ebinDir2) {
         final Collection<URL> beams = bundle.getEbinBeamURLs(context);
         if (beams == null) {
             return;
         }
-        for (final URL beam : beams) {
-            final String beamModuleName = BackendUtils.getBeamModuleName(beam.getPath());
-            if (beamModuleName != null) {
-                // ErlLogger.debug(" load " + beamModuleName);
-                if (!loadBeam(beamModuleName, beam)) {
-                    ErlLogger.error("Could not load %s", beamModuleName);
+        final Map<String, OtpErlangBinary> binaries = readBeams(beams);
+        for (final String module : BeamLoader.loadBeams(site, binaries)) {
+            ErlLogger.error("Could not load %s", module);
+        }
+    }
+
+    private static ExecutorService newBeamReader() {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("erlide-beam-reader-%d").build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Read the beams in parallel, or take them from the cache.
+     */
+    private static Map<String, OtpErlangBinary> readBeams(final Collection<URL> beams) {
+        final Map<String, Future<OtpErlangBinary>> pending = new LinkedHashMap<>();
+        try {
+            for (final URL beam : beams) {
+                final String beamModuleName = BackendUtils
+                        .getBeamModuleName(beam.getPath());
+                if (beamModuleName == null) {
+                    continue;
                 }
+                pending.put(beamModuleName,
+                        beamReader.submit(new Callable<OtpErlangBinary>() {
+                            @Override
+                            public OtpErlangBinary call() {
+                                final String key = beam.toString();
+                                OtpErlangBinary bin = beamCache.getIfPresent(key);
+                                if (bin == null) {
+                                    bin = BeamUtil.getBeamBinary(beamModuleName, beam);
+                                    if (bin != null) {
+                                        beamCache.put(key, bin);
+                                    }
+                                }
+                                return bin;
+                            }
+                        }));
             }
+            final Map<String, OtpErlangBinary> result = new LinkedHashMap<>();
+            for (final Map.Entry<String, Future<OtpErlangBinary>> entry : pending
+                    .entrySet()) {
+                final OtpErlangBinary bin = entry.getValue().get();
+                if (bin != null) {
+                    result.put(entry.getKey(), bin);
+                } else {
+                    ErlLogger.error("Could not load %s", entry.getKey());
+                }
+            }
+            return result;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(pending.values());
+            return Collections.emptyMap();
+        } catch (final ExecutionException e) {
+            ErlLogger.error(e);
+            cancel(pending.values());
+            return Collections.emptyMap();
+        }
+    }
+
+    private static void cancel(final Collection<Future<OtpErlangBinary>> futures) {
+        for (final Future<OtpErlangBinary> future : futures) {
+            future.cancel(true);
         }
     }
 
@@ -42,12 +42,10 @@ import org.erlide.core.ErlangPlugin;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.MarkerUtils;
 import org.erlide.engine.model.ErlModelException;
-import org.erlide.engine.model.erlang.ErlangIncludeFile;
 import org.erlide.engine.model.erlang.SourceKind;
 import org.erlide.engine.model.root.ErlangProjectProperties;
 import org.erlide.engine.model.root.IErlModule;
 import org.erlide.engine.model.root.IErlProject;
-import org.erlide.engine.util.ResourceUtil;
 import org.erlide.runtime.api.BeamLoader;
 import org.erlide.runtime.rpc.IOtpRpc;
 import org.erlide.runtime.rpc.RpcException;
@@ -152,17 +150,9 @@ public final class BuilderHelper {
         final IErlProject eprj = ErlangEngine.getInstance().getModel()
                 .findProject(my_project);
 		if (eprj != null) {
-			final Collection<IErlModule> ms = eprj.getModules();
-			for (final IErlModule m : ms) {
-				final Collection<ErlangIncludeFile> incs = m.getIncludeFiles();
-				for (final ErlangIncludeFile ifile : incs) {
-					if (ResourceUtil.samePath(ifile.getFilename(), resource.getName())) {
-						if (m.getSourceKind() == SourceKind.ERL) {
-							final BuildResource bres = new BuildResource(m.getResource());
-							result.add(bres);
-						}
-						break;
-					}
+			for (final IErlModule m : eprj.getModulesIncluding(resource.getName())) {
+				if (m.getSourceKind() == SourceKind.ERL) {
+					result.add(new BuildResource(m.getResource()));
 				}
 			}
 		}
@@ -282,10 +272,15 @@ public final class BuilderHelper {
 		boolean shouldCompile = shouldCompile0;
 		final IErlModule m = eprj.getModule(source.getName());
 		if (m != null) {
-			final Collection<ErlangIncludeFile> incs = m.getIncludeFiles();
-			for (final ErlangIncludeFile ifile : incs) {
-                final IResource rifile = ResourceUtil.findResourceByName(project,
-                        ifile.getFilename());
+			final Collection<IErlModule> incs;
+			try {
+				incs = ErlangEngine.getInstance().getModelFindService()
+						.findAllIncludedFiles(m);
+			} catch (final CoreException e) {
+				throw new ErlModelException(e);
+			}
+			for (final IErlModule inc : incs) {
+				final IResource rifile = inc.getResource();
                 if (rifile != null
                         && rifile.getLocalTimeStamp() > beam.getLocalTimeStamp()) {
 					shouldCompile = true;
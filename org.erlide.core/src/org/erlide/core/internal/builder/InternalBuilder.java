@@ -15,10 +15,12 @@ import static com.google.common.collect.Lists.newArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.resources.IFolder;
@@ -57,9 +59,9 @@ import org.erlide.util.ErlLogger;
 import org.erlide.util.SystemConfiguration;
 
 import com.ericsson.otp.erlang.OtpErlangList;
-import com.ericsson.otp.erlang.OtpErlangObject;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 
 public class InternalBuilder extends ErlangBuilder {
 
@@ -220,57 +222,44 @@ public class InternalBuilder extends ErlangBuilder {
         backend.addProjectPath(model.findProject(project));
 
         notifier.setProgressPerCompilationUnit(1.0f / n);
-        final Map<RpcFuture, IResource> results = new HashMap<>();
-        for (final BuildResource bres : resourcesToBuild) {
-            notifier.checkCancel();
-            final IResource resource = bres.getResource();
-            MarkerUtils.deleteMarkers(resource);
-            notifier.aboutToCompile(resource);
-            if ("erl".equals(resource.getFileExtension())) {
-                final String outputDir = erlProject.getProperties().getOutputDir()
-                        .toString();
-                final RpcFuture f = helper.startCompileErl(project, bres, outputDir,
-                        backend.getOtpRpc(), compilerOptions, kind == BuildKind.FULL);
-                if (f != null) {
-                    results.put(f, resource);
-                }
-            } else if ("yrl".equals(resource.getFileExtension())) {
-                final RpcFuture f = helper.startCompileYrl(project, resource,
-                        backend.getOtpRpc(), compilerOptions);
+        final int maxInFlight = SystemConfiguration.getInstance()
+                .getMaxCompilesInFlight();
+        final Iterator<BuildResource> toStart = resourcesToBuild.iterator();
+        final Map<RpcFuture, IResource> inFlight = new HashMap<>();
+        final BlockingQueue<RpcFuture> completed = new LinkedBlockingQueue<>();
+
+        while (toStart.hasNext() || !inFlight.isEmpty()) {
+            while (inFlight.size() < maxInFlight && toStart.hasNext()) {
+                notifier.checkCancel();
+                final BuildResource bres = toStart.next();
+                final RpcFuture f = startCompile(erlProject, project, bres, backend,
+                        compilerOptions, kind, notifier);
                 if (f != null) {
-                    results.put(f, resource);
+                    inFlight.put(f, bres.getResource());
+                    f.addListener(new Runnable() {
+                        @Override
+                        public void run() {
+                            completed.add(f);
+                        }
+                    }, MoreExecutors.sameThreadExecutor());
                 }
-            } else {
-                ErlLogger.warn("Don't know how to compile: %s", resource.getName());
             }
-        }
-
-        final List<Entry<RpcFuture, IResource>> done = Lists.newArrayList();
-        final List<Entry<RpcFuture, IResource>> waiting = Lists
-                .newArrayList(results.entrySet());
-
-        // TODO should use some kind of notification!
-        while (!waiting.isEmpty()) {
-            for (final Entry<RpcFuture, IResource> result : waiting) {
-                notifier.checkCancel();
-                OtpErlangObject r;
-                try {
-                    r = result.getKey().get(100, TimeUnit.MILLISECONDS);
-                } catch (final Exception e) {
-                    r = null;
-                }
-                if (r != null) {
-                    final IResource resource = result.getValue();
-
-                    helper.completeCompile(project, resource, r, backend.getOtpRpc(),
-                            compilerOptions);
-                    notifier.compiled(resource);
-
-                    done.add(result);
-                }
+            if (inFlight.isEmpty()) {
+                continue;
+            }
+            notifier.checkCancel();
+            RpcFuture f;
+            try {
+                f = completed.poll(100, TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException e) {
+                throw new OperationCanceledException();
+            }
+            if (f != null) {
+                final IResource resource = inFlight.remove(f);
+                helper.completeCompile(project, resource, f.get(), backend.getOtpRpc(),
+                        compilerOptions);
+                notifier.compiled(resource);
             }
-            waiting.removeAll(done);
-            done.clear();
         }
         helper.refreshOutputDir(project);
 
@@ -282,6 +271,27 @@ public class InternalBuilder extends ErlangBuilder {
 
     }
 
+    private RpcFuture startCompile(final IErlProject erlProject,
+            final @NonNull IProject project, final BuildResource bres,
+            final IBackend backend, final OtpErlangList compilerOptions,
+            final BuildKind kind, final BuildNotifier notifier) {
+        final IResource resource = bres.getResource();
+        MarkerUtils.deleteMarkers(resource);
+        notifier.aboutToCompile(resource);
+        if ("erl".equals(resource.getFileExtension())) {
+            final String outputDir = erlProject.getProperties().getOutputDir()
+                    .toString();
+            return helper.startCompileErl(project, bres, outputDir, backend.getOtpRpc(),
+                    compilerOptions, kind == BuildKind.FULL);
+        } else if ("yrl".equals(resource.getFileExtension())) {
+            return helper.startCompileYrl(project, resource, backend.getOtpRpc(),
+                    compilerOptions);
+        } else {
+            ErlLogger.warn("Don't know how to compile: %s", resource.getName());
+            return null;
+        }
+    }
+
     private void handleAppFile(final IProject project, final String outPath,
             final Collection<IPath> sources) {
         if (SystemConfiguration.hasFeatureEnabled("erlide.no_app_src")) {
@@ -0,0 +1,109 @@
+package org.erlide.cover.views.model;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.erlide.cover.views.model.ModuleStatsTest.module;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoverageFileTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("cov", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static StatsTreeModel results() {
+        final StatsTreeObject root = new StatsTreeObject("total", 4, 3,
+                ObjectType.PROJECT);
+        final StatsTreeObject src = new StatsTreeObject("src", 4, 3, ObjectType.FOLDER);
+        src.setRelativePath("p/src");
+        root.addChild(src.getLabel(), src);
+        final ModuleStats module = module("må", "abc", new int[] { 3, 4, 10, 12 },
+                new int[] { 1, 0, 7, 2 });
+        module.setHtmlPath("/tmp/m.html");
+        final FunctionStats function = new FunctionStats();
+        function.setLabel("f");
+        function.setArity(2);
+        function.setLiniesCount(2);
+        function.setCoverCount(1);
+        module.addChild(function.getLabel(), function);
+        src.addChild(module.getLabel(), module);
+        src.addChild("empty", module("empty", null, new int[0], new int[0]));
+        return new StatsTreeModel(root, "2016/1/2 3:4:5");
+    }
+
+    @Test
+    public void resultsAreReadBack() throws IOException {
+        CoverageFile.write(results(), file);
+
+        assertThat(CoverageFile.isCoverageFile(file)).isTrue();
+        final StatsTreeModel read = CoverageFile.read(file);
+        assertThat(read.getTimestamp()).isEqualTo("2016/1/2 3:4:5");
+        final ICoverageObject root = read.getRoot();
+        assertThat(root.getType()).isEqualTo(ObjectType.PROJECT);
+        assertThat(root.getLinesCount()).isEqualTo(4);
+        assertThat(root.getCoverCount()).isEqualTo(3);
+        final ICoverageObject src = root.findChild("src");
+        assertThat(src.getType()).isEqualTo(ObjectType.FOLDER);
+        assertThat(src.getRelativePath()).isEqualTo("p/src");
+        assertThat(src.getHtmlPath()).isNull();
+
+        final ModuleStats module = (ModuleStats) src.findChild("må");
+        assertThat(module.getMd5()).isEqualTo("abc");
+        assertThat(module.getHtmlPath()).isEqualTo("/tmp/m.html");
+        assertThat(module.getLines()).isEqualTo(new int[] { 3, 4, 10, 12 });
+        assertThat(module.getLineCalls()).isEqualTo(new int[] { 1, 0, 7, 2 });
+        assertThat(module.getCoverCount()).isEqualTo(3);
+        final FunctionStats function = (FunctionStats) module.findChild("f");
+        assertThat(function.getArity()).isEqualTo(2);
+        assertThat(function.getLinesCount()).isEqualTo(2);
+        assertThat(function.getCoverCount()).isEqualTo(1);
+
+        final ModuleStats empty = (ModuleStats) src.findChild("empty");
+        assertThat(empty.getMd5()).isNull();
+        assertThat(empty.getLines()).isEqualTo(new int[0]);
+    }
+
+    @Test
+    public void otherFilesAreRecognized() throws IOException {
+        Files.write(file.toPath(), new byte[] { (byte) 0xac, (byte) 0xed, 0, 5 });
+        assertThat(CoverageFile.isCoverageFile(file)).isFalse();
+        assertThat(CoverageFile.isCoverageFile(new File(file.getPath() + ".none")))
+                .isFalse();
+        try {
+            CoverageFile.read(file);
+            throw new AssertionError("read a file in another format");
+        } catch (final IOException e) {
+            assertThat(e.getMessage()).contains("Not a coverage results file");
+        }
+    }
+
+    @Test
+    public void truncatedFilesAreReported() throws IOException {
+        CoverageFile.write(results(), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+        try {
+            CoverageFile.read(file);
+            throw new AssertionError("read a truncated file");
+        } catch (final IOException e) {
+            assertThat(e.getMessage()).contains("Truncated");
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package org.erlide.cover.views.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+public class ModuleStatsTest {
+
+    static ModuleStats module(final String name, final String md5, final int[] lines,
+            final int[] calls) {
+        final ModuleStats module = new ModuleStats();
+        module.setLabel(name);
+        module.setMd5(md5);
+        module.setLineResults(lines, calls);
+        module.setLiniesCount(lines.length);
+        int covered = 0;
+        for (final int call : calls) {
+            if (call != 0) {
+                covered++;
+            }
+        }
+        module.setCoverCount(covered);
+        return module;
+    }
+
+    private static FunctionStats function(final String name, final int arity,
+            final int all, final int covered) {
+        final FunctionStats function = new FunctionStats();
+        function.setLabel(name);
+        function.setArity(arity);
+        function.setLiniesCount(all);
+        function.setCoverCount(covered);
+        return function;
+    }
+
+    @Test
+    public void linesAreKeptSorted() {
+        final ModuleStats module = new ModuleStats();
+        module.addLine(new LineResult(5, 1));
+        module.addLine(new LineResult(2, 0));
+        module.addLine(new LineResult(9, 3));
+        module.addLine(new LineResult(5, 4));
+
+        assertThat(module.getLines()).isEqualTo(new int[] { 2, 5, 9 });
+        assertThat(module.getLineCalls()).isEqualTo(new int[] { 0, 4, 3 });
+        assertThat(module.getLineResults()).containsExactly(new LineResult(2, 0),
+                new LineResult(5, 4), new LineResult(9, 3)).inOrder();
+    }
+
+    @Test
+    public void mergeSumsCallsOfCommonLines() {
+        final ModuleStats a = module("m", "abc", new int[] { 1, 3, 5 },
+                new int[] { 1, 0, 2 });
+        final ModuleStats b = module("m", "abc", new int[] { 2, 3, 5, 8 },
+                new int[] { 0, 4, 1, Integer.MAX_VALUE });
+        a.addChild("f", function("f", 0, 3, 1));
+        b.addChild("f", function("f", 0, 3, 2));
+        b.addChild("g", function("g", 1, 1, 1));
+
+        final ModuleStats merged = a.merge(b);
+
+        assertThat(merged.getLabel()).isEqualTo("m");
+        assertThat(merged.getMd5()).isEqualTo("abc");
+        assertThat(merged.getLines()).isEqualTo(new int[] { 1, 2, 3, 5, 8 });
+        assertThat(merged.getLineCalls()).isEqualTo(
+                new int[] { 1, 0, 4, 3, Integer.MAX_VALUE });
+        assertThat(merged.getLinesCount()).isEqualTo(5);
+        assertThat(merged.getCoverCount()).isEqualTo(4);
+        assertThat(((FunctionStats) merged.findChild("f")).getCoverCount())
+                .isEqualTo(2);
+        assertThat(((FunctionStats) merged.findChild("g")).getArity()).isEqualTo(1);
+        // the merged runs are left as they were
+        assertThat(a.getLineCalls()).isEqualTo(new int[] { 1, 0, 2 });
+    }
+
+    @Test
+    public void mergeWithEmptyRun() {
+        final ModuleStats a = module("m", "abc", new int[] { 1, 3 }, new int[] { 1, 0 });
+        final ModuleStats empty = module("m", "abc", new int[0], new int[0]);
+
+        assertThat(a.merge(empty).getLines()).isEqualTo(a.getLines());
+        assertThat(empty.merge(a).getLineCalls()).isEqualTo(a.getLineCalls());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void runsOfDifferentSourcesAreNotMerged() {
+        final ModuleStats a = module("m", "abc", new int[] { 1 }, new int[] { 1 });
+        final ModuleStats b = module("m", "def", new int[] { 1 }, new int[] { 1 });
+
+        assertThat(a.hasSameSource(b)).isFalse();
+        a.merge(b);
+    }
+
+    @Test
+    public void diffFindsChangedLines() {
+        final ModuleStats before = module("m", "abc", new int[] { 1, 2, 3, 4, 6 },
+                new int[] { 0, 1, 1, 0, 2 });
+        final ModuleStats after = module("m", "abc", new int[] { 1, 2, 3, 5, 6 },
+                new int[] { 3, 0, 1, 1, 5 });
+
+        final CoverageDiff diff = after.diff(before);
+
+        assertThat(diff.isEmpty()).isFalse();
+        assertThat(diff.getNewlyCovered()).isEqualTo(new int[] { 1 });
+        assertThat(diff.getNoLongerCovered()).isEqualTo(new int[] { 2 });
+        assertThat(diff.getAdded()).isEqualTo(new int[] { 5 });
+        assertThat(diff.getRemoved()).isEqualTo(new int[] { 4 });
+    }
+
+    @Test
+    public void diffIgnoresChangedCounts() {
+        final ModuleStats before = module("m", "abc", new int[] { 1, 2 },
+                new int[] { 1, 0 });
+        final ModuleStats after = module("m", "abc", new int[] { 1, 2 },
+                new int[] { 7, 0 });
+
+        assertThat(after.diff(before).isEmpty()).isTrue();
+        assertThat(after.diff(after).isEmpty()).isTrue();
+    }
+
+}
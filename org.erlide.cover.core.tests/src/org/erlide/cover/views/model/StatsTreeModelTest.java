@@ -0,0 +1,82 @@
+package org.erlide.cover.views.model;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.erlide.cover.views.model.ModuleStatsTest.module;
+
+import java.util.SortedMap;
+
+import org.junit.Test;
+
+public class StatsTreeModelTest {
+
+    private static StatsTreeModel model(final ModuleStats... modules) {
+        final StatsTreeObject root = new StatsTreeObject("total", 0, 0,
+                ObjectType.PROJECT);
+        final StatsTreeObject src = new StatsTreeObject("src", 0, 0, ObjectType.FOLDER);
+        root.addChild(src.getLabel(), src);
+        for (final ModuleStats module : modules) {
+            src.addChild(module.getLabel(), module);
+        }
+        return new StatsTreeModel(root, "");
+    }
+
+    private static ModuleStats find(final StatsTreeModel model, final String name) {
+        return (ModuleStats) model.getRoot().findChild("src").findChild(name);
+    }
+
+    @Test
+    public void mergeCombinesModulesAndUpdatesTotals() {
+        final StatsTreeModel model = model(
+                module("a", "1", new int[] { 1, 2 }, new int[] { 1, 0 }),
+                module("b", "2", new int[] { 1 }, new int[] { 1 }));
+        final StatsTreeModel other = model(
+                module("a", "1", new int[] { 2, 3 }, new int[] { 1, 0 }),
+                module("c", "3", new int[] { 4, 5 }, new int[] { 0, 2 }));
+
+        assertThat(model.merge(other)).isEmpty();
+
+        assertThat(find(model, "a").getLines()).isEqualTo(new int[] { 1, 2, 3 });
+        assertThat(find(model, "a").getCoverCount()).isEqualTo(2);
+        assertThat(find(model, "c")).isNotNull();
+        // a: 3 lines, b: 1, c: 2
+        assertThat(model.getRoot().getLinesCount()).isEqualTo(6);
+        assertThat(model.getRoot().getCoverCount()).isEqualTo(4);
+        assertThat(model.isChanged()).isTrue();
+    }
+
+    @Test
+    public void modulesWhoseSourceChangedAreSkipped() {
+        final ModuleStats a = module("a", "1", new int[] { 1, 2 }, new int[] { 1, 0 });
+        final StatsTreeModel model = model(a,
+                module("b", "2", new int[] { 1 }, new int[] { 0 }));
+        final StatsTreeModel other = model(
+                module("a", "changed", new int[] { 1, 2 }, new int[] { 1, 1 }),
+                module("b", "2", new int[] { 1 }, new int[] { 1 }));
+
+        assertThat(model.merge(other)).containsExactly("a");
+
+        assertThat(find(model, "a")).isSameAs(a);
+        assertThat(find(model, "a").getLineCalls()).isEqualTo(new int[] { 1, 0 });
+        assertThat(find(model, "b").getLineCalls()).isEqualTo(new int[] { 1 });
+        assertThat(model.getRoot().getCoverCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void diffListsChangedModules() {
+        final StatsTreeModel before = model(
+                module("a", "1", new int[] { 1, 2 }, new int[] { 1, 0 }),
+                module("b", "2", new int[] { 1 }, new int[] { 1 }),
+                module("gone", "3", new int[] { 1 }, new int[] { 1 }));
+        final StatsTreeModel after = model(
+                module("a", "1", new int[] { 1, 2 }, new int[] { 1, 1 }),
+                module("b", "2", new int[] { 1 }, new int[] { 4 }),
+                module("new", "4", new int[] { 1 }, new int[] { 1 }));
+
+        final SortedMap<String, CoverageDiff> diffs = after.diff(before);
+
+        assertThat(diffs.keySet()).containsExactly("a");
+        assertThat(diffs.get("a").getNewlyCovered()).isEqualTo(new int[] { 2 });
+        assertThat(before.diff(before)).isEmpty();
+    }
+
+}
@@ -47,9 +47,6 @@ public class CoverEventHandler extends ErlangEventHandler {
 
     @Subscribe
     public void handleEvent(final ErlEvent event) {
-        if (!event.getTopic().equals(getTopic())) {
-            return;
-        }
         OtpErlangTuple tuple = null;
 
         final OtpErlangObject data = event.getEvent();
@@ -122,9 +119,7 @@ public class CoverEventHandler extends ErlangEventHandler {
 
                 prepFuncResults((OtpErlangList) resTuple.elementAt(7), moduleStats);
 
-                addModuleToTree(moduleStats);
-
-                ModuleSet.add(moduleStats);
+                addResults(moduleStats);
 
                 return true;
             }
@@ -133,6 +128,17 @@ public class CoverEventHandler extends ErlangEventHandler {
         return false;
     }
 
+    /**
+     * Add the results of a module, either received from the cover node or
+     * kept from an earlier run
+     *
+     * @param moduleStats
+     */
+    void addResults(final ModuleStats moduleStats) {
+        addModuleToTree(moduleStats);
+        ModuleSet.add(moduleStats);
+    }
+
     // adds module to the statistics tree
     private void addModuleToTree(final ModuleStats moduleStats) {
 
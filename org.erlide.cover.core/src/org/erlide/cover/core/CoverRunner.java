@@ -1,15 +1,33 @@
 package org.erlide.cover.core;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
 
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
 import org.erlide.cover.api.AbstractCoverRunner;
 import org.erlide.cover.api.CoverageAnalysis;
 import org.erlide.cover.api.IConfiguration;
 import org.erlide.cover.constants.TestConstants;
+import org.erlide.cover.runtime.launch.LaunchType;
 import org.erlide.cover.views.model.TestTreeModel;
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.root.ErlangProjectProperties;
+import org.erlide.engine.model.root.IErlModule;
 import org.erlide.runtime.rpc.RpcException;
 import org.erlide.util.ErlLogger;
 
@@ -25,6 +43,9 @@ public class CoverRunner extends AbstractCoverRunner {
 
     private static Semaphore semaphore = new Semaphore(1);
 
+    // checksums of the test modules at the last run
+    private static final Map<String, String> testChecksums = new HashMap<>();
+
     public CoverRunner() {
     }
 
@@ -70,8 +91,17 @@ public class CoverRunner extends AbstractCoverRunner {
                 TestConstants.TEST_ERL_BACKEND, TestConstants.FUN_OUTPUT_DIR, "s",
                 ppath.append(config.getOutputDir()).toString());
 
+        final CoveragePerformer performer = CoveragePerformer.getPerformer();
+        final boolean partial = performer.isPartialRun();
+        final Set<String> changed = performer.getChangedModules();
+        final List<String> testModules = findTestModules(config, changed, partial);
+
         switch (CoverBackend.getInstance().getSettings().getType()) {
         case MODULE:
+            if (partial) {
+                runTestsFor(config, changed, testModules);
+                break;
+            }
 
             ErlLogger.info(config.getModules().iterator().next().getFilePath());
 
@@ -82,6 +112,10 @@ public class CoverRunner extends AbstractCoverRunner {
                     config.getModules().iterator().next().getFilePath());
             break;
         case ALL:
+            if (partial) {
+                runTestsFor(config, changed, testModules);
+                break;
+            }
             final List<String> testDirs = new ArrayList<>();
             for (final IPath p : config.getSourceDirs()) {
                 ErlLogger.info(p.toPortableString());
@@ -106,4 +140,148 @@ public class CoverRunner extends AbstractCoverRunner {
         }
     }
 
+    // runs the tests of the changed modules and the test modules that need
+    // to run again
+    private void runTestsFor(final IConfiguration config, final Set<String> changed,
+            final List<String> testModules) throws RpcException {
+        final List<String> paths = new ArrayList<>();
+        for (final IErlModule module : config.getModules()) {
+            if (changed.contains(module.getModuleName())) {
+                paths.add(module.getFilePath());
+            }
+        }
+        paths.addAll(testModules);
+        ErlLogger.info("coverage: running tests of %d modules", paths.size());
+        for (final String path : paths) {
+            CoverBackend.getInstance().getBackend().getOtpRpc().call(
+                    TestConstants.TEST_ERL_BACKEND, TestConstants.FUN_TEST, "ss",
+                    LaunchType.MODULE.name().toLowerCase(), path);
+        }
+    }
+
+    /**
+     * Test modules that have to run in a partial run: those that changed
+     * since the last run and those that call a changed module, directly or
+     * through other modules of the project. The tests of a module itself
+     * (<code>m_tests</code>) run with the module.
+     */
+    private List<String> findTestModules(final IConfiguration config,
+            final Set<String> changed, final boolean partial) {
+        final List<String> result = new ArrayList<>();
+        final Collection<IErlModule> modules;
+        try {
+            modules = config.getProject().getModules();
+        } catch (final ErlModelException e) {
+            ErlLogger.warn(e);
+            return result;
+        }
+        final Collection<IPath> testDirs = getTestDirs(config);
+        final Map<IErlModule, String> sources = new HashMap<>();
+        for (final IErlModule module : modules) {
+            if (module.getFilePath() != null) {
+                sources.put(module, readSource(module.getFilePath()));
+            }
+        }
+        final Set<String> affected = partial ? findAffected(sources, changed, testDirs)
+                : changed;
+        final Pattern callsAffected = callsTo(affected);
+        for (final IErlModule module : sources.keySet()) {
+            if (!isTest(module, testDirs)) {
+                continue;
+            }
+            final String path = module.getFilePath();
+            final String name = module.getModuleName();
+            String checksum = null;
+            try {
+                checksum = MD5Checksum.getMD5(new File(path));
+            } catch (final Exception e) {
+                ErlLogger.warn(e);
+            }
+            final String previous = testChecksums.put(name, checksum);
+            if (!partial || name.endsWith("_tests")
+                    && changed.contains(name.substring(0, name.length() - 6))) {
+                continue;
+            }
+            final String source = sources.get(module);
+            if (checksum == null || !checksum.equals(previous) || source == null
+                    || !affected.isEmpty() && callsAffected.matcher(source).find()) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The changed modules and the modules that call them, transitively. A
+     * test calling any of these can reach changed code.
+     */
+    private Set<String> findAffected(final Map<IErlModule, String> sources,
+            final Set<String> changed, final Collection<IPath> testDirs) {
+        final Set<String> affected = new HashSet<>(changed);
+        boolean grown = !affected.isEmpty();
+        while (grown) {
+            grown = false;
+            final Pattern callsAffected = callsTo(affected);
+            for (final Map.Entry<IErlModule, String> entry : sources.entrySet()) {
+                final IErlModule module = entry.getKey();
+                if (affected.contains(module.getModuleName())
+                        || isTest(module, testDirs)) {
+                    continue;
+                }
+                // a module we can't read is assumed to call anything
+                if (entry.getValue() == null
+                        || callsAffected.matcher(entry.getValue()).find()) {
+                    affected.add(module.getModuleName());
+                    grown = true;
+                }
+            }
+        }
+        return affected;
+    }
+
+    // remote calls and imports of any of the given modules
+    private static Pattern callsTo(final Set<String> names) {
+        final StringBuilder alternatives = new StringBuilder();
+        for (final String name : names) {
+            alternatives.append(alternatives.length() > 0 ? "|" : "")
+                    .append(Pattern.quote(name));
+        }
+        return Pattern.compile("\\b(?:" + alternatives + ")\\s*:|-import\\s*\\(\\s*(?:"
+                + alternatives + ")\\b");
+    }
+
+    private static Collection<IPath> getTestDirs(final IConfiguration config) {
+        final Collection<IPath> dirs = new ArrayList<>();
+        final ErlangProjectProperties properties = config.getProject().getProperties();
+        if (properties != null && properties.getTestDirs() != null) {
+            dirs.addAll(properties.getTestDirs());
+        }
+        return dirs;
+    }
+
+    // modules in one of the project's test directories, or in a "test"
+    // directory as the tests run for the whole project are looked up there
+    private static boolean isTest(final IErlModule module,
+            final Collection<IPath> testDirs) {
+        final IResource resource = module.getResource();
+        final IPath path = resource != null ? resource.getProjectRelativePath()
+                : new Path(module.getFilePath());
+        for (final IPath dir : testDirs) {
+            if (!dir.isEmpty() && dir.isPrefixOf(path)) {
+                return true;
+            }
+        }
+        return Arrays.asList(path.removeLastSegments(1).segments()).contains("test");
+    }
+
+    private static String readSource(final String path) {
+        try {
+            return new String(Files.readAllBytes(Paths.get(path)),
+                    StandardCharsets.ISO_8859_1);
+        } catch (final IOException e) {
+            ErlLogger.warn(e);
+            return null;
+        }
+    }
+
 }
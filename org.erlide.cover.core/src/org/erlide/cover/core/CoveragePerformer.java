@@ -1,15 +1,23 @@
 package org.erlide.cover.core;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.IPath;
 import org.erlide.cover.api.CoverException;
 import org.erlide.cover.api.IConfiguration;
 import org.erlide.cover.api.ICoveragePerformer;
 import org.erlide.cover.constants.CoverConstants;
+import org.erlide.cover.runtime.launch.CoverLaunchSettings;
+import org.erlide.cover.views.model.ICoverageObject;
+import org.erlide.cover.views.model.ModuleStats;
 import org.erlide.cover.views.model.StatsTreeModel;
 import org.erlide.engine.model.root.IErlModule;
 import org.erlide.runtime.rpc.RpcException;
@@ -32,6 +40,13 @@ public class CoveragePerformer implements ICoveragePerformer {
     private Collection<String> coverNodes;
     private IConfiguration config;
 
+    // results of the last run, kept for modules that don't change
+    private final Map<String, ModuleStats> previousResults = new HashMap<>();
+    // checksums of the sources that are cover compiled on the cover nodes
+    private final Map<String, String> compiledChecksums = new HashMap<>();
+    // modules that are analysed again in the current run
+    private final Set<String> changedModules = new HashSet<>();
+
     private final Logger log; // logger
 
     private CoveragePerformer() {
@@ -54,6 +69,10 @@ public class CoveragePerformer implements ICoveragePerformer {
             throws CoverException {
 
         final StatsTreeModel model = StatsTreeModel.getInstance();
+        previousResults.clear();
+        for (final ICoverageObject module : model.getRoot().getModules()) {
+            previousResults.put(module.getLabel(), (ModuleStats) module);
+        }
         model.clear();
         if (CoverBackend.getInstance().getAnnotationMaker() != null) {
             CoverBackend.getInstance().getAnnotationMaker().clearAllAnnotations();
@@ -74,6 +93,7 @@ public class CoveragePerformer implements ICoveragePerformer {
         if (coverNodes.isEmpty() || different) {
 
             coverNodes = nodes;
+            compiledChecksums.clear();
             log.info(CoverBackend.getInstance().getBackend().getName());
             coverNodes.add(CoverBackend.getInstance().getBackend().getName());
 
@@ -136,6 +156,8 @@ public class CoveragePerformer implements ICoveragePerformer {
 
     // cover compilation of chosen modules
     private void recompileModules() throws CoverException {
+        final boolean incremental = isIncremental();
+        changedModules.clear();
         final List<OtpErlangObject> paths = new ArrayList<>(
                 config.getModules().size());
         for (final IErlModule module : config.getModules()) {
@@ -144,8 +166,23 @@ public class CoveragePerformer implements ICoveragePerformer {
                 CoverBackend.getInstance().handleError(msg);
                 throw new CoverException(msg);
             }
+            final String name = module.getModuleName();
+            final String checksum = checksum(module);
+            if (incremental && isUnchanged(name, checksum)) {
+                continue;
+            }
+            changedModules.add(name);
+            compiledChecksums.remove(name);
             log.info(module.getFilePath());
             paths.add(new OtpErlangList(module.getFilePath()));
+            if (checksum != null) {
+                compiledChecksums.put(name, checksum);
+            }
+        }
+        log.info(String.format("%d of %d modules to cover compile", paths.size(),
+                config.getModules().size()));
+        if (paths.isEmpty()) {
+            return;
         }
 
         try {
@@ -154,11 +191,53 @@ public class CoveragePerformer implements ICoveragePerformer {
                     paths);
 
         } catch (final RpcException e) {
+            compiledChecksums.keySet().removeAll(changedModules);
             ErlLogger.error(e);
             throw new CoverException(e.getMessage());
         }
     }
 
+    /**
+     * A module is unchanged if it is still cover compiled from the same
+     * source, and that source is the one of the previous results.
+     */
+    private boolean isUnchanged(final String name, final String checksum) {
+        final ModuleStats previous = previousResults.get(name);
+        return checksum != null && checksum.equals(compiledChecksums.get(name))
+                && previous != null && checksum.equals(previous.getMd5());
+    }
+
+    private String checksum(final IErlModule module) {
+        try {
+            return MD5Checksum.getMD5(new File(module.getFilePath()));
+        } catch (final Exception e) {
+            ErlLogger.warn(e);
+            return null;
+        }
+    }
+
+    private boolean isIncremental() {
+        final CoverLaunchSettings settings = CoverBackend.getInstance().getSettings();
+        return settings != null && settings.isIncremental();
+    }
+
+    /**
+     * Modules that are analysed again in the current run: all of them, unless
+     * the run is incremental.
+     */
+    public synchronized Set<String> getChangedModules() {
+        return new HashSet<>(changedModules);
+    }
+
+    /**
+     * If the results of the last run are kept for some modules, so that only
+     * tests for the others need to be run.
+     */
+    public synchronized boolean isPartialRun() {
+        return isIncremental() && config != null
+                && changedModules.size() < config.getModules().size();
+    }
+
     /**
      * Perform coverage analysis
      */
@@ -167,15 +246,36 @@ public class CoveragePerformer implements ICoveragePerformer {
 
         final List<OtpErlangObject> modules = new ArrayList<>(
                 config.getModules().size());
+        final List<ModuleStats> kept = new ArrayList<>();
         for (final IErlModule module : config.getModules()) {
-            log.info(module.getModuleName());
-            modules.add(new OtpErlangList(module.getModuleName()));
+            final String name = module.getModuleName();
+            if (changedModules.contains(name)) {
+                log.info(name);
+                modules.add(new OtpErlangList(name));
+            } else {
+                kept.add(previousResults.get(name));
+            }
+        }
+
+        final CoverBackend backend = CoverBackend.getInstance();
+        if (!kept.isEmpty()) {
+            for (final ModuleStats stats : kept) {
+                backend.getHandler().addResults(stats);
+            }
+            for (final ICoverObserver obs : backend.getListeners()) {
+                obs.eventOccured(new CoverEvent(CoverStatus.UPDATE));
+            }
+        }
+        if (modules.isEmpty()) {
+            if (backend.getAnnotationMaker() != null) {
+                backend.getAnnotationMaker().addAnnotations();
+            }
+            return;
         }
 
         try {
-            CoverBackend.getInstance().getBackend().getOtpRpc().call(
-                    CoverConstants.COVER_ERL_BACKEND, CoverConstants.FUN_ANALYSE, "x",
-                    modules);
+            backend.getBackend().getOtpRpc().call(CoverConstants.COVER_ERL_BACKEND,
+                    CoverConstants.FUN_ANALYSE, "x", modules);
 
         } catch (final RpcException e) {
             ErlLogger.error(e);
@@ -46,9 +46,6 @@ public class EUnitEventHandler extends ErlangEventHandler {
 
     @Subscribe
     public void handleEvent(final ErlEvent event) {
-        if (!event.getTopic().equals(getTopic())) {
-            return;
-        }
         final OtpErlangObject data = event.getEvent();
 
         if (!(data instanceof OtpErlangTuple
@@ -3,6 +3,8 @@ package org.erlide.cover.core;
 import java.io.File;
 import java.io.FileInputStream;
 import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides a way to calculate md5 checksum to a file
@@ -12,10 +14,40 @@ import java.security.MessageDigest;
  */
 public class MD5Checksum {
 
+    // checksums of files, valid while their size and modification time stay
+    // the same
+    private static final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+        final long lastModified;
+        final long length;
+        final String md5;
+
+        Entry(final long lastModified, final long length, final String md5) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.md5 = md5;
+        }
+    }
+
     public static String getMD5(final File file) throws Exception {
+        final String key = file.getAbsolutePath();
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        final Entry entry = cache.get(key);
+        if (entry != null && entry.lastModified == lastModified
+                && entry.length == length) {
+            return entry.md5;
+        }
+        final String md5 = computeMD5(file);
+        cache.put(key, new Entry(lastModified, length, md5));
+        return md5;
+    }
+
+    private static String computeMD5(final File file) throws Exception {
 
         try (final FileInputStream f = new FileInputStream(file)) {
-            final byte[] buffer = new byte[1024];
+            final byte[] buffer = new byte[64 * 1024];
             final MessageDigest digest = MessageDigest.getInstance("MD5");
 
             int numRead;
@@ -18,6 +18,7 @@ public class CoverLaunchData {
     private final String appProject;
     private String application;
     private final FrameworkType framework;
+    private final boolean incremental;
 
     public CoverLaunchData(final ILaunchConfiguration config) throws CoreException {
 
@@ -32,6 +33,8 @@ public class CoverLaunchData {
         framework = FrameworkType.find(config.getAttribute(ICoverAttributes.COMBO,
                 FrameworkType.EUNIT.getRepr()));
 
+        incremental = config.getAttribute(ICoverAttributes.INCREMENTAL, false);
+
     }
 
     public LaunchType getType() {
@@ -62,4 +65,12 @@ public class CoverLaunchData {
         return framework;
     }
 
+    /**
+     * If only modules that changed since the last run should be analysed
+     * again
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
 }
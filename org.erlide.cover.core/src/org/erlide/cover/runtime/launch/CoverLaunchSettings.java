@@ -22,6 +22,7 @@ public class CoverLaunchSettings {
     private final LaunchType type;
     private final FrameworkType frameworkType;
     private final Configuration config;
+    private final boolean incremental;
 
     private final Logger log; // logger
 
@@ -35,6 +36,7 @@ public class CoverLaunchSettings {
             throws CoverException {
         type = t;
         frameworkType = data.getFramework();
+        incremental = data.isIncremental();
         config = new Configuration();
 
         log = Activator.getDefault();
@@ -103,4 +105,8 @@ public class CoverLaunchSettings {
         return config;
     }
 
+    public boolean isIncremental() {
+        return incremental;
+    }
+
 }
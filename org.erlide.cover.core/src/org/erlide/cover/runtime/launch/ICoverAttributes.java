@@ -21,4 +21,6 @@ public interface ICoverAttributes {
 
     public final String COMBO = prefix + ".framework";
 
+    public final String INCREMENTAL = prefix + ".incremental";
+
 }
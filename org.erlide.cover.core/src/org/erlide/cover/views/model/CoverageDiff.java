@@ -0,0 +1,84 @@
+package org.erlide.cover.views.model;
+
+import java.util.Arrays;
+
+/**
+ * Lines whose coverage changed between two runs of a module.
+ */
+public class CoverageDiff {
+
+    private final int[] newlyCovered;
+    private final int[] noLongerCovered;
+    private final int[] added;
+    private final int[] removed;
+
+    /**
+     * Compare two sets of line results, each with line numbers in ascending
+     * order, in one pass.
+     */
+    CoverageDiff(final int[] beforeLines, final int[] beforeCalls, final int beforeCount,
+            final int[] afterLines, final int[] afterCalls, final int afterCount) {
+        final int[] gained = new int[afterCount];
+        final int[] lost = new int[beforeCount];
+        final int[] onlyAfter = new int[afterCount];
+        final int[] onlyBefore = new int[beforeCount];
+        int g = 0;
+        int l = 0;
+        int a = 0;
+        int r = 0;
+        int i = 0;
+        int j = 0;
+        while (i < beforeCount || j < afterCount) {
+            if (j == afterCount || i < beforeCount && beforeLines[i] < afterLines[j]) {
+                onlyBefore[r++] = beforeLines[i++];
+            } else if (i == beforeCount || afterLines[j] < beforeLines[i]) {
+                onlyAfter[a++] = afterLines[j++];
+            } else {
+                if (beforeCalls[i] == 0 && afterCalls[j] != 0) {
+                    gained[g++] = afterLines[j];
+                } else if (beforeCalls[i] != 0 && afterCalls[j] == 0) {
+                    lost[l++] = afterLines[j];
+                }
+                i++;
+                j++;
+            }
+        }
+        newlyCovered = Arrays.copyOf(gained, g);
+        noLongerCovered = Arrays.copyOf(lost, l);
+        added = Arrays.copyOf(onlyAfter, a);
+        removed = Arrays.copyOf(onlyBefore, r);
+    }
+
+    /**
+     * Lines that weren't executed before and are now
+     */
+    public int[] getNewlyCovered() {
+        return newlyCovered;
+    }
+
+    /**
+     * Lines that were executed before and aren't now
+     */
+    public int[] getNoLongerCovered() {
+        return noLongerCovered;
+    }
+
+    /**
+     * Lines that only have results in the later run
+     */
+    public int[] getAdded() {
+        return added;
+    }
+
+    /**
+     * Lines that only have results in the earlier run
+     */
+    public int[] getRemoved() {
+        return removed;
+    }
+
+    public boolean isEmpty() {
+        return newlyCovered.length == 0 && noLongerCovered.length == 0
+                && added.length == 0 && removed.length == 0;
+    }
+}
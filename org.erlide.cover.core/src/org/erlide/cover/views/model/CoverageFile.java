@@ -0,0 +1,189 @@
+package org.erlide.cover.views.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary format of saved coverage results.
+ *
+ * <p>
+ * The file starts with a magic number and a format version, followed by the
+ * timestamp of the results and the statistics tree, depth first. Each module
+ * stores its results per line as an array of line numbers and an array of
+ * execution counts, so they are read in bulk from the mapped file instead of
+ * object by object.
+ * </p>
+ *
+ * <pre>
+ * file     = MAGIC:int VERSION:int timestamp:string node
+ * node     = type:byte label:string htmlPath:string relativePath:string
+ *            lines:int covered:int [module | function] childCount:int node*
+ * module   = md5:string count:int lineNum:int[count] calls:int[count]
+ * function = arity:int
+ * string   = -1:int | length:int utf8:byte[length]
+ * </pre>
+ */
+public final class CoverageFile {
+
+    private static final int MAGIC = 0x45434f56; // "ECOV"
+    private static final int VERSION = 1;
+    private static final ObjectType[] TYPES = ObjectType.values();
+
+    private CoverageFile() {
+    }
+
+    /**
+     * Check if a file was written in this format.
+     */
+    public static boolean isCoverageFile(final File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(4);
+            return channel.read(header, 0) == 4 && header.getInt(0) == MAGIC;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    public static void write(final StatsTreeModel model, final File file)
+            throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, model.getTimestamp());
+            writeNode(out, model.getRoot());
+        }
+    }
+
+    public static StatsTreeModel read(final File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            final ByteBuffer in = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 8 || in.getInt() != MAGIC) {
+                throw new IOException("Not a coverage results file: " + file);
+            }
+            final int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported coverage results version "
+                        + version + ": " + file);
+            }
+            final String timestamp = readString(in);
+            return new StatsTreeModel(readNode(in), timestamp);
+        } catch (final BufferUnderflowException e) {
+            throw new IOException("Truncated coverage results file: " + file, e);
+        }
+    }
+
+    private static void writeNode(final DataOutputStream out,
+            final ICoverageObject node) throws IOException {
+        out.writeByte(node.getType().ordinal());
+        writeString(out, node.getLabel());
+        writeString(out, node.getHtmlPath());
+        writeString(out, node.getRelativePath());
+        out.writeInt(node.getLinesCount());
+        out.writeInt(node.getCoverCount());
+        if (node instanceof ModuleStats) {
+            final ModuleStats module = (ModuleStats) node;
+            writeString(out, module.getMd5());
+            final int[] lines = module.getLines();
+            final int[] calls = module.getLineCalls();
+            out.writeInt(lines.length);
+            for (final int line : lines) {
+                out.writeInt(line);
+            }
+            for (final int call : calls) {
+                out.writeInt(call);
+            }
+        } else if (node instanceof FunctionStats) {
+            out.writeInt(((FunctionStats) node).getArity());
+        }
+        final ICoverageObject[] children = node.getChildren();
+        out.writeInt(children.length);
+        for (final ICoverageObject child : children) {
+            writeNode(out, child);
+        }
+    }
+
+    private static ICoverageObject readNode(final ByteBuffer in) throws IOException {
+        final int typeIndex = in.get();
+        if (typeIndex < 0 || typeIndex >= TYPES.length) {
+            throw new IOException("Corrupt coverage results: bad node type "
+                    + typeIndex);
+        }
+        final ObjectType type = TYPES[typeIndex];
+        final String label = readString(in);
+        final String htmlPath = readString(in);
+        final String relativePath = readString(in);
+        final int all = in.getInt();
+        final int covered = in.getInt();
+
+        final ICoverageObject node;
+        if (type == ObjectType.MODULE) {
+            final ModuleStats module = new ModuleStats();
+            module.setMd5(readString(in));
+            final int count = in.getInt();
+            if (count < 0 || count > in.remaining() / 8) {
+                throw new IOException("Corrupt coverage results: bad line count "
+                        + count);
+            }
+            final int[] lines = new int[count];
+            final int[] calls = new int[count];
+            in.asIntBuffer().get(lines).get(calls);
+            in.position(in.position() + 8 * count);
+            module.setLineResults(lines, calls);
+            node = module;
+        } else if (type == ObjectType.FUNCTION) {
+            final FunctionStats function = new FunctionStats();
+            function.setArity(in.getInt());
+            node = function;
+        } else {
+            node = new StatsTreeObject(type);
+        }
+        node.setLabel(label);
+        node.setHtmlPath(htmlPath);
+        node.setRelativePath(relativePath);
+        node.setLiniesCount(all);
+        node.setCoverCount(covered);
+
+        final int children = in.getInt();
+        for (int i = 0; i < children; i++) {
+            final ICoverageObject child = readNode(in);
+            node.addChild(child.getLabel(), child);
+        }
+        return node;
+    }
+
+    private static void writeString(final DataOutputStream out, final String s)
+            throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer in) {
+        final int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
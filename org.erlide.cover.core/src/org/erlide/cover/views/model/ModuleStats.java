@@ -1,7 +1,12 @@
 package org.erlide.cover.views.model;
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectInputStream.GetField;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Module statistics
@@ -15,9 +20,13 @@ public class ModuleStats extends StatsTreeObject {
 
     private String md5; // file hash (in order to check if
     // marking annotations in editor makes sense)
-    private final List<LineResult> lineResults = new LinkedList<>(); // results
-    // per
-    // line
+
+    // results per line: line numbers in ascending order and how many times
+    // each line was executed
+    private int[] lines = new int[0];
+    private int[] calls = new int[0];
+    private int lineCount;
+
     public boolean couldBeMarked = true; // if annotation could be marked for
 
     // that file (if it has not changed)
@@ -32,11 +41,192 @@ public class ModuleStats extends StatsTreeObject {
      * @return
      */
     public List<LineResult> getLineResults() {
-        return lineResults;
+        return new AbstractList<LineResult>() {
+            @Override
+            public LineResult get(final int index) {
+                if (index >= lineCount) {
+                    throw new IndexOutOfBoundsException();
+                }
+                return new LineResult(lines[index], calls[index]);
+            }
+
+            @Override
+            public int size() {
+                return lineCount;
+            }
+        };
     }
 
     public void addLine(final LineResult lr) {
-        lineResults.add(lr);
+        if (lineCount == lines.length) {
+            final int capacity = Math.max(16, lineCount * 2);
+            lines = Arrays.copyOf(lines, capacity);
+            calls = Arrays.copyOf(calls, capacity);
+        }
+        if (lineCount > 0 && lr.getLineNum() <= lines[lineCount - 1]) {
+            // results usually come in order, otherwise find the place
+            final int idx = Arrays.binarySearch(lines, 0, lineCount, lr.getLineNum());
+            if (idx >= 0) {
+                calls[idx] = lr.getLineCalls();
+                return;
+            }
+            final int at = -idx - 1;
+            System.arraycopy(lines, at, lines, at + 1, lineCount - at);
+            System.arraycopy(calls, at, calls, at + 1, lineCount - at);
+            lines[at] = lr.getLineNum();
+            calls[at] = lr.getLineCalls();
+        } else {
+            lines[lineCount] = lr.getLineNum();
+            calls[lineCount] = lr.getLineCalls();
+        }
+        lineCount++;
+    }
+
+    /**
+     * Replace the results per line.
+     *
+     * @param lineNums
+     *            line numbers in ascending order
+     * @param lineCalls
+     *            how many times each line was executed
+     */
+    public void setLineResults(final int[] lineNums, final int[] lineCalls) {
+        if (lineNums.length != lineCalls.length) {
+            throw new IllegalArgumentException("line and call counts differ");
+        }
+        lines = lineNums;
+        calls = lineCalls;
+        lineCount = lineNums.length;
+    }
+
+    /**
+     * Line numbers with results, in ascending order
+     */
+    public int[] getLines() {
+        return Arrays.copyOf(lines, lineCount);
+    }
+
+    /**
+     * How many times each line of {@link #getLines()} was executed
+     */
+    public int[] getLineCalls() {
+        return Arrays.copyOf(calls, lineCount);
+    }
+
+    /**
+     * Check if the results of two runs were taken from the same version of the
+     * module's source, so that their line numbers refer to the same code.
+     */
+    public boolean hasSameSource(final ModuleStats other) {
+        return Objects.equals(md5, other.md5);
+    }
+
+    /**
+     * Combine the line results of two runs of the same module: a line's calls
+     * are summed. Line and covered line counts are set from the result. The
+     * function line ranges aren't known here, so a function is given the
+     * higher covered count of the two runs.
+     *
+     * @throws IllegalArgumentException
+     *             if the runs were taken from different versions of the source
+     */
+    public ModuleStats merge(final ModuleStats other) {
+        if (!hasSameSource(other)) {
+            throw new IllegalArgumentException("Results of " + getLabel()
+                    + " come from different versions of the source");
+        }
+        final int[] mergedLines = new int[lineCount + other.lineCount];
+        final int[] mergedCalls = new int[mergedLines.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        int covered = 0;
+        while (i < lineCount || j < other.lineCount) {
+            if (j == other.lineCount || i < lineCount && lines[i] < other.lines[j]) {
+                mergedLines[n] = lines[i];
+                mergedCalls[n] = calls[i++];
+            } else if (i == lineCount || other.lines[j] < lines[i]) {
+                mergedLines[n] = other.lines[j];
+                mergedCalls[n] = other.calls[j++];
+            } else {
+                mergedLines[n] = lines[i];
+                mergedCalls[n] = saturatedAdd(calls[i++], other.calls[j++]);
+            }
+            if (mergedCalls[n] != 0) {
+                covered++;
+            }
+            n++;
+        }
+        final ModuleStats result = new ModuleStats();
+        result.setLabel(getLabel());
+        result.setHtmlPath(getHtmlPath());
+        result.setRelativePath(getRelativePath());
+        result.setMd5(md5);
+        result.setLineResults(Arrays.copyOf(mergedLines, n),
+                Arrays.copyOf(mergedCalls, n));
+        result.setLiniesCount(n);
+        result.setCoverCount(covered);
+        mergeFunctions(result, getChildren());
+        mergeFunctions(result, other.getChildren());
+        return result;
+    }
+
+    private static void mergeFunctions(final ModuleStats result,
+            final ICoverageObject[] functions) {
+        for (final ICoverageObject obj : functions) {
+            final FunctionStats function = (FunctionStats) obj;
+            FunctionStats merged = (FunctionStats) result.findChild(function.getLabel());
+            if (merged == null) {
+                merged = new FunctionStats();
+                merged.setLabel(function.getLabel());
+                merged.setArity(function.getArity());
+                result.addChild(merged.getLabel(), merged);
+            }
+            merged.setLiniesCount(Math.max(merged.getLinesCount(),
+                    function.getLinesCount()));
+            merged.setCoverCount(Math.max(merged.getCoverCount(),
+                    function.getCoverCount()));
+        }
+    }
+
+    /**
+     * Compare with an earlier run of the same module.
+     */
+    public CoverageDiff diff(final ModuleStats before) {
+        return new CoverageDiff(before.lines, before.calls, before.lineCount, lines,
+                calls, lineCount);
+    }
+
+    /**
+     * Results saved before line results were kept in arrays have them in a
+     * list.
+     */
+    private void readObject(final ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        final GetField fields = in.readFields();
+        md5 = (String) fields.get("md5", null);
+        couldBeMarked = fields.get("couldBeMarked", true);
+        lines = (int[]) fields.get("lines", null);
+        calls = (int[]) fields.get("calls", null);
+        lineCount = fields.get("lineCount", 0);
+        if (lines == null || calls == null) {
+            lines = new int[0];
+            calls = new int[0];
+            lineCount = 0;
+            @SuppressWarnings("unchecked")
+            final List<LineResult> list = (List<LineResult>) fields.get("lineResults",
+                    null);
+            if (list != null) {
+                for (final LineResult lr : list) {
+                    addLine(lr);
+                }
+            }
+        }
+    }
+
+    private static int saturatedAdd(final int a, final int b) {
+        final long sum = (long) a + b;
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
     }
 
     @Override
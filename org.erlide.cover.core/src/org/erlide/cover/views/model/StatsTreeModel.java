@@ -1,7 +1,13 @@
 package org.erlide.cover.views.model;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  *
@@ -26,6 +32,12 @@ public class StatsTreeModel implements Serializable {
         setChanged(false);
     }
 
+    StatsTreeModel(final ICoverageObject root, final String timestamp) {
+        this.root = root;
+        this.timestamp = timestamp;
+        setChanged(false);
+    }
+
     public static synchronized StatsTreeModel getInstance() {
         if (model == null) {
             model = new StatsTreeModel();
@@ -109,6 +121,84 @@ public class StatsTreeModel implements Serializable {
         return root.treeSearch(name);
     }
 
+    /**
+     * Add the results of another run. Modules found in both are merged (see
+     * {@link ModuleStats#merge(ModuleStats)}), the others are moved over
+     * from <code>other</code>, which shouldn't be used afterwards. Modules
+     * whose source changed between the runs can't be merged and keep the
+     * results of this model.
+     *
+     * @param other
+     * @return the names of the modules that weren't merged
+     */
+    public List<String> merge(final StatsTreeModel other) {
+        final List<String> skipped = new ArrayList<>();
+        mergeChildren(root, other.getRoot(), skipped);
+        updateTotals(root);
+        setChanged(true);
+        return skipped;
+    }
+
+    private static void mergeChildren(final ICoverageObject target,
+            final ICoverageObject source, final List<String> skipped) {
+        for (final ICoverageObject child : source.getChildren()) {
+            final ICoverageObject existing = target.findChild(child.getLabel());
+            if (existing == null || existing.getType() != child.getType()) {
+                target.addChild(child.getLabel(), child);
+            } else if (child.getType() == ObjectType.MODULE) {
+                final ModuleStats module = (ModuleStats) existing;
+                if (module.hasSameSource((ModuleStats) child)) {
+                    target.addChild(child.getLabel(), module.merge((ModuleStats) child));
+                } else {
+                    skipped.add(child.getLabel());
+                }
+            } else {
+                mergeChildren(existing, child, skipped);
+            }
+        }
+    }
+
+    /**
+     * Compare with the results of an earlier run.
+     *
+     * @param before
+     * @return the changes of the modules found in both runs whose coverage
+     *         changed, by module name
+     */
+    public SortedMap<String, CoverageDiff> diff(final StatsTreeModel before) {
+        final Map<String, ModuleStats> earlier = new HashMap<>();
+        for (final ICoverageObject module : before.getRoot().getModules()) {
+            earlier.put(module.getLabel(), (ModuleStats) module);
+        }
+        final SortedMap<String, CoverageDiff> result = new TreeMap<>();
+        for (final ICoverageObject module : root.getModules()) {
+            final ModuleStats old = earlier.get(module.getLabel());
+            if (old != null) {
+                final CoverageDiff diff = ((ModuleStats) module).diff(old);
+                if (!diff.isEmpty()) {
+                    result.put(module.getLabel(), diff);
+                }
+            }
+        }
+        return result;
+    }
+
+    // line counts of folders are the sums of those of their modules
+    private static void updateTotals(final ICoverageObject object) {
+        if (object.getType() == ObjectType.MODULE) {
+            return;
+        }
+        int all = 0;
+        int covered = 0;
+        for (final ICoverageObject child : object.getChildren()) {
+            updateTotals(child);
+            all += child.getLinesCount();
+            covered += child.getCoverCount();
+        }
+        object.setLiniesCount(all);
+        object.setCoverCount(covered);
+    }
+
     private void initialize() {
         root = new StatsTreeObject("total", 0, 0, ObjectType.PROJECT);
     }
@@ -0,0 +1,84 @@
+package org.erlide.cover.ui.actions;
+
+import java.io.File;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.window.Window;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.dialogs.ElementListSelectionDialog;
+import org.erlide.cover.core.Logger;
+import org.erlide.cover.ui.Activator;
+import org.erlide.cover.ui.CoverageHelper;
+import org.erlide.cover.views.model.CoverageDiff;
+import org.erlide.cover.views.model.StatsTreeModel;
+import org.erlide.util.ErlLogger;
+
+/**
+ * An action for comparing the current coverage results with previously saved
+ * ones
+ */
+public class CompareAction extends Action {
+
+    private final Shell shell;
+
+    private final Logger log = Activator.getDefault();
+
+    public CompareAction(final Shell shell) {
+        this.shell = shell;
+    }
+
+    @Override
+    public void run() {
+
+        final File dir = Activator.getDefault().getStateLocation()
+                .append(SaveAction.DIR_NAME).toFile();
+        final File[] saved = dir.listFiles();
+        if (saved == null || saved.length == 0) {
+            CoverageHelper.reportInfo("There are no saved results to compare with");
+            return;
+        }
+
+        final ElementListSelectionDialog resDialog = new ElementListSelectionDialog(shell,
+                new SavedResultsLabelProvider());
+        resDialog.setElements(saved);
+        resDialog.setTitle("Comparing results");
+        resDialog.setMessage("Select results to compare the current ones with");
+        resDialog.setMultipleSelection(false);
+
+        if (resDialog.open() != Window.OK || resDialog.getFirstResult() == null) {
+            return;
+        }
+        final File file = (File) resDialog.getFirstResult();
+
+        try {
+            final SortedMap<String, CoverageDiff> diffs = StatsTreeModel.getInstance()
+                    .diff(RestoreAction.readResults(file));
+            CoverageHelper.reportInfo(describe(file, diffs));
+        } catch (final Exception e) {
+            log.error("Error while reading file");
+            ErlLogger.error(e);
+            CoverageHelper.reportError("Error while reading file");
+        }
+    }
+
+    private static String describe(final File file,
+            final SortedMap<String, CoverageDiff> diffs) {
+        if (diffs.isEmpty()) {
+            return "Coverage has not changed since " + file.getName();
+        }
+        final StringBuilder buf = new StringBuilder();
+        buf.append("Coverage changes since ").append(file.getName()).append(':');
+        for (final Map.Entry<String, CoverageDiff> entry : diffs.entrySet()) {
+            final CoverageDiff diff = entry.getValue();
+            buf.append('\n').append(entry.getKey()).append(": ");
+            buf.append(diff.getNewlyCovered().length).append(" lines newly covered, ");
+            buf.append(diff.getNoLongerCovered().length).append(" no longer covered, ");
+            buf.append(diff.getAdded().length).append(" added, ");
+            buf.append(diff.getRemoved().length).append(" removed");
+        }
+        return buf.toString();
+    }
+
+}
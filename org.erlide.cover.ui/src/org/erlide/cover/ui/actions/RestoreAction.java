@@ -3,26 +3,24 @@ package org.erlide.cover.ui.actions;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
+import java.util.List;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.jface.action.Action;
-import org.eclipse.jface.viewers.ILabelProvider;
-import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.window.Window;
-import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.dialogs.ElementListSelectionDialog;
 import org.erlide.cover.core.Logger;
 import org.erlide.cover.core.MD5Checksum;
 import org.erlide.cover.ui.Activator;
 import org.erlide.cover.ui.CoverageHelper;
-import org.erlide.cover.ui.Images;
 import org.erlide.cover.ui.annotations.EditorTracker;
+import org.erlide.cover.views.model.CoverageFile;
 import org.erlide.cover.views.model.ICoverageObject;
 import org.erlide.cover.views.model.ModuleSet;
 import org.erlide.cover.views.model.ModuleStats;
@@ -31,6 +29,8 @@ import org.erlide.cover.views.model.StatsTreeModel;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.util.ErlLogger;
 
+import com.google.common.base.Joiner;
+
 /**
  * An action for restoring coverage results which were previously saved
  *
@@ -64,11 +64,12 @@ public class RestoreAction extends Action {
 
         // open dialog
         final ElementListSelectionDialog resDialog = new ElementListSelectionDialog(shell,
-                labelProvider);
+                new SavedResultsLabelProvider());
 
         resDialog.setElements(dir.listFiles());
         resDialog.setTitle("Restoring results");
-        resDialog.setMessage("Select results to restore");
+        resDialog.setMessage("Select results to restore (several are merged)");
+        resDialog.setMultipleSelection(true);
 
         resDialog.open();
 
@@ -76,14 +77,29 @@ public class RestoreAction extends Action {
             return;
         }
         //
-        final File f = (File) resDialog.getFirstResult();
+        final Object[] selected = resDialog.getResult();
 
-        try (final ObjectInputStream objStream = new ObjectInputStream(
-                new FileInputStream(f))) {
+        try {
 
-            final Object obj = objStream.readObject();
+            StatsTreeModel model = null;
+            final List<String> skipped = new ArrayList<>();
+            for (final Object f : selected) {
+                final StatsTreeModel results = readResults((File) f);
+                if (model == null) {
+                    model = results;
+                } else {
+                    skipped.addAll(model.merge(results));
+                }
+            }
+            if (model == null) {
+                return;
+            }
+            if (!skipped.isEmpty()) {
+                CoverageHelper.reportInfo("Results of modules changed between the runs"
+                        + " were not merged: " + Joiner.on(", ").join(skipped));
+            }
 
-            StatsTreeModel.changeInstance((StatsTreeModel) obj);
+            StatsTreeModel.changeInstance(model);
             StatsTreeModel.getInstance().setChanged(true);
 
             viewer.setInput(StatsTreeModel.getInstance());
@@ -114,6 +130,18 @@ public class RestoreAction extends Action {
 
     }
 
+    // results saved by older versions are serialized objects
+    static StatsTreeModel readResults(final File f) throws IOException,
+            ClassNotFoundException {
+        if (CoverageFile.isCoverageFile(f)) {
+            return CoverageFile.read(f);
+        }
+        try (final ObjectInputStream objStream = new ObjectInputStream(
+                new FileInputStream(f))) {
+            return (StatsTreeModel) objStream.readObject();
+        }
+    }
+
     // creates module set used to prepare annotations map
     private void createModuleSet(final ModuleSet mSet, final ICoverageObject object) {
         if (object.getType().equals(ObjectType.MODULE)) {
@@ -140,34 +168,4 @@ public class RestoreAction extends Action {
         return false;
     }
 
-    // label provider for choosing files
-    private final ILabelProvider labelProvider = new LabelProvider() {
-
-        @Override
-        public Image getImage(final Object element) {
-
-            final Image img = Activator.getImageDescriptor(Images.RAW_FILE).createImage();
-            return img;
-        }
-
-        @Override
-        public String getText(final Object element) {
-            if (!(element instanceof File)) {
-                return null;
-            }
-            final File f = (File) element;
-
-            final SimpleDateFormat df = new SimpleDateFormat("yyyy.MM.dd HH:mm:ss");
-            final Date d = new Date();
-            d.setTime(f.lastModified());
-
-            log.info(df.format(d));
-
-            final StringBuffer buf = new StringBuffer();
-            buf.append(f.getName()).append(" (").append(df.format(d)).append(")");
-            return buf.toString();
-        }
-
-    };
-
 }
@@ -2,9 +2,7 @@ package org.erlide.cover.ui.actions;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.jface.action.Action;
@@ -15,6 +13,7 @@ import org.eclipse.swt.widgets.Shell;
 import org.erlide.cover.core.Logger;
 import org.erlide.cover.ui.Activator;
 import org.erlide.cover.ui.CoverageHelper;
+import org.erlide.cover.views.model.CoverageFile;
 import org.erlide.cover.views.model.StatsTreeModel;
 import org.erlide.util.ErlLogger;
 
@@ -90,9 +89,9 @@ public class SaveAction extends Action {
         log.info(location);
         log.info(name);
 
-        try (final ObjectOutputStream objOutStream = new ObjectOutputStream(
-                new FileOutputStream(location.append(name).toString()))) {
-            objOutStream.writeObject(StatsTreeModel.getInstance());
+        try {
+            CoverageFile.write(StatsTreeModel.getInstance(), location.append(name)
+                    .toFile());
         } catch (final FileNotFoundException e) {
             log.error("Error while openning stream");
             ErlLogger.error(e);
@@ -0,0 +1,40 @@
+package org.erlide.cover.ui.actions;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.swt.graphics.Image;
+import org.erlide.cover.ui.Activator;
+import org.erlide.cover.ui.Images;
+
+/**
+ * Labels of saved coverage results files: their name and when they were saved
+ */
+class SavedResultsLabelProvider extends LabelProvider {
+
+    @Override
+    public Image getImage(final Object element) {
+
+        final Image img = Activator.getImageDescriptor(Images.RAW_FILE).createImage();
+        return img;
+    }
+
+    @Override
+    public String getText(final Object element) {
+        if (!(element instanceof File)) {
+            return null;
+        }
+        final File f = (File) element;
+
+        final SimpleDateFormat df = new SimpleDateFormat("yyyy.MM.dd HH:mm:ss");
+        final Date d = new Date();
+        d.setTime(f.lastModified());
+
+        final StringBuffer buf = new StringBuffer();
+        buf.append(f.getName()).append(" (").append(df.format(d)).append(")");
+        return buf.toString();
+    }
+
+}
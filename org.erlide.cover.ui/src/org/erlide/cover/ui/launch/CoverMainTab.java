@@ -52,6 +52,7 @@ public class CoverMainTab extends AbstractLaunchConfigurationTab {
     private Button singleRadio; // radio button for single module
     private Button allRadio; // radio button for running all tests
     private Combo testCombo; // framework
+    private Button incrementalCheck; // only re-run changed modules
 
     private ElementListSelectionDialog moduleDialog;
 
@@ -98,6 +99,15 @@ public class CoverMainTab extends AbstractLaunchConfigurationTab {
         testCombo.setItems(new String[] { FrameworkType.EUNIT.getRepr() });
         testCombo.addModifyListener(basicModifyListener);
 
+        incrementalCheck = new Button(comp, SWT.CHECK);
+        incrementalCheck.setText(
+                "Only re-run tests for modules changed since the last run");
+        final GridData checkData = new GridData();
+        checkData.horizontalAlignment = GridData.FILL;
+        checkData.horizontalSpan = 3;
+        incrementalCheck.setLayoutData(checkData);
+        incrementalCheck.addSelectionListener(checkSelectionListener);
+
         Collection<IErlProject> projects;
         try {
             projects = ErlangEngine.getInstance().getModel().getErlangProjects();
@@ -118,6 +128,7 @@ public class CoverMainTab extends AbstractLaunchConfigurationTab {
         config.setAttribute(ICoverAttributes.APPLICATION, "");
         config.setAttribute(ICoverAttributes.TYPE, LaunchType.MODULE.toString());
         config.setAttribute(ICoverAttributes.COMBO, "0");
+        config.setAttribute(ICoverAttributes.INCREMENTAL, false);
     }
 
     @Override
@@ -204,6 +215,13 @@ public class CoverMainTab extends AbstractLaunchConfigurationTab {
             testCombo.select(0);
         }
 
+        try {
+            incrementalCheck.setSelection(
+                    config.getAttribute(ICoverAttributes.INCREMENTAL, false));
+        } catch (final CoreException e) {
+            incrementalCheck.setSelection(false);
+        }
+
     }
 
     @Override
@@ -221,6 +239,8 @@ public class CoverMainTab extends AbstractLaunchConfigurationTab {
         config.setAttribute(ICoverAttributes.FILE, fileBr.getText());
         config.setAttribute(ICoverAttributes.TYPE, type.toString());
         config.setAttribute(ICoverAttributes.COMBO, testCombo.getText());
+        config.setAttribute(ICoverAttributes.INCREMENTAL,
+                incrementalCheck.getSelection());
     }
 
     @Override
@@ -360,6 +380,18 @@ public class CoverMainTab extends AbstractLaunchConfigurationTab {
         }
     };
 
+    private final SelectionListener checkSelectionListener = new SelectionListener() {
+
+        @Override
+        public void widgetSelected(final SelectionEvent e) {
+            updateLaunchConfigurationDialog();
+        }
+
+        @Override
+        public void widgetDefaultSelected(final SelectionEvent e) {
+        }
+    };
+
     private final SelectionListener radioSelectionListener = new SelectionListener() {
 
         @Override
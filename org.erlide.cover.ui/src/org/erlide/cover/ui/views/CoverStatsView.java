@@ -35,6 +35,7 @@ import org.erlide.cover.core.ICoverObserver;
 import org.erlide.cover.core.Logger;
 import org.erlide.cover.ui.Activator;
 import org.erlide.cover.ui.actions.ClearCoverageAction;
+import org.erlide.cover.ui.actions.CompareAction;
 import org.erlide.cover.ui.actions.ExportReports;
 import org.erlide.cover.ui.actions.HideCoverageAction;
 import org.erlide.cover.ui.actions.HtmlReportAction;
@@ -71,6 +72,7 @@ public class CoverStatsView extends ViewPart implements ICoverObserver {
     private Action clear;
     private Action eksportHTML;
     private Action restore;
+    private Action compare;
     private Action doubleClickAction;
     private Action showCoverage;
     private Action hideCoverage;
@@ -237,6 +239,7 @@ public class CoverStatsView extends ViewPart implements ICoverObserver {
         manager.add(eksportHTML);
         manager.add(new Separator());
         manager.add(restore);
+        manager.add(compare);
         manager.add(save);
 
     }
@@ -257,6 +260,7 @@ public class CoverStatsView extends ViewPart implements ICoverObserver {
         manager.add(eksportHTML);
         manager.add(new Separator());
         manager.add(restore);
+        manager.add(compare);
         manager.add(save);
         manager.add(new Separator());
         drillDownAdapter.addNavigationActions(manager);
@@ -267,6 +271,7 @@ public class CoverStatsView extends ViewPart implements ICoverObserver {
         makeDoubleClickAction();
         makeOpenItemAction();
         makeRestoreAction();
+        makeCompareAction();
         makeSaveAction();
         makeShowHtmlAction();
         makeRefreshAction();
@@ -321,6 +326,13 @@ public class CoverStatsView extends ViewPart implements ICoverObserver {
         restore.setToolTipText("Restore previous results");
     }
 
+    private void makeCompareAction() {
+        compare = new CompareAction(viewer.getControl().getShell());
+        compare.setImageDescriptor(PlatformUI.getWorkbench().getSharedImages()
+                .getImageDescriptor(ISharedImages.IMG_OBJS_INFO_TSK));
+        compare.setToolTipText("Compare with previous results");
+    }
+
     private void makeSaveAction() {
         save = new SaveAction(viewer.getControl().getShell());
         save.setImageDescriptor(PlatformUI.getWorkbench().getSharedImages()
@@ -58,6 +58,15 @@ import java.util.Random;
 public abstract class AbstractConnection extends Thread {
     protected static final int headerLen = 2048; // more than enough
 
+    // encoding buffers are reused by the thread that sends; buffers that grew
+    // larger than this while encoding are dropped instead
+    private static final int maxRetainedBuffer = 1 << 20;
+    static final ThreadLocal<OtpOutputStream> headerBuffers = new ThreadLocal<>();
+    static final ThreadLocal<OtpOutputStream> payloadBuffers = new ThreadLocal<>();
+
+    // for incoming packets
+    private final OtpBufferPool receiveBuffers = new OtpBufferPool();
+
     protected static final byte passThrough = (byte) 0x70;
     protected static final byte version = (byte) 0x83;
 
@@ -227,7 +236,7 @@ public abstract class AbstractConnection extends Thread {
             throw new IOException("Not connected");
         }
         @SuppressWarnings("resource")
-        final OtpOutputStream header = new OtpOutputStream(headerLen);
+        final OtpOutputStream header = takeBuffer(headerBuffers, headerLen);
 
         // preamble: 4 byte length + "passthrough" tag + version
         header.write4BE(0); // reserve space for length
@@ -252,6 +261,7 @@ public abstract class AbstractConnection extends Thread {
         header.poke4BE(0, header.size() + payload.size() - 4);
 
         do_send(header, payload);
+        returnBuffer(headerBuffers, header);
     }
 
     /**
@@ -271,7 +281,7 @@ public abstract class AbstractConnection extends Thread {
             throw new IOException("Not connected");
         }
         @SuppressWarnings("resource")
-        final OtpOutputStream header = new OtpOutputStream(headerLen);
+        final OtpOutputStream header = takeBuffer(headerBuffers, headerLen);
 
         // preamble: 4 byte length + "passthrough" tag + version
         header.write4BE(0); // reserve space for length
@@ -295,6 +305,7 @@ public abstract class AbstractConnection extends Thread {
         header.poke4BE(0, header.size() + payload.size() - 4);
 
         do_send(header, payload);
+        returnBuffer(headerBuffers, header);
     }
 
     /*
@@ -375,7 +386,7 @@ public abstract class AbstractConnection extends Thread {
             throw new IOException("Not connected");
         }
         @SuppressWarnings("resource")
-        final OtpOutputStream header = new OtpOutputStream(headerLen);
+        final OtpOutputStream header = takeBuffer(headerBuffers, headerLen);
 
         // preamble: 4 byte length + "passthrough" tag
         header.write4BE(0); // reserve space for length
@@ -392,6 +403,7 @@ public abstract class AbstractConnection extends Thread {
         header.poke4BE(0, header.size() - 4);
 
         do_send(header);
+        returnBuffer(headerBuffers, header);
     }
 
     /**
@@ -410,7 +422,7 @@ public abstract class AbstractConnection extends Thread {
             throw new IOException("Not connected");
         }
         @SuppressWarnings("resource")
-        final OtpOutputStream header = new OtpOutputStream(headerLen);
+        final OtpOutputStream header = takeBuffer(headerBuffers, headerLen);
 
         // preamble: 4 byte length + "passthrough" tag
         header.write4BE(0); // reserve space for length
@@ -427,6 +439,7 @@ public abstract class AbstractConnection extends Thread {
         header.poke4BE(0, header.size() - 4);
 
         do_send(header);
+        returnBuffer(headerBuffers, header);
     }
 
     /* used internally when "processes" terminate */
@@ -457,7 +470,7 @@ public abstract class AbstractConnection extends Thread {
             throw new IOException("Not connected");
         }
         @SuppressWarnings("resource")
-        final OtpOutputStream header = new OtpOutputStream(headerLen);
+        final OtpOutputStream header = takeBuffer(headerBuffers, headerLen);
 
         // preamble: 4 byte length + "passthrough" tag
         header.write4BE(0); // reserve space for length
@@ -475,6 +488,34 @@ public abstract class AbstractConnection extends Thread {
         header.poke4BE(0, header.size() - 4);
 
         do_send(header);
+        returnBuffer(headerBuffers, header);
+    }
+
+    @Override
+    public synchronized void start() {
+        // NIO transports hand the packets over from a shared selector thread,
+        // so the connection doesn't need a reader thread of its own
+        if (connected && socket instanceof OtpNioTransport) {
+            ((OtpNioTransport) socket)
+                    .startReading(new OtpNioTransport.PacketReceiver() {
+                        @Override
+                        public byte[] receiveBuffer(final int len) {
+                            return AbstractConnection.this.receiveBuffer(len);
+                        }
+
+                        @Override
+                        public boolean packetReceived(final byte[] buf, final int len) {
+                            return AbstractConnection.this.packetReceived(buf, len);
+                        }
+
+                        @Override
+                        public void transportFailed() {
+                            AbstractConnection.this.transportFailed();
+                        }
+                    });
+        } else {
+            super.start();
+        }
     }
 
     @SuppressWarnings("resource")
@@ -486,13 +527,11 @@ public abstract class AbstractConnection extends Thread {
         }
 
         final byte[] lbuf = new byte[4];
-        OtpInputStream ibuf;
-        OtpErlangObject traceobj;
+        byte[] tmpbuf;
         int len;
         final byte[] tock = { 0, 0, 0, 0 };
 
         try {
-            receive_loop:
             while (!done) {
                 // don't return until we get a real message
                 // or a failure of some kind (e.g. EXIT)
@@ -501,8 +540,8 @@ public abstract class AbstractConnection extends Thread {
                     // read 4 bytes - get length of incoming packet
                     // socket.getInputStream().read(lbuf);
                     readSock(socket, lbuf);
-                    ibuf = new OtpInputStream(lbuf, flags);
-                    len = ibuf.read4BE();
+                    len = (lbuf[0] & 0xff) << 24 | (lbuf[1] & 0xff) << 16
+                            | (lbuf[2] & 0xff) << 8 | lbuf[3] & 0xff;
 
                     // received tick? send tock!
                     if (len == 0) {
@@ -516,202 +555,256 @@ public abstract class AbstractConnection extends Thread {
                 } while (len == 0); // tick_loop
 
                 // got a real message (maybe) - read len bytes
-                final byte[] tmpbuf = new byte[len];
+                tmpbuf = receiveBuffers.acquire(len);
                 // i = socket.getInputStream().read(tmpbuf);
-                readSock(socket, tmpbuf);
-                ibuf.close();
-                ibuf = new OtpInputStream(tmpbuf, flags);
-
-                if (ibuf.read1() != passThrough) {
-                    break receive_loop;
+                readSock(socket, tmpbuf, len);
+                if (!handlePacket(tmpbuf, len)) {
+                    break;
                 }
+            }
 
-                // got a real message (really)
-                OtpErlangObject reason = null;
-                OtpErlangAtom cookie = null;
-                OtpErlangObject tmp = null;
-                OtpErlangTuple head = null;
-                OtpErlangAtom toName;
-                OtpErlangPid to;
-                OtpErlangPid from;
-                int tag;
-
-                // decode the header
-                tmp = ibuf.read_any();
-                if (!(tmp instanceof OtpErlangTuple)) {
-                    break receive_loop;
-                }
+            // this section reachable only with break
+            // we have received garbage from peer
+            deliver(new OtpErlangExit("Remote is sending garbage"));
 
-                head = (OtpErlangTuple) tmp;
-                if (!(head.elementAt(0) instanceof OtpErlangLong)) {
-                    break receive_loop;
-                }
+        } // try
 
-                // lets see what kind of message this is
-                tag = (int) ((OtpErlangLong) head.elementAt(0)).longValue();
-
-                switch (tag) {
-                case sendTag: // { SEND, Cookie, ToPid }
-                case sendTTTag: // { SEND, Cookie, ToPid, TraceToken }
-                    if (!cookieOk) {
-                        // we only check this once, he can send us bad cookies
-                        // later if he likes
-                        if (!(head.elementAt(1) instanceof OtpErlangAtom)) {
-                            break receive_loop;
-                        }
-                        cookie = (OtpErlangAtom) head.elementAt(1);
-                        if (sendCookie) {
-                            if (!cookie.atomValue().equals(localNode.cookie())) {
-                                cookieError(localNode, cookie);
-                            }
-                        } else {
-                            if (!cookie.atomValue().equals("")) {
-                                cookieError(localNode, cookie);
-                            }
-                        }
-                        cookieOk = true;
-                    }
+        catch (final OtpAuthException e) {
+            deliver(e);
+        } catch (final OtpErlangDecodeException e) {
+            deliver(new OtpErlangExit("Remote is sending garbage"));
+        } catch (final IOException e) {
+            deliver(new OtpErlangExit("Remote has closed connection"));
+        } finally {
+            close();
+        }
+    }
 
-                    if (traceLevel >= sendThreshold) {
-                        System.out.println("<- " + headerType(head) + " " + head);
+    /**
+     * Called by an {@link OtpNioTransport} for each packet received after the
+     * handshake, instead of the receive loop in {@link #run()}.
+     *
+     * @return false if the connection was closed
+     */
+    boolean packetReceived(final byte[] buf, final int len) {
+        try {
+            if (handlePacket(buf, len)) {
+                return true;
+            }
+            deliver(new OtpErlangExit("Remote is sending garbage"));
+        } catch (final OtpAuthException e) {
+            deliver(e);
+        } catch (final OtpErlangDecodeException e) {
+            deliver(new OtpErlangExit("Remote is sending garbage"));
+        } catch (final IOException e) {
+            deliver(new OtpErlangExit("Remote has closed connection"));
+        }
+        close();
+        return false;
+    }
 
-                        /* show received payload too */
-                        ibuf.mark(0);
-                        traceobj = ibuf.read_any();
+    /**
+     * Called by an {@link OtpNioTransport} when reading from the peer failed.
+     */
+    void transportFailed() {
+        deliver(new OtpErlangExit("Remote has closed connection"));
+        close();
+    }
 
-                        if (traceobj != null) {
-                            System.out.println("   " + traceobj);
-                        } else {
-                            System.out.println("   (null)");
-                        }
-                        ibuf.reset();
-                    }
+    /**
+     * Get a buffer from the receive pool, to read a packet of the given length.
+     */
+    byte[] receiveBuffer(final int len) {
+        return receiveBuffers.acquire(len);
+    }
 
-                    to = (OtpErlangPid) head.elementAt(2);
+    /**
+     * Handle a packet received from the peer, in the first <code>len</code>
+     * bytes of <code>tmpbuf</code>, which comes from the receive pool.
+     *
+     * @return false if the peer is sending garbage
+     */
+    private boolean handlePacket(final byte[] tmpbuf, final int len)
+            throws IOException, OtpAuthException, OtpErlangDecodeException {
+        final OtpInputStream ibuf = new OtpInputStream(tmpbuf, 0, len, flags);
+        OtpErlangObject traceobj;
 
-                    deliver(new OtpMsg(to, ibuf));
-                    break;
+        if (ibuf.read1() != passThrough) {
+            return false;
+        }
 
-                case regSendTag: // { REG_SEND, FromPid, Cookie, ToName }
-                case regSendTTTag: // { REG_SEND, FromPid, Cookie, ToName,
-                    // TraceToken }
-                    if (!cookieOk) {
-                        // we only check this once, he can send us bad cookies
-                        // later if he likes
-                        if (!(head.elementAt(2) instanceof OtpErlangAtom)) {
-                            break receive_loop;
-                        }
-                        cookie = (OtpErlangAtom) head.elementAt(2);
-                        if (sendCookie) {
-                            if (!cookie.atomValue().equals(localNode.cookie())) {
-                                cookieError(localNode, cookie);
-                            }
-                        } else {
-                            if (!cookie.atomValue().equals("")) {
-                                cookieError(localNode, cookie);
-                            }
-                        }
-                        cookieOk = true;
-                    }
+        // got a real message (really)
+        OtpErlangObject reason = null;
+        OtpErlangAtom cookie = null;
+        OtpErlangObject tmp = null;
+        OtpErlangTuple head = null;
+        OtpErlangAtom toName;
+        OtpErlangPid to;
+        OtpErlangPid from;
+        int tag;
+
+        // decode the header
+        tmp = ibuf.read_any();
+        if (!(tmp instanceof OtpErlangTuple)) {
+            return false;
+        }
 
-                    if (traceLevel >= sendThreshold) {
-                        System.out.println("<- " + headerType(head) + " " + head);
+        head = (OtpErlangTuple) tmp;
+        if (!(head.elementAt(0) instanceof OtpErlangLong)) {
+            return false;
+        }
 
-                        /* show received payload too */
-                        ibuf.mark(0);
-                        traceobj = ibuf.read_any();
+        // lets see what kind of message this is
+        tag = (int) ((OtpErlangLong) head.elementAt(0)).longValue();
 
-                        if (traceobj != null) {
-                            System.out.println("   " + traceobj);
-                        } else {
-                            System.out.println("   (null)");
-                        }
-                        ibuf.reset();
+        switch (tag) {
+        case sendTag: // { SEND, Cookie, ToPid }
+        case sendTTTag: // { SEND, Cookie, ToPid, TraceToken }
+            if (!cookieOk) {
+                // we only check this once, he can send us bad cookies
+                // later if he likes
+                if (!(head.elementAt(1) instanceof OtpErlangAtom)) {
+                    return false;
+                }
+                cookie = (OtpErlangAtom) head.elementAt(1);
+                if (sendCookie) {
+                    if (!cookie.atomValue().equals(localNode.cookie())) {
+                        cookieError(localNode, cookie);
+                    }
+                } else {
+                    if (!cookie.atomValue().equals("")) {
+                        cookieError(localNode, cookie);
                     }
+                }
+                cookieOk = true;
+            }
 
-                    from = (OtpErlangPid) head.elementAt(1);
-                    toName = (OtpErlangAtom) head.elementAt(3);
+            if (traceLevel >= sendThreshold) {
+                System.out.println("<- " + headerType(head) + " " + head);
 
-                    deliver(new OtpMsg(from, toName.atomValue(), ibuf));
-                    break;
+                /* show received payload too */
+                ibuf.mark(0);
+                traceobj = ibuf.read_any();
 
-                case exitTag: // { EXIT, FromPid, ToPid, Reason }
-                case exit2Tag: // { EXIT2, FromPid, ToPid, Reason }
-                    if (head.elementAt(3) == null) {
-                        break receive_loop;
-                    }
-                    if (traceLevel >= ctrlThreshold) {
-                        System.out.println("<- " + headerType(head) + " " + head);
-                    }
+                if (traceobj != null) {
+                    System.out.println("   " + traceobj);
+                } else {
+                    System.out.println("   (null)");
+                }
+                ibuf.reset();
+            }
 
-                    from = (OtpErlangPid) head.elementAt(1);
-                    to = (OtpErlangPid) head.elementAt(2);
-                    reason = head.elementAt(3);
+            to = (OtpErlangPid) head.elementAt(2);
 
-                    deliver(new OtpMsg(tag, from, to, reason));
-                    break;
+            deliverPooled(new OtpMsg(to, ibuf), tmpbuf);
+            return true;
 
-                case exitTTTag: // { EXIT, FromPid, ToPid, TraceToken, Reason }
-                case exit2TTTag: // { EXIT2, FromPid, ToPid, TraceToken,
-                    // Reason
-                    // }
-                    // as above, but bifferent element number
-                    if (head.elementAt(4) == null) {
-                        break receive_loop;
+        case regSendTag: // { REG_SEND, FromPid, Cookie, ToName }
+        case regSendTTTag: // { REG_SEND, FromPid, Cookie, ToName,
+            // TraceToken }
+            if (!cookieOk) {
+                // we only check this once, he can send us bad cookies
+                // later if he likes
+                if (!(head.elementAt(2) instanceof OtpErlangAtom)) {
+                    return false;
+                }
+                cookie = (OtpErlangAtom) head.elementAt(2);
+                if (sendCookie) {
+                    if (!cookie.atomValue().equals(localNode.cookie())) {
+                        cookieError(localNode, cookie);
                     }
-                    if (traceLevel >= ctrlThreshold) {
-                        System.out.println("<- " + headerType(head) + " " + head);
+                } else {
+                    if (!cookie.atomValue().equals("")) {
+                        cookieError(localNode, cookie);
                     }
+                }
+                cookieOk = true;
+            }
 
-                    from = (OtpErlangPid) head.elementAt(1);
-                    to = (OtpErlangPid) head.elementAt(2);
-                    reason = head.elementAt(4);
+            if (traceLevel >= sendThreshold) {
+                System.out.println("<- " + headerType(head) + " " + head);
 
-                    deliver(new OtpMsg(tag, from, to, reason));
-                    break;
+                /* show received payload too */
+                ibuf.mark(0);
+                traceobj = ibuf.read_any();
 
-                case linkTag: // { LINK, FromPid, ToPid}
-                case unlinkTag: // { UNLINK, FromPid, ToPid}
-                    if (traceLevel >= ctrlThreshold) {
-                        System.out.println("<- " + headerType(head) + " " + head);
-                    }
+                if (traceobj != null) {
+                    System.out.println("   " + traceobj);
+                } else {
+                    System.out.println("   (null)");
+                }
+                ibuf.reset();
+            }
 
-                    from = (OtpErlangPid) head.elementAt(1);
-                    to = (OtpErlangPid) head.elementAt(2);
+            from = (OtpErlangPid) head.elementAt(1);
+            toName = (OtpErlangAtom) head.elementAt(3);
 
-                    deliver(new OtpMsg(tag, from, to));
-                    break;
+            deliverPooled(new OtpMsg(from, toName.atomValue(), ibuf), tmpbuf);
+            return true;
 
-                // absolutely no idea what to do with these, so we ignore
-                // them...
-                case groupLeaderTag: // { GROUPLEADER, FromPid, ToPid}
-                    // (just show trace)
-                    if (traceLevel >= ctrlThreshold) {
-                        System.out.println("<- " + headerType(head) + " " + head);
-                    }
-                    break;
+        case exitTag: // { EXIT, FromPid, ToPid, Reason }
+        case exit2Tag: // { EXIT2, FromPid, ToPid, Reason }
+            if (head.elementAt(3) == null) {
+                return false;
+            }
+            if (traceLevel >= ctrlThreshold) {
+                System.out.println("<- " + headerType(head) + " " + head);
+            }
 
-                default:
-                    // garbage?
-                    break receive_loop;
-                }
-            } // end receive_loop
+            from = (OtpErlangPid) head.elementAt(1);
+            to = (OtpErlangPid) head.elementAt(2);
+            reason = head.elementAt(3);
 
-            // this section reachable only with break
-            // we have received garbage from peer
-            deliver(new OtpErlangExit("Remote is sending garbage"));
+            deliver(new OtpMsg(tag, from, to, reason));
+            break;
 
-        } // try
+        case exitTTTag: // { EXIT, FromPid, ToPid, TraceToken, Reason }
+        case exit2TTTag: // { EXIT2, FromPid, ToPid, TraceToken,
+            // Reason
+            // }
+            // as above, but bifferent element number
+            if (head.elementAt(4) == null) {
+                return false;
+            }
+            if (traceLevel >= ctrlThreshold) {
+                System.out.println("<- " + headerType(head) + " " + head);
+            }
 
-        catch (final OtpAuthException e) {
-            deliver(e);
-        } catch (final OtpErlangDecodeException e) {
-            deliver(new OtpErlangExit("Remote is sending garbage"));
-        } catch (final IOException e) {
-            deliver(new OtpErlangExit("Remote has closed connection"));
-        } finally {
-            close();
+            from = (OtpErlangPid) head.elementAt(1);
+            to = (OtpErlangPid) head.elementAt(2);
+            reason = head.elementAt(4);
+
+            deliver(new OtpMsg(tag, from, to, reason));
+            break;
+
+        case linkTag: // { LINK, FromPid, ToPid}
+        case unlinkTag: // { UNLINK, FromPid, ToPid}
+            if (traceLevel >= ctrlThreshold) {
+                System.out.println("<- " + headerType(head) + " " + head);
+            }
+
+            from = (OtpErlangPid) head.elementAt(1);
+            to = (OtpErlangPid) head.elementAt(2);
+
+            deliver(new OtpMsg(tag, from, to));
+            break;
+
+        // absolutely no idea what to do with these, so we ignore
+        // them...
+        case groupLeaderTag: // { GROUPLEADER, FromPid, ToPid}
+            // (just show trace)
+            if (traceLevel >= ctrlThreshold) {
+                System.out.println("<- " + headerType(head) + " " + head);
+            }
+            break;
+
+        default:
+            // garbage?
+            return false;
         }
+        // nothing refers to the packet anymore
+        receiveBuffers.release(tmpbuf);
+        return true;
     }
 
     /**
@@ -794,53 +887,115 @@ public abstract class AbstractConnection extends Thread {
         return connected;
     }
 
+    private void deliverPooled(final OtpMsg msg, final byte[] buf) {
+        msg.setPooledBuffer(receiveBuffers, buf);
+        deliver(msg);
+    }
+
+    /**
+     * Get the encoding buffer cached for this thread, or a new one. Give it
+     * back with {@link #returnBuffer} once it has been sent.
+     */
+    static OtpOutputStream takeBuffer(final ThreadLocal<OtpOutputStream> cache,
+            final int size) {
+        final OtpOutputStream buf = cache.get();
+        if (buf == null) {
+            return size > 0 ? new OtpOutputStream(size) : new OtpOutputStream();
+        }
+        cache.set(null);
+        buf.reset();
+        return buf;
+    }
+
+    static void returnBuffer(final ThreadLocal<OtpOutputStream> cache,
+            final OtpOutputStream buf) {
+        if (buf.capacity() <= maxRetainedBuffer) {
+            cache.set(buf);
+        }
+    }
+
     // used by send and send_reg (message types with payload)
-    protected synchronized void do_send(final OtpOutputStream header,
-            final OtpOutputStream payload) throws IOException {
-        try {
-            if (traceLevel >= sendThreshold) {
-                // Need to decode header and output buffer to show trace
-                // message!
-                // First make OtpInputStream, then decode.
-                try {
-                    final OtpErlangObject h = header.getOtpInputStream(5).read_any();
-                    System.out.println("-> " + headerType(h) + " " + h);
-
-                    OtpErlangObject o = payload.getOtpInputStream(0).read_any();
-                    System.out.println("   " + o);
-                    o = null;
-                } catch (final OtpErlangDecodeException e) {
-                    System.out.println("   " + "can't decode output buffer:" + e);
-                }
+    protected void do_send(final OtpOutputStream header, final OtpOutputStream payload)
+            throws IOException {
+        final OtpTransport s = socket;
+        if (s instanceof OtpNioTransport) {
+            // one gathering write, serialized by the transport
+            traceSend(header, payload);
+            try {
+                ((OtpNioTransport) s).write(header.toByteBuffer(), payload.toByteBuffer());
+            } catch (final IOException e) {
+                close();
+                throw e;
             }
+            return;
+        }
+        synchronized (this) {
+            try {
+                traceSend(header, payload);
+
+                // group flush op in favour of possible ssh-tunneled stream
+                @SuppressWarnings("resource")
+                final OutputStream out = socket.getOutputStream();
+                header.writeTo(out);
+                payload.writeTo(out);
+                out.flush();
+            } catch (final IOException e) {
+                close();
+                throw e;
+            }
+        }
+    }
 
-            // group flush op in favour of possible ssh-tunneled stream
-            @SuppressWarnings("resource")
-            final OutputStream out = socket.getOutputStream();
-            header.writeTo(out);
-            payload.writeTo(out);
-            out.flush();
-        } catch (final IOException e) {
-            close();
-            throw e;
+    private void traceSend(final OtpOutputStream header, final OtpOutputStream payload) {
+        if (traceLevel >= sendThreshold) {
+            // Need to decode header and output buffer to show trace
+            // message!
+            // First make OtpInputStream, then decode.
+            try {
+                final OtpErlangObject h = header.getOtpInputStream(5).read_any();
+                System.out.println("-> " + headerType(h) + " " + h);
+
+                OtpErlangObject o = payload.getOtpInputStream(0).read_any();
+                System.out.println("   " + o);
+                o = null;
+            } catch (final OtpErlangDecodeException e) {
+                System.out.println("   " + "can't decode output buffer:" + e);
+            }
         }
     }
 
     // used by the other message types
-    protected synchronized void do_send(final OtpOutputStream header) throws IOException {
-        try {
-            if (traceLevel >= ctrlThreshold) {
-                try {
-                    final OtpErlangObject h = header.getOtpInputStream(5).read_any();
-                    System.out.println("-> " + headerType(h) + " " + h);
-                } catch (final OtpErlangDecodeException e) {
-                    System.out.println("   " + "can't decode output buffer: " + e);
-                }
+    protected void do_send(final OtpOutputStream header) throws IOException {
+        final OtpTransport s = socket;
+        if (s instanceof OtpNioTransport) {
+            traceSend(header);
+            try {
+                ((OtpNioTransport) s).write(header.toByteBuffer());
+            } catch (final IOException e) {
+                close();
+                throw e;
+            }
+            return;
+        }
+        synchronized (this) {
+            try {
+                traceSend(header);
+                header.writeToAndFlush(socket.getOutputStream());
+            } catch (final IOException e) {
+                close();
+                throw e;
+            }
+        }
+    }
+
+    private void traceSend(final OtpOutputStream header) {
+        if (traceLevel >= ctrlThreshold) {
+            try {
+                final OtpErlangObject h = header.getOtpInputStream(5).read_any();
+                System.out.println("-> " + headerType(h) + " " + h);
+            } catch (final OtpErlangDecodeException e) {
+                System.out.println("   " + "can't decode output buffer: " + e);
             }
-            header.writeToAndFlush(socket.getOutputStream());
-        } catch (final IOException e) {
-            close();
-            throw e;
         }
     }
 
@@ -891,8 +1046,15 @@ public abstract class AbstractConnection extends Thread {
 
     /* this method now throws exception if we don't get full read */
     protected int readSock(final OtpTransport s, final byte[] b) throws IOException {
+        return readSock(s, b, b.length);
+    }
+
+    /**
+     * Read exactly <code>len</code> bytes into the start of <code>b</code>.
+     */
+    protected int readSock(final OtpTransport s, final byte[] b, final int len)
+            throws IOException {
         int got = 0;
-        final int len = b.length;
         int i;
 
         synchronized (this) {
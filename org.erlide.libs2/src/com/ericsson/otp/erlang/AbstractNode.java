@@ -144,6 +144,18 @@ public class AbstractNode implements OtpTransportFactory {
         }
     }
 
+    /**
+     * The transport factory used when none is given: {@link OtpNioTransportFactory}
+     * if the system property <code>OtpConnection.nio</code> is <code>true</code>,
+     * plain sockets otherwise.
+     */
+    static OtpTransportFactory defaultTransportFactory() {
+        if (Boolean.getBoolean("OtpConnection.nio")) {
+            return new OtpNioTransportFactory();
+        }
+        return new OtpSocketTransportFactory();
+    }
+
     protected AbstractNode(final OtpTransportFactory transportFactory) {
         this.transportFactory = transportFactory;
     }
@@ -152,7 +164,7 @@ public class AbstractNode implements OtpTransportFactory {
      * Create a node with the given name and default cookie and transport factory.
      */
     protected AbstractNode(final String node) {
-        this(node, defaultCookie, new OtpSocketTransportFactory());
+        this(node, defaultCookie, defaultTransportFactory());
     }
 
     /**
@@ -167,7 +179,7 @@ public class AbstractNode implements OtpTransportFactory {
      * Create a node with the given name, cookie and default transport factory.
      */
     protected AbstractNode(final String name, final String cookie) {
-        this(name, cookie, new OtpSocketTransportFactory());
+        this(name, cookie, defaultTransportFactory());
     }
 
     /**
@@ -19,9 +19,23 @@
  */
 package com.ericsson.otp.erlang;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * This class implements a generic FIFO queue. There is no upper bound on the length of
- * the queue, items are linked.
+ * the queue.
+ *
+ * <p>
+ * Items are stored in linked chunks of slots. A producer claims a slot with a single
+ * atomic increment and never takes a lock, unless a consumer is blocked waiting for an
+ * item. Consumers take turns through a lock that is uncontended in the usual case of a
+ * single consumer.
+ * </p>
  */
 
 public class GenericQueue {
@@ -29,26 +43,38 @@ public class GenericQueue {
     private static final int closing = 1;
     private static final int closed = 2;
 
-    private int status;
-    private Bucket head;
-    private Bucket tail;
-    private int count;
+    private static final int CHUNK_SIZE = 256;
 
-    private void init() {
-        head = null;
-        tail = null;
-        count = 0;
-    }
+    private volatile int status;
+
+    // index of the next slot to fill, shared by the producers
+    private final AtomicLong producerIndex = new AtomicLong();
+    // a chunk at or before the one holding producerIndex
+    private volatile Chunk producerChunk;
+
+    // guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private Chunk consumerChunk;
+    private volatile long consumerIndex;
+    private volatile int waiters;
 
     /** Create an empty queue */
     public GenericQueue() {
-        init();
+        consumerChunk = producerChunk = new Chunk(0);
         status = open;
     }
 
     /** Clear a queue */
     public void flush() {
-        init();
+        lock.lock();
+        try {
+            while (poll() != null) {
+                // drop it
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void close() {
@@ -61,20 +87,29 @@ public class GenericQueue {
      * @param o
      *            Object to insert in the queue
      */
-    public synchronized void put(final Object o) {
-        final Bucket b = new Bucket(o);
-
-        if (tail != null) {
-            tail.setNext(b);
-            tail = b;
-        } else {
-            // queue was empty but has one element now
-            head = tail = b;
+    public void put(final Object o) {
+        // read the chunk before claiming the index, so that it can't have moved past it
+        Chunk chunk = producerChunk;
+        final long index = producerIndex.getAndIncrement();
+        while (index >= chunk.base + CHUNK_SIZE) {
+            chunk = chunk.next();
         }
-        count++;
+        final Chunk current = producerChunk;
+        if (chunk.base > current.base) {
+            // no CAS needed, any producer's chunk is good enough as a starting point
+            producerChunk = chunk;
+        }
+        chunk.slots.set((int) (index - chunk.base), o);
 
         // notify any waiting tasks
-        notify();
+        if (waiters > 0) {
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
     }
 
     /**
@@ -82,16 +117,28 @@ public class GenericQueue {
      *
      * @return The object at the head of the queue.
      */
-    public synchronized Object get() {
-        Object o = null;
-
-        while ((o = tryGet()) == null) {
+    public Object get() {
+        lock.lock();
+        try {
+            Object o = poll();
+            if (o != null) {
+                return o;
+            }
+            waiters++;
             try {
-                this.wait();
-            } catch (final InterruptedException e) {
+                while ((o = poll()) == null) {
+                    try {
+                        notEmpty.await();
+                    } catch (final InterruptedException e) {
+                    }
+                }
+                return o;
+            } finally {
+                waiters--;
             }
+        } finally {
+            lock.unlock();
         }
-        return o;
     }
 
     /**
@@ -106,78 +153,102 @@ public class GenericQueue {
      *
      * @return The object at the head of the queue, or null if none arrived in time.
      */
-    public synchronized Object get(final long timeout) throws InterruptedException {
+    public Object get(final long timeout) throws InterruptedException {
         if (status == closed) {
             return null;
         }
 
-        long currentTime = System.currentTimeMillis();
-        final long stopTime = currentTime + timeout;
-        Object o = null;
-
-        while (true) {
-            if ((o = tryGet()) != null) {
+        final long stopTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        lock.lock();
+        try {
+            Object o = poll();
+            if (o != null) {
                 return o;
             }
-
-            currentTime = System.currentTimeMillis();
-            if (stopTime <= currentTime) {
-                throw new InterruptedException("Get operation timed out");
-            }
-
+            waiters++;
             try {
-                this.wait(stopTime - currentTime);
-            } catch (final InterruptedException e) {
-                // ignore, but really should retry operation instead
+                while (true) {
+                    if ((o = poll()) != null) {
+                        return o;
+                    }
+
+                    final long remaining = stopTime - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new InterruptedException("Get operation timed out");
+                    }
+
+                    try {
+                        notEmpty.awaitNanos(remaining);
+                    } catch (final InterruptedException e) {
+                        // ignore, but really should retry operation instead
+                    }
+                }
+            } finally {
+                waiters--;
             }
+        } finally {
+            lock.unlock();
         }
     }
 
     // attempt to retrieve message from queue head
     public Object tryGet() {
-        Object o = null;
+        lock.lock();
+        try {
+            return poll();
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        if (head != null) {
-            o = head.getContents();
-            head = head.getNext();
-            count--;
+    public int getCount() {
+        final long count = producerIndex.get() - consumerIndex;
+        return count > 0 ? (int) Math.min(count, Integer.MAX_VALUE) : 0;
+    }
 
-            if (head == null) {
-                tail = null;
-                count = 0;
+    // with lock held; an item whose slot is claimed but not yet filled is
+    // not there yet, its producer will signal when it is
+    private Object poll() {
+        final long index = consumerIndex;
+        int offset = (int) (index - consumerChunk.base);
+        if (offset == CHUNK_SIZE) {
+            if (producerIndex.get() <= index) {
+                return null;
             }
+            consumerChunk = consumerChunk.next();
+            offset = 0;
         }
-
+        final Object o = consumerChunk.slots.get(offset);
+        if (o == null) {
+            return null;
+        }
+        // don't keep the item reachable from the queue
+        consumerChunk.slots.lazySet(offset, null);
+        consumerIndex = index + 1;
         return o;
     }
 
-    public synchronized int getCount() {
-        return count;
-    }
-
     /*
-     * The Bucket class. The queue is implemented as a linked list of Buckets. The
-     * container holds the queued object and a reference to the next Bucket.
+     * The queue is implemented as a linked list of Chunks, each holding CHUNK_SIZE
+     * consecutive slots.
      */
-    class Bucket {
-        private Bucket next;
-        private final Object contents;
-
-        public Bucket(final Object o) {
-            next = null;
-            contents = o;
-        }
-
-        public void setNext(final Bucket newNext) {
-            next = newNext;
-        }
+    private static final class Chunk {
+        final long base;
+        final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(CHUNK_SIZE);
+        private final AtomicReference<Chunk> next = new AtomicReference<>();
 
-        public Bucket getNext() {
-            return next;
+        Chunk(final long base) {
+            this.base = base;
         }
 
-        public Object getContents() {
-            return contents;
+        // the following chunk, linked by whoever needs it first
+        Chunk next() {
+            final Chunk n = next.get();
+            if (n != null) {
+                return n;
+            }
+            final Chunk created = new Chunk(base + CHUNK_SIZE);
+            return next.compareAndSet(null, created) ? created : next.get();
         }
     }
 }
@@ -0,0 +1,67 @@
+package com.ericsson.otp.erlang;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small pool of byte arrays in power of two size classes, used to read
+ * incoming packets without allocating a new buffer for each of them.
+ *
+ * <p>
+ * Buffers may be released by a different thread than the one that acquired
+ * them. Neither operation locks, and once the pool is warm neither allocates.
+ * Buffers larger than {@link #MAX_POOLED} are not pooled.
+ * </p>
+ */
+public final class OtpBufferPool {
+
+    private static final int MIN_SHIFT = 8;
+    private static final int MAX_SHIFT = 20;
+    public static final int MAX_POOLED = 1 << MAX_SHIFT;
+    private static final int SLOTS = 4;
+
+    private final AtomicReferenceArray<byte[]> slots = new AtomicReferenceArray<>(
+            (MAX_SHIFT - MIN_SHIFT + 1) * SLOTS);
+
+    /**
+     * Get a buffer of at least <code>size</code> bytes.
+     */
+    public byte[] acquire(final int size) {
+        if (size > MAX_POOLED) {
+            return new byte[size];
+        }
+        final int shift = Math.max(MIN_SHIFT,
+                32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1));
+        final int first = (shift - MIN_SHIFT) * SLOTS;
+        for (int i = first; i < first + SLOTS; i++) {
+            final byte[] buf = slots.get(i);
+            if (buf != null && slots.compareAndSet(i, buf, null)) {
+                return buf;
+            }
+        }
+        return new byte[1 << shift];
+    }
+
+    /**
+     * Give back a buffer. The caller must not use it anymore. Giving back a
+     * buffer that is still in the pool is ignored.
+     */
+    public void release(final byte[] buf) {
+        final int size = buf.length;
+        if (Integer.bitCount(size) != 1 || size < 1 << MIN_SHIFT || size > MAX_POOLED) {
+            return;
+        }
+        final int first = (Integer.numberOfTrailingZeros(size) - MIN_SHIFT) * SLOTS;
+        for (int i = first; i < first + SLOTS; i++) {
+            if (slots.get(i) == buf) {
+                // released twice; pooling it again would hand it out twice
+                return;
+            }
+        }
+        for (int i = first; i < first + SLOTS; i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, buf)) {
+                return;
+            }
+        }
+    }
+
+}
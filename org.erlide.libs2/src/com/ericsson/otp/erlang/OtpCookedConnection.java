@@ -141,22 +141,30 @@ public class OtpCookedConnection extends AbstractConnection {
     /*
      * send to pid
      */
-    @SuppressWarnings("resource")
     void send(final OtpErlangPid from, final OtpErlangPid dest, final OtpErlangObject msg)
             throws IOException {
         // encode and send the message
-        sendBuf(from, dest, new OtpOutputStream(msg));
+        @SuppressWarnings("resource")
+        final OtpOutputStream payload = takeBuffer(payloadBuffers, 0);
+        payload.write_any(msg);
+        sendBuf(from, dest, payload);
+        returnBuffer(payloadBuffers, payload);
     }
 
     /*
      * send to remote name dest is recipient's registered name, the nodename is implied by
      * the choice of connection.
      */
-    @SuppressWarnings("resource")
-    void send(final OtpErlangPid from, final String dest, final OtpErlangObject msg)
+    int send(final OtpErlangPid from, final String dest, final OtpErlangObject msg)
             throws IOException {
         // encode and send the message
-        sendBuf(from, dest, new OtpOutputStream(msg));
+        @SuppressWarnings("resource")
+        final OtpOutputStream payload = takeBuffer(payloadBuffers, 0);
+        payload.write_any(msg);
+        sendBuf(from, dest, payload);
+        final int size = payload.size();
+        returnBuffer(payloadBuffers, payload);
+        return size;
     }
 
     @Override
@@ -367,6 +367,18 @@ public class OtpMbox {
      *
      */
     public void send(final String aname, final String node, final OtpErlangObject msg) {
+        sendCounted(aname, node, msg);
+    }
+
+    /**
+     * Send a message to a named mailbox created from another node, like
+     * {@link #send(String, String, OtpErlangObject)}.
+     *
+     * @return the number of bytes the encoded message took, or 0 if it was
+     *         delivered locally or could not be sent.
+     */
+    public int sendCounted(final String aname, final String node,
+            final OtpErlangObject msg) {
         try {
             final String currentNode = home.node();
             if (node.equals(currentNode)) {
@@ -378,12 +390,13 @@ public class OtpMbox {
                 // other node
                 final OtpCookedConnection conn = home.getConnection(node);
                 if (conn == null) {
-                    return;
+                    return 0;
                 }
-                conn.send(self, aname, msg);
+                return conn.send(self, aname, msg);
             }
         } catch (final Exception e) {
         }
+        return 0;
     }
 
     /**
@@ -63,6 +63,11 @@ public class OtpMsg {
     protected int tag; // what type of message is this (send, link, exit etc)
     protected OtpInputStream paybuf;
     protected OtpErlangObject payload;
+    protected int payloadSize;
+
+    // the pooled buffer backing paybuf, given back once the payload is decoded
+    private OtpBufferPool pool;
+    private byte[] pooledBuf;
 
     protected OtpErlangPid from;
     protected OtpErlangPid to;
@@ -75,6 +80,7 @@ public class OtpMsg {
         this.to = to;
         toName = null;
         this.paybuf = paybuf;
+        payloadSize = paybuf.available();
         payload = null;
     }
 
@@ -95,6 +101,7 @@ public class OtpMsg {
         this.toName = toName;
         to = null;
         this.paybuf = paybuf;
+        payloadSize = paybuf.available();
         payload = null;
     }
 
@@ -142,15 +149,43 @@ public class OtpMsg {
     }
 
     /**
-     * Get the payload from this message without deserializing it.
+     * Get the payload from this message without deserializing it. If it was
+     * already deserialized and its buffer given back to the pool, it is
+     * encoded again.
      *
      * @return the serialized Erlang term contained in this message.
      *
      */
-    OtpInputStream getMsgBuf() {
+    synchronized OtpInputStream getMsgBuf() {
+        if (paybuf == null && payloadSize > 0) {
+            // the pooled buffer was given back when the payload was decoded
+            return new OtpOutputStream(payload).getOtpInputStream(0);
+        }
+        // the caller owns the buffer now
+        pool = null;
+        pooledBuf = null;
         return paybuf;
     }
 
+    /**
+     * The buffer of {@link #paybuf} comes from a pool and can be returned to it
+     * when the payload has been decoded.
+     */
+    synchronized void setPooledBuffer(final OtpBufferPool pool, final byte[] buf) {
+        this.pool = pool;
+        pooledBuf = buf;
+    }
+
+    /**
+     * Get the number of bytes the payload of this message had on the wire.
+     *
+     * @return the size of the encoded payload, or 0 if the message was delivered
+     *         locally and was never encoded.
+     */
+    public int getPayloadSize() {
+        return payloadSize;
+    }
+
     /**
      * <p>
      * Get the type marker from this message. The type marker identifies the type of
@@ -203,9 +238,16 @@ public class OtpMsg {
      *                if the byte stream could not be deserialized.
      *
      */
-    public OtpErlangObject getMsg() throws OtpErlangDecodeException {
+    public synchronized OtpErlangObject getMsg() throws OtpErlangDecodeException {
         if (payload == null) {
             payload = paybuf.read_any();
+            if (pool != null) {
+                // decoded terms don't share the buffer
+                paybuf = null;
+                pool.release(pooledBuf);
+                pool = null;
+                pooledBuf = null;
+            }
         }
         return payload;
     }
@@ -0,0 +1,86 @@
+package com.ericsson.otp.erlang;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The thread that reads from all the {@link OtpNioTransport}s of the process,
+ * and sends the tocks they couldn't send right away.
+ * Packets are decoded and delivered to the mailboxes from this thread, which
+ * is cheap since messages are only decoded when they are received from the
+ * mailbox.
+ */
+final class OtpNioSelector implements Runnable {
+
+    private static OtpNioSelector instance;
+
+    private final Selector selector;
+    private final Queue<OtpNioTransport> added = new ConcurrentLinkedQueue<>();
+
+    private OtpNioSelector() throws IOException {
+        selector = Selector.open();
+    }
+
+    static synchronized OtpNioSelector getInstance() throws IOException {
+        if (instance == null) {
+            instance = new OtpNioSelector();
+            final Thread thread = new Thread(instance, "OtpNioSelector");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return instance;
+    }
+
+    void register(final OtpNioTransport transport) {
+        added.add(transport);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                selector.select();
+            } catch (final IOException e) {
+                continue;
+            }
+            OtpNioTransport transport;
+            while ((transport = added.poll()) != null) {
+                try {
+                    transport.setKey(transport.getChannel().register(selector,
+                            SelectionKey.OP_READ, transport));
+                } catch (final ClosedChannelException e) {
+                    // closed before we got to it
+                }
+            }
+            final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                final SelectionKey key = keys.next();
+                keys.remove();
+                if (key.isValid() && key.isReadable()) {
+                    readable(key);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    ((OtpNioTransport) key.attachment()).writable();
+                }
+            }
+        }
+    }
+
+    private static void readable(final SelectionKey key) {
+        final OtpNioTransport transport = (OtpNioTransport) key.attachment();
+        try {
+            transport.readable();
+        } catch (final RuntimeException e) {
+            // a malformed packet must not stop the other connections
+            key.cancel();
+            transport.failed();
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.ericsson.otp.erlang;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+
+/**
+ * Server side of {@link OtpNioTransport}. Accepting is still blocking, it is
+ * done by the acceptor thread of the node.
+ */
+public class OtpNioServerTransport implements OtpServerTransport {
+
+    private final ServerSocketChannel channel;
+
+    /**
+     * @see ServerSocketChannel#bind(java.net.SocketAddress)
+     */
+    public OtpNioServerTransport(final int port) throws IOException {
+        channel = ServerSocketChannel.open();
+        try {
+            channel.bind(new InetSocketAddress(port));
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getLocalPort() {
+        return channel.socket().getLocalPort();
+    }
+
+    @Override
+    public OtpTransport accept() throws IOException {
+        return new OtpNioTransport(channel.accept());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
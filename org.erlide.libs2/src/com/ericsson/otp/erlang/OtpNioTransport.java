@@ -0,0 +1,353 @@
+package com.ericsson.otp.erlang;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Transport based on a {@link SocketChannel}.
+ *
+ * <p>
+ * The handshake is done in blocking mode, through the streams. After that,
+ * {@link AbstractConnection#start()} calls {@link #startReading}: the channel
+ * becomes non-blocking and its packets are read by the shared
+ * {@link OtpNioSelector} thread instead of a thread per connection. Writes
+ * are gathering writes, so that a packet header and its payload go out in one
+ * call.
+ * </p>
+ *
+ * <p>
+ * The selector thread never waits for the writer lock nor for the socket to
+ * become writable, otherwise a large send on one connection would stop the
+ * reading on all of them. Ticks are answered by setting a flag: the tock is
+ * sent by the selector thread if the lock is free and the socket takes it,
+ * else by the writer holding the lock or when the selector finds the socket
+ * writable.
+ * </p>
+ */
+public class OtpNioTransport implements OtpTransport {
+
+    /**
+     * Gets the packets read after {@link #startReading}, on the selector
+     * thread.
+     */
+    public interface PacketReceiver {
+        /**
+         * A buffer of at least <code>len</code> bytes for the next packet.
+         */
+        byte[] receiveBuffer(int len);
+
+        /**
+         * A packet, in the first <code>len</code> bytes of the buffer.
+         *
+         * @return false to stop reading
+         */
+        boolean packetReceived(byte[] buf, int len);
+
+        void transportFailed();
+    }
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final long WRITE_WAIT = 1000;
+    private static final byte[] TOCK = { 0, 0, 0, 0 };
+
+    private final SocketChannel channel;
+    private final InputStream in;
+    private final OutputStream out;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // only created by writers holding writeLock, closed by close()
+    private volatile Selector writeSelector;
+    // set when a tick was received and not answered yet
+    private final AtomicBoolean tockRequested = new AtomicBoolean();
+    // the rest of a tock the socket didn't take, guarded by writeLock
+    private volatile ByteBuffer tockOut;
+    private volatile SelectionKey key;
+
+    // only used by the selector thread once reading has started
+    private PacketReceiver receiver;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private byte[] packet;
+    private int packetLength;
+    private int packetRead;
+
+    /**
+     * @see java.net.Socket#Socket(String, int)
+     */
+    public OtpNioTransport(final String addr, final int port) throws IOException {
+        // like Socket, a null host means the loopback address
+        this(InetAddress.getByName(addr), port);
+    }
+
+    /**
+     * @see SocketChannel#open(java.net.SocketAddress)
+     */
+    public OtpNioTransport(final InetAddress addr, final int port) throws IOException {
+        this(SocketChannel.open(new InetSocketAddress(addr, port)));
+    }
+
+    /**
+     * Channel wrapping constructor
+     *
+     * @param channel
+     *            connected channel to wrap
+     */
+    public OtpNioTransport(final SocketChannel channel) throws IOException {
+        this.channel = channel;
+        channel.socket().setTcpNoDelay(true);
+        in = Channels.newInputStream(channel);
+        out = new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                OtpNioTransport.this.write(ByteBuffer.wrap(new byte[] { (byte) b }));
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len)
+                    throws IOException {
+                OtpNioTransport.this.write(ByteBuffer.wrap(b, off, len));
+            }
+        };
+    }
+
+    /**
+     * Only usable until {@link #startReading} is called.
+     */
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return in;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return out;
+    }
+
+    /**
+     * Write all the buffers, in order, with as few system calls as possible.
+     * Concurrent writes don't interleave.
+     */
+    public void write(final ByteBuffer... buffers) throws IOException {
+        writeLock.lock();
+        try {
+            // a partly sent tock must be completed first
+            flushTock(true);
+            final ByteBuffer last = buffers[buffers.length - 1];
+            while (last.hasRemaining()) {
+                if (channel.write(buffers) == 0 && last.hasRemaining()) {
+                    awaitWritable();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        // ticks received while we were writing
+        sendTock();
+    }
+
+    /**
+     * Send the requested tock if that can be done without waiting. Otherwise
+     * it is left to the thread holding the writer lock, or to the selector
+     * thread when the socket becomes writable.
+     */
+    void sendTock() throws IOException {
+        while ((tockRequested.get() || tockOut != null) && writeLock.tryLock()) {
+            try {
+                if (!flushTock(false)) {
+                    return;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * With writeLock held. When not blocking and the socket doesn't take the
+     * whole tock, asks the selector to tell when it becomes writable.
+     *
+     * @return true if no tock is left to send
+     */
+    private boolean flushTock(final boolean block) throws IOException {
+        ByteBuffer tock = tockOut;
+        if (tock == null) {
+            if (!tockRequested.getAndSet(false)) {
+                return true;
+            }
+            tock = ByteBuffer.wrap(TOCK.clone());
+            tockOut = tock;
+        }
+        while (tock.hasRemaining()) {
+            if (channel.write(tock) == 0 && tock.hasRemaining()) {
+                if (!block) {
+                    setWriteInterest(true);
+                    return false;
+                }
+                awaitWritable();
+            }
+        }
+        tockOut = null;
+        return true;
+    }
+
+    private void setWriteInterest(final boolean on) {
+        final SelectionKey k = key;
+        if (k != null && k.isValid()) {
+            k.interestOps(on ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                    : SelectionKey.OP_READ);
+            k.selector().wakeup();
+        }
+    }
+
+    // only called in non-blocking mode, with writeLock held
+    private void awaitWritable() throws IOException {
+        try {
+            Selector s = writeSelector;
+            if (s == null) {
+                s = Selector.open();
+                writeSelector = s;
+                channel.register(s, SelectionKey.OP_WRITE);
+            }
+            // bounded, in case the channel is closed meanwhile; the next
+            // write will fail then
+            s.select(WRITE_WAIT);
+            s.selectedKeys().clear();
+        } catch (final ClosedSelectorException e) {
+            throw new IOException("transport closed");
+        }
+    }
+
+    /**
+     * Switch to non-blocking mode and hand the incoming packets to the
+     * receiver from now on.
+     */
+    public void startReading(final PacketReceiver packetReceiver) {
+        receiver = packetReceiver;
+        try {
+            writeLock.lock();
+            try {
+                channel.configureBlocking(false);
+            } finally {
+                writeLock.unlock();
+            }
+            OtpNioSelector.getInstance().register(this);
+        } catch (final IOException e) {
+            packetReceiver.transportFailed();
+        }
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    void setKey(final SelectionKey selectionKey) {
+        key = selectionKey;
+    }
+
+    /**
+     * Called by the selector thread when the channel is writable, which it
+     * only asks for when a tock couldn't be sent.
+     */
+    void writable() {
+        setWriteInterest(false);
+        try {
+            sendTock();
+        } catch (final IOException e) {
+            failed();
+        }
+    }
+
+    /**
+     * Called by the selector thread when the channel is readable.
+     */
+    void readable() {
+        try {
+            if (channel.read(readBuffer) < 0) {
+                throw new EOFException();
+            }
+            readBuffer.flip();
+            try {
+                readPackets();
+            } finally {
+                readBuffer.compact();
+            }
+        } catch (final IOException e) {
+            failed();
+        }
+    }
+
+    void failed() {
+        if (channel.isOpen()) {
+            receiver.transportFailed();
+        }
+    }
+
+    private void readPackets() throws IOException {
+        while (channel.isOpen()) {
+            if (packet == null) {
+                if (readBuffer.remaining() < 4) {
+                    return;
+                }
+                final int len = readBuffer.getInt();
+                if (len == 0) {
+                    // received tick? send tock, without waiting for it
+                    tockRequested.set(true);
+                    sendTock();
+                    continue;
+                }
+                packet = receiver.receiveBuffer(len);
+                packetLength = len;
+                packetRead = 0;
+            }
+            final int n = Math.min(readBuffer.remaining(), packetLength - packetRead);
+            readBuffer.get(packet, packetRead, n);
+            packetRead += n;
+            if (packetRead < packetLength) {
+                // large packet, read the rest directly into it
+                final int r = channel.read(
+                        ByteBuffer.wrap(packet, packetRead, packetLength - packetRead));
+                if (r < 0) {
+                    throw new EOFException();
+                }
+                packetRead += r;
+                if (packetRead < packetLength) {
+                    return;
+                }
+            }
+            final byte[] buf = packet;
+            packet = null;
+            if (!receiver.packetReceived(buf, packetLength)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            // don't wait for writeLock, a writer may be blocked
+            final Selector s = writeSelector;
+            if (s != null) {
+                s.close();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return channel.toString();
+    }
+}
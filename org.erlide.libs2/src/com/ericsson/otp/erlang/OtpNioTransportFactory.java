@@ -0,0 +1,29 @@
+package com.ericsson.otp.erlang;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * Creates {@link OtpNioTransport}s. Nodes use it by default when the system
+ * property <code>OtpConnection.nio</code> is set to <code>true</code>.
+ */
+public class OtpNioTransportFactory implements OtpTransportFactory {
+
+    @Override
+    public OtpTransport createTransport(final String addr, final int port)
+            throws IOException {
+        return new OtpNioTransport(addr, port);
+    }
+
+    @Override
+    public OtpTransport createTransport(final InetAddress addr, final int port)
+            throws IOException {
+        return new OtpNioTransport(addr, port);
+    }
+
+    @Override
+    public OtpServerTransport createServerTransport(final int port) throws IOException {
+        return new OtpNioServerTransport(port);
+    }
+
+}
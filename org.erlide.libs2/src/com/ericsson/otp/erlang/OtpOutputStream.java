@@ -26,6 +26,7 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.text.DecimalFormat;
 import java.util.zip.Deflater;
 
@@ -95,6 +96,17 @@ public class OtpOutputStream extends ByteArrayOutputStream {
         return new OtpInputStream(super.buf, offset, super.count - offset, 0);
     }
 
+    // package scope
+    int capacity() {
+        return super.buf.length;
+    }
+
+    // package scope, for gathering writes; the stream must not be modified
+    // until the buffer has been written
+    ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(super.buf, 0, super.count);
+    }
+
     /**
      * Get the current position in the stream.
      *
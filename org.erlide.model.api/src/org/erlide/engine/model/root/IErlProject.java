@@ -81,6 +81,13 @@ public interface IErlProject extends IParent, IErlElement, IOpenable {
 
     IErlModule getModule(String name) throws ErlModelException;
 
+    /**
+     * Returns the modules of this project that include the given file, either
+     * directly or through other headers of the project.
+     */
+    Collection<IErlModule> getModulesIncluding(String includeName)
+            throws ErlModelException;
+
     IProject getWorkspaceProject();
 
     ProjectConfigType getConfigType();
@@ -119,6 +119,13 @@ public interface ISourceUnit {
 
     void setComments(Collection<? extends IErlComment> comments);
 
+    /**
+     * Replace the children and the comments at once, so that they are never
+     * seen out of step.
+     */
+    void setStructure(Collection<? extends IErlElement> children,
+            Collection<? extends IErlComment> comments);
+
     boolean isOnSourcePath();
 
     boolean isOnIncludePath();
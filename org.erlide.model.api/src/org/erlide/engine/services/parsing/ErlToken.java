@@ -149,6 +149,8 @@ public final class ErlToken {
 
     public ErlToken(final int kind, final int offset, final int length) {
         this.kind = kind;
+        this.offset = offset;
+        this.length = length;
     }
 
     public int getKind() {
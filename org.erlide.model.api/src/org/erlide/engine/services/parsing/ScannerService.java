@@ -12,4 +12,10 @@ public interface ScannerService extends IDisposable {
 
     void addref();
 
+    /**
+     * Make sure that the backend has seen all the changes done through
+     * {@link #replaceText(int, int, String)}, before it parses the text.
+     */
+    void flush();
+
 }
@@ -2,6 +2,7 @@ package org.erlide.engine.services.search;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IPath;
 import org.erlide.engine.services.ErlangService;
@@ -39,5 +40,12 @@ public interface OpenService extends ErlangService {
 
     Collection<String> getIncludesInDir(final String directory);
 
+    /**
+     * Like {@link #getIncludesInDir(String)} for several directories at once.
+     * Directories that couldn't be listed are left out of the result.
+     */
+    Map<String, Collection<String>> getIncludesInDirs(
+            final Collection<String> directories);
+
     OtpErlangList getOtpLibStructure(IOtpRpc backend);
 }
@@ -0,0 +1,201 @@
+package org.erlide.engine.internal.model.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.erlang.ErlangIncludeFile;
+import org.erlide.engine.model.erlang.SourceKind;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.engine.model.root.IErlProject;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class IncludeDependencyIndexTest {
+
+    private final List<IErlModule> modules = Lists.newArrayList();
+    private final List<IErlModule> headers = Lists.newArrayList();
+    // what each unit includes, changed by the tests
+    private final Map<String, List<String>> includes = Maps.newHashMap();
+    private final Map<String, Integer> reads = Maps.newHashMap();
+
+    private final IErlProject project = (IErlProject) Proxy.newProxyInstance(
+            IErlProject.class.getClassLoader(), new Class<?>[] { IErlProject.class },
+            new InvocationHandler() {
+                @Override
+                public Object invoke(final Object proxy, final Method method,
+                        final Object[] args) {
+                    switch (method.getName()) {
+                    case "getModules":
+                        return new ArrayList<>(modules);
+                    case "getIncludes":
+                        return new ArrayList<>(headers);
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return null;
+                    }
+                }
+            });
+
+    private final IncludeDependencyIndex index = new IncludeDependencyIndex(project);
+
+    private IErlModule unit(final String name, final String... included) {
+        includes.put(name, Arrays.asList(included));
+        final IErlModule unit = (IErlModule) Proxy.newProxyInstance(
+                IErlModule.class.getClassLoader(), new Class<?>[] { IErlModule.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method,
+                            final Object[] args) {
+                        switch (method.getName()) {
+                        case "getName":
+                        case "toString":
+                            return name;
+                        case "getSourceKind":
+                            return SourceKind.nameToModuleKind(name);
+                        case "isStructureKnown":
+                            return true;
+                        case "getIncludeFiles":
+                            final Integer n = reads.get(name);
+                            reads.put(name, n == null ? 1 : n + 1);
+                            final List<ErlangIncludeFile> files = new ArrayList<>();
+                            for (final String file : includes.get(name)) {
+                                files.add(new ErlangIncludeFile(false,
+                                        "include/" + file));
+                            }
+                            return files;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                        }
+                    }
+                });
+        if (SourceKind.hasHrlExtension(name)) {
+            headers.add(unit);
+        } else {
+            modules.add(unit);
+        }
+        return unit;
+    }
+
+    private int reads(final String name) {
+        final Integer n = reads.get(name);
+        return n == null ? 0 : n;
+    }
+
+    @Test
+    public void directDependentsAreModulesOnly() throws ErlModelException {
+        final IErlModule a = unit("a.erl", "h.hrl");
+        final IErlModule b = unit("b.erl", "h.hrl", "g.hrl");
+        unit("h.hrl", "g.hrl");
+        unit("g.hrl");
+
+        assertThat(index.getDependents("h.hrl", false)).containsExactly(a, b);
+        assertThat(index.getDependents("g.hrl", false)).containsExactly(b);
+        assertThat(index.getDependents("x.hrl", false)).isEmpty();
+    }
+
+    @Test
+    public void transitiveDependentsGoThroughHeaders() throws ErlModelException {
+        final IErlModule a = unit("a.erl", "h.hrl");
+        final IErlModule b = unit("b.erl", "g.hrl");
+        final IErlModule c = unit("c.erl");
+        unit("h.hrl", "g.hrl");
+        unit("g.hrl", "f.hrl");
+        // a cycle doesn't keep the search going
+        unit("f.hrl", "g.hrl");
+
+        assertThat(index.getDependents("f.hrl", true)).containsExactly(a, b);
+        assertThat(index.getDependents("g.hrl", true)).containsExactly(a, b);
+        assertThat(index.getDependents("h.hrl", true)).containsExactly(a);
+        assertThat(index.getDependents("f.hrl", false)).isEmpty();
+        assertThat(index.getDependents("f.hrl", true)).doesNotContain(c);
+    }
+
+    @Test
+    public void onlyInvalidatedUnitsAreReadAgain() throws ErlModelException {
+        final IErlModule a = unit("a.erl", "h.hrl");
+        final IErlModule b = unit("b.erl", "h.hrl");
+        unit("h.hrl");
+        assertThat(index.getDependents("h.hrl", false)).containsExactly(a, b);
+
+        includes.put("a.erl", Arrays.asList("g.hrl"));
+        index.invalidate(a);
+
+        assertThat(index.getDependents("h.hrl", false)).containsExactly(b);
+        assertThat(index.getDependents("g.hrl", false)).containsExactly(a);
+        assertThat(reads("a.erl")).isEqualTo(2);
+        assertThat(reads("b.erl")).isEqualTo(1);
+    }
+
+    @Test
+    public void removedUnitsAreDropped() throws ErlModelException {
+        final IErlModule a = unit("a.erl", "h.hrl");
+        final IErlModule b = unit("b.erl", "g.hrl");
+        final IErlModule h = unit("h.hrl", "g.hrl");
+        unit("g.hrl");
+        assertThat(index.getDependents("g.hrl", true)).containsExactly(a, b);
+
+        modules.remove(b);
+        index.remove(b);
+        assertThat(index.getDependents("g.hrl", true)).containsExactly(a);
+
+        // a header gone from the project breaks the chain through it
+        headers.remove(h);
+        index.invalidateMembership();
+        assertThat(index.getDependents("g.hrl", true)).isEmpty();
+        assertThat(index.getDependents("h.hrl", false)).containsExactly(a);
+    }
+
+    @Test
+    public void renamedUnitsAreFoundUnderTheirNewName() throws ErlModelException {
+        final IErlModule a = unit("a.erl", "h.hrl");
+        final IErlModule h = unit("h.hrl", "g.hrl");
+        unit("g.hrl");
+        assertThat(index.getDependents("g.hrl", true)).containsExactly(a);
+
+        // h.hrl is renamed to k.hrl, and a is changed to include it
+        headers.remove(h);
+        index.remove(h);
+        unit("k.hrl", "g.hrl");
+        index.invalidateMembership();
+        includes.put("a.erl", Arrays.asList("k.hrl"));
+        index.invalidate(a);
+
+        assertThat(index.getDependents("h.hrl", false)).isEmpty();
+        assertThat(index.getDependents("k.hrl", false)).containsExactly(a);
+        assertThat(index.getDependents("g.hrl", true)).containsExactly(a);
+
+        // a.erl is renamed to b.erl
+        modules.remove(a);
+        index.remove(a);
+        final IErlModule b = unit("b.erl", "k.hrl");
+        index.invalidateMembership();
+
+        assertThat(index.getDependents("g.hrl", true)).containsExactly(b);
+    }
+
+    @Test
+    public void invalidatingAnUnknownUnitDoesNothing() throws ErlModelException {
+        final IErlModule a = unit("a.erl", "h.hrl");
+        index.invalidate(a);
+        assertThat(index.getDependents("h.hrl", false)).containsExactly(a);
+        assertThat(reads("a.erl")).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.erlide.engine.internal.model.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import org.erlide.engine.model.root.IErlModule;
+import org.junit.Test;
+
+public class ModuleNameIndexTest {
+
+    private static IErlModule module(final String name, final String path) {
+        return (IErlModule) Proxy.newProxyInstance(IErlModule.class.getClassLoader(),
+                new Class<?>[] { IErlModule.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method,
+                            final Object[] args) {
+                        switch (method.getName()) {
+                        case "getName":
+                            return name;
+                        case "getModuleName":
+                            return name.substring(0, name.lastIndexOf('.'));
+                        case "getFilePath":
+                            return path;
+                        case "toString":
+                            return name;
+                        default:
+                            return null;
+                        }
+                    }
+                });
+    }
+
+    private final IErlModule a = module("a.erl", "/p/src/a.erl");
+    private final IErlModule b = module("b.erl", "/p/src/b.erl");
+    private final IErlModule b2 = module("b.erl", "/q/src/b.erl");
+    private final IErlModule h = module("h.hrl", "/p/include/h.hrl");
+
+    @Test
+    public void findsModulesByPathThenName() {
+        final ModuleNameIndex index = new ModuleNameIndex(Arrays.asList(a, b, b2));
+        assertThat(index.findModule("b", null)).isSameAs(b);
+        assertThat(index.findModule("b.erl", null)).isSameAs(b);
+        assertThat(index.findModule("b", "/q/src/b.erl")).isSameAs(b2);
+        assertThat(index.findModule(null, "/p/src/a.erl")).isSameAs(a);
+        assertThat(index.findModule("c", null)).isNull();
+        assertThat(index.findModule("a.hrl", null)).isNull();
+    }
+
+    @Test
+    public void findsIncludes() {
+        final ModuleNameIndex index = new ModuleNameIndex(Arrays.asList(h));
+        assertThat(index.findIncludeByName("h.hrl")).isSameAs(h);
+        assertThat(index.findIncludeByName("h")).isSameAs(h);
+        assertThat(index.findIncludeByPath("/p/include/h.hrl")).isSameAs(h);
+        assertThat(index.findIncludeByPath("/p/include/x.hrl")).isNull();
+    }
+}
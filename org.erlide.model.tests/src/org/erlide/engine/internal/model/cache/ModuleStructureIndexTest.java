@@ -0,0 +1,101 @@
+package org.erlide.engine.internal.model.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+
+public class ModuleStructureIndexTest {
+
+    private static final String PATH = "/ws/p/src/m.erl";
+    private static final String TEXT = "-module(m).\nf() -> ok.\n";
+
+    private File file;
+    private OtpErlangList forms;
+    private OtpErlangList comments;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("modelindex", ".idx");
+        file.delete();
+        forms = new OtpErlangList(new OtpErlangObject[] {
+                new OtpErlangTuple(new OtpErlangObject[] { new OtpErlangAtom("function"),
+                        new OtpErlangAtom("f"), new OtpErlangLong(0) }) });
+        comments = new OtpErlangList();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void entriesSurviveSaving() {
+        final ModuleStructureIndex index = new ModuleStructureIndex(file);
+        index.put(PATH, TEXT, forms, comments);
+        index.save();
+        assertThat(file.exists()).isTrue();
+
+        final ModuleStructureIndex reloaded = new ModuleStructureIndex(file);
+        final OtpErlangTuple t = reloaded.get(PATH, TEXT);
+        assertThat(t).isNotNull();
+        assertThat(t.elementAt(0)).isEqualTo(forms);
+        assertThat(t.elementAt(1)).isEqualTo(comments);
+    }
+
+    @Test
+    public void changedTextIsNotFound() {
+        final ModuleStructureIndex index = new ModuleStructureIndex(file);
+        index.put(PATH, TEXT, forms, comments);
+        assertThat(index.get(PATH, TEXT + "g() -> ok.\n")).isNull();
+        assertThat(index.get("/ws/p/src/other.erl", TEXT)).isNull();
+    }
+
+    @Test
+    public void corruptFileIsDiscarded() throws IOException {
+        try (final FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] { 0x45, 0x52, 0x4c, 0x58, 0, 0, 0, 1, 0, 0, 0, 5, 0 });
+        }
+        final ModuleStructureIndex index = new ModuleStructureIndex(file);
+        assertThat(index.get(PATH, TEXT)).isNull();
+        assertThat(index.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void removedEntriesAreNotSavedAgain() {
+        final ModuleStructureIndex index = new ModuleStructureIndex(file);
+        index.put(PATH, TEXT, forms, comments);
+        index.put("/ws/p/src/other.erl", TEXT, forms, comments);
+        index.save();
+
+        final ModuleStructureIndex reloaded = new ModuleStructureIndex(file);
+        reloaded.remove(PATH);
+        reloaded.save();
+
+        final ModuleStructureIndex again = new ModuleStructureIndex(file);
+        assertThat(again.size()).isEqualTo(1);
+        assertThat(again.get(PATH, TEXT)).isNull();
+        assertThat(again.get("/ws/p/src/other.erl", TEXT)).isNotNull();
+    }
+
+    @Test
+    public void clearRemovesTheFile() {
+        final ModuleStructureIndex index = new ModuleStructureIndex(file);
+        index.put(PATH, TEXT, forms, comments);
+        index.save();
+        index.clear();
+        assertThat(file.exists()).isFalse();
+        assertThat(index.get(PATH, TEXT)).isNull();
+    }
+}
@@ -0,0 +1,31 @@
+package org.erlide.engine.internal.model.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+public class PrefixIndexTest {
+
+    @Test
+    public void matchesAreInInsertionOrder() {
+        final PrefixIndex<Integer> index = new PrefixIndex.Builder<Integer>(false)
+                .add("foo", 1).add("bar", 2).add("fab", 3).add("foo", 4)
+                .add("f", 5).build();
+        assertThat(index.withPrefix("f")).containsExactly(1, 3, 4, 5).inOrder();
+        assertThat(index.withPrefix("fo")).containsExactly(1, 4).inOrder();
+        assertThat(index.withPrefix("")).containsExactly(1, 2, 3, 4, 5).inOrder();
+        assertThat(index.withPrefix("x")).isEmpty();
+        assertThat(index.withPrefix("foox")).isEmpty();
+    }
+
+    @Test
+    public void caseIsIgnoredOnlyWhenAsked() {
+        final PrefixIndex<Integer> sensitive = new PrefixIndex.Builder<Integer>(false)
+                .add("Abc", 1).add("abd", 2).build();
+        final PrefixIndex<Integer> insensitive = new PrefixIndex.Builder<Integer>(
+                true).add("Abc", 1).add("abd", 2).build();
+        assertThat(sensitive.withPrefix("ab")).containsExactly(2);
+        assertThat(insensitive.withPrefix("ab")).containsExactly(1, 2).inOrder();
+        assertThat(insensitive.withPrefix("ABC")).containsExactly(1);
+    }
+}
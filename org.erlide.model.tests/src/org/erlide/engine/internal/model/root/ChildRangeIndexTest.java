@@ -0,0 +1,278 @@
+package org.erlide.engine.internal.model.root;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.erlide.engine.internal.model.SourceRange;
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.IErlElement;
+import org.erlide.engine.model.IParent;
+import org.erlide.engine.model.erlang.IErlMember;
+import org.erlide.engine.model.erlang.ISourceRange;
+import org.erlide.engine.model.erlang.ISourceReference;
+import org.junit.Test;
+
+import com.google.common.base.Predicate;
+
+public class ChildRangeIndexTest {
+
+    private static IErlElement element(final String name, final ISourceRange range,
+            final int lineStart, final int lineEnd, final IErlElement... children) {
+        return (IErlElement) Proxy.newProxyInstance(IErlMember.class.getClassLoader(),
+                new Class<?>[] { IErlMember.class, IParent.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method,
+                            final Object[] args) {
+                        switch (method.getName()) {
+                        case "getName":
+                        case "toString":
+                            return name;
+                        case "getSourceRange":
+                            return range;
+                        case "getLineStart":
+                            return lineStart;
+                        case "getLineEnd":
+                            return lineEnd;
+                        case "getChildren":
+                            return Arrays.asList(children);
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                        }
+                    }
+                });
+    }
+
+    private static IErlElement element(final String name, final int offset,
+            final int length, final int line, final IErlElement... children) {
+        return element(name, new SourceRange(offset, length), line, line, children);
+    }
+
+    /**
+     * An element without a source range, like a folder.
+     */
+    private static IErlElement container(final String name,
+            final IErlElement... children) {
+        return (IErlElement) Proxy.newProxyInstance(IParent.class.getClassLoader(),
+                new Class<?>[] { IErlElement.class, IParent.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method,
+                            final Object[] args) {
+                        switch (method.getName()) {
+                        case "getName":
+                        case "toString":
+                            return name;
+                        case "getChildren":
+                            return Arrays.asList(children);
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                        }
+                    }
+                });
+    }
+
+    private static Predicate<IErlElement> atOffset(final int offset) {
+        return new Predicate<IErlElement>() {
+            @Override
+            public boolean apply(final IErlElement e) {
+                if (e instanceof ISourceReference) {
+                    final ISourceRange r = ((ISourceReference) e).getSourceRange();
+                    return r != null && r.hasPosition(offset);
+                }
+                return false;
+            }
+        };
+    }
+
+    private static Predicate<IErlElement> atLine(final int line) {
+        return new Predicate<IErlElement>() {
+            @Override
+            public boolean apply(final IErlElement e) {
+                if (e instanceof ISourceReference) {
+                    final ISourceReference sr = (ISourceReference) e;
+                    return sr.getLineStart() <= line && sr.getLineEnd() >= line;
+                }
+                return false;
+            }
+        };
+    }
+
+    // the same walk as ErlModel.innermostThat
+    private static IErlElement innermostThat(final IErlElement el,
+            final Predicate<IErlElement> firstThat) {
+        if (el instanceof IParent) {
+            try {
+                for (final IErlElement child : ((IParent) el).getChildren()) {
+                    final IErlElement e = innermostThat(child, firstThat);
+                    if (e != null) {
+                        return e;
+                    }
+                }
+            } catch (final ErlModelException e) {
+            }
+        }
+        return firstThat.apply(el) ? el : null;
+    }
+
+    private static IErlElement scan(final List<IErlElement> children,
+            final Predicate<IErlElement> firstThat) {
+        for (final IErlElement child : children) {
+            final IErlElement e = innermostThat(child, firstThat);
+            if (e != null) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private static IErlElement lookup(final ChildRangeIndex index,
+            final int[] candidates, final Predicate<IErlElement> firstThat) {
+        for (final int i : candidates) {
+            final IErlElement e = innermostThat(index.getChildren().get(i), firstThat);
+            if (e != null) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private static IErlElement atOffset(final ChildRangeIndex index, final int offset) {
+        return lookup(index, index.childrenAtOffset(offset), atOffset(offset));
+    }
+
+    private static IErlElement atLine(final ChildRangeIndex index, final int line) {
+        return lookup(index, index.childrenAtLine(line), atLine(line));
+    }
+
+    private static void assertSameAsScan(final List<IErlElement> children) {
+        final ChildRangeIndex index = new ChildRangeIndex(children);
+        for (int offset = -2; offset < 260; offset++) {
+            assertThat(atOffset(index, offset))
+                    .isSameAs(scan(children, atOffset(offset)));
+        }
+        for (int line = -2; line < 60; line++) {
+            assertThat(atLine(index, line)).isSameAs(scan(children, atLine(line)));
+        }
+    }
+
+    private static IErlElement randomElement(final Random random, final String name,
+            final int depth) {
+        final int count = depth < 2 ? random.nextInt(4) : 0;
+        final IErlElement[] children = new IErlElement[count];
+        for (int i = 0; i < count; i++) {
+            children[i] = randomElement(random, name + "." + i, depth + 1);
+        }
+        if (random.nextInt(10) == 0) {
+            return container(name, children);
+        }
+        // children are not always inside their parent, and siblings overlap
+        final ISourceRange range = random.nextInt(10) == 0 ? null
+                : new SourceRange(random.nextInt(220),
+                        random.nextInt(5) == 0 ? 0 : random.nextInt(30));
+        final int lineStart = random.nextInt(50);
+        final int lineEnd = lineStart + (random.nextInt(3) == 0 ? 0 : random.nextInt(8));
+        return element(name, range, lineStart, lineEnd, children);
+    }
+
+    @Test
+    public void sameResultAsScanningAllChildren() {
+        final Random random = new Random(4711);
+        for (int tree = 0; tree < 200; tree++) {
+            final List<IErlElement> children = new ArrayList<>();
+            final int count = random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                children.add(randomElement(random, "c" + i, 0));
+            }
+            assertSameAsScan(children);
+        }
+    }
+
+    @Test
+    public void noChildren() {
+        final ChildRangeIndex index = new ChildRangeIndex(new ArrayList<IErlElement>());
+        assertThat(index.childrenAtOffset(0)).isEmpty();
+        assertThat(index.childrenAtLine(0)).isEmpty();
+    }
+
+    @Test
+    public void boundariesAreInside() {
+        final IErlElement a = element("a", 10, 5, 2);
+        final IErlElement b = element("b", 16, 4, 3);
+        final ChildRangeIndex index = new ChildRangeIndex(Arrays.asList(a, b));
+
+        assertThat(atOffset(index, 9)).isNull();
+        assertThat(atOffset(index, 10)).isSameAs(a);
+        assertThat(atOffset(index, 15)).isSameAs(a);
+        assertThat(atOffset(index, 16)).isSameAs(b);
+        assertThat(atOffset(index, 20)).isSameAs(b);
+        assertThat(atOffset(index, 21)).isNull();
+        assertThat(atLine(index, 1)).isNull();
+        assertThat(atLine(index, 2)).isSameAs(a);
+        assertThat(atLine(index, 3)).isSameAs(b);
+        assertThat(atLine(index, 4)).isNull();
+    }
+
+    @Test
+    public void zeroLengthRangesAreFoundAtTheirOffset() {
+        final IErlElement a = element("a", 10, 0, 2);
+        final IErlElement b = element("b", 10, 5, 2);
+        final ChildRangeIndex index = new ChildRangeIndex(Arrays.asList(a, b));
+
+        assertThat(index.childrenAtOffset(10)).asList().containsExactly(0, 1)
+                .inOrder();
+        assertThat(atOffset(index, 10)).isSameAs(a);
+        assertThat(atOffset(index, 11)).isSameAs(b);
+        assertThat(index.childrenAtOffset(9)).isEmpty();
+    }
+
+    @Test
+    public void descendantsOutsideTheirParentAreFound() {
+        final IErlElement inner = element("inner", 50, 5, 9);
+        final IErlElement outer = element("outer", 10, 5, 2, inner);
+        final IErlElement folder = container("folder", element("leaf", 100, 1, 20));
+        final IErlElement empty = element("empty", 0, 200, 0);
+        final ChildRangeIndex index = new ChildRangeIndex(
+                Arrays.asList(outer, folder, empty));
+
+        assertThat(atOffset(index, 52)).isSameAs(inner);
+        assertThat(atLine(index, 9)).isSameAs(inner);
+        assertThat(atOffset(index, 100).getName()).isEqualTo("leaf");
+        assertThat(atLine(index, 20).getName()).isEqualTo("leaf");
+        assertThat(atOffset(index, 30)).isSameAs(empty);
+        assertThat(index.childrenAtOffset(52)).asList().containsExactly(0, 2)
+                .inOrder();
+    }
+
+    @Test
+    public void overlappingChildrenAreSearchedInTheirOrder() {
+        final IErlElement a = element("a", 20, 10, 5);
+        final IErlElement b = element("b", 10, 30, 5);
+        final IErlElement c = element("c", 0, 25, 5);
+        final List<IErlElement> children = Arrays.asList(a, b, c);
+        final ChildRangeIndex index = new ChildRangeIndex(children);
+
+        assertThat(index.childrenAtOffset(22)).asList().containsExactly(0, 1, 2)
+                .inOrder();
+        assertThat(atOffset(index, 22)).isSameAs(a);
+        assertThat(atOffset(index, 35)).isSameAs(b);
+        assertThat(atOffset(index, 5)).isSameAs(c);
+        assertSameAsScan(children);
+    }
+
+}
@@ -0,0 +1,192 @@
+package org.erlide.engine.internal.model.root;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.erlide.engine.model.ErlElementKind;
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.IErlElement;
+import org.erlide.engine.model.IParent;
+import org.junit.Test;
+
+public class ErlElementTest {
+
+    private static class Element extends ErlElement {
+        Element(final IParent parent, final String name) {
+            super(parent, name);
+        }
+
+        @Override
+        public ErlElementKind getKind() {
+            return ErlElementKind.FOLDER;
+        }
+    }
+
+    /**
+     * Keeps a tag that must always match the number of children, published
+     * along with them the way modules publish their comments.
+     */
+    private static class TaggedElement extends Element {
+        private volatile Object[] state = { Collections.<IErlElement> emptyList(), 0 };
+
+        TaggedElement() {
+            super(null, "tagged");
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public List<IErlElement> internalGetChildren() {
+            return (List<IErlElement>) state[0];
+        }
+
+        @Override
+        protected void publishChildren(final List<IErlElement> children) {
+            state = new Object[] { children, children.size() };
+        }
+
+        Object[] getState() {
+            return state;
+        }
+    }
+
+    private final Element parent = new Element(null, "parent");
+
+    private List<IErlElement> elements(final int n) {
+        final List<IErlElement> result = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            result.add(new Element(parent, "e" + i));
+        }
+        return result;
+    }
+
+    @Test
+    public void snapshotsDontChangeAfterwards() throws ErlModelException {
+        final List<IErlElement> es = elements(3);
+        parent.addChild(es.get(0));
+        final List<IErlElement> before = parent.getChildren();
+        parent.addChild(es.get(1));
+        parent.setChildren(es);
+        parent.removeChild(es.get(0));
+
+        assertThat(before).containsExactly(es.get(0));
+        assertThat(parent.getChildren()).containsExactly(es.get(1), es.get(2))
+                .inOrder();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshotsCantBeModified() throws ErlModelException {
+        parent.setChildren(elements(2));
+        parent.getChildren().clear();
+    }
+
+    @Test
+    public void setChildrenCopiesTheCollection() throws ErlModelException {
+        final List<IErlElement> es = elements(2);
+        parent.setChildren(es);
+        es.clear();
+        assertThat(parent.getChildren()).hasSize(2);
+
+        parent.setChildren(null);
+        assertThat(parent.hasChildren()).isFalse();
+    }
+
+    @Test
+    public void removingAnUnknownChildKeepsTheSnapshot() throws ErlModelException {
+        parent.setChildren(elements(2));
+        final List<IErlElement> before = parent.getChildren();
+        parent.removeChild(new Element(null, "other"));
+        assertThat(parent.getChildren()).isSameAs(before);
+    }
+
+    @Test
+    public void concurrentChangesAreNotLost() throws Exception {
+        final int writers = 4;
+        final int adds = 500;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            final String prefix = "w" + w + "_";
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < adds; i++) {
+                            final Element e = new Element(parent, prefix + i);
+                            parent.addChild(e);
+                            if (i % 2 == 1) {
+                                parent.removeChild(e);
+                            }
+                        }
+                    } catch (final Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+        }
+        // readers walk the snapshots while they are being replaced
+        threads.add(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                    for (int i = 0; i < adds; i++) {
+                        for (final IErlElement e : parent.getChildren()) {
+                            assertThat(e).isNotNull();
+                        }
+                    }
+                } catch (final Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        });
+        for (final Thread t : threads) {
+            t.start();
+        }
+        start.countDown();
+        for (final Thread t : threads) {
+            t.join();
+        }
+
+        assertThat(failure.get()).isNull();
+        assertThat(parent.getChildCount()).isEqualTo(writers * adds / 2);
+    }
+
+    @Test
+    public void stateOfSubclassesIsPublishedWithTheChildren() throws Exception {
+        final TaggedElement tagged = new TaggedElement();
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                    for (int i = 0; i < 2000; i++) {
+                        tagged.setChildren(elements(i % 7));
+                        tagged.addChild(new Element(tagged, "x"));
+                    }
+                } catch (final Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+        writer.start();
+        start.countDown();
+        while (writer.isAlive()) {
+            final Object[] state = tagged.getState();
+            assertThat(((List<?>) state[0]).size()).isEqualTo(state[1]);
+        }
+        writer.join();
+
+        assertThat(failure.get()).isNull();
+        assertThat(tagged.getChildCount()).isEqualTo(1999 % 7 + 1);
+    }
+
+}
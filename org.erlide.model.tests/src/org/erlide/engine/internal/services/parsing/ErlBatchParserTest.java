@@ -0,0 +1,148 @@
+package org.erlide.engine.internal.services.parsing;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.ErlModelStatus;
+import org.erlide.engine.model.ErlModelStatusConstants;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.runtime.rpc.IRpcResultCallback;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class ErlBatchParserTest {
+
+    private static class Recorder implements IRpcResultCallback {
+        final List<OtpErlangObject> starts = Lists.newArrayList();
+        final List<OtpErlangObject> progress = Lists.newArrayList();
+        final List<OtpErlangObject> stops = Lists.newArrayList();
+
+        @Override
+        public void start(final OtpErlangObject msg) {
+            starts.add(msg);
+        }
+
+        @Override
+        public void stop(final OtpErlangObject msg) {
+            stops.add(msg);
+        }
+
+        @Override
+        public void progress(final OtpErlangObject msg) {
+            progress.add(msg);
+        }
+    }
+
+    private final Set<String> opened = Sets.newConcurrentHashSet();
+
+    /**
+     * A module that becomes known when opened, unless it is broken. Opening
+     * blocks on <code>gate</code>, when there is one.
+     */
+    private IErlModule module(final String name, final boolean known,
+            final boolean broken, final CountDownLatch gate) {
+        return (IErlModule) Proxy.newProxyInstance(IErlModule.class.getClassLoader(),
+                new Class<?>[] { IErlModule.class }, new InvocationHandler() {
+                    private volatile boolean structureKnown = known;
+
+                    @Override
+                    public Object invoke(final Object proxy, final Method method,
+                            final Object[] args) throws Throwable {
+                        switch (method.getName()) {
+                        case "getName":
+                        case "toString":
+                            return name;
+                        case "getFilePath":
+                            return "/p/src/" + name;
+                        case "isStructureKnown":
+                            return structureKnown;
+                        case "open":
+                            opened.add(name);
+                            if (gate != null) {
+                                gate.countDown();
+                                gate.await(5, TimeUnit.SECONDS);
+                            }
+                            if (broken) {
+                                throw new ErlModelException(new ErlModelStatus(
+                                        ErlModelStatusConstants.IO_EXCEPTION));
+                            }
+                            structureKnown = true;
+                            return null;
+                        default:
+                            return null;
+                        }
+                    }
+                });
+    }
+
+    private static OtpErlangObject result(final String name, final String status) {
+        return new OtpErlangTuple(new OtpErlangObject[] {
+                new OtpErlangString("/p/src/" + name), new OtpErlangAtom(status) });
+    }
+
+    @Test
+    public void opensOnlyUnknownModules() {
+        final Recorder recorder = new Recorder();
+        ErlBatchParser.parse(Arrays.asList(module("a.erl", false, false, null),
+                module("b.erl", true, false, null), module("c.erl", false, false, null)),
+                recorder);
+
+        assertThat(opened).containsExactly("a.erl", "c.erl");
+        assertThat(recorder.starts).containsExactly(new OtpErlangLong(2));
+        assertThat(recorder.progress).containsExactly(result("a.erl", "ok"),
+                result("c.erl", "ok"));
+        assertThat(recorder.stops).containsExactly(new OtpErlangLong(2));
+    }
+
+    @Test
+    public void reportsModulesThatFailToOpen() {
+        final Recorder recorder = new Recorder();
+        ErlBatchParser.parse(Arrays.asList(module("a.erl", false, true, null),
+                module("b.erl", false, false, null)), recorder);
+
+        assertThat(recorder.progress).containsExactly(result("a.erl", "error"),
+                result("b.erl", "ok"));
+        assertThat(recorder.stops).containsExactly(new OtpErlangLong(1));
+    }
+
+    @Test
+    public void opensModulesConcurrently() {
+        // each open waits until the other one has started
+        final CountDownLatch gate = new CountDownLatch(2);
+        final long start = System.nanoTime();
+        ErlBatchParser.parse(Arrays.asList(module("a.erl", false, false, gate),
+                module("b.erl", false, false, gate)));
+
+        assertThat(gate.getCount()).isEqualTo(0L);
+        assertThat(opened).containsExactly("a.erl", "b.erl");
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start))
+                .isLessThan(5L);
+    }
+
+    @Test
+    public void emptyBatch() {
+        final Recorder recorder = new Recorder();
+        ErlBatchParser.parse(Lists.<IErlModule> newArrayList(), recorder);
+
+        assertThat(recorder.starts).containsExactly(new OtpErlangLong(0));
+        assertThat(recorder.progress).isEmpty();
+        assertThat(recorder.stops).containsExactly(new OtpErlangLong(0));
+    }
+
+}
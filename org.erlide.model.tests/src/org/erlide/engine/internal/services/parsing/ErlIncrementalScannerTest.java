@@ -0,0 +1,111 @@
+package org.erlide.engine.internal.services.parsing;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+
+import org.erlide.engine.services.parsing.ErlToken;
+import org.junit.Test;
+
+public class ErlIncrementalScannerTest {
+
+    private static final String TEXT = "-module(xx).\n-include(\"yy.hrl\").\n"
+            + "f(A) ->\n    lists:reverse(A).\n% comment\ng() -> 1.5e3 + 16#fF + $\\n.\n";
+
+    @Test
+    public void lightScanKinds() throws Exception {
+        final List<ErlToken> tokens = new ErlSimpleScanner(null)
+                .lightScanString("f(X) -> case ?M of 'a b' -> \"s\" end.", 10);
+        assertThat(kinds(tokens)).isEqualTo(new int[] { ErlToken.KIND_ATOM,
+                ErlToken.KIND_OTHER, ErlToken.KIND_VAR, ErlToken.KIND_OTHER,
+                ErlToken.KIND_WHITESPACE, ErlToken.KIND_ARROW, ErlToken.KIND_WHITESPACE,
+                ErlToken.KIND_KEYWORD, ErlToken.KIND_WHITESPACE, ErlToken.KIND_MACRO,
+                ErlToken.KIND_WHITESPACE, ErlToken.KIND_KEYWORD,
+                ErlToken.KIND_WHITESPACE, ErlToken.KIND_ATOM, ErlToken.KIND_WHITESPACE,
+                ErlToken.KIND_ARROW, ErlToken.KIND_WHITESPACE, ErlToken.KIND_STRING,
+                ErlToken.KIND_WHITESPACE, ErlToken.KIND_KEYWORD, ErlToken.KIND_OTHER });
+        assertThat(tokens.get(0).getOffset()).isEqualTo(10);
+        assertThat(tokens.get(13).getLength()).isEqualTo(5);
+    }
+
+    @Test
+    public void numbers() throws Exception {
+        final List<ErlToken> tokens = new ErlSimpleScanner(null)
+                .lightScanString("1.5e3 16#fF 1_000 1.x", 0);
+        assertThat(kinds(tokens)).isEqualTo(new int[] { ErlToken.KIND_FLOAT,
+                ErlToken.KIND_WHITESPACE, ErlToken.KIND_INTEGER,
+                ErlToken.KIND_WHITESPACE, ErlToken.KIND_INTEGER,
+                ErlToken.KIND_WHITESPACE, ErlToken.KIND_INTEGER, ErlToken.KIND_OTHER,
+                ErlToken.KIND_ATOM });
+    }
+
+    @Test
+    public void getTokenAt() throws Exception {
+        final ErlIncrementalScanner scanner = newScanner(TEXT);
+        assertThat(scanner.getTokenAt(-1)).isNull();
+        assertThat(scanner.getTokenAt(0).getKind()).isEqualTo(ErlToken.KIND_OTHER);
+        assertThat(scanner.getTokenAt(1).getKind()).isEqualTo(ErlToken.KIND_ATOM);
+        assertThat(scanner.getTokenAt(24).getKind()).isEqualTo(ErlToken.KIND_STRING);
+        assertThat(scanner.getTokenAt(62)).isNull();
+        assertThat(scanner.getTokenAt(TEXT.length())).isNull();
+    }
+
+    @Test
+    public void editsMatchFullScan() throws Exception {
+        final ErlIncrementalScanner scanner = newScanner(TEXT);
+        final StringBuilder text = new StringBuilder(TEXT);
+        final Object[][] edits = { { 45, 0, "%" }, { 45, 1, "" }, { 70, 0, "\"" },
+                { 0, 0, "'" }, { 0, 1, "" }, { 33, 0, "1." }, { 35, 0, "5" },
+                { 10, 3, "" }, { text.length() - 3, 3, "?X" }, { 5, 20, "x\n y" } };
+        for (final Object[] edit : edits) {
+            final int offset = (Integer) edit[0];
+            final int length = (Integer) edit[1];
+            final String newText = (String) edit[2];
+            text.replace(offset, offset + length, newText);
+            scanner.replaceText(offset, length, newText);
+            assertSameTokens(scanner, text.toString());
+        }
+    }
+
+    @Test
+    public void editsOutsideTheTextRescanIt() throws Exception {
+        final ErlIncrementalScanner scanner = newScanner(TEXT);
+        final int end = TEXT.length();
+
+        scanner.replaceText(end - 2, 10, "x");
+        String text = TEXT.substring(0, end - 2) + "x";
+        assertSameTokens(scanner, text);
+
+        scanner.replaceText(-3, 2, "'");
+        text = "'" + text;
+        assertSameTokens(scanner, text);
+
+        // the tokens are still updated incrementally afterwards
+        scanner.replaceText(1, 0, "a");
+        assertSameTokens(scanner, "'a" + text.substring(1));
+    }
+
+    private static ErlIncrementalScanner newScanner(final String text) {
+        final ErlIncrementalScanner scanner = new ErlIncrementalScanner(null, "test");
+        scanner.initialScan(text, "", false);
+        return scanner;
+    }
+
+    private static void assertSameTokens(final ErlIncrementalScanner scanner,
+            final String text) {
+        final ErlIncrementalScanner expected = newScanner(text);
+        for (int i = 0; i <= text.length(); i++) {
+            assertThat(String.valueOf(scanner.getTokenAt(i)))
+                    .isEqualTo(String.valueOf(expected.getTokenAt(i)));
+        }
+    }
+
+    private static int[] kinds(final List<ErlToken> tokens) {
+        final int[] result = new int[tokens.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = tokens.get(i).getKind();
+        }
+        return result;
+    }
+
+}
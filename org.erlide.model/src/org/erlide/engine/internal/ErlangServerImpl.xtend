@@ -6,11 +6,13 @@ import org.eclipse.core.runtime.CoreException
 import org.erlide.engine.ErlangInitializeParams
 import org.erlide.engine.IErlangEngine
 import org.erlide.engine.internal.model.ErlModel
+import org.erlide.engine.internal.model.cache.ErlModelCache
 import org.erlide.engine.internal.model.erlang.ModelFindUtil
 import org.erlide.engine.internal.model.erlang.ModelInternalUtils
 import org.erlide.engine.internal.services.cleanup.ErlTidyCleanupProvider
 import org.erlide.engine.internal.services.codeassist.ErlangCompletionService
 import org.erlide.engine.internal.services.edoc.ErlideEdocExport
+import org.erlide.engine.internal.services.parsing.ErlSimpleScanner
 import org.erlide.engine.internal.services.parsing.ErlideParser
 import org.erlide.engine.internal.services.parsing.ErlideScanner
 import org.erlide.engine.internal.services.parsing.ScannerProvider
@@ -53,6 +55,7 @@ class ErlangServerImpl implements IErlangEngine {
     }
 
     override shutdown() {
+        ErlModelCache.saveIndexes()
     }
 
     override IErlModel getModel() {
@@ -111,7 +114,10 @@ class ErlangServerImpl implements IErlangEngine {
         if (backend === null) {
             return new NullScannerService()
         }
-        return new ErlideScanner(backend)
+        if (ScannerProvider.USE_BACKEND_SCANNER) {
+            return new ErlideScanner(backend)
+        }
+        return new ErlSimpleScanner(backend)
     }
 
     override SimpleParserService getSimpleParserService() {
@@ -45,6 +45,7 @@ import org.eclipse.xtext.xbase.lib.IterableExtensions;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.ModelPlugin;
 import org.erlide.engine.internal.model.cache.ErlModelCache;
+import org.erlide.engine.internal.model.cache.ModuleNameIndex;
 import org.erlide.engine.internal.model.root.ErlElementDelta;
 import org.erlide.engine.internal.model.root.ErlFolder;
 import org.erlide.engine.internal.model.root.ErlModule;
@@ -74,10 +75,8 @@ import org.erlide.engine.model.root.IOpenable;
 import org.erlide.engine.model.root.ProjectConfigurationChangeListener;
 import org.erlide.engine.util.CommonUtils;
 import org.erlide.engine.util.NatureUtil;
-import org.erlide.engine.util.ResourceUtil;
 import org.erlide.runtime.runtimeinfo.RuntimeVersion;
 import org.erlide.util.ErlLogger;
-import org.erlide.util.SystemConfiguration;
 
 import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangObject;
@@ -610,6 +609,19 @@ public class ErlModel extends Openable implements IErlModel {
 
     void remove(final IResource rsrc) {
         final IErlElement element = findElement(rsrc);
+        if (element instanceof IErlModule && rsrc.getProject().isAccessible()) {
+            // deleted or renamed; for a project that goes away the whole
+            // index is dropped below
+            final IErlProject project = ErlangEngine.getInstance()
+                    .getModelUtilService().getProject(element);
+            if (project != null) {
+                ErlModelCache.getDefault().removeFromStructureIndex(project,
+                        (IErlModule) element);
+            }
+        } else if (rsrc.getType() == IResource.PROJECT) {
+            ErlModelCache.getDefault().removeStructureIndex(rsrc.getName(),
+                    !rsrc.exists());
+        }
         if (element != null) {
             final IParent p = element.getParent();
             p.removeChild(element);
@@ -947,12 +959,10 @@ public class ErlModel extends Openable implements IErlModel {
         return null;
     }
 
-    private Collection<IErlModule> getAllIncludes(final IErlProject project,
+    private List<ModuleNameIndex> getIncludeIndexes(final IErlProject project,
             final boolean checkExternals, final IErlElementLocator.Scope scope)
             throws ErlModelException {
         final List<IErlProject> projects = Lists.newArrayList();
-        final List<IErlModule> result = Lists.newArrayList();
-        final Set<String> paths = Sets.newHashSet();
         if (project != null) {
             projects.add(project);
             if (scope == IErlElementLocator.Scope.REFERENCED_PROJECTS) {
@@ -966,29 +976,18 @@ public class ErlModel extends Openable implements IErlModel {
                 }
             }
         }
+        final ErlModelCache cache = ErlModelCache.getDefault();
+        final List<ModuleNameIndex> result = Lists.newArrayList();
         for (final IErlProject project2 : projects) {
-            getAllModulesAux(project2.getIncludes(), result, paths);
+            result.add(cache.getModuleNameIndex(project2, ModuleNameIndex.Kind.INCLUDES));
         }
         if (checkExternals && project != null) {
-            getAllModulesAux(project.getExternalIncludes(), result, paths);
+            result.add(cache.getModuleNameIndex(project,
+                    ModuleNameIndex.Kind.EXTERNAL_INCLUDES));
         }
         return result;
     }
 
-    static void getAllModulesAux(final Collection<IErlModule> modules,
-            final Collection<IErlModule> result, final Set<String> paths) {
-        for (final IErlModule module : modules) {
-            final String path = module.getFilePath();
-            if (path != null) {
-                if (paths.contains(path)) {
-                    continue;
-                }
-                paths.add(path);
-            }
-            result.add(module);
-        }
-    }
-
     private IErlModule findIncludeFromProject(final IErlProject project,
             final String includeName, final String includePath,
             final boolean checkExternals, final IErlElementLocator.Scope scope)
@@ -1000,24 +999,23 @@ public class ErlModel extends Openable implements IErlModel {
                 return module;
             }
         }
-        final Collection<IErlModule> includes = getAllIncludes(project, checkExternals,
+        final List<ModuleNameIndex> indexes = getIncludeIndexes(project, checkExternals,
                 scope);
-        ErlModelCache.getDefault().putModules(includes);
         if (includePath != null) {
-            for (final IErlModule module2 : includes) {
-                final String path2 = module2.getFilePath();
-                if (path2 != null && includePath.equals(path2)) {
-                    return module2;
+            for (final ModuleNameIndex index : indexes) {
+                final IErlModule module = index.findIncludeByPath(includePath);
+                if (module != null) {
+                    ErlModelCache.getDefault().putModule(module);
+                    return module;
                 }
             }
         }
         if (includeName != null) {
-            final boolean hasExtension = SystemConfiguration.hasExtension(includeName);
-            for (final IErlModule module2 : includes) {
-                final String name = hasExtension ? module2.getName()
-                        : module2.getModuleName();
-                if (ResourceUtil.samePath(includeName, name)) {
-                    return module2;
+            for (final ModuleNameIndex index : indexes) {
+                final IErlModule module = index.findIncludeByName(includeName);
+                if (module != null) {
+                    ErlModelCache.getDefault().putModule(module);
+                    return module;
                 }
             }
         }
@@ -1050,89 +1048,58 @@ public class ErlModel extends Openable implements IErlModel {
                 return module;
             }
         }
-        final List<IErlModule> allModules = Lists.newArrayList();
-        final Set<String> paths = Sets.newHashSet();
-        try {
-            for (int i = 0; i < 2; ++i) {
-                final boolean externalModules = i > 0;
-                if (externalModules && !checkExternals) {
-                    break;
-                }
-                if (project != null) {
-                    final IErlModule module = tryFindModule(Sets.newHashSet(project),
-                            moduleName, modulePath, allModules, paths, externalModules);
-                    if (module != null) {
-                        return module;
-                    }
+        for (int i = 0; i < 2; ++i) {
+            final boolean externalModules = i > 0;
+            if (externalModules && !checkExternals) {
+                break;
+            }
+            final ModuleNameIndex.Kind kind = externalModules
+                    ? ModuleNameIndex.Kind.EXTERNAL_MODULES
+                    : ModuleNameIndex.Kind.MODULES;
+            if (project != null) {
+                final IErlModule module = tryFindModule(Sets.newHashSet(project),
+                        moduleName, modulePath, kind);
+                if (module != null) {
+                    return module;
                 }
-                if ((scope == Scope.REFERENCED_PROJECTS || scope == Scope.ALL_PROJECTS)
-                        && project != null) {
-                    final Collection<IErlProject> projects = project
-                            .getReferencedProjects();
-                    final IErlModule module = tryFindModule(projects, moduleName,
-                            modulePath, allModules, paths, externalModules);
-                    if (module != null) {
-                        return module;
-                    }
+            }
+            if ((scope == Scope.REFERENCED_PROJECTS || scope == Scope.ALL_PROJECTS)
+                    && project != null) {
+                final Collection<IErlProject> projects = project.getReferencedProjects();
+                final IErlModule module = tryFindModule(projects, moduleName, modulePath,
+                        kind);
+                if (module != null) {
+                    return module;
                 }
+            }
 
-                if (scope == Scope.ALL_PROJECTS) {
-                    final Collection<IErlProject> projects = getErlangProjects();
-                    final IErlModule module = tryFindModule(projects, moduleName,
-                            modulePath, allModules, paths, externalModules);
-                    if (module != null) {
-                        return module;
-                    }
+            if (scope == Scope.ALL_PROJECTS) {
+                final Collection<IErlProject> projects = getErlangProjects();
+                final IErlModule module = tryFindModule(projects, moduleName, modulePath,
+                        kind);
+                if (module != null) {
+                    return module;
                 }
             }
-            return null;
-        } finally {
-            ErlModelCache.getDefault().putModules(allModules);
         }
+        return null;
     }
 
     private IErlModule tryFindModule(final Collection<IErlProject> projects,
             final String moduleName, final String modulePath,
-            final List<IErlModule> allModules, final Set<String> paths,
-            final boolean externalModules) throws ErlModelException {
-        IErlModule module;
+            final ModuleNameIndex.Kind kind) throws ErlModelException {
+        final ErlModelCache cache = ErlModelCache.getDefault();
         for (final IErlProject project : projects) {
-            final Collection<IErlModule> modules = Lists.newArrayList();
-            final Collection<IErlModule> modulesOrExternals = externalModules
-                    ? project.getExternalModules() : project.getModules();
-            getAllModulesAux(modulesOrExternals, modules, paths);
-            allModules.addAll(modules);
-            module = findModule(modules, moduleName, modulePath);
+            final IErlModule module = cache.getModuleNameIndex(project, kind)
+                    .findModule(moduleName, modulePath);
             if (module != null) {
+                cache.putModule(module);
                 return module;
             }
         }
         return null;
     }
 
-    private IErlModule findModule(final Collection<IErlModule> modules,
-            final String moduleName, final String modulePath) {
-        if (modulePath != null) {
-            for (final IErlModule module : modules) {
-                final String path = module.getFilePath();
-                if (path != null && ResourceUtil.samePath(modulePath, path)) {
-                    return module;
-                }
-            }
-        }
-        if (moduleName != null) {
-            final boolean hasExtension = SystemConfiguration.hasExtension(moduleName);
-            for (final IErlModule module : modules) {
-                final String name = hasExtension ? module.getName()
-                        : module.getModuleName();
-                if (moduleName.equals(name)) {
-                    return module;
-                }
-            }
-        }
-        return null;
-    }
-
     @Override
     public IErlModule findIncludeFromModule(final IErlModule module,
             final String includeName, final String includePath,
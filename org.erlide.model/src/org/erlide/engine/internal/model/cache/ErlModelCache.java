@@ -1,14 +1,17 @@
 package org.erlide.engine.internal.model.cache;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.xtext.xbase.lib.Pair;
 import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.model.ErlModelException;
 import org.erlide.engine.model.IErlElement;
 import org.erlide.engine.model.root.IErlModelChangeListener;
 import org.erlide.engine.model.root.IErlModule;
@@ -26,6 +29,7 @@ public class ErlModelCache implements IDisposable {
 
     private static final int CACHE_SIZE = 200;
     private static final int CACHE_TIME_MINUTES = 15;
+    private static final String STRUCTURE_INDEX_DIR = "modelindex";
 
     private static final boolean disabled = Boolean
             .valueOf(System.getProperty("erlide.noModelCache"));
@@ -39,6 +43,9 @@ public class ErlModelCache implements IDisposable {
     private final ModelChangeListener modelChangeListener;
     private final Cache<IErlProject, List<IErlModule>> projectModuleCache;
     private final Cache<IErlProject, List<IErlModule>> projectIncludeCache;
+    private final Map<IErlProject, IncludeDependencyIndex> includeDependencies;
+    private final Map<String, ModuleStructureIndex> structureIndexes;
+    private final Cache<IErlProject, Map<ModuleNameIndex.Kind, ModuleNameIndex>> moduleNameIndexes;
 
     public static ErlModelCache getDefault() {
         if (fgInstance == null) {
@@ -56,6 +63,9 @@ public class ErlModelCache implements IDisposable {
             if (element instanceof IErlModule) {
                 final IErlModule module = (IErlModule) element;
                 moduleIncludeCache.invalidate(module);
+                for (final IncludeDependencyIndex index : includeDependencies.values()) {
+                    index.invalidate(module);
+                }
             }
         }
     }
@@ -75,6 +85,9 @@ public class ErlModelCache implements IDisposable {
         externalTreeCache = newCache();
         projectModuleCache = newCache();
         projectIncludeCache = newCache();
+        includeDependencies = new ConcurrentHashMap<>();
+        structureIndexes = new ConcurrentHashMap<>();
+        moduleNameIndexes = newCache();
 
         modelChangeListener = new ModelChangeListener();
         ErlangEngine.getInstance().getModel().addModelChangeListener(modelChangeListener);
@@ -99,6 +112,157 @@ public class ErlModelCache implements IDisposable {
         if (path != null) {
             pathToModuleCache.invalidate(path);
         }
+        for (final IncludeDependencyIndex index : includeDependencies.values()) {
+            index.remove(module);
+        }
+    }
+
+    /**
+     * The include graph of the project. It is kept for the whole session and
+     * updated as modules are reparsed, added or removed.
+     */
+    public IncludeDependencyIndex getIncludeDependencies(final IErlProject project) {
+        IncludeDependencyIndex index = includeDependencies.get(project);
+        if (index == null) {
+            index = new IncludeDependencyIndex(project);
+            final IncludeDependencyIndex old = includeDependencies.putIfAbsent(project,
+                    index);
+            if (old != null) {
+                index = old;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The name and path index of the modules of the given kind of the project.
+     * It is built on first use and dropped whenever the project's module
+     * lists are, i.e. when its folders or configuration change.
+     */
+    public ModuleNameIndex getModuleNameIndex(final IErlProject project,
+            final ModuleNameIndex.Kind kind) throws ErlModelException {
+        Map<ModuleNameIndex.Kind, ModuleNameIndex> indexes = moduleNameIndexes
+                .getIfPresent(project);
+        if (indexes == null) {
+            indexes = new ConcurrentHashMap<>();
+            final Map<ModuleNameIndex.Kind, ModuleNameIndex> old = moduleNameIndexes
+                    .asMap().putIfAbsent(project, indexes);
+            if (old != null) {
+                indexes = old;
+            }
+        }
+        ModuleNameIndex index = indexes.get(kind);
+        if (index == null) {
+            index = new ModuleNameIndex(getModules(project, kind));
+            indexes.put(kind, index);
+        }
+        return index;
+    }
+
+    static Collection<IErlModule> getModules(final IErlProject project,
+            final ModuleNameIndex.Kind kind) throws ErlModelException {
+        switch (kind) {
+        case MODULES:
+            return project.getModules();
+        case INCLUDES:
+            return project.getIncludes();
+        case EXTERNAL_MODULES:
+            return project.getExternalModules();
+        default:
+            return project.getExternalIncludes();
+        }
+    }
+
+    /**
+     * The persistent index of the parsed modules of the project, or null if
+     * there is no place to keep it. It is held until the project is closed or
+     * deleted, see {@link #removeStructureIndex(String, boolean)}.
+     */
+    public ModuleStructureIndex getStructureIndex(final IErlProject project) {
+        final String name = project.getName();
+        ModuleStructureIndex index = structureIndexes.get(name);
+        if (index == null) {
+            final File file = getStructureIndexFile(name);
+            if (file == null) {
+                return null;
+            }
+            index = new ModuleStructureIndex(file);
+            final ModuleStructureIndex old = structureIndexes.putIfAbsent(name, index);
+            if (old != null) {
+                index = old;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Forget the indexed structure of a module whose file was deleted or
+     * renamed.
+     */
+    public void removeFromStructureIndex(final IErlProject project,
+            final IErlModule module) {
+        final String path = module.getFilePath();
+        if (path == null) {
+            return;
+        }
+        final ModuleStructureIndex index = getStructureIndex(project);
+        if (index != null) {
+            index.remove(path);
+        }
+    }
+
+    /**
+     * Stop holding the index of a project that is closed, after saving it, or
+     * remove it altogether if the project was deleted.
+     */
+    public void removeStructureIndex(final String projectName, final boolean deleted) {
+        final ModuleStructureIndex index = structureIndexes.remove(projectName);
+        if (deleted) {
+            if (index != null) {
+                index.clear();
+            } else {
+                final File file = getStructureIndexFile(projectName);
+                if (file != null) {
+                    file.delete();
+                }
+            }
+        } else if (index != null) {
+            index.save();
+        }
+    }
+
+    private static File getStructureIndexFile(final String projectName) {
+        final String stateDir = ErlangEngine.getInstance().getStateDir();
+        if (stateDir == null) {
+            return null;
+        }
+        return new File(new File(stateDir, STRUCTURE_INDEX_DIR), projectName + ".idx");
+    }
+
+    /**
+     * Write the persistent indexes that changed.
+     */
+    public void saveStructureIndexes() {
+        for (final ModuleStructureIndex index : structureIndexes.values()) {
+            index.save();
+        }
+    }
+
+    /**
+     * Save the persistent indexes, if the cache was ever used.
+     */
+    public static void saveIndexes() {
+        final ErlModelCache instance = fgInstance;
+        if (instance != null) {
+            instance.saveStructureIndexes();
+        }
+    }
+
+    private void includeMembershipChanged(final IErlProject project) {
+        final IncludeDependencyIndex index = includeDependencies.get(project);
+        if (index != null) {
+            index.invalidateMembership();
+        }
     }
 
     // public Set<IErlModule> getModulesByName(final String moduleName) {
@@ -204,6 +368,7 @@ public class ErlModelCache implements IDisposable {
         // ErlLogger.debug("setModulesForProject %s %s", project.getName(),
         // moduleNames);
         projectModuleCache.put(project, Lists.newArrayList(modules));
+        includeMembershipChanged(project);
     }
 
     public void putIncludesForProject(final IErlProject project,
@@ -215,6 +380,7 @@ public class ErlModelCache implements IDisposable {
         // ErlLogger.debug("setIncludesForProject %s %s", project.getName(),
         // moduleNames);
         projectIncludeCache.put(project, Lists.newArrayList(includes));
+        includeMembershipChanged(project);
     }
 
     public void removeProject(final IErlProject project) {
@@ -233,6 +399,8 @@ public class ErlModelCache implements IDisposable {
         }
         projectIncludeCache.invalidate(project);
         projectModuleCache.invalidate(project);
+        moduleNameIndexes.invalidate(project);
+        includeMembershipChanged(project);
         final Set<String> keysToRemove = Sets.newHashSet();
         final Set<Entry<String, Pair<IErlProject, List<ExternalTreeEntry>>>> entrySet = externalTreeCache
                 .asMap().entrySet();
@@ -248,6 +416,7 @@ public class ErlModelCache implements IDisposable {
 
     public void pathVarsChanged() {
         // FIXME we need to clear some stuff here...
+        moduleNameIndexes.invalidateAll();
     }
 
     public void newProjectCreated() {
@@ -269,9 +438,27 @@ public class ErlModelCache implements IDisposable {
         // nameToModuleCache.clear();
         projectModuleCache.invalidateAll();
         projectIncludeCache.invalidateAll();
+        moduleNameIndexes.invalidateAll();
+        includeDependencies.clear();
     }
 
     private static class DisabledErlModelCache extends ErlModelCache {
+        @Override
+        public ModuleNameIndex getModuleNameIndex(final IErlProject project,
+                final ModuleNameIndex.Kind kind) throws ErlModelException {
+            return new ModuleNameIndex(getModules(project, kind));
+        }
+
+        @Override
+        public IncludeDependencyIndex getIncludeDependencies(final IErlProject project) {
+            return new IncludeDependencyIndex(project);
+        }
+
+        @Override
+        public ModuleStructureIndex getStructureIndex(final IErlProject project) {
+            return null;
+        }
+
         @Override
         public void putEdited(final String path, final IErlModule module) {
         }
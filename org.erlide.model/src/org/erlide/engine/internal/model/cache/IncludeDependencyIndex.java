@@ -0,0 +1,186 @@
+package org.erlide.engine.internal.model.cache;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.filesystem.EFS;
+import org.erlide.engine.internal.services.parsing.ErlBatchParser;
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.erlang.ErlangIncludeFile;
+import org.erlide.engine.model.erlang.SourceKind;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.engine.model.root.IErlProject;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Reverse include graph for the modules and headers of one project: for each
+ * include file name, the units that include it directly.
+ *
+ * <p>
+ * Units are re-read lazily: the model marks a unit as stale when it is
+ * reparsed, and stale units are indexed again on the next query. Reading the
+ * includes of a unit may open it, so this is never done while holding the
+ * graph lock. When several units are stale, as on the first build of a
+ * project, they are all opened together by the {@link ErlBatchParser} first.
+ * </p>
+ */
+public class IncludeDependencyIndex {
+
+    private final IErlProject project;
+    private final Map<IErlModule, Set<String>> includes = new ConcurrentHashMap<>();
+    // guarded by itself
+    private final Map<String, Set<IErlModule>> includers = Maps.newHashMap();
+    private final Set<IErlModule> stale = Collections
+            .newSetFromMap(new ConcurrentHashMap<IErlModule, Boolean>());
+    private volatile boolean membershipKnown = false;
+
+    public IncludeDependencyIndex(final IErlProject project) {
+        this.project = project;
+    }
+
+    /**
+     * The include list of this unit may have changed.
+     */
+    public void invalidate(final IErlModule unit) {
+        if (includes.containsKey(unit)) {
+            stale.add(unit);
+        }
+    }
+
+    /**
+     * Units may have been added to or removed from the project.
+     */
+    public void invalidateMembership() {
+        membershipKnown = false;
+    }
+
+    public void remove(final IErlModule unit) {
+        stale.remove(unit);
+        final Set<String> old = includes.remove(unit);
+        if (old != null) {
+            synchronized (includers) {
+                removeEdges(unit, old);
+            }
+        }
+    }
+
+    /**
+     * Returns the modules (not headers) that include the given file, either
+     * directly or, when <code>transitive</code> is set, through other headers
+     * of the project.
+     */
+    public Set<IErlModule> getDependents(final String includeName,
+            final boolean transitive) throws ErlModelException {
+        refresh();
+        final Set<IErlModule> result = Sets.newHashSet();
+        final Set<String> visited = Sets.newHashSet();
+        final Deque<String> queue = new ArrayDeque<>();
+        queue.add(key(includeName));
+        synchronized (includers) {
+            while (!queue.isEmpty()) {
+                final String name = queue.poll();
+                if (!visited.add(name)) {
+                    continue;
+                }
+                final Set<IErlModule> units = includers.get(name);
+                if (units == null) {
+                    continue;
+                }
+                for (final IErlModule unit : units) {
+                    if (unit.getSourceKind() == SourceKind.HRL) {
+                        if (transitive) {
+                            queue.add(key(unit.getName()));
+                        }
+                    } else {
+                        result.add(unit);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void refresh() throws ErlModelException {
+        if (!membershipKnown) {
+            membershipKnown = true;
+            final Set<IErlModule> units = Sets.newHashSet(project.getModules());
+            units.addAll(project.getIncludes());
+            for (final IErlModule unit : units) {
+                if (!includes.containsKey(unit)) {
+                    stale.add(unit);
+                }
+            }
+            for (final IErlModule unit : Sets.newHashSet(includes.keySet())) {
+                if (!units.contains(unit)) {
+                    remove(unit);
+                }
+            }
+        }
+        if (stale.size() > 1) {
+            // typically the first build: parse them all before reading any
+            ErlBatchParser.parse(Sets.newHashSet(stale));
+        }
+        Iterator<IErlModule> it = stale.iterator();
+        while (it.hasNext()) {
+            final IErlModule unit = it.next();
+            stale.remove(unit);
+            update(unit, readIncludes(unit));
+            it = stale.iterator();
+        }
+    }
+
+    private Set<String> readIncludes(final IErlModule unit) throws ErlModelException {
+        final Collection<ErlangIncludeFile> files = unit.getIncludeFiles();
+        final Set<String> result = new HashSet<>(files.size());
+        for (final ErlangIncludeFile file : files) {
+            result.add(key(file.getFilenameLastPart()));
+        }
+        return result;
+    }
+
+    private void update(final IErlModule unit, final Set<String> names) {
+        final Set<String> old = includes.put(unit, names);
+        synchronized (includers) {
+            if (old != null) {
+                removeEdges(unit, old);
+            }
+            for (final String name : names) {
+                Set<IErlModule> units = includers.get(name);
+                if (units == null) {
+                    units = Sets.newHashSet();
+                    includers.put(name, units);
+                }
+                units.add(unit);
+            }
+        }
+    }
+
+    private void removeEdges(final IErlModule unit, final Set<String> names) {
+        for (final String name : names) {
+            final Set<IErlModule> units = includers.get(name);
+            if (units != null) {
+                units.remove(unit);
+                if (units.isEmpty()) {
+                    includers.remove(name);
+                }
+            }
+        }
+    }
+
+    private static String key(final String fileName) {
+        if (EFS.getLocalFileSystem().isCaseSensitive()) {
+            return fileName;
+        }
+        return fileName.toLowerCase();
+    }
+
+}
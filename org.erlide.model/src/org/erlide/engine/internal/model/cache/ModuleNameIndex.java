@@ -0,0 +1,148 @@
+package org.erlide.engine.internal.model.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.eclipse.core.filesystem.EFS;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.engine.util.ResourceUtil;
+import org.erlide.util.SystemConfiguration;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Lookup table from file path and from name to the modules or includes of one
+ * project, so that finding a module, or the names starting with a prefix,
+ * doesn't need to scan all of them.
+ *
+ * <p>
+ * The keys are folded to lower case on case insensitive file systems and the
+ * candidates are checked with the same rules as a linear search, in the
+ * original order, so the results don't change. The index is immutable and is
+ * dropped together with the project's module lists in {@link ErlModelCache}.
+ * </p>
+ */
+public final class ModuleNameIndex {
+
+    /**
+     * Which modules of the project are indexed.
+     */
+    public enum Kind {
+        MODULES, INCLUDES, EXTERNAL_MODULES, EXTERNAL_INCLUDES
+    }
+
+    private static final boolean CASE_SENSITIVE = EFS.getLocalFileSystem()
+            .isCaseSensitive();
+
+    private final Map<String, List<IErlModule>> byPath = Maps.newHashMap();
+    private final Map<String, List<IErlModule>> byName = Maps.newHashMap();
+    private final PrefixIndex<IErlModule> byModuleNamePrefix;
+    private final PrefixIndex<IErlModule> byFileNamePrefix;
+
+    public ModuleNameIndex(final Collection<IErlModule> modules) {
+        final PrefixIndex.Builder<IErlModule> moduleNames = new PrefixIndex.Builder<>(
+                false);
+        final PrefixIndex.Builder<IErlModule> fileNames = new PrefixIndex.Builder<>(
+                false);
+        for (final IErlModule module : modules) {
+            final String path = module.getFilePath();
+            if (path != null) {
+                add(byPath, path, module);
+            }
+            final String name = module.getName();
+            add(byName, name, module);
+            final String moduleName = module.getModuleName();
+            if (!key(moduleName).equals(key(name))) {
+                add(byName, moduleName, module);
+            }
+            fileNames.add(name, module);
+            if (!name.endsWith(".hrl")) {
+                moduleNames.add(moduleName, module);
+            }
+        }
+        byModuleNamePrefix = moduleNames.build();
+        byFileNamePrefix = fileNames.build();
+    }
+
+    /**
+     * The units whose file name (for includes) or module name (for modules,
+     * leaving out .hrl files) starts with the prefix, for completion.
+     */
+    public List<IErlModule> findUnitsWithPrefix(final String prefix,
+            final boolean includes) {
+        return includes ? byFileNamePrefix.withPrefix(prefix)
+                : byModuleNamePrefix.withPrefix(prefix);
+    }
+
+    /**
+     * Find a module by path or, failing that, by name. The name is compared
+     * with the file name if it has an extension, with the module name
+     * otherwise.
+     */
+    public IErlModule findModule(final String moduleName, final String modulePath) {
+        if (modulePath != null) {
+            for (final IErlModule module : get(byPath, modulePath)) {
+                final String path = module.getFilePath();
+                if (path != null && ResourceUtil.samePath(modulePath, path)) {
+                    return module;
+                }
+            }
+        }
+        if (moduleName != null) {
+            final boolean hasExtension = SystemConfiguration.hasExtension(moduleName);
+            for (final IErlModule module : get(byName, moduleName)) {
+                final String name = hasExtension ? module.getName()
+                        : module.getModuleName();
+                if (moduleName.equals(name)) {
+                    return module;
+                }
+            }
+        }
+        return null;
+    }
+
+    public IErlModule findIncludeByPath(final String includePath) {
+        for (final IErlModule module : get(byPath, includePath)) {
+            if (includePath.equals(module.getFilePath())) {
+                return module;
+            }
+        }
+        return null;
+    }
+
+    public IErlModule findIncludeByName(final String includeName) {
+        final boolean hasExtension = SystemConfiguration.hasExtension(includeName);
+        for (final IErlModule module : get(byName, includeName)) {
+            final String name = hasExtension ? module.getName() : module.getModuleName();
+            if (ResourceUtil.samePath(includeName, name)) {
+                return module;
+            }
+        }
+        return null;
+    }
+
+    private static void add(final Map<String, List<IErlModule>> map, final String key,
+            final IErlModule module) {
+        final String k = key(key);
+        List<IErlModule> modules = map.get(k);
+        if (modules == null) {
+            modules = Lists.newArrayListWithCapacity(1);
+            map.put(k, modules);
+        }
+        modules.add(module);
+    }
+
+    private static List<IErlModule> get(final Map<String, List<IErlModule>> map,
+            final String key) {
+        final List<IErlModule> modules = map.get(key(key));
+        return modules != null ? modules : Collections.<IErlModule> emptyList();
+    }
+
+    private static String key(final String s) {
+        return CASE_SENSITIVE ? s : s.toLowerCase(Locale.ROOT);
+    }
+}
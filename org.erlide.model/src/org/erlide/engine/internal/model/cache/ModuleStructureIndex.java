@@ -0,0 +1,210 @@
+package org.erlide.engine.internal.model.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.erlide.util.ErlLogger;
+
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpInputStream;
+import com.ericsson.otp.erlang.OtpOutputStream;
+import com.google.common.collect.Maps;
+
+/**
+ * Persistent index of the parsed structure of the modules of one project, so
+ * that the model can be rebuilt at startup without asking the backend to parse
+ * every module again.
+ *
+ * <p>
+ * For each module path, the file keeps the MD5 of the source text and the
+ * <code>{Forms, Comments}</code> returned by <code>erlide_noparse</code>,
+ * compressed in the external term format. An entry is only used if the hash
+ * matches the current text; stale entries are replaced when the module is
+ * parsed again. The file is read on first use and written by {@link #save()}.
+ * </p>
+ */
+public class ModuleStructureIndex {
+
+    private static final int MAGIC = 0x45524c58; // "ERLX"
+    // bump when the format or the parser output changes
+    private static final int VERSION = 1;
+
+    private final File file;
+    // guarded by this, null until loaded
+    private Map<String, Entry> entries;
+    private boolean dirty;
+
+    private static final class Entry {
+        final byte[] hash;
+        final byte[] term;
+
+        Entry(final byte[] hash, final byte[] term) {
+            this.hash = hash;
+            this.term = term;
+        }
+    }
+
+    public ModuleStructureIndex(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the indexed <code>{Forms, Comments}</code> for this module, or
+     * null if there is none for this exact text.
+     */
+    public OtpErlangTuple get(final String path, final String text) {
+        final Entry entry;
+        synchronized (this) {
+            entry = loaded().get(path);
+        }
+        if (entry == null || !Arrays.equals(entry.hash, hash(text))) {
+            return null;
+        }
+        try {
+            final OtpErlangObject term = new OtpInputStream(entry.term, 0).read_any();
+            if (term instanceof OtpErlangTuple) {
+                final OtpErlangTuple t = (OtpErlangTuple) term;
+                if (t.arity() == 2 && t.elementAt(0) instanceof OtpErlangList
+                        && t.elementAt(1) instanceof OtpErlangList) {
+                    return t;
+                }
+            }
+        } catch (final OtpErlangDecodeException e) {
+            ErlLogger.warn(e);
+        }
+        remove(path);
+        return null;
+    }
+
+    public void put(final String path, final String text, final OtpErlangList forms,
+            final OtpErlangList comments) {
+        final OtpOutputStream out = new OtpOutputStream();
+        out.write_compressed(
+                new OtpErlangTuple(new OtpErlangObject[] { forms, comments }));
+        final Entry entry = new Entry(hash(text), out.toByteArray());
+        synchronized (this) {
+            loaded().put(path, entry);
+            dirty = true;
+        }
+    }
+
+    public synchronized void remove(final String path) {
+        if (loaded().remove(path) != null) {
+            dirty = true;
+        }
+    }
+
+    public synchronized int size() {
+        return loaded().size();
+    }
+
+    /**
+     * Write the index to disk, if it changed since it was read.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        final File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            ErlLogger.warn("Could not create %s", dir);
+            return;
+        }
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (final Map.Entry<String, Entry> e : entries.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.write(e.getValue().hash);
+                out.writeInt(e.getValue().term.length);
+                out.write(e.getValue().term);
+            }
+        } catch (final IOException e) {
+            ErlLogger.warn(e);
+            tmp.delete();
+            return;
+        }
+        file.delete();
+        if (!tmp.renameTo(file)) {
+            ErlLogger.warn("Could not write %s", file);
+            tmp.delete();
+            return;
+        }
+        dirty = false;
+    }
+
+    /**
+     * Forget all entries and remove the file.
+     */
+    public synchronized void clear() {
+        entries = Maps.newHashMap();
+        dirty = false;
+        file.delete();
+    }
+
+    private Map<String, Entry> loaded() {
+        if (entries == null) {
+            entries = Maps.newHashMap();
+            try {
+                read();
+            } catch (final FileNotFoundException e) {
+                // nothing indexed yet
+            } catch (final IOException e) {
+                ErlLogger.warn("Discarding model index %s: %s", file, e);
+                entries.clear();
+            }
+        }
+        return entries;
+    }
+
+    private void read() throws IOException {
+        try (final DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            final int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                final String path = in.readUTF();
+                final byte[] hash = new byte[16];
+                in.readFully(hash);
+                final int length = in.readInt();
+                if (length < 0) {
+                    throw new IOException("corrupt entry for " + path);
+                }
+                final byte[] term = new byte[length];
+                in.readFully(term);
+                entries.put(path, new Entry(hash, term));
+            }
+        }
+    }
+
+    private static byte[] hash(final String text) {
+        try {
+            return MessageDigest.getInstance("MD5")
+                    .digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (final NoSuchAlgorithmException e) {
+            // MD5 is always there
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
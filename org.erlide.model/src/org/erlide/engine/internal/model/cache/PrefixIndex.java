@@ -0,0 +1,137 @@
+package org.erlide.engine.internal.model.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Values sorted by a name, to find all the values whose name starts with a
+ * given prefix by binary search.
+ *
+ * <p>
+ * Names can be compared with or without case. Matches are returned in the
+ * order in which they were added, so an index can replace a linear scan
+ * without changing its results. Instances are immutable once built.
+ * </p>
+ */
+public final class PrefixIndex<T> {
+
+    private final boolean ignoreCase;
+    private final String[] names;
+    private final Object[] values;
+    // position of each entry in the order they were added
+    private final int[] positions;
+
+    public static final class Builder<T> {
+        private final boolean ignoreCase;
+        private final List<String> names = Lists.newArrayList();
+        private final List<T> values = Lists.newArrayList();
+
+        public Builder(final boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+        }
+
+        public Builder<T> add(final String name, final T value) {
+            names.add(name);
+            values.add(value);
+            return this;
+        }
+
+        public PrefixIndex<T> build() {
+            return new PrefixIndex<>(this);
+        }
+    }
+
+    private PrefixIndex(final Builder<T> builder) {
+        ignoreCase = builder.ignoreCase;
+        final int n = builder.names.size();
+        final Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        final Comparator<String> comparator = comparator(ignoreCase);
+        // stable, so equal names keep their order
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                return comparator.compare(builder.names.get(a), builder.names.get(b));
+            }
+        });
+        names = new String[n];
+        values = new Object[n];
+        positions = new int[n];
+        for (int k = 0; k < n; k++) {
+            final int i = order[k];
+            names[k] = builder.names.get(i);
+            values[k] = builder.values.get(i);
+            positions[k] = i;
+        }
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * The values whose name starts with the prefix, in the order they were
+     * added.
+     */
+    public List<T> withPrefix(final String prefix) {
+        final int from = lowerBound(prefix);
+        int to = from;
+        while (to < names.length
+                && names[to].regionMatches(ignoreCase, 0, prefix, 0, prefix.length())) {
+            to++;
+        }
+        if (from == to) {
+            return Collections.emptyList();
+        }
+        // sort the matches back into the order they were added
+        final long[] matches = new long[to - from];
+        for (int k = from; k < to; k++) {
+            matches[k - from] = (long) positions[k] << 32 | k;
+        }
+        Arrays.sort(matches);
+        final List<T> result = Lists.newArrayListWithCapacity(matches.length);
+        for (final long match : matches) {
+            result.add(valueAt((int) match));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T valueAt(final int k) {
+        return (T) values[k];
+    }
+
+    // first entry whose name is not smaller than the prefix
+    private int lowerBound(final String prefix) {
+        final Comparator<String> comparator = comparator(ignoreCase);
+        int lo = 0;
+        int hi = names.length;
+        while (lo < hi) {
+            final int mid = lo + hi >>> 1;
+            if (comparator.compare(names[mid], prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static Comparator<String> comparator(final boolean ignoreCase) {
+        if (ignoreCase) {
+            return String.CASE_INSENSITIVE_ORDER;
+        }
+        return new Comparator<String>() {
+            @Override
+            public int compare(final String a, final String b) {
+                return a.compareTo(b);
+            }
+        };
+    }
+}
@@ -19,6 +19,8 @@ import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IPath;
+import org.erlide.engine.internal.model.cache.ErlModelCache;
+import org.erlide.engine.internal.model.cache.ModuleNameIndex;
 import org.erlide.engine.model.ErlElementKind;
 import org.erlide.engine.model.ErlModelException;
 import org.erlide.engine.model.IErlElement;
@@ -126,39 +128,63 @@ public class ModelInternalUtils implements ModelUtilService {
             final IErlProject project, final boolean checkExternals,
             final boolean includes) throws ErlModelException {
         final List<String> result = Lists.newArrayList();
-        final Collection<IErlModule> units = getUnits(project, checkExternals, includes);
-        addUnitNamesWithPrefix(prefix, result, units, false, includes);
+        addUnitNamesWithPrefix(prefix, result,
+                getUnits(prefix, project, checkExternals, includes), false, includes);
         if (project != null) {
             for (final IErlProject p : project.getReferencedProjects()) {
                 if (p != null) {
                     p.open(null);
                     addUnitNamesWithPrefix(prefix, result,
-                            getUnits(p, checkExternals, includes), false, includes);
+                            getUnits(prefix, p, checkExternals, includes), false,
+                            includes);
                 }
             }
             if (checkExternals) {
+                // external includes are completed with their include_lib path,
+                // which the name index doesn't know
                 final Collection<IErlModule> externalUnits = includes
-                        ? project.getExternalIncludes() : project.getExternalModules();
+                        ? project.getExternalIncludes()
+                        : getUnitsWithPrefix(prefix, project,
+                                ModuleNameIndex.Kind.EXTERNAL_MODULES, false);
                 addUnitNamesWithPrefix(prefix, result, externalUnits, true, includes);
             }
         }
         return result;
     }
 
-    private Collection<IErlModule> getUnits(final IErlProject project,
-            final boolean checkExternals, final boolean includes)
-            throws ErlModelException {
+    private Collection<IErlModule> getUnits(final String prefix,
+            final IErlProject project, final boolean checkExternals,
+            final boolean includes) throws ErlModelException {
         final Collection<IErlModule> units;
         if (!includes && project != null) {
-            units = project.getModules();
+            units = getUnitsWithPrefix(prefix, project, ModuleNameIndex.Kind.MODULES,
+                    false);
         } else if (!checkExternals && project != null) {
-            units = project.getIncludes();
+            units = getUnitsWithPrefix(prefix, project, ModuleNameIndex.Kind.INCLUDES,
+                    true);
         } else {
             units = Sets.newHashSet();
         }
         return units;
     }
 
+    /**
+     * The candidates for {@link #addUnitNamesWithPrefix}, which also accepts
+     * names matching the prefix without its leading quote.
+     */
+    private Collection<IErlModule> getUnitsWithPrefix(final String prefix,
+            final IErlProject project, final ModuleNameIndex.Kind kind,
+            final boolean includes) throws ErlModelException {
+        final ModuleNameIndex index = ErlModelCache.getDefault()
+                .getModuleNameIndex(project, kind);
+        final List<IErlModule> units = Lists
+                .newArrayList(index.findUnitsWithPrefix(prefix, includes));
+        if (prefix.startsWith("'")) {
+            units.addAll(index.findUnitsWithPrefix(prefix.substring(1), includes));
+        }
+        return units;
+    }
+
     @Override
     public List<OtpErlangObject> getImportsAsList(final IErlModule mod) {
         if (mod == null) {
@@ -0,0 +1,158 @@
+package org.erlide.engine.internal.model.root;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.IErlElement;
+import org.erlide.engine.model.IParent;
+import org.erlide.engine.model.erlang.ISourceRange;
+import org.erlide.engine.model.erlang.ISourceReference;
+
+/**
+ * Sorted index over the source ranges of the children of a module, so that the
+ * element at an offset or on a line can be found by binary search instead of
+ * by walking the whole tree.
+ *
+ * <p>
+ * Each child is indexed with the range that covers it and all its
+ * descendants, both in offsets and in lines. Only the few children whose range
+ * contains the position are then searched, in their original order, so the
+ * result is the same as for
+ * {@link org.erlide.engine.model.root.IErlModel#innermostThat}. The index is
+ * built from one snapshot of the children and is never modified; it is
+ * replaced when the children change.
+ * </p>
+ */
+final class ChildRangeIndex {
+
+    private final List<IErlElement> children;
+    private final Intervals offsets;
+    private final Intervals lines;
+
+    ChildRangeIndex(final List<IErlElement> children) {
+        this.children = children;
+        final int n = children.size();
+        final int[] offsetStarts = new int[n];
+        final int[] offsetEnds = new int[n];
+        final int[] lineStarts = new int[n];
+        final int[] lineEnds = new int[n];
+        for (int i = 0; i < n; i++) {
+            offsetStarts[i] = lineStarts[i] = Integer.MAX_VALUE;
+            offsetEnds[i] = lineEnds[i] = Integer.MIN_VALUE;
+            cover(children.get(i), i, offsetStarts, offsetEnds, lineStarts, lineEnds);
+        }
+        offsets = new Intervals(offsetStarts, offsetEnds);
+        lines = new Intervals(lineStarts, lineEnds);
+    }
+
+    /**
+     * The snapshot of children this index was built from.
+     */
+    List<IErlElement> getChildren() {
+        return children;
+    }
+
+    /**
+     * Indexes of the children whose range contains this offset, in the order
+     * of the children.
+     */
+    int[] childrenAtOffset(final int offset) {
+        return offsets.containing(offset);
+    }
+
+    /**
+     * Indexes of the children whose range contains this line, in the order of
+     * the children.
+     */
+    int[] childrenAtLine(final int line) {
+        return lines.containing(line);
+    }
+
+    private static void cover(final IErlElement element, final int i,
+            final int[] offsetStarts, final int[] offsetEnds, final int[] lineStarts,
+            final int[] lineEnds) {
+        if (element instanceof ISourceReference) {
+            final ISourceReference ref = (ISourceReference) element;
+            final ISourceRange r = ref.getSourceRange();
+            if (r != null) {
+                offsetStarts[i] = Math.min(offsetStarts[i], r.getOffset());
+                offsetEnds[i] = Math.max(offsetEnds[i], r.getOffset() + r.getLength());
+            }
+            lineStarts[i] = Math.min(lineStarts[i], ref.getLineStart());
+            lineEnds[i] = Math.max(lineEnds[i], ref.getLineEnd());
+        }
+        if (element instanceof IParent) {
+            try {
+                for (final IErlElement child : ((IParent) element).getChildren()) {
+                    cover(child, i, offsetStarts, offsetEnds, lineStarts, lineEnds);
+                }
+            } catch (final ErlModelException e) {
+                // no children to cover
+            }
+        }
+    }
+
+    /**
+     * Closed intervals sorted by start. <code>maxEnds[k]</code> is the largest
+     * end among the first k+1 intervals, which bounds the scan back from the
+     * last interval that starts before a position.
+     */
+    private static final class Intervals {
+        private static final int[] NONE = new int[0];
+
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] maxEnds;
+        private final int[] order;
+
+        Intervals(final int[] allStarts, final int[] allEnds) {
+            final long[] keys = new long[allStarts.length];
+            int n = 0;
+            for (int i = 0; i < allStarts.length; i++) {
+                if (allStarts[i] <= allEnds[i]) {
+                    // sort by start, then by position among the children
+                    keys[n++] = (long) allStarts[i] << 32 | i;
+                }
+            }
+            Arrays.sort(keys, 0, n);
+            starts = new int[n];
+            ends = new int[n];
+            maxEnds = new int[n];
+            order = new int[n];
+            for (int k = 0; k < n; k++) {
+                final int i = (int) keys[k];
+                order[k] = i;
+                starts[k] = allStarts[i];
+                ends[k] = allEnds[i];
+                maxEnds[k] = k == 0 ? ends[k] : Math.max(maxEnds[k - 1], ends[k]);
+            }
+        }
+
+        int[] containing(final int position) {
+            int lo = 0;
+            int hi = starts.length - 1;
+            int last = -1;
+            while (lo <= hi) {
+                final int mid = lo + hi >>> 1;
+                if (starts[mid] <= position) {
+                    last = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            int[] result = NONE;
+            for (int k = last; k >= 0 && maxEnds[k] >= position; k--) {
+                if (ends[k] >= position) {
+                    result = Arrays.copyOf(result, result.length + 1);
+                    result[result.length - 1] = order[k];
+                }
+            }
+            if (result.length > 1) {
+                Arrays.sort(result);
+            }
+            return result;
+        }
+    }
+}
@@ -20,7 +20,6 @@ import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.PlatformObject;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
-import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.internal.model.cache.ErlModelCache;
 import org.erlide.engine.model.ErlElementKind;
 import org.erlide.engine.model.ErlModelException;
@@ -45,7 +44,17 @@ public abstract class ErlElement extends PlatformObject
      */
     private final IParent fParent;
 
-    private final List<IErlElement> fChildren = Lists.newArrayList();
+    /**
+     * This element's children. The list is never modified, a new one is published
+     * whenever the children change, so readers can use it without locking.
+     */
+    private volatile List<IErlElement> fChildren = Collections.emptyList();
+
+    /**
+     * Serializes the changes to the children, and to whatever subclasses publish
+     * along with them; readers don't need it.
+     */
+    protected final Object fChildrenLock = new Object();
 
     /**
      * This element's name, or an empty <code>String</code> if this element does not have
@@ -205,19 +214,16 @@ public abstract class ErlElement extends PlatformObject
      */
     @Override
     public boolean hasChildren() {
-        synchronized (getModelLock()) {
-            return !internalGetChildren().isEmpty();
-        }
+        return !internalGetChildren().isEmpty();
     }
 
     @Override
     public boolean hasChildrenOfKind(final ErlElementKind... kinds) {
-        synchronized (getModelLock()) {
-            for (final ErlElementKind kind : kinds) {
-                for (final IErlElement child : internalGetChildren()) {
-                    if (child.getKind() == kind) {
-                        return true;
-                    }
+        final List<IErlElement> children = internalGetChildren();
+        for (final ErlElementKind kind : kinds) {
+            for (final IErlElement child : children) {
+                if (child.getKind() == kind) {
+                    return true;
                 }
             }
         }
@@ -379,21 +385,28 @@ public abstract class ErlElement extends PlatformObject
 
     @Override
     public List<IErlElement> getChildren() throws ErlModelException {
-        synchronized (getModelLock()) {
-            return Collections
-                    .unmodifiableList(Lists.newArrayList(internalGetChildren()));
-        }
+        return internalGetChildren();
     }
 
+    /**
+     * Returns the current snapshot of the children, which is not modifiable.
+     */
     public List<IErlElement> internalGetChildren() {
         return fChildren;
     }
 
+    /**
+     * Publishes a new snapshot of the children. Always called holding
+     * {@link #fChildrenLock}; subclasses that keep the children together with
+     * other state override it along with {@link #internalGetChildren()}.
+     */
+    protected void publishChildren(final List<IErlElement> children) {
+        fChildren = children;
+    }
+
     @Override
     public int getChildCount() {
-        synchronized (getModelLock()) {
-            return internalGetChildren().size();
-        }
+        return internalGetChildren().size();
     }
 
     /**
@@ -406,12 +419,11 @@ public abstract class ErlElement extends PlatformObject
     public List<IErlElement> getChildrenOfKind(final ErlElementKind... kinds)
             throws ErlModelException {
         final List<IErlElement> result = Lists.newArrayList();
-        synchronized (getModelLock()) {
-            for (final ErlElementKind kind : kinds) {
-                for (final IErlElement element : internalGetChildren()) {
-                    if (element.getKind() == kind) {
-                        result.add(element);
-                    }
+        final List<IErlElement> children = internalGetChildren();
+        for (final ErlElementKind kind : kinds) {
+            for (final IErlElement element : children) {
+                if (element.getKind() == kind) {
+                    result.add(element);
                 }
             }
         }
@@ -432,9 +444,7 @@ public abstract class ErlElement extends PlatformObject
      * Returns <code>true</code> if this child is in my children collection
      */
     protected boolean includesChild(final IErlElement child) {
-        synchronized (getModelLock()) {
-            return internalGetChildren().contains(child);
-        }
+        return internalGetChildren().contains(child);
     }
 
     /**
@@ -447,31 +457,48 @@ public abstract class ErlElement extends PlatformObject
 
     @Override
     public void removeChild(final IErlElement child) {
-        synchronized (getModelLock()) {
+        synchronized (fChildrenLock) {
             clearCaches();
-            fChildren.remove(child);
+            final List<IErlElement> children = Lists.newArrayList(internalGetChildren());
+            if (children.remove(child)) {
+                publishChildren(Collections.unmodifiableList(children));
+            }
         }
     }
 
     @Override
     public void addChild(final IErlElement child) {
-        synchronized (getModelLock()) {
+        synchronized (fChildrenLock) {
             clearCaches();
-            fChildren.add(child);
+            final List<IErlElement> old = internalGetChildren();
+            final List<IErlElement> children = Lists
+                    .newArrayListWithCapacity(old.size() + 1);
+            children.addAll(old);
+            children.add(child);
+            publishChildren(Collections.unmodifiableList(children));
         }
     }
 
     @Override
     public void setChildren(final Collection<? extends IErlElement> children) {
-        synchronized (getModelLock()) {
+        final List<IErlElement> snapshot = snapshot(children);
+        synchronized (fChildrenLock) {
             clearCaches();
-            fChildren.clear();
-            if (children != null) {
-                fChildren.addAll(children);
-            }
+            publishChildren(snapshot);
         }
     }
 
+    /**
+     * An unmodifiable copy of these children, to be published.
+     */
+    protected static List<IErlElement> snapshot(
+            final Collection<? extends IErlElement> children) {
+        if (children == null || children.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Lists.newArrayList(children));
+    }
+
     public void setStructureKnown(final boolean newStructureKnown) {
         structureKnown = newStructureKnown;
     }
@@ -482,27 +509,19 @@ public abstract class ErlElement extends PlatformObject
     }
 
     private static IErlElement getChildNamed(final ErlElement parent, final String name) {
-        synchronized (parent.getModelLock()) {
-            for (final IErlElement child : parent.internalGetChildren()) {
-                if (child.getName().equals(name)) {
-                    return child;
-                }
+        for (final IErlElement child : parent.internalGetChildren()) {
+            if (child.getName().equals(name)) {
+                return child;
             }
         }
         return null;
     }
 
-    protected Object getModelLock() {
-        return ErlangEngine.getInstance().getModel().getModelLock();
-    }
-
     private static IErlElement getChildWithResource(final ErlElement parent,
             final IResource rsrc) {
-        synchronized (parent.getModelLock()) {
-            for (final IErlElement child : parent.internalGetChildren()) {
-                if (rsrc.equals(child.getResource())) {
-                    return child;
-                }
+        for (final IErlElement child : parent.internalGetChildren()) {
+            if (rsrc.equals(child.getResource())) {
+                return child;
             }
         }
         return null;
@@ -512,9 +531,7 @@ public abstract class ErlElement extends PlatformObject
     public final void accept(final IErlElementVisitor visitor,
             final Set<AcceptFlags> flags, final ErlElementKind leafKind)
                     throws ErlModelException {
-        synchronized (getModelLock()) {
-            internalAccept(visitor, flags, leafKind);
-        }
+        internalAccept(visitor, flags, leafKind);
     }
 
     private final void internalAccept(final IErlElementVisitor visitor,
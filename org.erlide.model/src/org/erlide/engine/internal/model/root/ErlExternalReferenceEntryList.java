@@ -11,6 +11,7 @@ import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.internal.model.cache.ErlModelCache;
 import org.erlide.engine.model.ErlElementKind;
 import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.IErlElement;
 import org.erlide.engine.model.IParent;
 import org.erlide.engine.model.OtpRpcFactory;
 import org.erlide.engine.model.root.IErlExternal;
@@ -22,6 +23,7 @@ import org.erlide.engine.services.search.ExternalTreeEntry;
 import org.erlide.runtime.rpc.IOtpRpc;
 
 import com.ericsson.otp.erlang.OtpErlangList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 public class ErlExternalReferenceEntryList extends Openable implements IErlExternalRoot {
@@ -98,6 +100,11 @@ public class ErlExternalReferenceEntryList extends Openable implements IErlExter
             final boolean includeDir) throws ErlModelException {
         final Map<String, IErlExternal> pathToEntryMap = Maps.newHashMap();
         pathToEntryMap.put("root", this);
+        // the children of each entry are collected and set once at the end,
+        // adding them one by one copies the list every time
+        final Map<IErlExternal, List<IErlElement>> children = Maps
+                .newIdentityHashMap();
+        children.put(this, Lists.newArrayList(internalGetChildren()));
         IErlExternal parent = null;
         if (externalTree != null && !externalTree.isEmpty()) {
             for (final ExternalTreeEntry entry : externalTree) {
@@ -107,14 +114,16 @@ public class ErlExternalReferenceEntryList extends Openable implements IErlExter
                 if (entry.isModule()) {
                     final IErlModule module = model.getModuleFromFile(parent,
                             getNameFromPath(path), path, null, path);
-                    parent.addChild(module);
+                    children.get(parent).add(module);
                 } else {
                     final String name = getNameFromExternalPath(path);
                     final ErlExternalReferenceEntry externalReferenceEntry = new ErlExternalReferenceEntry(
                             parent, name, path, true, includeDir);
                     pathToEntryMap.put(path, externalReferenceEntry);
                     externalReferenceEntry.open(pm);
-                    parent.addChild(externalReferenceEntry);
+                    children.put(externalReferenceEntry, Lists.newArrayList(
+                            externalReferenceEntry.internalGetChildren()));
+                    children.get(parent).add(externalReferenceEntry);
                 }
             }
         }
@@ -122,14 +131,18 @@ public class ErlExternalReferenceEntryList extends Openable implements IErlExter
             if (parent == null) {
                 parent = new ErlExternalReferenceEntry(this, rootName,
                         "." + rootName + ".", true, includeDir);
-                addChild(parent);
+                children.put(parent, Lists.<IErlElement> newArrayList());
+                children.get(this).add(parent);
             }
             for (final String path : otherItems) {
                 final IErlModule module = model.getModuleFromFile(parent,
                         getNameFromPath(path), path, null, path);
-                parent.addChild(module);
+                children.get(parent).add(module);
             }
         }
+        for (final Map.Entry<IErlExternal, List<IErlElement>> e : children.entrySet()) {
+            e.getKey().setChildren(e.getValue());
+        }
     }
 
     private String getNameFromPath(final String path) {
@@ -26,6 +26,8 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.internal.model.SourceRange;
+import org.erlide.engine.internal.model.cache.ErlModelCache;
+import org.erlide.engine.internal.model.cache.ModuleStructureIndex;
 import org.erlide.engine.internal.services.parsing.ErlParser;
 import org.erlide.engine.internal.util.ModelConfig;
 import org.erlide.engine.model.ErlElementKind;
@@ -72,9 +74,14 @@ public class ErlModule extends Openable implements IErlModule {
     protected String path;
     private String initialText;
     private boolean parsed;
+    // the structure comes from the index, the backend hasn't parsed the module
+    private boolean indexed;
     private final String scannerName;
-    private final Collection<IErlComment> comments;
-    private ScannerService scanner;
+    // the children and their comments, replaced together
+    private volatile Structure structure = Structure.EMPTY;
+    private volatile ScannerService scanner;
+    // rebuilt on first lookup after the children change
+    private volatile ChildRangeIndex rangeIndex;
     private final String encoding;
 
     private final ModelUtilService modelUtilService;
@@ -99,7 +106,6 @@ public class ErlModule extends Openable implements IErlModule {
         moduleKind = SourceKind.nameToModuleKind(name);
         parsed = false;
         scannerName = createScannerName();
-        comments = Lists.newArrayList();
         if (ModelConfig.verbose) {
             // final IErlElement element = (IErlElement) parent;
             // final String parentName = element.getName();
@@ -112,13 +118,35 @@ public class ErlModule extends Openable implements IErlModule {
         setChildren(null);
         final String text = getInitialText();
         if (text != null) {
+            if (scanner != null) {
+                scanner.flush();
+            }
             final ErlParser parser = new ErlParser(OtpRpcFactory.getOtpRpc());
-            parsed = parser.parse(this, scannerName, !parsed, getFilePath(), text, true);
+            final ModuleStructureIndex index = getStructureIndex();
+            if (!parsed && scanner == null && index != null) {
+                // nobody is editing the module, so the backend doesn't need to
+                // know about it yet
+                if (parser.parseFromIndex(this, index, getFilePath(), text)) {
+                    indexed = true;
+                    return true;
+                }
+            }
+            indexed = false;
+            parsed = parser.parse(this, scannerName, !parsed, getFilePath(), text, true,
+                    index);
             return parsed;
         }
         return true;
     }
 
+    private ModuleStructureIndex getStructureIndex() {
+        final IErlProject project = modelUtilService.getProject(this);
+        if (project == null) {
+            return null;
+        }
+        return ErlModelCache.getDefault().getStructureIndex(project);
+    }
+
     private String getInitialText() {
         String charset;
         if (initialText == null) {
@@ -180,7 +208,8 @@ public class ErlModule extends Openable implements IErlModule {
 
     @Override
     public IErlElement getElementAt(final int position) throws ErlModelException {
-        return ErlangEngine.getInstance().getModel().innermostThat(this,
+        final ChildRangeIndex index = getRangeIndex();
+        return innermostThat(index, index.childrenAtOffset(position),
                 new Predicate<IErlElement>() {
                     @Override
                     public boolean apply(final IErlElement e) {
@@ -199,7 +228,8 @@ public class ErlModule extends Openable implements IErlModule {
 
     @Override
     public IErlMember getElementAtLine(final int lineNumber) {
-        return (IErlMember) ErlangEngine.getInstance().getModel().innermostThat(this,
+        final ChildRangeIndex index = getRangeIndex();
+        return (IErlMember) innermostThat(index, index.childrenAtLine(lineNumber),
                 new Predicate<IErlElement>() {
                     @Override
                     public boolean apply(final IErlElement e) {
@@ -215,6 +245,33 @@ public class ErlModule extends Openable implements IErlModule {
                 });
     }
 
+    /**
+     * Only the children that the index says contain the position are searched.
+     */
+    private static IErlElement innermostThat(final ChildRangeIndex index,
+            final int[] candidates, final Predicate<IErlElement> firstThat) {
+        final IErlModel model = ErlangEngine.getInstance().getModel();
+        for (final int i : candidates) {
+            final IErlElement e = model.innermostThat(index.getChildren().get(i),
+                    firstThat);
+            if (e != null) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private ChildRangeIndex getRangeIndex() {
+        final List<IErlElement> children = internalGetChildren();
+        ChildRangeIndex index = rangeIndex;
+        if (index == null || index.getChildren() != children) {
+            // the children were replaced since the index was built
+            index = new ChildRangeIndex(children);
+            rangeIndex = index;
+        }
+        return index;
+    }
+
     @Override
     public SourceKind getSourceKind() {
         return moduleKind;
@@ -243,21 +300,65 @@ public class ErlModule extends Openable implements IErlModule {
     // comments.add(c);
     // }
 
+    /**
+     * A snapshot of the children and the comments of the module, so that
+     * readers never see the comments of another version of the children.
+     */
+    private static final class Structure {
+        static final Structure EMPTY = new Structure(
+                Collections.<IErlElement> emptyList(),
+                Collections.<IErlComment> emptyList());
+
+        final List<IErlElement> children;
+        final Collection<IErlComment> comments;
+
+        Structure(final List<IErlElement> children,
+                final Collection<IErlComment> comments) {
+            this.children = children;
+            this.comments = comments;
+        }
+    }
+
+    @Override
+    public List<IErlElement> internalGetChildren() {
+        return structure.children;
+    }
+
+    @Override
+    protected void publishChildren(final List<IErlElement> children) {
+        structure = new Structure(children, structure.comments);
+    }
+
     @Override
     public void setComments(final Collection<? extends IErlComment> comments) {
-        synchronized (getModelLock()) {
-            this.comments.clear();
-            if (comments != null) {
-                this.comments.addAll(comments);
-            }
+        final Collection<IErlComment> snapshot = commentSnapshot(comments);
+        synchronized (fChildrenLock) {
+            structure = new Structure(structure.children, snapshot);
         }
     }
 
     @Override
-    public Collection<IErlComment> getComments() {
-        synchronized (getModelLock()) {
-            return Collections.unmodifiableCollection(comments);
+    public void setStructure(final Collection<? extends IErlElement> children,
+            final Collection<? extends IErlComment> comments) {
+        final Structure snapshot = new Structure(snapshot(children),
+                commentSnapshot(comments));
+        synchronized (fChildrenLock) {
+            clearCaches();
+            structure = snapshot;
+        }
+    }
+
+    private static Collection<IErlComment> commentSnapshot(
+            final Collection<? extends IErlComment> comments) {
+        if (comments == null || comments.isEmpty()) {
+            return Collections.emptyList();
         }
+        return Collections.unmodifiableCollection(Lists.newArrayList(comments));
+    }
+
+    @Override
+    public Collection<IErlComment> getComments() {
+        return structure.comments;
     }
 
     @Override
@@ -327,13 +428,11 @@ public class ErlModule extends Openable implements IErlModule {
     @Override
     public IErlPreprocessorDef findPreprocessorDef(final String definedName,
             final ErlElementKind kind) {
-        synchronized (getModelLock()) {
-            for (final IErlElement m : internalGetChildren()) {
-                if (m instanceof IErlPreprocessorDef) {
-                    final IErlPreprocessorDef pd = (IErlPreprocessorDef) m;
-                    if (pd.getKind() == kind && pd.getDefinedName().equals(definedName)) {
-                        return pd;
-                    }
+        for (final IErlElement m : internalGetChildren()) {
+            if (m instanceof IErlPreprocessorDef) {
+                final IErlPreprocessorDef pd = (IErlPreprocessorDef) m;
+                if (pd.getKind() == kind && pd.getDefinedName().equals(definedName)) {
+                    return pd;
                 }
             }
         }
@@ -346,18 +445,16 @@ public class ErlModule extends Openable implements IErlModule {
             open(null);
         }
         final List<ErlangIncludeFile> r = Lists.newArrayList();
-        synchronized (getModelLock()) {
-            for (final IErlElement m : internalGetChildren()) {
-                if (m instanceof IErlAttribute) {
-                    final IErlAttribute a = (IErlAttribute) m;
-                    final OtpErlangObject v = a.getValue();
-                    if (v instanceof OtpErlangString) {
-                        final String s = ((OtpErlangString) v).stringValue();
-                        if ("include".equals(a.getName())) {
-                            r.add(new ErlangIncludeFile(false, s));
-                        } else if ("include_lib".equals(a.getName())) {
-                            r.add(new ErlangIncludeFile(true, s));
-                        }
+        for (final IErlElement m : internalGetChildren()) {
+            if (m instanceof IErlAttribute) {
+                final IErlAttribute a = (IErlAttribute) m;
+                final OtpErlangObject v = a.getValue();
+                if (v instanceof OtpErlangString) {
+                    final String s = ((OtpErlangString) v).stringValue();
+                    if ("include".equals(a.getName())) {
+                        r.add(new ErlangIncludeFile(false, s));
+                    } else if ("include_lib".equals(a.getName())) {
+                        r.add(new ErlangIncludeFile(true, s));
                     }
                 }
             }
@@ -368,12 +465,10 @@ public class ErlModule extends Openable implements IErlModule {
     @Override
     public Collection<IErlImport> getImports() {
         final List<IErlImport> result = new ArrayList<>();
-        synchronized (getModelLock()) {
-            for (final IErlElement e : internalGetChildren()) {
-                if (e instanceof IErlImport) {
-                    final IErlImport ei = (IErlImport) e;
-                    result.add(ei);
-                }
+        for (final IErlElement e : internalGetChildren()) {
+            if (e instanceof IErlImport) {
+                final IErlImport ei = (IErlImport) e;
+                result.add(ei);
             }
         }
         return result;
@@ -436,39 +531,22 @@ public class ErlModule extends Openable implements IErlModule {
 
     @Override
     public Set<ISourceUnit> getDirectDependentModules() throws ErlModelException {
-        final Set<ISourceUnit> result = new HashSet<>();
-        final IErlProject project = modelUtilService.getProject(this);
-        for (final IErlModule module : project.getModules()) {
-            final boolean wasOpen = module.isOpen();
-            if (!wasOpen) {
-                module.open(null);
-            }
-            final Collection<ErlangIncludeFile> incs = module.getIncludeFiles();
-            for (final ErlangIncludeFile inc : incs) {
-                if (inc.getFilename().equals(getName())) {
-                    result.add(module);
-                    break;
-                }
-            }
-            if (!wasOpen) {
-                module.close();
-            }
-        }
-        return result;
+        return getDependentModules(false);
     }
 
     @Override
     public Set<ISourceUnit> getAllDependentModules() throws CoreException {
-        final Set<ISourceUnit> result = new HashSet<>();
+        return getDependentModules(true);
+    }
+
+    private Set<ISourceUnit> getDependentModules(final boolean transitive)
+            throws ErlModelException {
         final IErlProject project = modelUtilService.getProject(this);
-        for (final IErlModule module : project.getModules()) {
-            final Collection<IErlModule> allIncludedFiles = ErlangEngine.getInstance()
-                    .getModelFindService().findAllIncludedFiles(module);
-            if (allIncludedFiles.contains(this)) {
-                result.add(module);
-            }
+        if (project == null) {
+            return new HashSet<>();
         }
-        return result;
+        return new HashSet<ISourceUnit>(ErlModelCache.getDefault()
+                .getIncludeDependencies(project).getDependents(getName(), transitive));
     }
 
     @Override
@@ -510,6 +588,10 @@ public class ErlModule extends Openable implements IErlModule {
         final String text = getInitialText();
         scanner = ErlangEngine.getInstance().getScannerProviderService().get(scannerName);
         scanner.initialScan(text, filePath, logging);
+        if (indexed) {
+            // reparsing after edits needs the backend's parser state
+            internalBuildStructure(null);
+        }
         return scanner;
     }
 
@@ -517,13 +599,11 @@ public class ErlModule extends Openable implements IErlModule {
     public Collection<IErlPreprocessorDef> getPreprocessorDefs(
             final ErlElementKind kind) {
         final List<IErlPreprocessorDef> result = Lists.newArrayList();
-        synchronized (getModelLock()) {
-            for (final IErlElement e : internalGetChildren()) {
-                if (e instanceof IErlPreprocessorDef) {
-                    final IErlPreprocessorDef pd = (IErlPreprocessorDef) e;
-                    if (pd.getKind() == kind || kind == ErlElementKind.PROBLEM) {
-                        result.add(pd);
-                    }
+        for (final IErlElement e : internalGetChildren()) {
+            if (e instanceof IErlPreprocessorDef) {
+                final IErlPreprocessorDef pd = (IErlPreprocessorDef) e;
+                if (pd.getKind() == kind || kind == ErlElementKind.PROBLEM) {
+                    result.add(pd);
                 }
             }
         }
@@ -611,8 +691,17 @@ public class ErlModule extends Openable implements IErlModule {
         return String.format("%s_%08x", name, hash);
     }
 
+    /**
+     * The backend scanner only gets the edits when they are needed, so it is
+     * brought up to date here for the callers that pass the name to the
+     * backend.
+     */
     @Override
     public String getScannerName() {
+        final ScannerService s = scanner;
+        if (s != null) {
+            s.flush();
+        }
         return scannerName;
     }
 
@@ -23,6 +23,7 @@ import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
 
 public class ErlOtpExternalReferenceEntryList extends Openable
         implements IErlExternalRoot {
@@ -86,6 +87,9 @@ public class ErlOtpExternalReferenceEntryList extends Openable
         if (input == null) {
             return;
         }
+        // each list of children is set once, adding them one by one copies the
+        // list every time
+        final List<IErlElement> libs = Lists.newArrayList(internalGetChildren());
         for (final OtpErlangObject o : input) {
             final OtpErlangTuple t = (OtpErlangTuple) o;
             final String lib = ((OtpErlangString) t.elementAt(0)).stringValue();
@@ -95,8 +99,10 @@ public class ErlOtpExternalReferenceEntryList extends Openable
             final ErlExternalReferenceEntry extLib = new ErlExternalReferenceEntry(this,
                     getLibName(lib), lib, true, false);
             extLib.setGroup(group);
-            addChild(extLib);
+            libs.add(extLib);
 
+            final List<IErlElement> subdirs = Lists
+                    .newArrayListWithCapacity(dirs.arity());
             for (final OtpErlangObject dir : dirs.elements()) {
                 final OtpErlangTuple tdir = (OtpErlangTuple) dir;
                 final String dname = ((OtpErlangString) tdir.elementAt(0)).stringValue();
@@ -104,16 +110,21 @@ public class ErlOtpExternalReferenceEntryList extends Openable
 
                 final ErlExternalReferenceEntry subdir = new ErlExternalReferenceEntry(
                         extLib, getLibName(dname), dname, true, includePath(dname));
-                extLib.addChild(subdir);
+                subdirs.add(subdir);
 
+                final List<IErlElement> modules = Lists
+                        .newArrayListWithCapacity(files.arity());
                 for (final OtpErlangObject fn : files.elements()) {
                     final String sfn = ((OtpErlangString) fn).stringValue();
                     final IErlModule ext = new ErlModule(subdir, getModuleName(sfn), sfn,
                             Charsets.ISO_8859_1.toString(), null);
-                    subdir.addChild(ext);
+                    modules.add(ext);
                 }
+                subdir.setChildren(modules);
             }
+            extLib.setChildren(subdirs);
         }
+        setChildren(libs);
     }
 
     private final boolean includePath(final String path) {
@@ -16,6 +16,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.resources.ICommand;
 import org.eclipse.core.resources.IContainer;
@@ -174,15 +175,21 @@ public class ErlProject extends Openable
         final String externalIncludes = myProperties.getExternalIncludes();
         final String externalModules = myProperties.getExternalModules();
         final Collection<IPath> includeDirs = myProperties.getIncludeDirs();
-        final List<String> projectIncludes = Lists.newArrayList();
+        final List<String> externalDirs = Lists.newArrayList();
         for (final IPath path : new PathResolver().resolvePaths(includeDirs)) {
             if (path.isAbsolute() && !fProject.getLocation().isPrefixOf(path)) {
-                final Collection<String> includes = ErlangEngine.getInstance()
-                        .getOpenService().getIncludesInDir(path.toPortableString());
-                if (includes != null) {
-                    for (final String include : includes) {
-                        projectIncludes.add(path.append(include).toPortableString());
-                    }
+                externalDirs.add(path.toPortableString());
+            }
+        }
+        final List<String> projectIncludes = Lists.newArrayList();
+        if (!externalDirs.isEmpty()) {
+            final Map<String, Collection<String>> includesByDir = ErlangEngine
+                    .getInstance().getOpenService().getIncludesInDirs(externalDirs);
+            for (final Map.Entry<String, Collection<String>> entry : includesByDir
+                    .entrySet()) {
+                final IPath path = new Path(entry.getKey());
+                for (final String include : entry.getValue()) {
+                    projectIncludes.add(path.append(include).toPortableString());
                 }
             }
         }
@@ -461,6 +468,13 @@ public class ErlProject extends Openable
         }
     }
 
+    @Override
+    public Collection<IErlModule> getModulesIncluding(final String includeName)
+            throws ErlModelException {
+        return ErlModelCache.getDefault().getIncludeDependencies(this)
+                .getDependents(includeName, true);
+    }
+
     @Override
     public ErlangProjectProperties getProperties() {
         if (properties == null) {
@@ -653,6 +667,7 @@ public class ErlProject extends Openable
     public void dispose() {
         removeConfigurationChangeListeners();
         clearCaches();
+        ErlModelCache.getDefault().removeStructureIndex(getName(), false);
         try {
             accept(new IErlElementVisitor() {
 
@@ -218,7 +218,7 @@ public abstract class Openable extends ErlElement implements IOpenable {
                 }
             }
         }
-        internalGetChildren().clear();
+        setChildren(null);
         setStructureKnown(false);
     }
 }
@@ -257,14 +257,12 @@ public class ErlangCompletionService implements CompletionService {
             final boolean unexportedOnly, final boolean arityOnly)
             throws ErlModelException {
         final List<CompletionData> result = new ArrayList<>();
-        for (final IErlElement e : module.getChildren()) {
-            if (e instanceof IErlFunction) {
-                final IErlFunction f = (IErlFunction) e;
-                if (unexportedOnly && f.isExported()) {
-                    continue;
-                }
-                addFunctionCompletion(offset, prefix, result, f, arityOnly);
+        for (final IErlFunction f : ModuleCompletionIndex.get(module)
+                .getFunctions(prefix)) {
+            if (unexportedOnly && f.isExported()) {
+                continue;
             }
+            addFunctionCompletion(offset, prefix, result, f, arityOnly);
         }
         return result;
     }
@@ -288,10 +286,15 @@ public class ErlangCompletionService implements CompletionService {
         }
         final List<CompletionData> result = new ArrayList<>();
         try {
-            final List<IErlPreprocessorDef> defs = getAllPreprocessorDefs(module, kind);
-            for (final IErlPreprocessorDef pd : defs) {
-                final String name = pd.getDefinedName();
-                addIfMatches(name, prefix, offset, result);
+            final List<IErlModule> modulesWithIncludes = Lists.newArrayList(ErlangEngine
+                    .getInstance().getModelFindService().findAllIncludedFiles(module));
+            modulesWithIncludes.add(module);
+            for (final IErlModule m : modulesWithIncludes) {
+                for (final IErlPreprocessorDef pd : ModuleCompletionIndex.get(m)
+                        .getPreprocessorDefs(kind, prefix)) {
+                    final String name = pd.getDefinedName();
+                    addIfMatches(name, prefix, offset, result);
+                }
             }
         } catch (final CoreException e) {
             ErlLogger.error(e);
@@ -674,13 +677,11 @@ public class ErlangCompletionService implements CompletionService {
         boolean result = false;
         try {
             m.open(null);
-            for (final IErlElement e : m.getChildren()) {
-                if (e instanceof IErlFunction) {
-                    final IErlFunction f = (IErlFunction) e;
-                    if (f.isExported()) {
-                        addFunctionCompletion(offset, prefix, proposals, f, arityOnly);
-                        result = true;
-                    }
+            for (final IErlFunction f : ModuleCompletionIndex.get(m)
+                    .getFunctions(prefix)) {
+                if (f.isExported()) {
+                    addFunctionCompletion(offset, prefix, proposals, f, arityOnly);
+                    result = true;
                 }
             }
         } catch (final ErlModelException e) {
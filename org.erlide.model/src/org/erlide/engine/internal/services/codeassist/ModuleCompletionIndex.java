@@ -0,0 +1,87 @@
+package org.erlide.engine.internal.services.codeassist;
+
+import java.util.List;
+
+import org.erlide.engine.internal.model.cache.PrefixIndex;
+import org.erlide.engine.internal.model.cache.PrefixIndex.Builder;
+import org.erlide.engine.model.ErlElementKind;
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.IErlElement;
+import org.erlide.engine.model.erlang.IErlFunction;
+import org.erlide.engine.model.erlang.IErlPreprocessorDef;
+import org.erlide.engine.model.root.IErlModule;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Prefix indexes over the names that a module contributes to completion: its
+ * functions, macros and records.
+ *
+ * <p>
+ * An index is built from one snapshot of the children of the module and is
+ * reused until a parse replaces them, so typing doesn't scan the module and
+ * all its includes again for every proposal list.
+ * </p>
+ */
+final class ModuleCompletionIndex {
+
+    private static final Cache<IErlModule, ModuleCompletionIndex> indexes = CacheBuilder
+            .newBuilder().weakKeys().maximumSize(1000).build();
+
+    private final List<IErlElement> children;
+    // function names are matched with case, macros and records without
+    private final PrefixIndex<IErlFunction> functions;
+    private final PrefixIndex<IErlPreprocessorDef> macros;
+    private final PrefixIndex<IErlPreprocessorDef> records;
+
+    private ModuleCompletionIndex(final List<IErlElement> children) {
+        this.children = children;
+        final Builder<IErlFunction> functionsBuilder = new Builder<>(false);
+        final Builder<IErlPreprocessorDef> macrosBuilder = new Builder<>(true);
+        final Builder<IErlPreprocessorDef> recordsBuilder = new Builder<>(true);
+        for (final IErlElement e : children) {
+            if (e instanceof IErlFunction) {
+                final IErlFunction f = (IErlFunction) e;
+                functionsBuilder.add(f.getFunction().name, f);
+            } else if (e instanceof IErlPreprocessorDef) {
+                final IErlPreprocessorDef pd = (IErlPreprocessorDef) e;
+                if (pd.getKind() == ErlElementKind.MACRO_DEF) {
+                    macrosBuilder.add(pd.getDefinedName(), pd);
+                } else if (pd.getKind() == ErlElementKind.RECORD_DEF) {
+                    recordsBuilder.add(pd.getDefinedName(), pd);
+                }
+            }
+        }
+        functions = functionsBuilder.build();
+        macros = macrosBuilder.build();
+        records = recordsBuilder.build();
+    }
+
+    static ModuleCompletionIndex get(final IErlModule module) throws ErlModelException {
+        final List<IErlElement> children = module.getChildren();
+        ModuleCompletionIndex index = indexes.getIfPresent(module);
+        if (index == null || index.children != children) {
+            index = new ModuleCompletionIndex(children);
+            indexes.put(module, index);
+        }
+        return index;
+    }
+
+    /**
+     * The functions whose name starts with the prefix, in source order.
+     */
+    List<IErlFunction> getFunctions(final String prefix) {
+        return functions.withPrefix(prefix);
+    }
+
+    /**
+     * The macro or record definitions whose name starts with the prefix,
+     * ignoring case, in source order.
+     */
+    List<IErlPreprocessorDef> getPreprocessorDefs(final ErlElementKind kind,
+            final String prefix) {
+        return kind == ErlElementKind.MACRO_DEF ? macros.withPrefix(prefix)
+                : records.withPrefix(prefix);
+    }
+}
@@ -0,0 +1,161 @@
+package org.erlide.engine.internal.services.parsing;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.runtime.rpc.IRpcResultCallback;
+import org.erlide.util.ErlLogger;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Builds the structure of many modules at once.
+ *
+ * <p>
+ * The modules are opened by a few workers, so that several
+ * <code>initial_parse</code> calls are in flight on the backend connection at
+ * any time and the forms of the finished ones are built in parallel, instead
+ * of one module after the other. Modules found in the structure index don't
+ * reach the backend at all.
+ * </p>
+ *
+ * <p>
+ * Results are reported with the usual {@link IRpcResultCallback} protocol:
+ * <code>start</code> gets the number of modules to parse,
+ * <code>progress</code> gets <code>{Path, ok | error}</code> for each module
+ * as soon as it is done and <code>stop</code> gets the number of modules that
+ * were parsed successfully. Calls to the callback are serialized.
+ * </p>
+ */
+public class ErlBatchParser {
+
+    private static final int WORKERS = Integer.getInteger("erlide.parse.workers",
+            Math.max(2, 2 * Runtime.getRuntime().availableProcessors()));
+
+    private static final ExecutorService executor = Executors
+            .newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("erlide-parse-%d").build());
+
+    private static final OtpErlangAtom OK = new OtpErlangAtom("ok");
+    private static final OtpErlangAtom ERROR = new OtpErlangAtom("error");
+
+    private static final IRpcResultCallback NO_PROGRESS = new IRpcResultCallback() {
+        @Override
+        public void start(final OtpErlangObject msg) {
+        }
+
+        @Override
+        public void stop(final OtpErlangObject msg) {
+        }
+
+        @Override
+        public void progress(final OtpErlangObject msg) {
+        }
+    };
+
+    private ErlBatchParser() {
+    }
+
+    /**
+     * Open all modules whose structure is not known yet, without reporting
+     * progress. Returns when they are all done.
+     */
+    public static void parse(final Collection<? extends IErlModule> modules) {
+        parse(modules, NO_PROGRESS);
+    }
+
+    /**
+     * Open all modules whose structure is not known yet. Returns when they are
+     * all done.
+     */
+    public static void parse(final Collection<? extends IErlModule> modules,
+            final IRpcResultCallback callback) {
+        final Queue<IErlModule> pending = new ConcurrentLinkedQueue<>();
+        for (final IErlModule module : modules) {
+            try {
+                if (!module.isStructureKnown()) {
+                    pending.add(module);
+                }
+            } catch (final ErlModelException e) {
+                pending.add(module);
+            }
+        }
+        final int total = pending.size();
+        final AtomicInteger parsed = new AtomicInteger();
+        final Object lock = new Object();
+        synchronized (lock) {
+            callback.start(new OtpErlangLong(total));
+        }
+
+        final List<Future<?>> workers = Lists.newArrayList();
+        for (int i = 0; i < Math.min(WORKERS, total); i++) {
+            workers.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    IErlModule module;
+                    while ((module = pending.poll()) != null) {
+                        final boolean ok = open(module);
+                        if (ok) {
+                            parsed.incrementAndGet();
+                        }
+                        final String path = module.getFilePath();
+                        final OtpErlangObject result = new OtpErlangTuple(
+                                new OtpErlangObject[] {
+                                        new OtpErlangString(
+                                                path != null ? path : module.getName()),
+                                        ok ? OK : ERROR });
+                        synchronized (lock) {
+                            callback.progress(result);
+                        }
+                    }
+                }
+            }));
+        }
+        boolean interrupted = false;
+        for (final Future<?> worker : workers) {
+            while (true) {
+                try {
+                    worker.get();
+                    break;
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                } catch (final ExecutionException e) {
+                    ErlLogger.error(e.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            callback.stop(new OtpErlangLong(parsed.get()));
+        }
+    }
+
+    private static boolean open(final IErlModule module) {
+        try {
+            module.open(null);
+            return module.isStructureKnown();
+        } catch (final ErlModelException e) {
+            ErlLogger.warn(e);
+            return false;
+        }
+    }
+
+}
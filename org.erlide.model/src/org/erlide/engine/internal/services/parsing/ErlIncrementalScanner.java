@@ -0,0 +1,222 @@
+package org.erlide.engine.internal.services.parsing;
+
+import java.util.Arrays;
+
+import org.erlide.engine.services.parsing.ErlToken;
+import org.erlide.engine.services.parsing.ScannerService;
+import org.erlide.runtime.rpc.IOtpRpc;
+import org.erlide.util.ErlLogger;
+
+/**
+ * Scanner that keeps the tokens of a module on the Java side, so that edits
+ * and token lookups don't need a round trip to the backend.
+ *
+ * <p>
+ * After an edit, scanning restarts a few characters before the changed region
+ * and stops as soon as a token boundary lines up again with the previous
+ * tokens. The backend scanner is still kept up to date, because the parser
+ * works on its state, but the edits are coalesced and only sent by
+ * {@link #flush()}, before the module is parsed or its scanner is used by
+ * another backend call.
+ * </p>
+ */
+public class ErlIncrementalScanner implements ScannerService {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final String name;
+    private final ErlideScanner backendScanner;
+
+    private final StringBuilder text = new StringBuilder();
+    private String path = "";
+    // token i covers [starts[i], starts[i+1]), the last one ends at the end of
+    // the text
+    private int[] starts = EMPTY;
+    private int[] kinds = EMPTY;
+    private int count;
+
+    // region not yet sent to the backend scanner; -1 if nothing is pending
+    private int dirtyStart = -1;
+    private int dirtyOldEnd;
+    private int dirtyNewEnd;
+    // the backend scanner has to get the whole text again
+    private boolean resync;
+
+    public ErlIncrementalScanner(final IOtpRpc backend, final String name) {
+        this.name = name;
+        backendScanner = new ErlideScanner(backend);
+        backendScanner.create(name);
+    }
+
+    @Override
+    public synchronized void initialScan(final String initialText, final String path,
+            final boolean logging) {
+        final String textNotNull = initialText == null ? "" : initialText;
+        text.setLength(0);
+        text.append(textNotNull);
+        this.path = path == null ? "" : path;
+        count = 0;
+        rescan(0, 0, 0, 0);
+        dirtyStart = -1;
+        resync = false;
+        backendScanner.initialScan(name, this.path, textNotNull);
+    }
+
+    @Override
+    public synchronized void replaceText(final int offset, final int removeLength,
+            final String newText) {
+        final String insert = newText == null ? "" : newText;
+        if (offset < 0 || removeLength < 0 || offset + removeLength > text.length()) {
+            ErlLogger.warn("Scanner %s: replacing [%d, %d) outside of the text (%d)",
+                    name, offset, offset + removeLength, text.length());
+            // keep what can be kept of the edit and start over
+            final int start = Math.min(Math.max(offset, 0), text.length());
+            final int end = Math.min(Math.max(offset + removeLength, start),
+                    text.length());
+            text.replace(start, end, insert);
+            count = 0;
+            rescan(0, 0, 0, 0);
+            dirtyStart = -1;
+            resync = true;
+            return;
+        }
+        text.replace(offset, offset + removeLength, insert);
+        markDirty(offset, removeLength, insert.length());
+
+        final int delta = insert.length() - removeLength;
+        final int first = count == 0 ? 0
+                : indexAt(Math.max(0, offset - ErlLexer.LOOKAHEAD));
+        final int from = count == 0 ? 0 : starts[first];
+        rescan(first, from, offset + insert.length(), delta);
+    }
+
+    @Override
+    public synchronized ErlToken getTokenAt(final int offset) {
+        if (offset < 0 || offset >= text.length() || count == 0) {
+            return null;
+        }
+        final int i = indexAt(offset);
+        final int kind = kinds[i];
+        if (kind == ErlToken.KIND_WHITESPACE) {
+            return null;
+        }
+        // erlide_scanner doesn't report keywords as such here
+        return new ErlToken(kind == ErlToken.KIND_KEYWORD ? ErlToken.KIND_OTHER : kind,
+                starts[i], end(i) - starts[i]);
+    }
+
+    @Override
+    public void addref() {
+        backendScanner.addref(name);
+    }
+
+    @Override
+    public void dispose() {
+        backendScanner.dispose(name);
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (resync) {
+            backendScanner.initialScan(name, path, text.toString());
+            resync = false;
+            return;
+        }
+        if (dirtyStart < 0) {
+            return;
+        }
+        backendScanner.replaceText(name, dirtyStart, dirtyOldEnd - dirtyStart,
+                text.substring(dirtyStart, dirtyNewEnd));
+        dirtyStart = -1;
+    }
+
+    /**
+     * Rescan from token <code>first</code>, which starts at <code>from</code>
+     * in the new text, until a token boundary at or after
+     * <code>changeEnd</code> matches the start of an old token shifted by
+     * <code>delta</code>. Old tokens from there on are kept, shifted.
+     */
+    private void rescan(final int first, final int from, final int changeEnd,
+            final int delta) {
+        final int length = text.length();
+        final ErlLexer lexer = new ErlLexer(text);
+        int[] newStarts = new int[16];
+        int[] newKinds = new int[16];
+        int n = 0;
+        // index of the first old token that can still be reused
+        int old = first;
+        int pos = from;
+        while (pos < length) {
+            if (pos >= changeEnd) {
+                while (old < count && starts[old] + delta < pos) {
+                    old++;
+                }
+                if (old < count && starts[old] + delta == pos) {
+                    break;
+                }
+            }
+            if (n == newStarts.length) {
+                newStarts = Arrays.copyOf(newStarts, n * 2);
+                newKinds = Arrays.copyOf(newKinds, n * 2);
+            }
+            final int end = lexer.scan(pos);
+            newStarts[n] = pos;
+            newKinds[n] = lexer.getKind();
+            n++;
+            pos = end;
+        }
+        if (pos >= length) {
+            old = count;
+        }
+        splice(first, old, newStarts, newKinds, n, delta);
+    }
+
+    // replace tokens [first, old) with the n new ones and shift the rest
+    private void splice(final int first, final int old, final int[] newStarts,
+            final int[] newKinds, final int n, final int delta) {
+        final int tail = count - old;
+        final int newCount = first + n + tail;
+        if (newCount > starts.length) {
+            final int capacity = Math.max(newCount, starts.length + starts.length / 2);
+            starts = Arrays.copyOf(starts, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+        }
+        System.arraycopy(starts, old, starts, first + n, tail);
+        System.arraycopy(kinds, old, kinds, first + n, tail);
+        System.arraycopy(newStarts, 0, starts, first, n);
+        System.arraycopy(newKinds, 0, kinds, first, n);
+        if (delta != 0) {
+            for (int i = first + n; i < newCount; i++) {
+                starts[i] += delta;
+            }
+        }
+        count = newCount;
+    }
+
+    private void markDirty(final int offset, final int removeLength,
+            final int insertLength) {
+        if (dirtyStart < 0) {
+            dirtyStart = offset;
+            dirtyOldEnd = offset + removeLength;
+            dirtyNewEnd = offset + insertLength;
+            return;
+        }
+        // positions before dirtyStart and after dirtyNewEnd are the same in
+        // the backend's text, modulo the shift
+        final int end = Math.max(dirtyNewEnd, offset + removeLength);
+        dirtyOldEnd += end - dirtyNewEnd;
+        dirtyNewEnd = end + insertLength - removeLength;
+        dirtyStart = Math.min(dirtyStart, offset);
+    }
+
+    // index of the token that contains offset
+    private int indexAt(final int offset) {
+        final int i = Arrays.binarySearch(starts, 0, count, offset);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    private int end(final int i) {
+        return i + 1 < count ? starts[i + 1] : text.length();
+    }
+
+}
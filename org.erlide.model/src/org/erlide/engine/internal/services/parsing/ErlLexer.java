@@ -0,0 +1,301 @@
+package org.erlide.engine.internal.services.parsing;
+
+import java.util.Set;
+
+import org.erlide.engine.services.parsing.ErlToken;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Splits Erlang source text into tokens, classified like the light scan of
+ * <code>erlide_scanner</code> does (see the <code>ErlToken.KIND_*</code>
+ * constants).
+ *
+ * <p>
+ * Tokens are contiguous: whitespace is returned as well. Scanning a token only
+ * depends on the text from its start and on at most {@link #LOOKAHEAD}
+ * characters after its end, which is what allows rescanning only the damaged
+ * part of a document.
+ * </p>
+ */
+public final class ErlLexer {
+
+    public static final int LOOKAHEAD = 3;
+
+    private static final Set<String> KEYWORDS = ImmutableSet.of("after", "and",
+            "andalso", "band", "begin", "bnot", "bor", "bsl", "bsr", "bxor", "case",
+            "catch", "cond", "div", "end", "fun", "if", "let", "not", "of", "or",
+            "orelse", "receive", "rem", "try", "when", "xor");
+
+    private static final String[] OPERATORS = { "=:=", "=/=", "...", "->", "<-",
+            "<=", ">=", "=<", "==", "/=", ":=", "=>", "++", "--", "||", "<<", ">>",
+            "::", ".." };
+
+    private final CharSequence text;
+    private final int end;
+    private int kind;
+
+    public ErlLexer(final CharSequence text) {
+        this.text = text;
+        end = text.length();
+    }
+
+    /**
+     * Kind of the token returned by the last call to {@link #scan(int)}.
+     */
+    public int getKind() {
+        return kind;
+    }
+
+    /**
+     * Scan the token that starts at <code>pos</code>, which must be before the
+     * end of the text.
+     *
+     * @return the offset where the token ends
+     */
+    public int scan(final int pos) {
+        final char c = text.charAt(pos);
+        if (isWhitespace(c)) {
+            kind = ErlToken.KIND_WHITESPACE;
+            int i = pos + 1;
+            while (i < end && isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+        if (isLower(c)) {
+            final int i = nameEnd(pos + 1);
+            kind = KEYWORDS.contains(text.subSequence(pos, i).toString())
+                    ? ErlToken.KIND_KEYWORD
+                    : ErlToken.KIND_ATOM;
+            return i;
+        }
+        if (isUpper(c) || c == '_') {
+            kind = ErlToken.KIND_VAR;
+            return nameEnd(pos + 1);
+        }
+        if (isDigit(c)) {
+            return number(pos);
+        }
+        switch (c) {
+        case '%':
+            kind = ErlToken.KIND_COMMENT;
+            int i = pos + 1;
+            while (i < end && text.charAt(i) != '\n') {
+                i++;
+            }
+            return i;
+        case '"':
+            kind = ErlToken.KIND_STRING;
+            return quoted(pos + 1, '"');
+        case '\'':
+            kind = ErlToken.KIND_ATOM;
+            return quoted(pos + 1, '\'');
+        case '$':
+            kind = ErlToken.KIND_CHAR;
+            return charEnd(pos + 1);
+        case '?':
+            return macro(pos);
+        default:
+            return operator(pos);
+        }
+    }
+
+    private int nameEnd(final int pos) {
+        int i = pos;
+        while (i < end && isNameChar(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private int number(final int pos) {
+        int i = digits(pos, 10);
+        if (i + 1 < end && text.charAt(i) == '#') {
+            final int base = base(pos, i);
+            if (base >= 2 && base <= 36 && digitValue(text.charAt(i + 1)) < base) {
+                kind = ErlToken.KIND_INTEGER;
+                return digits(i + 1, base);
+            }
+        }
+        if (i + 1 < end && text.charAt(i) == '.' && isDigit(text.charAt(i + 1))) {
+            i = digits(i + 1, 10);
+            if (i + 1 < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+                int j = i + 1;
+                if (text.charAt(j) == '+' || text.charAt(j) == '-') {
+                    j++;
+                }
+                if (j < end && isDigit(text.charAt(j))) {
+                    i = digits(j, 10);
+                }
+            }
+            kind = ErlToken.KIND_FLOAT;
+            return i;
+        }
+        kind = ErlToken.KIND_INTEGER;
+        return i;
+    }
+
+    // digits may be separated by single underscores
+    private int digits(final int pos, final int base) {
+        int i = pos;
+        while (i < end) {
+            final char c = text.charAt(i);
+            if (digitValue(c) < base) {
+                i++;
+            } else if (c == '_' && i + 1 < end && digitValue(text.charAt(i + 1)) < base) {
+                i += 2;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private int base(final int from, final int to) {
+        int base = 0;
+        for (int i = from; i < to && base <= 36; i++) {
+            final char c = text.charAt(i);
+            if (c != '_') {
+                base = base * 10 + c - '0';
+            }
+        }
+        return base;
+    }
+
+    private int quoted(final int pos, final char quote) {
+        int i = pos;
+        while (i < end) {
+            final char c = text.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        // unterminated, the rest of the text belongs to the token
+        return end;
+    }
+
+    private int charEnd(final int pos) {
+        if (pos >= end) {
+            return end;
+        }
+        final char c = text.charAt(pos);
+        if (c != '\\') {
+            return Character.isHighSurrogate(c) ? Math.min(pos + 2, end) : pos + 1;
+        }
+        int i = pos + 1;
+        if (i >= end) {
+            return end;
+        }
+        final char e = text.charAt(i);
+        if (e >= '0' && e <= '7') {
+            final int max = Math.min(i + 3, end);
+            while (i < max && text.charAt(i) >= '0' && text.charAt(i) <= '7') {
+                i++;
+            }
+            return i;
+        }
+        if (e == 'x') {
+            i++;
+            if (i < end && text.charAt(i) == '{') {
+                while (i < end && text.charAt(i) != '}') {
+                    i++;
+                }
+                return Math.min(i + 1, end);
+            }
+            final int max = Math.min(i + 2, end);
+            while (i < max && digitValue(text.charAt(i)) < 16) {
+                i++;
+            }
+            return i;
+        }
+        if (e == '^') {
+            return Math.min(i + 2, end);
+        }
+        return i + 1;
+    }
+
+    private int macro(final int pos) {
+        int i = pos + 1;
+        if (i < end && text.charAt(i) == '?') {
+            i++;
+        }
+        if (i < end) {
+            final char c = text.charAt(i);
+            if (c == '\'') {
+                kind = ErlToken.KIND_MACRO;
+                return quoted(i + 1, '\'');
+            }
+            if (isLower(c) || isUpper(c) || c == '_') {
+                kind = ErlToken.KIND_MACRO;
+                return nameEnd(i + 1);
+            }
+        }
+        kind = ErlToken.KIND_OTHER;
+        return pos + 1;
+    }
+
+    private int operator(final int pos) {
+        for (final String op : OPERATORS) {
+            if (matches(pos, op)) {
+                kind = "->".equals(op) ? ErlToken.KIND_ARROW : ErlToken.KIND_OTHER;
+                return pos + op.length();
+            }
+        }
+        kind = ErlToken.KIND_OTHER;
+        if (Character.isHighSurrogate(text.charAt(pos)) && pos + 1 < end) {
+            return pos + 2;
+        }
+        return pos + 1;
+    }
+
+    private boolean matches(final int pos, final String op) {
+        if (pos + op.length() > end) {
+            return false;
+        }
+        for (int i = 0; i < op.length(); i++) {
+            if (text.charAt(pos + i) != op.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(final char c) {
+        return c <= ' ' || c >= '\u0080' && c <= '\u00a0';
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int digitValue(final char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private static boolean isLower(final char c) {
+        return c >= 'a' && c <= 'z' || c >= '\u00df' && c <= '\u00ff' && c != '\u00f7';
+    }
+
+    private static boolean isUpper(final char c) {
+        return c >= 'A' && c <= 'Z' || c >= '\u00c0' && c <= '\u00de' && c != '\u00d7';
+    }
+
+    private static boolean isNameChar(final char c) {
+        return isLower(c) || isUpper(c) || isDigit(c) || c == '_' || c == '@';
+    }
+
+}
@@ -18,6 +18,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.internal.model.cache.ModuleStructureIndex;
 import org.erlide.engine.internal.model.erlang.ErlAttribute;
 import org.erlide.engine.internal.model.erlang.ErlComment;
 import org.erlide.engine.internal.model.erlang.ErlExport;
@@ -92,6 +93,18 @@ public final class ErlParser {
     public boolean parse(final IErlModule module, final String scannerName,
             final boolean initialParse, final String path, final String initialText,
             final boolean updateSearchServer) {
+        return parse(module, scannerName, initialParse, path, initialText,
+                updateSearchServer, null);
+    }
+
+    /**
+     * Parse the module in the backend and build its structure. When
+     * <code>index</code> is not null, the result of an initial parse is also
+     * stored there.
+     */
+    public boolean parse(final IErlModule module, final String scannerName,
+            final boolean initialParse, final String path, final String initialText,
+            final boolean updateSearchServer, final ModuleStructureIndex index) {
         if (module == null) {
             return false;
         }
@@ -113,19 +126,7 @@ public final class ErlParser {
         } else {
             ErlLogger.error("error when parsing %s: %s", path, res);
         }
-        if (forms == null) {
-            module.setChildren(null);
-        } else {
-            final List<IErlElement> children = createForms(module, forms);
-            module.setChildren(children);
-        }
-        if (comments == null) {
-            module.setComments(null);
-        } else {
-            final List<IErlComment> moduleComments = createComments(module, comments);
-            module.setComments(moduleComments);
-        }
-        attachFunctionComments(module);
+        build(module, forms, comments);
         String cached = "reparsed";
         if (res != null && res.arity() > 2) {
             final OtpErlangObject res2 = res.elementAt(2);
@@ -139,7 +140,40 @@ public final class ErlParser {
                     forms != null ? forms.arity() : 0,
                     comments != null ? comments.arity() : 0, cached);
         }
-        return forms != null && comments != null;
+        final boolean ok = forms != null && comments != null;
+        if (ok && initialParse && index != null && path != null && initialText != null) {
+            index.put(path, initialText, forms, comments);
+        }
+        return ok;
+    }
+
+    /**
+     * Build the structure of the module from the index, without calling the
+     * backend.
+     *
+     * @return false if the index has nothing for this version of the text
+     */
+    public boolean parseFromIndex(final IErlModule module,
+            final ModuleStructureIndex index, final String path, final String text) {
+        if (module == null || path == null) {
+            return false;
+        }
+        final OtpErlangTuple t = index.get(path, text);
+        if (t == null) {
+            return false;
+        }
+        build(module, (OtpErlangList) t.elementAt(0), (OtpErlangList) t.elementAt(1));
+        return true;
+    }
+
+    private void build(final IErlModule module, final OtpErlangList forms,
+            final OtpErlangList comments) {
+        final List<IErlElement> children = forms == null ? null
+                : createForms(module, forms);
+        final List<IErlComment> moduleComments = comments == null ? null
+                : createComments(module, comments);
+        module.setStructure(children, moduleComments);
+        attachFunctionComments(module);
     }
 
     private List<IErlComment> createComments(final IErlModule module,
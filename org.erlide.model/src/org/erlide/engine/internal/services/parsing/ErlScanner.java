@@ -55,4 +55,9 @@ public class ErlScanner implements ScannerService {
         scanner.addref(name);
     }
 
+    @Override
+    public void flush() {
+        // changes are sent right away
+    }
+
 }
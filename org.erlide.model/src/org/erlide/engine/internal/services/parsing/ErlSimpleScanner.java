@@ -0,0 +1,53 @@
+package org.erlide.engine.internal.services.parsing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.erlide.engine.services.parsing.ErlToken;
+import org.erlide.engine.services.parsing.InternalScanner;
+import org.erlide.engine.services.parsing.ScannerException;
+import org.erlide.engine.services.parsing.SimpleScannerService;
+import org.erlide.runtime.rpc.IOtpRpc;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+
+/**
+ * Light scanning done in Java; the rest is still handled by the backend.
+ */
+public class ErlSimpleScanner implements SimpleScannerService, InternalScanner {
+
+    private final ErlideScanner backendScanner;
+
+    public ErlSimpleScanner(final IOtpRpc backend) {
+        backendScanner = new ErlideScanner(backend);
+    }
+
+    @Override
+    public List<ErlToken> lightScanString(final String string, final int offset)
+            throws ScannerException {
+        if (string == null) {
+            return null;
+        }
+        final ErlLexer lexer = new ErlLexer(string);
+        final List<ErlToken> toks = new ArrayList<>(string.length() / 4);
+        int pos = 0;
+        while (pos < string.length()) {
+            final int end = lexer.scan(pos);
+            toks.add(new ErlToken(lexer.getKind(), pos + offset, end - pos));
+            pos = end;
+        }
+        return toks;
+    }
+
+    @Override
+    public void create(final String module) {
+        backendScanner.create(module);
+    }
+
+    @Override
+    public OtpErlangObject checkAll(final String module, final String text,
+            final boolean getTokens) {
+        return backendScanner.checkAll(module, text, getTokens);
+    }
+
+}
@@ -6,6 +6,12 @@ import org.erlide.runtime.rpc.IOtpRpc;
 
 public class ScannerProvider implements ScannerProviderService {
 
+    /**
+     * Use the backend scanner for all scanning, instead of the Java one.
+     */
+    public static final boolean USE_BACKEND_SCANNER = Boolean
+            .getBoolean("erlide.scanner.backend");
+
     private final IOtpRpc backend;
 
     public ScannerProvider(final IOtpRpc backend) {
@@ -14,7 +20,10 @@ public class ScannerProvider implements ScannerProviderService {
 
     @Override
     public ScannerService get(final String scannerName) {
-        return new ErlScanner(backend, scannerName);
+        if (USE_BACKEND_SCANNER) {
+            return new ErlScanner(backend, scannerName);
+        }
+        return new ErlIncrementalScanner(backend, scannerName);
     }
 
 }
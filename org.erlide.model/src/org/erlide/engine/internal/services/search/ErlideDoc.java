@@ -2,6 +2,7 @@ package org.erlide.engine.internal.services.search;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.services.search.OtpDocService;
@@ -16,6 +17,8 @@ import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 public class ErlideDoc implements OtpDocService {
 
@@ -23,6 +26,10 @@ public class ErlideDoc implements OtpDocService {
     private final IOtpRpc backend;
     private final String stateDir;
 
+    // how long the list of modules loaded in the backend is reused, in ms
+    private static final long LOADED_MODULES_TTL = 10000;
+    private volatile LoadedModules loadedModules;
+
     public ErlideDoc(final IOtpRpc backend, final String stateDir) {
         this.backend = backend;
         this.stateDir = stateDir;
@@ -40,18 +47,74 @@ public class ErlideDoc implements OtpDocService {
         return res;
     }
 
+    /**
+     * Same as <code>erlide_otp_doc:get_modules/3</code>, but computed here: the
+     * names matching the prefix, unquoted and sorted. Modules also include the
+     * ones loaded in the backend, which are only fetched again every few
+     * seconds.
+     */
     @Override
     public OtpErlangObject getModules(final IOtpRpc b, final String prefix,
             final List<String> projectModules, final boolean includes) {
-        OtpErlangObject res = null;
+        final List<String> names = Lists.newArrayList(projectModules);
+        if (!includes) {
+            names.addAll(getLoadedModules(b));
+        }
+        final Set<String> result = Sets.newTreeSet();
+        final String thePrefix = !prefix.isEmpty() && prefix.charAt(0) >= 'A'
+                && prefix.charAt(0) <= 'Z' ? "'" + prefix : prefix;
+        for (final String name : names) {
+            if (name.startsWith(thePrefix)) {
+                result.add(stripQuotes(name));
+            }
+        }
+        final List<OtpErlangObject> res = Lists.newArrayListWithCapacity(result.size());
+        for (final String name : result) {
+            res.add(new OtpErlangString(name));
+        }
+        return new OtpErlangList(res.toArray(new OtpErlangObject[res.size()]));
+    }
+
+    private static String stripQuotes(final String name) {
+        if (name.length() >= 2 && name.charAt(0) == '\'') {
+            return name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    private List<String> getLoadedModules(final IOtpRpc b) {
+        final LoadedModules cached = loadedModules;
+        if (cached != null && cached.backend == b
+                && System.currentTimeMillis() - cached.time < LOADED_MODULES_TTL) {
+            return cached.names;
+        }
+        final List<String> names = Lists.newArrayList();
         try {
-            final String what = includes ? "includes" : "modules";
-            res = b.call(ERLIDE_OTP_DOC, "get_modules", "slsa", prefix, projectModules,
-                    what);
+            final OtpErlangObject res = b.call("code", "all_loaded", "");
+            if (res instanceof OtpErlangList) {
+                for (final OtpErlangObject o : (OtpErlangList) res) {
+                    final OtpErlangObject mod = ((OtpErlangTuple) o).elementAt(0);
+                    names.add(((OtpErlangAtom) mod).atomValue());
+                }
+            }
         } catch (final RpcException e) {
             ErlLogger.warn(e);
+            return names;
+        }
+        loadedModules = new LoadedModules(b, names);
+        return names;
+    }
+
+    private static final class LoadedModules {
+        final IOtpRpc backend;
+        final long time;
+        final List<String> names;
+
+        LoadedModules(final IOtpRpc backend, final List<String> names) {
+            this.backend = backend;
+            this.names = names;
+            time = System.currentTimeMillis();
         }
-        return res;
     }
 
     @Override
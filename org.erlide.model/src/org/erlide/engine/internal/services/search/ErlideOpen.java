@@ -2,6 +2,7 @@ package org.erlide.engine.internal.services.search;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.runtime.IPath;
@@ -11,6 +12,8 @@ import org.erlide.engine.services.search.OpenResult;
 import org.erlide.engine.services.search.OpenService;
 import org.erlide.runtime.rpc.IOtpRpc;
 import org.erlide.runtime.rpc.RpcException;
+import org.erlide.runtime.rpc.RpcRequest;
+import org.erlide.runtime.rpc.RpcResult;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.Util;
 import org.erlide.util.erlang.OtpErlang;
@@ -22,6 +25,7 @@ import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 public class ErlideOpen implements OpenService {
 
@@ -201,18 +205,48 @@ public class ErlideOpen implements OpenService {
         try {
             final OtpErlangObject res = ideBackend.call(ERLIDE_OPEN,
                     "get_includes_in_dir", "s", directory);
-            if (Util.isOk(res)) {
-                final OtpErlangTuple t = (OtpErlangTuple) res;
-                final OtpErlangList l = (OtpErlangList) t.elementAt(1);
-                final List<String> result = Lists.newArrayListWithCapacity(l.arity());
-                for (final OtpErlangObject object : l) {
-                    result.add(Util.stringValue(object));
+            return getIncludes(res);
+        } catch (final RpcException e) {
+            ErlLogger.error(e);
+        }
+        return null;
+    }
+
+    @Override
+    public Map<String, Collection<String>> getIncludesInDirs(
+            final Collection<String> directories) {
+        final List<String> dirs = Lists.newArrayList(directories);
+        final List<RpcRequest> requests = Lists.newArrayListWithCapacity(dirs.size());
+        for (final String directory : dirs) {
+            requests.add(new RpcRequest(ERLIDE_OPEN, "get_includes_in_dir", "s",
+                    directory));
+        }
+        final Map<String, Collection<String>> result = Maps.newLinkedHashMap();
+        try {
+            final List<RpcResult> results = ideBackend.call_batch(requests);
+            for (int i = 0; i < results.size(); i++) {
+                final Collection<String> includes = results.get(i).isOk()
+                        ? getIncludes(results.get(i).getValue()) : null;
+                if (includes != null) {
+                    result.put(dirs.get(i), includes);
                 }
-                return result;
             }
         } catch (final RpcException e) {
             ErlLogger.error(e);
         }
+        return result;
+    }
+
+    private static List<String> getIncludes(final OtpErlangObject res) {
+        if (Util.isOk(res)) {
+            final OtpErlangTuple t = (OtpErlangTuple) res;
+            final OtpErlangList l = (OtpErlangList) t.elementAt(1);
+            final List<String> result = Lists.newArrayListWithCapacity(l.arity());
+            for (final OtpErlangObject object : l) {
+                result.add(Util.stringValue(object));
+            }
+            return result;
+        }
         return null;
     }
 
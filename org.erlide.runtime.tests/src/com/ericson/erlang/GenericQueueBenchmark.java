@@ -0,0 +1,127 @@
+package com.ericson.erlang;
+
+import java.util.concurrent.CyclicBarrier;
+
+import com.ericsson.otp.erlang.GenericQueue;
+
+/**
+ * Compares the throughput of {@link GenericQueue} with the synchronized, wait/notify
+ * based implementation it replaced, with one and with several producers feeding one
+ * consumer. Not a test, run it as a Java application.
+ */
+public class GenericQueueBenchmark {
+
+    private static final int MESSAGES = 2000000;
+    private static final int ROUNDS = 5;
+
+    interface Queue {
+        void put(Object o);
+
+        Object get(long timeout) throws InterruptedException;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        for (final int producers : new int[] { 1, Math.max(2, cores - 1) }) {
+            for (int round = 0; round < ROUNDS; round++) {
+                final double old = run(producers, new SynchronizedQueue());
+                final double current = run(producers, new Queue() {
+                    private final GenericQueue queue = new GenericQueue();
+
+                    @Override
+                    public void put(final Object o) {
+                        queue.put(o);
+                    }
+
+                    @Override
+                    public Object get(final long timeout) throws InterruptedException {
+                        return queue.get(timeout);
+                    }
+                });
+                System.out.printf(
+                        "%d producer(s), round %d: synchronized %.1f, GenericQueue %.1f"
+                                + " Mmsg/s (x%.2f)%n",
+                        producers, round, old, current, current / old);
+            }
+        }
+    }
+
+    // returns millions of messages per second
+    private static double run(final int producers, final Queue queue) throws Exception {
+        final int perProducer = MESSAGES / producers;
+        final CyclicBarrier start = new CyclicBarrier(producers + 1);
+        final Object message = new Object();
+        for (int p = 0; p < producers; p++) {
+            final Thread producer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (final Exception e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.put(message);
+                    }
+                }
+            };
+            producer.setDaemon(true);
+            producer.start();
+        }
+        start.await();
+        final long t0 = System.nanoTime();
+        for (int i = 0; i < perProducer * producers; i++) {
+            queue.get(10000);
+        }
+        return perProducer * producers * 1000.0 / (System.nanoTime() - t0);
+    }
+
+    /**
+     * The previous implementation of {@link GenericQueue}, as a baseline.
+     */
+    static class SynchronizedQueue implements Queue {
+        private Bucket head;
+        private Bucket tail;
+
+        @Override
+        public synchronized void put(final Object o) {
+            final Bucket b = new Bucket(o);
+            if (tail != null) {
+                tail.next = b;
+                tail = b;
+            } else {
+                head = tail = b;
+            }
+            notify();
+        }
+
+        @Override
+        public synchronized Object get(final long timeout) throws InterruptedException {
+            final long stopTime = System.currentTimeMillis() + timeout;
+            while (true) {
+                if (head != null) {
+                    final Object o = head.contents;
+                    head = head.next;
+                    if (head == null) {
+                        tail = null;
+                    }
+                    return o;
+                }
+                final long currentTime = System.currentTimeMillis();
+                if (stopTime <= currentTime) {
+                    throw new InterruptedException("Get operation timed out");
+                }
+                wait(stopTime - currentTime);
+            }
+        }
+
+        private static class Bucket {
+            Bucket next;
+            final Object contents;
+
+            Bucket(final Object o) {
+                contents = o;
+            }
+        }
+    }
+}
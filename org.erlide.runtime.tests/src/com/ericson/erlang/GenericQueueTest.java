@@ -0,0 +1,106 @@
+package com.ericson.erlang;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.GenericQueue;
+
+public class GenericQueueTest {
+
+    @Test
+    public void keepsOrderAcrossChunks() {
+        final GenericQueue queue = new GenericQueue();
+        for (int i = 0; i < 1000; i++) {
+            queue.put(i);
+        }
+        assertThat(queue.getCount()).isEqualTo(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(queue.tryGet()).isEqualTo(i);
+        }
+        assertThat(queue.tryGet()).isNull();
+        assertThat(queue.getCount()).isEqualTo(0);
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void pollOnEmptyQueueTimesOut() throws InterruptedException {
+        new GenericQueue().get(0);
+    }
+
+    @Test
+    public void timedGetWaitsForTimeout() {
+        final GenericQueue queue = new GenericQueue();
+        final long start = System.currentTimeMillis();
+        try {
+            queue.get(100);
+            throw new AssertionError("expected timeout");
+        } catch (final InterruptedException e) {
+            assertThat(System.currentTimeMillis() - start).isAtLeast(100L);
+        }
+    }
+
+    @Test
+    public void getIsWokenByPut() throws Exception {
+        final GenericQueue queue = new GenericQueue();
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    waiting.await();
+                    Thread.sleep(50);
+                } catch (final InterruptedException e) {
+                }
+                queue.put("hello");
+            }
+        };
+        producer.start();
+        waiting.countDown();
+        assertThat(queue.get(5000)).isEqualTo("hello");
+        producer.join();
+    }
+
+    @Test
+    public void flushDropsEverything() {
+        final GenericQueue queue = new GenericQueue();
+        for (int i = 0; i < 300; i++) {
+            queue.put(i);
+        }
+        queue.flush();
+        assertThat(queue.getCount()).isEqualTo(0);
+        queue.put("next");
+        assertThat(queue.tryGet()).isEqualTo("next");
+    }
+
+    @Test
+    public void manyProducersKeepTheirOwnOrder() throws Exception {
+        final int producers = 4;
+        final int perProducer = 20000;
+        final GenericQueue queue = new GenericQueue();
+        final Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.put(new int[] { id, i });
+                    }
+                }
+            };
+            threads[p].start();
+        }
+        final int[] next = new int[producers];
+        for (int n = 0; n < producers * perProducer; n++) {
+            final int[] item = (int[]) queue.get(5000);
+            assertThat(item[1]).isEqualTo(next[item[0]]);
+            next[item[0]]++;
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(queue.tryGet()).isNull();
+    }
+}
@@ -0,0 +1,89 @@
+package com.ericson.erlang;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpBufferPool;
+
+public class OtpBufferPoolTest {
+
+    private final OtpBufferPool pool = new OtpBufferPool();
+
+    @Test
+    public void sizesAreRoundedUpToPowersOfTwo() {
+        assertThat(pool.acquire(0).length).isEqualTo(256);
+        assertThat(pool.acquire(1).length).isEqualTo(256);
+        assertThat(pool.acquire(256).length).isEqualTo(256);
+        assertThat(pool.acquire(257).length).isEqualTo(512);
+        assertThat(pool.acquire(5000).length).isEqualTo(8192);
+        assertThat(pool.acquire(OtpBufferPool.MAX_POOLED).length)
+                .isEqualTo(OtpBufferPool.MAX_POOLED);
+    }
+
+    @Test
+    public void releasedBuffersAreReused() {
+        final byte[] buf = pool.acquire(1000);
+        pool.release(buf);
+        assertThat(pool.acquire(600)).isSameAs(buf);
+        // it is not in the pool anymore
+        assertThat(pool.acquire(600)).isNotSameAs(buf);
+    }
+
+    @Test
+    public void buffersAreOnlyReusedForTheirSizeClass() {
+        final byte[] buf = pool.acquire(1000);
+        pool.release(buf);
+        assertThat(pool.acquire(100)).isNotSameAs(buf);
+        assertThat(pool.acquire(2000)).isNotSameAs(buf);
+        assertThat(pool.acquire(1024)).isSameAs(buf);
+    }
+
+    @Test
+    public void eachSizeClassKeepsAFewBuffers() {
+        final byte[][] bufs = new byte[6][];
+        for (int i = 0; i < bufs.length; i++) {
+            bufs[i] = pool.acquire(300);
+        }
+        for (final byte[] buf : bufs) {
+            pool.release(buf);
+        }
+        int reused = 0;
+        for (int i = 0; i < bufs.length; i++) {
+            final byte[] buf = pool.acquire(300);
+            for (final byte[] old : bufs) {
+                if (buf == old) {
+                    reused++;
+                }
+            }
+        }
+        assertThat(reused).isEqualTo(4);
+    }
+
+    @Test
+    public void doubleReleaseDoesNotHandOutTheBufferTwice() {
+        final byte[] buf = pool.acquire(1000);
+        pool.release(buf);
+        pool.release(buf);
+        final byte[] first = pool.acquire(1000);
+        final byte[] second = pool.acquire(1000);
+        assertThat(first).isSameAs(buf);
+        assertThat(second).isNotSameAs(buf);
+    }
+
+    @Test
+    public void largeAndOddBuffersAreNotPooled() {
+        final byte[] large = pool.acquire(OtpBufferPool.MAX_POOLED + 1);
+        assertThat(large.length).isEqualTo(OtpBufferPool.MAX_POOLED + 1);
+        pool.release(large);
+        assertThat(pool.acquire(OtpBufferPool.MAX_POOLED + 1)).isNotSameAs(large);
+
+        final byte[] odd = new byte[1000];
+        pool.release(odd);
+        assertThat(pool.acquire(1000)).isNotSameAs(odd);
+        final byte[] small = new byte[16];
+        pool.release(small);
+        assertThat(pool.acquire(16)).isNotSameAs(small);
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.ericson.erlang;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpNioTransport;
+
+public class OtpNioTransportTest {
+
+    private static final class Receiver implements OtpNioTransport.PacketReceiver {
+        final BlockingQueue<byte[]> packets = new LinkedBlockingQueue<>();
+        final CountDownLatch failed = new CountDownLatch(1);
+
+        @Override
+        public byte[] receiveBuffer(final int len) {
+            // bigger than asked for, like the pooled buffers
+            return new byte[len + 7];
+        }
+
+        @Override
+        public boolean packetReceived(final byte[] buf, final int len) {
+            packets.add(Arrays.copyOf(buf, len));
+            return true;
+        }
+
+        @Override
+        public void transportFailed() {
+            failed.countDown();
+        }
+
+        byte[] next() throws InterruptedException {
+            final byte[] packet = packets.poll(5, TimeUnit.SECONDS);
+            assertThat(packet).isNotNull();
+            return packet;
+        }
+    }
+
+    private ServerSocket server;
+    private Socket peer;
+    private OtpNioTransport transport;
+    private final Receiver receiver = new Receiver();
+
+    @Before
+    public void connect() throws IOException {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        transport = new OtpNioTransport(InetAddress.getLoopbackAddress(),
+                server.getLocalPort());
+        peer = server.accept();
+        transport.startReading(receiver);
+    }
+
+    @After
+    public void close() throws IOException {
+        transport.close();
+        peer.close();
+        server.close();
+    }
+
+    private static byte[] packet(final int len) {
+        final byte[] result = new byte[4 + len];
+        ByteBuffer.wrap(result).putInt(len);
+        for (int i = 0; i < len; i++) {
+            result[4 + i] = (byte) (i * 31);
+        }
+        return result;
+    }
+
+    private static byte[] payload(final byte[] packet) {
+        return Arrays.copyOfRange(packet, 4, packet.length);
+    }
+
+    @Test
+    public void framesPacketsSplitAcrossReads() throws Exception {
+        final byte[] first = packet(10);
+        final byte[] second = packet(3);
+        final byte[] both = new byte[first.length + second.length];
+        System.arraycopy(first, 0, both, 0, first.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        final OutputStream out = peer.getOutputStream();
+        // cut inside the length of the first and the payload of the second
+        for (final int[] part : new int[][] { { 0, 2 }, { 2, 9 }, { 9, 20 },
+                { 20, both.length } }) {
+            out.write(both, part[0], part[1] - part[0]);
+            out.flush();
+            Thread.sleep(20);
+        }
+        assertThat(receiver.next()).isEqualTo(payload(first));
+        assertThat(receiver.next()).isEqualTo(payload(second));
+    }
+
+    @Test
+    public void readsPacketsLargerThanTheReadBuffer() throws Exception {
+        final byte[] big = packet(1024 * 1024 + 3);
+        peer.getOutputStream().write(big);
+        assertThat(receiver.next()).isEqualTo(payload(big));
+    }
+
+    @Test
+    public void answersTicks() throws Exception {
+        final byte[] small = packet(5);
+        final OutputStream out = peer.getOutputStream();
+        out.write(new byte[4]);
+        out.write(small);
+        assertThat(receiver.next()).isEqualTo(payload(small));
+        final byte[] tock = new byte[4];
+        new DataInputStream(peer.getInputStream()).readFully(tock);
+        assertThat(tock).isEqualTo(new byte[4]);
+    }
+
+    @Test
+    public void keepsReadingWhileAWriterIsBlocked() throws Exception {
+        // the peer doesn't read, so this fills the socket buffers
+        final byte[] big = new byte[32 * 1024 * 1024];
+        Arrays.fill(big, (byte) 1);
+        final CountDownLatch written = new CountDownLatch(1);
+        final Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    transport.write(ByteBuffer.wrap(big));
+                    written.countDown();
+                } catch (final IOException e) {
+                    // the test fails on the latch
+                }
+            }
+        };
+        writer.start();
+        Thread.sleep(200);
+        assertThat(written.getCount()).isEqualTo(1L);
+
+        final byte[] small = packet(5);
+        final OutputStream out = peer.getOutputStream();
+        out.write(new byte[4]);
+        out.write(small);
+        assertThat(receiver.next()).isEqualTo(payload(small));
+
+        // the tock comes after the blocked data, not in the middle of it
+        final InputStream in = peer.getInputStream();
+        final byte[] received = new byte[big.length + 4];
+        new DataInputStream(in).readFully(received);
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(Arrays.copyOf(received, big.length)).isEqualTo(big);
+        assertThat(Arrays.copyOfRange(received, big.length, received.length))
+                .isEqualTo(new byte[4]);
+        writer.join();
+    }
+
+    @Test
+    public void reportsClosedPeer() throws Exception {
+        peer.close();
+        assertThat(receiver.failed.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+}
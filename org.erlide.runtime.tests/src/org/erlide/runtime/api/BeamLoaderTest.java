@@ -0,0 +1,105 @@
+package org.erlide.runtime.api;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+public class BeamLoaderTest {
+
+    private static final byte[] ATOMS = { 0, 0, 0, 1, 1, 'm' };
+    private static final byte[] CODE = { 1, 2, 3 };
+
+    private static byte[] beam(final Object... chunks) {
+        int size = 4;
+        for (int i = 0; i < chunks.length; i += 2) {
+            size += 8 + (((byte[]) chunks[i + 1]).length + 3 & ~3);
+        }
+        final ByteBuffer buf = ByteBuffer.allocate(8 + size);
+        buf.put("FOR1".getBytes(StandardCharsets.ISO_8859_1)).putInt(size);
+        buf.put("BEAM".getBytes(StandardCharsets.ISO_8859_1));
+        for (int i = 0; i < chunks.length; i += 2) {
+            final byte[] chunk = (byte[]) chunks[i + 1];
+            buf.put(((String) chunks[i]).getBytes(StandardCharsets.ISO_8859_1));
+            buf.putInt(chunk.length).put(chunk);
+            buf.position(buf.position() + (-chunk.length & 3));
+        }
+        return buf.array();
+    }
+
+    private static byte[] md5(final byte[]... parts) throws NoSuchAlgorithmException {
+        final MessageDigest md5 = MessageDigest.getInstance("MD5");
+        for (final byte[] part : parts) {
+            md5.update(part);
+        }
+        return md5.digest();
+    }
+
+    // a fun table with one entry, whose old unique number is given
+    private static byte[] funs(final int oldUniq) {
+        return ByteBuffer.allocate(28).putInt(1).putInt(7).putInt(0).putInt(12)
+                .putInt(0).putInt(0).putInt(oldUniq).array();
+    }
+
+    @Test
+    public void getCodeMd5_coversTheCodeChunksInOrder() throws Exception {
+        final byte[] literals = { 9, 9 };
+        final byte[] beam = beam("LitT", literals, "Code", CODE, "Attr",
+                new byte[] { 5 }, "AtU8", ATOMS);
+        assertThat(BeamLoader.getCodeMd5(beam)).isEqualTo(md5(ATOMS, CODE, literals));
+    }
+
+    @Test
+    public void getCodeMd5_ignoresAttributes() {
+        final byte[] one = beam("Atom", ATOMS, "Code", CODE, "Attr", new byte[] { 1 },
+                "CInf", new byte[] { 2 });
+        final byte[] other = beam("Atom", ATOMS, "Code", CODE, "Attr",
+                new byte[] { 3, 4 });
+        assertThat(BeamLoader.getCodeMd5(one)).isEqualTo(BeamLoader.getCodeMd5(other));
+        assertThat(BeamLoader.getCodeMd5(one))
+                .isNotEqualTo(BeamLoader.getCodeMd5(beam("Atom", ATOMS, "Code",
+                        new byte[] { 1, 2, 4 })));
+    }
+
+    @Test
+    public void getCodeMd5_ignoresOldUniqOfFuns() throws Exception {
+        final byte[] beam = beam("Atom", ATOMS, "Code", CODE, "FunT", funs(42));
+        assertThat(BeamLoader.getCodeMd5(beam))
+                .isEqualTo(BeamLoader.getCodeMd5(beam("Atom", ATOMS, "Code", CODE,
+                        "FunT", funs(17))));
+        assertThat(BeamLoader.getCodeMd5(beam)).isEqualTo(md5(ATOMS, CODE, funs(0)));
+    }
+
+    @Test
+    public void getCodeMd5_readsCompressedBeams() throws IOException {
+        final byte[] beam = beam("Atom", ATOMS, "Code", CODE);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(beam);
+        }
+        assertThat(BeamLoader.getCodeMd5(out.toByteArray()))
+                .isEqualTo(BeamLoader.getCodeMd5(beam));
+    }
+
+    @Test
+    public void getCodeMd5_notABeam() {
+        assertThat(BeamLoader.getCodeMd5(new byte[] { 31, -117, 8, 0 })).isNull();
+        assertThat(BeamLoader.getCodeMd5(new byte[0])).isNull();
+        assertThat(BeamLoader.getCodeMd5(beam("Atom", ATOMS))).isNull();
+    }
+
+    @Test
+    public void getCodeMd5_truncated() {
+        final byte[] beam = beam("Atom", ATOMS, "Code", CODE);
+        final byte[] truncated = new byte[beam.length - 4];
+        System.arraycopy(beam, 0, truncated, 0, truncated.length);
+        assertThat(BeamLoader.getCodeMd5(truncated)).isNull();
+    }
+}
@@ -0,0 +1,262 @@
+package org.erlide.runtime.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.erlide.runtime.events.ErlEvent;
+import org.erlide.runtime.events.ErlangEventHandler;
+import org.erlide.runtime.events.EventTopicStats;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.google.common.eventbus.Subscribe;
+
+public class EventDispatcherTest {
+
+    private static class Recorder extends ErlangEventHandler {
+        final List<Long> received = Collections.synchronizedList(new ArrayList<Long>());
+        final CountDownLatch done;
+
+        Recorder(final String topic, final int expected) {
+            super(topic);
+            done = new CountDownLatch(expected);
+        }
+
+        @Subscribe
+        public void handleEvent(final ErlEvent event) {
+            received.add(((OtpErlangLong) event.getEvent()).longValue());
+            done.countDown();
+        }
+    }
+
+    private static ErlEvent event(final String topic, final long value) {
+        return new ErlEvent(topic, null, new OtpErlangLong(value), null);
+    }
+
+    @Test
+    public void handlersOnlyGetTheirTopicInOrder() throws InterruptedException {
+        final EventDispatcher dispatcher = new EventDispatcher("test");
+        final Recorder a = new Recorder("a", 1000);
+        final Recorder b = new Recorder("b", 10);
+        dispatcher.register(a);
+        dispatcher.register(b);
+        for (int i = 0; i < 1000; i++) {
+            dispatcher.post(event("a", i));
+            if (i % 100 == 0) {
+                dispatcher.post(event("b", i));
+            }
+        }
+        assertThat(a.done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(b.done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(a.received).hasSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(a.received.get(i)).isEqualTo(Long.valueOf(i));
+        }
+        assertThat(b.received).hasSize(10);
+    }
+
+    @Test
+    public void slowTopicDoesNotDelayOthers() throws InterruptedException {
+        final EventDispatcher dispatcher = new EventDispatcher("test");
+        final CountDownLatch release = new CountDownLatch(1);
+        final ErlangEventHandler slow = new ErlangEventHandler("slow") {
+            @Subscribe
+            public void handleEvent(final ErlEvent event) throws InterruptedException {
+                release.await(10, TimeUnit.SECONDS);
+            }
+        };
+        final Recorder fast = new Recorder("fast", 1);
+        dispatcher.register(slow);
+        dispatcher.register(fast);
+        dispatcher.post(event("slow", 1));
+        dispatcher.post(event("fast", 2));
+        assertThat(fast.done.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    public void handlerWithoutTopicGetsAllEvents() throws InterruptedException {
+        final EventDispatcher dispatcher = new EventDispatcher("test");
+        final CountDownLatch done = new CountDownLatch(2);
+        dispatcher.register(new Object() {
+            @Subscribe
+            public void handleEvent(final ErlEvent event) {
+                done.countDown();
+            }
+        });
+        dispatcher.post(event("x", 1));
+        dispatcher.post(event("y", 2));
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    /**
+     * Records the events of a topic, holding the first one until released so
+     * that the following ones wait in the queue.
+     */
+    private static class BlockingRecorder extends Recorder {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        BlockingRecorder(final String topic, final int expected) {
+            super(topic, expected);
+        }
+
+        @Override
+        @Subscribe
+        public void handleEvent(final ErlEvent event) {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.handleEvent(event);
+        }
+    }
+
+    @Test
+    public void statisticsPerTopic() throws InterruptedException {
+        final EventDispatcher dispatcher = new EventDispatcher("test");
+        final BlockingRecorder a = new BlockingRecorder("a", 5);
+        dispatcher.register(a);
+        dispatcher.post(event("a", 0));
+        assertThat(a.started.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i < 5; i++) {
+            dispatcher.post(event("a", i));
+        }
+        a.release.countDown();
+        assertThat(a.done.await(5, TimeUnit.SECONDS)).isTrue();
+
+        final List<EventTopicStats> stats = dispatcher.getStatistics();
+        assertThat(stats).hasSize(1);
+        final EventTopicStats s = stats.get(0);
+        assertThat(s.getTopic()).isEqualTo("a");
+        assertThat(s.getQueued()).isEqualTo(0);
+        assertThat(s.getMaxQueued()).isEqualTo(4);
+        assertThat(s.getDelivered()).isEqualTo(5L);
+        assertThat(s.getDropped()).isEqualTo(0L);
+        // the first event, then the ones that waited for it
+        assertThat(s.getBatches()).isEqualTo(2L);
+        assertThat(s.getMaxLatency(TimeUnit.NANOSECONDS)).isAtLeast(
+                s.getMeanLatency(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void fullQueueDropsOldestEventsOfLossTolerantTopics()
+            throws InterruptedException {
+        final EventDispatcher dispatcher = new EventDispatcher("test");
+        final int extra = 5;
+        final BlockingRecorder log = new BlockingRecorder("log",
+                EventDispatcher.QUEUE_CAPACITY + 1);
+        dispatcher.register(log);
+        dispatcher.post(event("log", 0));
+        assertThat(log.started.await(5, TimeUnit.SECONDS)).isTrue();
+        // doesn't wait for the handler
+        for (int i = 1; i <= EventDispatcher.QUEUE_CAPACITY + extra; i++) {
+            dispatcher.post(event("log", i));
+        }
+        assertThat(dispatcher.getStatistics().get(0).getDropped()).isEqualTo(
+                (long) extra);
+        log.release.countDown();
+        assertThat(log.done.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(log.received).hasSize(EventDispatcher.QUEUE_CAPACITY + 1);
+        assertThat(log.received.get(0)).isEqualTo(Long.valueOf(0));
+        assertThat(log.received.get(1)).isEqualTo(Long.valueOf(extra + 1));
+        assertThat(log.received.get(EventDispatcher.QUEUE_CAPACITY)).isEqualTo(
+                Long.valueOf(EventDispatcher.QUEUE_CAPACITY + extra));
+    }
+
+    @Test
+    public void fullQueueOfOtherTopicsWaitsForTheHandler() throws InterruptedException {
+        final EventDispatcher dispatcher = new EventDispatcher("test");
+        final int total = EventDispatcher.QUEUE_CAPACITY + 6;
+        final BlockingRecorder a = new BlockingRecorder("a", total);
+        dispatcher.register(a);
+        dispatcher.post(event("a", 0));
+        assertThat(a.started.await(5, TimeUnit.SECONDS)).isTrue();
+        final Thread poster = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 1; i < total; i++) {
+                    dispatcher.post(event("a", i));
+                }
+            }
+        };
+        poster.start();
+        poster.join(500);
+        assertThat(poster.isAlive()).isTrue();
+        a.release.countDown();
+        poster.join(10000);
+        assertThat(poster.isAlive()).isFalse();
+        assertThat(a.done.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(dispatcher.getStatistics().get(0).getDropped()).isEqualTo(0L);
+        assertThat(a.received).hasSize(total);
+        for (int i = 0; i < total; i++) {
+            assertThat(a.received.get(i)).isEqualTo(Long.valueOf(i));
+        }
+    }
+
+    @Test
+    public void handlerOfAllTopicsIsNotCalledConcurrently() throws InterruptedException {
+        final EventDispatcher dispatcher = new EventDispatcher("test");
+        final int events = 2000;
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(events);
+        dispatcher.register(new Object() {
+            @Subscribe
+            public void handleEvent(final ErlEvent event) {
+                if (running.incrementAndGet() > 1) {
+                    overlapped.set(true);
+                }
+                Thread.yield();
+                running.decrementAndGet();
+                done.countDown();
+            }
+        });
+        for (int i = 0; i < 20; i++) {
+            dispatcher.register(new Recorder("t" + i, events / 20));
+        }
+        for (int i = 0; i < events; i++) {
+            dispatcher.post(event("t" + i % 20, i));
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(overlapped.get()).isFalse();
+    }
+
+    @Test
+    public void unregisteredHandlersGetNoEvents() throws InterruptedException {
+        final EventDispatcher dispatcher = new EventDispatcher("test");
+        final Recorder gone = new Recorder("a", 1);
+        final Recorder kept = new Recorder("a", 3);
+        final List<ErlEvent> all = Collections.synchronizedList(
+                new ArrayList<ErlEvent>());
+        final Object any = new Object() {
+            @Subscribe
+            public void handleEvent(final ErlEvent event) {
+                all.add(event);
+            }
+        };
+        dispatcher.register(gone);
+        dispatcher.register(kept);
+        dispatcher.register(any);
+        dispatcher.unregister(gone);
+        dispatcher.unregister(any);
+        for (int i = 0; i < 3; i++) {
+            dispatcher.post(event("a", i));
+        }
+        assertThat(kept.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(gone.received).isEmpty();
+        assertThat(all).isEmpty();
+        assertThat(dispatcher.getStatistics()).hasSize(1);
+    }
+}
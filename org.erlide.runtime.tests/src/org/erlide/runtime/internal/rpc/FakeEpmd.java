@@ -0,0 +1,105 @@
+package org.erlide.runtime.internal.rpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.ericsson.otp.erlang.OtpEpmd;
+
+/**
+ * Just enough of epmd to create nodes and connect them to each other without
+ * a running epmd.
+ */
+class FakeEpmd extends Thread {
+    private final ServerSocket server;
+    private final List<Socket> registered = new CopyOnWriteArrayList<>();
+    // the ALIVE2_REQ of each node, by name
+    private final Map<String, byte[]> nodes = new ConcurrentHashMap<>();
+
+    FakeEpmd() throws IOException {
+        server = new ServerSocket(0, 5, InetAddress.getLoopbackAddress());
+        setDaemon(true);
+        start();
+        OtpEpmd.useEpmdPort(server.getLocalPort());
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                final Socket s = server.accept();
+                final Thread handler = new Thread() {
+                    @Override
+                    public void run() {
+                        handle(s);
+                    }
+                };
+                handler.setDaemon(true);
+                handler.start();
+            }
+        } catch (final IOException e) {
+            // closed
+        }
+    }
+
+    private void handle(final Socket s) {
+        try {
+            final DataInputStream in = new DataInputStream(s.getInputStream());
+            final byte[] request = new byte[in.readUnsignedShort()];
+            in.readFully(request);
+            final DataOutputStream out = new DataOutputStream(s.getOutputStream());
+            if (request[0] == 'x') {
+                nodes.put(aliveName(request), request);
+                // ALIVE2_RESP, ok, creation 1; epmd keeps the socket
+                out.write(new byte[] { 'y', 0, 0, 1 });
+                registered.add(s);
+                return;
+            }
+            final byte[] alive = nodes.get(new String(request, 1, request.length - 1,
+                    StandardCharsets.ISO_8859_1));
+            // the reply must go out in one piece, nodes read it with a single
+            // read()
+            final ByteArrayOutputStream reply = new ByteArrayOutputStream();
+            if (request[0] == 'z' && alive != null) {
+                // PORT2_RESP, ok, then the node's port, type, protocol,
+                // versions and name as it registered them
+                reply.write(new byte[] { 'w', 0 });
+                reply.write(alive, 1, alive.length - 3);
+                reply.write(new byte[] { 0, 0 });
+            } else {
+                // PORT2_RESP, not found
+                reply.write(new byte[] { 'w', 1 });
+            }
+            reply.writeTo(out);
+            s.close();
+        } catch (final IOException e) {
+            // closed
+        }
+    }
+
+    private static String aliveName(final byte[] request) {
+        final int length = ByteBuffer.wrap(request).getShort(9);
+        return new String(request, 11, length, StandardCharsets.ISO_8859_1);
+    }
+
+    void close() throws IOException {
+        server.close();
+        for (final Socket s : registered) {
+            s.close();
+        }
+        // not 0: closed nodes unpublish in the background and would then
+        // overwrite the port of the next fake with the default one
+        final String port = System.getenv("ERL_EPMD_PORT");
+        OtpEpmd.useEpmdPort(port != null ? Integer.parseInt(port) : 4369);
+    }
+}
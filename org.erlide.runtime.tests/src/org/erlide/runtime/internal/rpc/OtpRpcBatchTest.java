@@ -0,0 +1,66 @@
+package org.erlide.runtime.internal.rpc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+
+import org.erlide.runtime.rpc.RpcException;
+import org.erlide.runtime.rpc.RpcRequest;
+import org.erlide.runtime.rpc.RpcResult;
+import org.erlide.util.erlang.OtpErlang;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangExternalFun;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.google.common.collect.Lists;
+
+public class OtpRpcBatchTest {
+
+    private static final OtpErlangAtom NODE = new OtpErlangAtom("n@host");
+
+    @Test
+    public void mkBatch_wrapsEachRequestInRpcCall() throws RpcException {
+        final OtpErlangList batch = OtpRpc.mkBatch(NODE,
+                Lists.newArrayList(new RpcRequest("m", "f", "si", "a", 1),
+                        new RpcRequest("c", "l", "")));
+
+        final OtpErlangList funs = (OtpErlangList) batch.elementAt(0);
+        final OtpErlangList args = (OtpErlangList) batch.elementAt(1);
+        assertThat(funs.arity()).isEqualTo(2);
+        assertThat(funs.elementAt(0))
+                .isEqualTo(new OtpErlangExternalFun("rpc", "call", 4));
+        assertThat(args.elementAt(0)).isEqualTo(OtpErlang.mkList(NODE,
+                new OtpErlangAtom("m"), new OtpErlangAtom("f"), OtpErlang
+                        .mkList(new OtpErlangString("a"), new OtpErlangLong(1))));
+        assertThat(args.elementAt(1)).isEqualTo(OtpErlang.mkList(NODE,
+                new OtpErlangAtom("c"), new OtpErlangAtom("l"), new OtpErlangList()));
+    }
+
+    @Test(expected = RpcException.class)
+    public void mkBatch_rejectsBadSignature() throws RpcException {
+        OtpRpc.mkBatch(NODE, Lists.newArrayList(new RpcRequest("m", "f", "s", 1, 2)));
+    }
+
+    @Test
+    public void getBatchResults_keepsPerItemErrors() throws RpcException {
+        final OtpErlangObject bad = OtpErlang.mkTuple(new OtpErlangAtom("badrpc"),
+                new OtpErlangAtom("nodedown"));
+        final List<RpcResult> results = OtpRpc.getBatchResults(
+                OtpErlang.mkList(new OtpErlangAtom("ok"), bad), 2);
+
+        assertThat(results.get(0).isOk()).isTrue();
+        assertThat(results.get(0).getValue()).isEqualTo(new OtpErlangAtom("ok"));
+        assertThat(results.get(1).isOk()).isFalse();
+        assertThat(results.get(1).getValue()).isEqualTo(new OtpErlangAtom("nodedown"));
+    }
+
+    @Test(expected = RpcException.class)
+    public void getBatchResults_rejectsWrongSize() throws RpcException {
+        OtpRpc.getBatchResults(OtpErlang.mkList(new OtpErlangAtom("ok")), 2);
+    }
+
+}
@@ -0,0 +1,150 @@
+package org.erlide.runtime.internal.rpc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.erlide.runtime.rpc.RpcException;
+import org.erlide.runtime.rpc.RpcRequest;
+import org.erlide.runtime.rpc.RpcResult;
+import org.erlide.util.erlang.OtpErlang;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangExit;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpMbox;
+import com.ericsson.otp.erlang.OtpNode;
+import com.google.common.collect.Lists;
+
+public class OtpRpcParallelBatchTest {
+
+    /**
+     * Stands in for <code>rex</code> on the peer node. It waits until it got
+     * the given number of requests, so that they must all have been sent
+     * before any reply, then answers them in reverse order:
+     * <code>echo</code> returns its argument, <code>fail</code> a
+     * <code>badrpc</code> and <code>hang</code> nothing.
+     */
+    private static final class Rex extends Thread {
+        private final OtpMbox mbox;
+        private final int expected;
+
+        Rex(final OtpNode node, final int expected) {
+            mbox = node.createMbox("rex");
+            this.expected = expected;
+            setDaemon(true);
+            start();
+        }
+
+        @Override
+        public void run() {
+            final List<OtpErlangTuple> requests = new ArrayList<>();
+            try {
+                while (requests.size() < expected) {
+                    requests.add((OtpErlangTuple) mbox.receive());
+                }
+            } catch (final OtpErlangExit e) {
+                return;
+            } catch (final Exception e) {
+                throw new AssertionError(e);
+            }
+            for (final OtpErlangTuple request : Lists.reverse(requests)) {
+                // {'$gen_call', {Pid, Ref}, {call, M, F, A, GroupLeader}}
+                final OtpErlangTuple from = (OtpErlangTuple) request.elementAt(1);
+                final OtpErlangTuple call = (OtpErlangTuple) request.elementAt(2);
+                final String fun = ((OtpErlangAtom) call.elementAt(2)).atomValue();
+                final OtpErlangObject result;
+                if ("echo".equals(fun)) {
+                    result = ((OtpErlangList) call.elementAt(3)).elementAt(0);
+                } else if ("fail".equals(fun)) {
+                    result = OtpErlang.mkTuple(new OtpErlangAtom("badrpc"),
+                            new OtpErlangAtom("failed"));
+                } else {
+                    continue;
+                }
+                mbox.send((OtpErlangPid) from.elementAt(0),
+                        OtpErlang.mkTuple(from.elementAt(1), result));
+            }
+        }
+    }
+
+    private FakeEpmd epmd;
+    private OtpNode node;
+    private OtpNode peer;
+    private OtpRpc rpc;
+
+    @Before
+    public void createNodes() throws IOException {
+        epmd = new FakeEpmd();
+        node = new OtpNode("parallel_batch_test@localhost");
+        peer = new OtpNode("parallel_batch_peer@localhost");
+        rpc = new OtpRpc(node, peer.node());
+        rpc.setConnected(true);
+    }
+
+    @After
+    public void closeNodes() throws IOException {
+        rpc.setConnected(false);
+        node.close();
+        peer.close();
+        epmd.close();
+    }
+
+    private static RpcRequest request(final String fun, final long arg) {
+        return new RpcRequest("test", fun, "x", new OtpErlangLong(arg));
+    }
+
+    @Test
+    public void requestsAreSentBeforeWaitingForReplies() throws RpcException {
+        new Rex(peer, 3);
+        final List<RpcResult> results = rpc.call_batch(10000,
+                Lists.newArrayList(request("echo", 1), request("echo", 2),
+                        request("echo", 3)),
+                true);
+
+        assertThat(results).hasSize(3);
+        for (int i = 0; i < 3; i++) {
+            assertThat(results.get(i).isOk()).isTrue();
+            assertThat(results.get(i).getValue()).isEqualTo(new OtpErlangLong(i + 1));
+        }
+        assertThat(rpc.getReplyChannel().getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void unansweredRequestsTimeOutAndAreForgotten() throws RpcException {
+        new Rex(peer, 3);
+        final List<RpcResult> results = rpc.call_batch(2000,
+                Lists.newArrayList(request("echo", 1), request("hang", 2),
+                        request("fail", 3)),
+                true);
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getValue()).isEqualTo(new OtpErlangLong(1));
+        assertThat(results.get(1).isOk()).isFalse();
+        assertThat(results.get(1).getValue().toString()).contains("timeout");
+        assertThat(results.get(2).isOk()).isFalse();
+        assertThat(results.get(2).getValue()).isEqualTo(new OtpErlangAtom("failed"));
+        assertThat(rpc.getReplyChannel().getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void requestsThatCantBeSentFailAlone() throws RpcException {
+        new Rex(peer, 1);
+        final List<RpcResult> results = rpc.call_batch(10000,
+                Lists.newArrayList(new RpcRequest("test", "echo", "s", 1, 2),
+                        request("echo", 2)),
+                true);
+
+        assertThat(results.get(0).isOk()).isFalse();
+        assertThat(results.get(1).getValue()).isEqualTo(new OtpErlangLong(2));
+    }
+}
@@ -0,0 +1,80 @@
+package org.erlide.runtime.internal.rpc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.erlide.runtime.rpc.RpcException;
+import org.erlide.runtime.rpc.RpcFuture;
+import org.erlide.runtime.rpc.RpcTimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpNode;
+import com.google.common.util.concurrent.SettableFuture;
+
+public class RpcReplyChannelTest {
+
+    // nobody answers, so all calls time out
+    private static final String PEER = "nobody@localhost";
+
+    private FakeEpmd epmd;
+    private OtpNode node;
+
+    @Before
+    public void createNode() throws IOException {
+        epmd = new FakeEpmd();
+        node = new OtpNode("rpc_reply_channel_test");
+    }
+
+    @After
+    public void closeNode() throws IOException {
+        node.close();
+        epmd.close();
+    }
+
+    @Test
+    public void timedOutCallIsForgotten() throws RpcException {
+        final OtpRpc rpc = new OtpRpc(node, PEER);
+        rpc.setConnected(true);
+        try {
+            rpc.call(50, "erlang", "node", "");
+            throw new AssertionError("expected a timeout");
+        } catch (final RpcTimeoutException e) {
+            // expected
+        }
+        assertThat(rpc.getReplyChannel().getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void pollingDoesNotForgetTheCall() throws Exception {
+        final RpcReplyChannel channel = new RpcReplyChannel(node, PEER, 1);
+        final RpcFuture future = new RpcFuture(call(channel), "test", false);
+        assertThat(future.get(10, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(channel.getPendingCount()).isEqualTo(1);
+        assertThat(future.cancel(false)).isTrue();
+        assertThat(channel.getPendingCount()).isEqualTo(0);
+        channel.close();
+    }
+
+    @Test
+    public void closeFailsPendingCalls() throws Exception {
+        final RpcReplyChannel channel = new RpcReplyChannel(node, PEER, 1);
+        final SettableFuture<?> reply = call(channel);
+        channel.close();
+        assertThat(channel.getPendingCount()).isEqualTo(0);
+        assertThat(reply.isDone()).isTrue();
+    }
+
+    private SettableFuture<OtpErlangObject> call(
+            final RpcReplyChannel channel) throws RpcException {
+        return channel.call(node.createRef(), new OtpErlangAtom("erlang"),
+                new OtpErlangAtom("node"), new OtpErlangList(), new OtpErlangAtom("user"),
+                null);
+    }
+}
@@ -0,0 +1,56 @@
+package org.erlide.runtime.rpc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RpcStatsTest {
+
+    @Test
+    public void countsCalls() {
+        final RpcStats stats = new RpcStats("m", "f");
+        stats.started();
+        stats.sent(100);
+        stats.started();
+        stats.sent(50);
+        stats.completed(TimeUnit.MICROSECONDS.toNanos(300), 20);
+        final RpcStatsSnapshot snapshot = stats.snapshot();
+        assertThat(snapshot.getCalls()).isEqualTo(2);
+        assertThat(snapshot.getCompleted()).isEqualTo(1);
+        assertThat(snapshot.getInFlight()).isEqualTo(1);
+        assertThat(snapshot.getRequestBytes()).isEqualTo(150);
+        assertThat(snapshot.getResponseBytes()).isEqualTo(20);
+        assertThat(snapshot.getMaxTime(TimeUnit.MICROSECONDS)).isEqualTo(300);
+    }
+
+    @Test
+    public void failedCallsAreNotInFlight() {
+        final RpcStats stats = new RpcStats("m", "f");
+        stats.started();
+        stats.failed();
+        final RpcStatsSnapshot snapshot = stats.snapshot();
+        assertThat(snapshot.getInFlight()).isEqualTo(0);
+        assertThat(snapshot.getFailures()).isEqualTo(1);
+        assertThat(snapshot.getCompleted()).isEqualTo(0);
+    }
+
+    @Test
+    public void percentiles() {
+        final RpcStats stats = new RpcStats("m", "f");
+        for (int i = 0; i < 99; i++) {
+            stats.started();
+            stats.completed(TimeUnit.MICROSECONDS.toNanos(10), 0);
+        }
+        stats.started();
+        stats.completed(TimeUnit.MILLISECONDS.toNanos(100), 0);
+        final RpcStatsSnapshot snapshot = stats.snapshot();
+        // 10us falls in [8, 16)
+        assertThat(snapshot.getPercentileTime(50, TimeUnit.MICROSECONDS)).isEqualTo(16);
+        assertThat(snapshot.getPercentileTime(99, TimeUnit.MICROSECONDS)).isEqualTo(16);
+        assertThat(snapshot.getPercentileTime(100, TimeUnit.MICROSECONDS))
+                .isEqualTo(100000);
+    }
+
+}
@@ -1,19 +1,54 @@
 package org.erlide.runtime.api;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import org.erlide.runtime.rpc.IOtpRpc;
+import org.erlide.runtime.rpc.RpcException;
+import org.erlide.runtime.rpc.RpcRequest;
+import org.erlide.runtime.rpc.RpcResult;
 import org.erlide.util.ErlLogger;
 
 import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.ericsson.otp.erlang.OtpErlangExternalFun;
 import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.io.ByteStreams;
 
 public class BeamLoader {
 
+    /**
+     * Maximum size of the beams sent in one call by
+     * {@link #loadBeams(IOtpRpc, Map)}.
+     */
+    private static final int BATCH_SIZE = 4 * 1024 * 1024;
+    private static final long LOAD_TIMEOUT = 60000;
+
+    private static final OtpErlangAtom MD5 = new OtpErlangAtom("md5");
+    /**
+     * The chunks whose contents make up the MD5 of a module, in order.
+     */
+    private static final String[] MD5_CHUNKS = { "Atom", "AtU8", "Code", "StrT",
+            "ImpT", "ExpT", "FunT", "LitT" };
+    private static final int FUN_ENTRY_SIZE = 24;
+
     public static boolean loadBeam(final IOtpRpc backend, final String moduleName,
             final OtpErlangBinary bin) {
         OtpErlangObject r = null;
@@ -45,6 +80,238 @@ public class BeamLoader {
         return false;
     }
 
+    /**
+     * Load many modules with a few calls.
+     *
+     * <p>
+     * Modules that are already loaded with the same code are skipped: the MD5
+     * the node reports for a loaded module is compared with the one
+     * <code>beam_lib:md5/1</code> gives for the new beam. The others are sent
+     * in batches, loaded atomically with <code>code:atomic_load/1</code> where
+     * the runtime has it and one by one otherwise.
+     * </p>
+     *
+     * @return the names of the modules that could not be loaded
+     */
+    public static List<String> loadBeams(final IOtpRpc backend,
+            final Map<String, OtpErlangBinary> beams) {
+        final List<String> failed = new ArrayList<>();
+        if (beams.isEmpty()) {
+            return failed;
+        }
+        final Map<String, byte[]> loaded = getLoadedMd5s(backend, beams.keySet());
+        final List<String> modules = new ArrayList<>();
+        for (final Map.Entry<String, OtpErlangBinary> beam : beams.entrySet()) {
+            final byte[] md5 = getCodeMd5(beam.getValue().binaryValue());
+            if (md5 == null || !Arrays.equals(md5, loaded.get(beam.getKey()))) {
+                modules.add(beam.getKey());
+            }
+        }
+        if (modules.isEmpty()) {
+            return failed;
+        }
+        try {
+            final OtpErlangList sticky = (OtpErlangList) backend.call("lists", "map",
+                    "xx", new OtpErlangExternalFun("code", "is_sticky", 1),
+                    atoms(modules));
+            for (int i = sticky.arity() - 1; i >= 0; i--) {
+                if (((OtpErlangAtom) sticky.elementAt(i)).booleanValue()) {
+                    ErlLogger.warn("sticky:: %s", modules.get(i));
+                    failed.add(modules.remove(i));
+                }
+            }
+        } catch (final Exception e) {
+            ErlLogger.warn(e);
+            failed.addAll(modules);
+            return failed;
+        }
+
+        int start = 0;
+        int size = 0;
+        for (int i = 0; i < modules.size(); i++) {
+            size += beams.get(modules.get(i)).size();
+            if (size >= BATCH_SIZE || i == modules.size() - 1) {
+                loadBatch(backend, modules.subList(start, i + 1), beams, failed);
+                start = i + 1;
+                size = 0;
+            }
+        }
+        return failed;
+    }
+
+    private static void loadBatch(final IOtpRpc backend, final List<String> modules,
+            final Map<String, OtpErlangBinary> beams, final List<String> failed) {
+        final OtpErlangObject[] files = new OtpErlangObject[modules.size()];
+        final OtpErlangObject[] bins = new OtpErlangObject[modules.size()];
+        final OtpErlangObject[] triples = new OtpErlangObject[modules.size()];
+        for (int i = 0; i < modules.size(); i++) {
+            final String module = modules.get(i);
+            files[i] = new OtpErlangString(module + ".erl");
+            bins[i] = beams.get(module);
+            triples[i] = new OtpErlangTuple(new OtpErlangObject[] {
+                    new OtpErlangAtom(module), files[i], bins[i] });
+        }
+        try {
+            final OtpErlangObject r = backend.call(LOAD_TIMEOUT, "code", "atomic_load",
+                    "x", new OtpErlangList(triples));
+            if (r instanceof OtpErlangAtom
+                    && "ok".equals(((OtpErlangAtom) r).atomValue())) {
+                return;
+            }
+            // older runtime, or a module that can't be loaded atomically
+            ErlLogger.debug("atomic load failed, loading one by one: %s", r);
+            final OtpErlangObject results = backend.call(LOAD_TIMEOUT, "lists",
+                    "zipwith3", "xxxx",
+                    new OtpErlangExternalFun("code", "load_binary", 3), atoms(modules),
+                    new OtpErlangList(files), new OtpErlangList(bins));
+            if (!(results instanceof OtpErlangList)) {
+                ErlLogger.error("Could not load %s: %s", modules, results);
+                failed.addAll(modules);
+                return;
+            }
+            final OtpErlangList list = (OtpErlangList) results;
+            for (int i = 0; i < list.arity(); i++) {
+                final OtpErlangObject result = list.elementAt(i);
+                if (!(result instanceof OtpErlangTuple) || !"module".equals(
+                        ((OtpErlangAtom) ((OtpErlangTuple) result).elementAt(0))
+                                .atomValue())) {
+                    ErlLogger.error("Could not load %s: %s", modules.get(i), result);
+                    failed.add(modules.get(i));
+                }
+            }
+        } catch (final RpcException e) {
+            ErlLogger.warn(e);
+            failed.addAll(modules);
+        }
+    }
+
+    /**
+     * The code MD5s of those of the given modules that are loaded on the node.
+     */
+    private static Map<String, byte[]> getLoadedMd5s(final IOtpRpc backend,
+            final Iterable<String> modules) {
+        try {
+            final OtpErlangList all = (OtpErlangList) backend.call("code", "all_loaded",
+                    "");
+            final List<String> names = new ArrayList<>();
+            final Set<String> wanted = new HashSet<>();
+            for (final String module : modules) {
+                wanted.add(module);
+            }
+            for (final OtpErlangObject elem : all) {
+                final String module = ((OtpErlangAtom) ((OtpErlangTuple) elem)
+                        .elementAt(0)).atomValue();
+                if (wanted.contains(module)) {
+                    names.add(module);
+                }
+            }
+            final Map<String, byte[]> result = new HashMap<>();
+            if (names.isEmpty()) {
+                return result;
+            }
+            final OtpErlangObject[] what = new OtpErlangObject[names.size()];
+            for (int i = 0; i < what.length; i++) {
+                what[i] = MD5;
+            }
+            final OtpErlangObject r = backend.call("lists", "zipwith", "xxx",
+                    new OtpErlangExternalFun("erlang", "get_module_info", 2),
+                    atoms(names), new OtpErlangList(what));
+            if (!(r instanceof OtpErlangList)) {
+                // a module was unloaded meanwhile, or the runtime is too old
+                return result;
+            }
+            final OtpErlangList md5s = (OtpErlangList) r;
+            for (int i = 0; i < md5s.arity(); i++) {
+                if (md5s.elementAt(i) instanceof OtpErlangBinary) {
+                    result.put(names.get(i),
+                            ((OtpErlangBinary) md5s.elementAt(i)).binaryValue());
+                }
+            }
+            return result;
+        } catch (final Exception e) {
+            ErlLogger.warn(e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * The MD5 of the code in a beam file, as computed by
+     * <code>beam_lib:md5/1</code> and reported by
+     * <code>erlang:get_module_info(Module, md5)</code>, or <code>null</code>
+     * if the beam can't be read.
+     */
+    public static byte[] getCodeMd5(final byte[] beam) {
+        final byte[] data = beam.length >= 2 && beam[0] == 31 && beam[1] == -117
+                ? gunzip(beam) : beam;
+        if (data == null) {
+            return null;
+        }
+        final ByteBuffer buf = ByteBuffer.wrap(data);
+        if (data.length < 12 || !"FOR1".equals(chunkId(buf, 0))
+                || !"BEAM".equals(chunkId(buf, 8))) {
+            return null;
+        }
+        final Map<String, int[]> chunks = new HashMap<>();
+        int pos = 12;
+        while (pos + 8 <= data.length) {
+            final String id = chunkId(buf, pos);
+            final int size = buf.getInt(pos + 4);
+            if (size < 0 || pos + 8 + size > data.length) {
+                return null;
+            }
+            chunks.put(id, new int[] { pos + 8, size });
+            pos += 8 + (size + 3 & ~3);
+        }
+        if (!chunks.containsKey("Code")) {
+            return null;
+        }
+        final MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            return null;
+        }
+        for (final String id : MD5_CHUNKS) {
+            final int[] chunk = chunks.get(id);
+            if (chunk == null) {
+                continue;
+            }
+            if ("FunT".equals(id)) {
+                // the old unique number of each fun doesn't count
+                md5.update(data, chunk[0], Math.min(4, chunk[1]));
+                for (int p = chunk[0] + 4; p + FUN_ENTRY_SIZE <= chunk[0] + chunk[1];
+                        p += FUN_ENTRY_SIZE) {
+                    md5.update(data, p, FUN_ENTRY_SIZE - 4);
+                    md5.update(new byte[4]);
+                }
+            } else {
+                md5.update(data, chunk[0], chunk[1]);
+            }
+        }
+        return md5.digest();
+    }
+
+    private static byte[] gunzip(final byte[] compressed) {
+        try (final InputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(compressed))) {
+            return ByteStreams.toByteArray(in);
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private static String chunkId(final ByteBuffer buf, final int pos) {
+        return new String(buf.array(), pos, 4, StandardCharsets.ISO_8859_1);
+    }
+
+    private static OtpErlangList atoms(final List<String> names) {
+        final OtpErlangObject[] result = new OtpErlangObject[names.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new OtpErlangAtom(names.get(i));
+        }
+        return new OtpErlangList(result);
+    }
+
     public static void reloadAllCode(final IOtpRpc backend) {
         try {
             final OtpErlangList loaded = (OtpErlangList) backend.call("code",
@@ -59,9 +326,17 @@ public class BeamLoader {
                     mine.add(mod);
                 }
             }
+            final List<RpcRequest> requests = new ArrayList<>(mine.size());
             for (final OtpErlangAtom mod : mine) {
-                // ErlLogger.debug(">>> reload " + mod);
-                backend.call("c", "l", "x", mod);
+                requests.add(new RpcRequest("c", "l", "x", mod));
+            }
+            final List<RpcResult> results = backend.call_batch(LOAD_TIMEOUT, requests,
+                    false);
+            for (int i = 0; i < results.size(); i++) {
+                if (!results.get(i).isOk()) {
+                    ErlLogger.warn("Could not reload %s: %s", mine.get(i),
+                            results.get(i).getValue());
+                }
             }
         } catch (final Exception e) {
             ErlLogger.error(e);
@@ -10,8 +10,10 @@
  *******************************************************************************/
 package org.erlide.runtime.api;
 
+import java.util.List;
 import java.util.concurrent.Executor;
 
+import org.erlide.runtime.events.EventTopicStats;
 import org.erlide.runtime.rpc.IOtpRpc;
 import org.erlide.runtime.runtimeinfo.RuntimeVersion;
 import org.erlide.util.IDisposable;
@@ -42,8 +44,25 @@ public interface IOtpNodeProxy extends IDisposable {
 
     OtpErlangPid getEventPid();
 
+    /**
+     * Register an object whose <code>@Subscribe</code> methods get the
+     * {@link org.erlide.runtime.events.ErlEvent}s sent by the runtime. An
+     * {@link org.erlide.runtime.events.ErlangEventHandler} only gets the events
+     * of its topic.
+     */
     void registerEventListener(Object handler);
 
+    /**
+     * Stop delivering events to a handler given to
+     * {@link #registerEventListener(Object)}.
+     */
+    void unregisterEventListener(Object handler);
+
+    /**
+     * Queue depth and delivery latency of the events of each topic.
+     */
+    List<EventTopicStats> getEventStatistics();
+
     void addRuntimeListener(Listener listener, Executor executor);
 
 }
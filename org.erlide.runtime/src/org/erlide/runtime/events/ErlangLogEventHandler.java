@@ -17,9 +17,6 @@ public class ErlangLogEventHandler extends ErlangEventHandler {
 
     @Subscribe
     public void handleEvent(final ErlEvent event) {
-        if (!event.getTopic().equals(getTopic())) {
-            return;
-        }
         final OtpErlangTuple t = (OtpErlangTuple) event.getEvent();
         final OtpErlangAtom module = (OtpErlangAtom) t.elementAt(0);
         final OtpErlangLong line = (OtpErlangLong) t.elementAt(1);
@@ -0,0 +1,86 @@
+package org.erlide.runtime.events;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The state of the event queue of one topic of a runtime at some point in
+ * time. Latency is measured from the moment an event was received from the
+ * runtime until it was handed to the handlers.
+ */
+public final class EventTopicStats {
+
+    private final String topic;
+    private final int queued;
+    private final int maxQueued;
+    private final long delivered;
+    private final long dropped;
+    private final long batches;
+    private final long totalLatencyNanos;
+    private final long maxLatencyNanos;
+
+    public EventTopicStats(final String topic, final int queued, final int maxQueued,
+            final long delivered, final long dropped, final long batches,
+            final long totalLatencyNanos, final long maxLatencyNanos) {
+        this.topic = topic;
+        this.queued = queued;
+        this.maxQueued = maxQueued;
+        this.delivered = delivered;
+        this.dropped = dropped;
+        this.batches = batches;
+        this.totalLatencyNanos = totalLatencyNanos;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * Number of events waiting to be delivered.
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * The highest number of events that were waiting at the same time.
+     */
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * Number of events dropped because the queue was full.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Number of times the queue was drained; the events are delivered in
+     * batches when they come faster than the handlers take them.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getMeanLatency(final TimeUnit unit) {
+        return delivered == 0 ? 0
+                : unit.convert(totalLatencyNanos / delivered, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxLatency(final TimeUnit unit) {
+        return unit.convert(maxLatencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return topic + " queued=" + queued + " delivered=" + delivered + " dropped="
+                + dropped;
+    }
+
+}
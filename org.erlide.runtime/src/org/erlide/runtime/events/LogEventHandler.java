@@ -16,9 +16,6 @@ public class LogEventHandler extends ErlangEventHandler {
 
     @Subscribe
     public void handleEvent(final ErlEvent event) {
-        if (!event.getTopic().equals(getTopic())) {
-            return;
-        }
         final OtpErlangObject data = event.getEvent();
         try {
             final OtpBindings b = OtpErlang.match("{K:a,M}", data);
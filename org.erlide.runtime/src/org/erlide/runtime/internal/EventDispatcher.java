@@ -0,0 +1,312 @@
+package org.erlide.runtime.internal;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.erlide.runtime.events.ErlEvent;
+import org.erlide.runtime.events.ErlangEventHandler;
+import org.erlide.runtime.events.EventTopicStats;
+import org.erlide.util.ErlLogger;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Delivers the events of a runtime to the handlers of their topic.
+ *
+ * <p>
+ * Handlers are objects with {@link Subscribe} methods taking an
+ * {@link ErlEvent}. An {@link ErlangEventHandler} only gets the events of its
+ * topic, other handlers get all events. Each topic, and each handler of all
+ * events, has its own bounded queue, drained in batches by at most one thread
+ * at a time, so events are delivered in order, a handler is never called
+ * concurrently and a slow handler only delays its own queue.
+ * </p>
+ *
+ * <p>
+ * When a queue is full, its oldest event of a loss tolerant topic (logs and
+ * console output) is dropped to make room; dropped events are counted in the
+ * statistics. Other events, like those ending a cover or trace run, are never
+ * dropped: the thread receiving the events from the runtime waits for room
+ * instead.
+ * </p>
+ */
+public class EventDispatcher {
+
+    public static final int QUEUE_CAPACITY = Integer.getInteger("erlide.event.queue",
+            10000);
+    public static final int BATCH_SIZE = Integer.getInteger("erlide.event.batch", 256);
+
+    /**
+     * Topics whose events may be dropped when their handlers can't keep up.
+     */
+    static final Set<String> LOSS_TOLERANT_TOPICS = ImmutableSet.of("log",
+            "erlang_log", "io_server");
+    private static final String ALL_TOPICS = "*";
+
+    private static final class Subscriber {
+        final Object target;
+        final Method method;
+
+        Subscriber(final Object target, final Method method) {
+            this.target = target;
+            this.method = method;
+        }
+
+        void deliver(final ErlEvent event) {
+            try {
+                method.invoke(target, event);
+            } catch (final InvocationTargetException e) {
+                ErlLogger.error(e.getCause());
+            } catch (final IllegalAccessException e) {
+                ErlLogger.error(e);
+            }
+        }
+    }
+
+    private static final class Envelope {
+        final ErlEvent event;
+        final long received;
+        final boolean lossTolerant;
+
+        Envelope(final ErlEvent event, final long received) {
+            this.event = event;
+            this.received = received;
+            lossTolerant = LOSS_TOLERANT_TOPICS.contains(event.getTopic());
+        }
+    }
+
+    private final class Lane implements Runnable {
+        final String topic;
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        final BlockingQueue<Envelope> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicInteger maxQueued = new AtomicInteger();
+        final LongAdder batches = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        // guarded by this lane, so that a snapshot sees them consistent
+        long delivered;
+        long totalLatency;
+        long maxLatency;
+        boolean warnedDropping;
+        boolean warnedWaiting;
+
+        Lane(final String topic) {
+            this.topic = topic;
+        }
+
+        void offer(final ErlEvent event) {
+            final Envelope envelope = new Envelope(event, System.nanoTime());
+            while (!queue.offer(envelope)) {
+                if (dropOldestLossTolerant()) {
+                    continue;
+                }
+                if (!warnedWaiting) {
+                    warnedWaiting = true;
+                    ErlLogger.warn("Event queue for '%s' in %s is full, waiting"
+                            + " for its handlers", topic, name);
+                }
+                try {
+                    queue.put(envelope);
+                    break;
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    ErlLogger.warn("Interrupted, dropping event %s in %s", event,
+                            name);
+                    dropped.increment();
+                    return;
+                }
+            }
+            final int size = queue.size();
+            int max = maxQueued.get();
+            while (size > max && !maxQueued.compareAndSet(max, size)) {
+                max = maxQueued.get();
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        private boolean dropOldestLossTolerant() {
+            for (final Envelope queued : queue) {
+                if (queued.lossTolerant) {
+                    // it may have been taken for delivery meanwhile
+                    if (queue.remove(queued)) {
+                        dropped.increment();
+                        if (!warnedDropping) {
+                            warnedDropping = true;
+                            ErlLogger.warn("Event queue for '%s' in %s is full,"
+                                    + " dropping the oldest events", topic, name);
+                        }
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void run() {
+            final List<Envelope> batch = new ArrayList<>();
+            queue.drainTo(batch, BATCH_SIZE);
+            batches.increment();
+            for (final Envelope envelope : batch) {
+                final long latency = System.nanoTime() - envelope.received;
+                synchronized (this) {
+                    delivered++;
+                    totalLatency += latency;
+                    maxLatency = Math.max(maxLatency, latency);
+                }
+                for (final Subscriber subscriber : subscribers) {
+                    subscriber.deliver(envelope.event);
+                }
+            }
+            scheduled.set(false);
+            // events offered while the flag was still set
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        List<Subscriber> subscribersOf(final Object handler) {
+            final List<Subscriber> result = new ArrayList<>();
+            for (final Subscriber subscriber : subscribers) {
+                if (subscriber.target == handler) {
+                    result.add(subscriber);
+                }
+            }
+            return result;
+        }
+
+        synchronized EventTopicStats snapshot() {
+            return new EventTopicStats(topic, queue.size(), maxQueued.get(), delivered,
+                    dropped.sum(), batches.sum(), totalLatency, maxLatency);
+        }
+    }
+
+    private final String name;
+    private final Executor executor;
+    private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    // one lane for each handler of all topics
+    private final List<Lane> anyTopic = new CopyOnWriteArrayList<>();
+
+    public EventDispatcher(final String name) {
+        this.name = name;
+        // threads are only kept while there are events to deliver
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                30, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("erlide-events-" + name + "-%d").build());
+        executor = pool;
+    }
+
+    public void register(final Object handler) {
+        final List<Subscriber> subscribers = findSubscribers(handler);
+        if (subscribers.isEmpty()) {
+            ErlLogger.warn("Event handler %s has no @Subscribe method for ErlEvent",
+                    handler);
+            return;
+        }
+        if (handler instanceof ErlangEventHandler) {
+            getLane(((ErlangEventHandler) handler).getTopic()).subscribers
+                    .addAll(subscribers);
+        } else {
+            final Lane lane = new Lane(ALL_TOPICS);
+            lane.subscribers.addAll(subscribers);
+            anyTopic.add(lane);
+        }
+    }
+
+    /**
+     * Stops delivering events to the handler, including those already queued
+     * for it.
+     */
+    public void unregister(final Object handler) {
+        if (handler instanceof ErlangEventHandler) {
+            final Lane lane = lanes.get(((ErlangEventHandler) handler).getTopic());
+            if (lane != null) {
+                lane.subscribers.removeAll(lane.subscribersOf(handler));
+            }
+            return;
+        }
+        for (final Lane lane : anyTopic) {
+            if (!lane.subscribersOf(handler).isEmpty()) {
+                lane.subscribers.clear();
+                anyTopic.remove(lane);
+            }
+        }
+    }
+
+    public void post(final ErlEvent event) {
+        final Lane lane = lanes.get(event.getTopic());
+        final boolean subscribed = lane != null && !lane.subscribers.isEmpty();
+        if (subscribed) {
+            lane.offer(event);
+        }
+        for (final Lane any : anyTopic) {
+            any.offer(event);
+        }
+        if (!subscribed && anyTopic.isEmpty()) {
+            ErlLogger.warn("Dead event: %s in runtime %s", event.getTopic(), name);
+        }
+    }
+
+    public List<EventTopicStats> getStatistics() {
+        final List<EventTopicStats> result = new ArrayList<>(lanes.size());
+        for (final Lane lane : lanes.values()) {
+            result.add(lane.snapshot());
+        }
+        for (final Lane lane : anyTopic) {
+            result.add(lane.snapshot());
+        }
+        return result;
+    }
+
+    private Lane getLane(final String topic) {
+        Lane lane = lanes.get(topic);
+        if (lane == null) {
+            final Lane created = new Lane(topic);
+            lane = lanes.putIfAbsent(topic, created);
+            if (lane == null) {
+                lane = created;
+            }
+        }
+        return lane;
+    }
+
+    private static List<Subscriber> findSubscribers(final Object handler) {
+        final List<Subscriber> result = new ArrayList<>();
+        // an overridden method is only called once
+        final Set<List<Object>> seen = new HashSet<>();
+        for (Class<?> c = handler.getClass(); c != null; c = c.getSuperclass()) {
+            for (final Method method : c.getDeclaredMethods()) {
+                final Class<?>[] params = method.getParameterTypes();
+                if (method.isAnnotationPresent(Subscribe.class) && params.length == 1
+                        && params[0].isAssignableFrom(ErlEvent.class)
+                        && seen.add(Arrays.asList(method.getName(), params[0]))) {
+                    method.setAccessible(true);
+                    result.add(new Subscriber(handler, method));
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -13,6 +13,7 @@ package org.erlide.runtime.internal;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -22,6 +23,7 @@ import org.erlide.runtime.api.IOtpNodeProxy;
 import org.erlide.runtime.api.RuntimeData;
 import org.erlide.runtime.events.ErlEvent;
 import org.erlide.runtime.events.ErlangLogEventHandler;
+import org.erlide.runtime.events.EventTopicStats;
 import org.erlide.runtime.events.LogEventHandler;
 import org.erlide.runtime.internal.rpc.OtpRpc;
 import org.erlide.runtime.rpc.IOtpRpc;
@@ -40,9 +42,6 @@ import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangPid;
 import com.ericsson.otp.erlang.OtpMbox;
 import com.ericsson.otp.erlang.OtpNode;
-import com.google.common.eventbus.DeadEvent;
-import com.google.common.eventbus.EventBus;
-import com.google.common.eventbus.Subscribe;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.Service;
@@ -63,7 +62,7 @@ public class OtpNodeProxy implements IOtpNodeProxy {
 	final ErlRuntimeReporter reporter;
 	private OtpMbox eventMBox;
 	private IOtpRpc otpRpc;
-	private final EventBus eventBus;
+	private final EventDispatcher eventDispatcher;
 	private final EventParser eventHelper;
 	private Process process = null;
 	private volatile int exitCode = -1;
@@ -78,8 +77,7 @@ public class OtpNodeProxy implements IOtpNodeProxy {
 
 		eventHelper = new EventParser();
 		final String nodeName = getNodeName();
-		eventBus = new EventBus(nodeName);
-		eventBus.register(this);
+		eventDispatcher = new EventDispatcher(nodeName);
 		registerEventListener(new LogEventHandler());
 		registerEventListener(new ErlangLogEventHandler());
 
@@ -111,7 +109,7 @@ public class OtpNodeProxy implements IOtpNodeProxy {
                     ErlLogger.debug("MSG: %s", "[" + busEvent.getSender() + "::"
                             + busEvent.getTopic() + ": " + busEvent.getEvent() + "]");
 				}
-				eventBus.post(busEvent);
+				eventDispatcher.post(busEvent);
 			}
 		} catch (final OtpErlangExit e) {
 			ErlLogger.error(e);
@@ -205,7 +203,17 @@ public class OtpNodeProxy implements IOtpNodeProxy {
 
 	@Override
 	public void registerEventListener(final Object handler) {
-		eventBus.register(handler);
+		eventDispatcher.register(handler);
+	}
+
+	@Override
+	public void unregisterEventListener(final Object handler) {
+		eventDispatcher.unregister(handler);
+	}
+
+	@Override
+	public List<EventTopicStats> getEventStatistics() {
+		return eventDispatcher.getStatistics();
 	}
 
 	private void connect() throws Exception {
@@ -260,11 +268,6 @@ public class OtpNodeProxy implements IOtpNodeProxy {
 		}
 	}
 
-	@Subscribe
-	public void deadEventHandler(final DeadEvent dead) {
-		ErlLogger.warn("Dead event: " + dead + " in runtime " + getNodeName());
-	}
-
 	private class ErlRuntimeListener extends Listener {
 
 		@Override
@@ -1,5 +1,7 @@
 package org.erlide.runtime.internal.rpc;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -9,9 +11,11 @@ import java.util.concurrent.TimeoutException;
 import org.erlide.runtime.rpc.IOtpRpc;
 import org.erlide.runtime.rpc.IRpcCallback;
 import org.erlide.runtime.rpc.IRpcResultCallback;
+import org.erlide.runtime.rpc.RpcCallRecord;
 import org.erlide.runtime.rpc.RpcException;
 import org.erlide.runtime.rpc.RpcFuture;
 import org.erlide.runtime.rpc.RpcMonitor;
+import org.erlide.runtime.rpc.RpcRequest;
 import org.erlide.runtime.rpc.RpcResult;
 import org.erlide.runtime.rpc.RpcTimeoutException;
 import org.erlide.util.ErlLogger;
@@ -23,6 +27,7 @@ import org.erlide.util.erlang.TypeConverter;
 import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangDecodeException;
 import com.ericsson.otp.erlang.OtpErlangExit;
+import com.ericsson.otp.erlang.OtpErlangExternalFun;
 import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangPid;
@@ -30,17 +35,32 @@ import com.ericsson.otp.erlang.OtpErlangRef;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 import com.ericsson.otp.erlang.OtpMbox;
 import com.ericsson.otp.erlang.OtpNode;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class OtpRpc implements IOtpRpc {
 
     private static final OtpErlangAtom USER_ATOM = new OtpErlangAtom("user");
+    private static final OtpErlangExternalFun APPLY_FUN = new OtpErlangExternalFun(
+            "erlang", "apply", 2);
+    private static final OtpErlangExternalFun RPC_CALL_FUN = new OtpErlangExternalFun(
+            "rpc", "call", 4);
 
     public static final long INFINITY = Long.MAX_VALUE;
 
     // use this for debugging
     public static final boolean CHECK_RPC = Boolean.getBoolean("erlide.checkrpc");
 
+    /**
+     * When set, calls share a small pool of long-lived reply mailboxes and
+     * replies are matched by reference, so that many calls can be in flight at
+     * the same time. Otherwise, each call gets its own mailbox.
+     */
+    public static final boolean MULTIPLEXED = Boolean
+            .parseBoolean(System.getProperty("erlide.rpc.multiplexed", "true"));
+    private static final int REPLY_MBOXES = Integer
+            .getInteger("erlide.rpc.replyMailboxes", 4);
+
     public static long DEFAULT_TIMEOUT;
     {
         setDefaultTimeout();
@@ -54,6 +74,8 @@ public class OtpRpc implements IOtpRpc {
     private final String nodeName;
     private final OtpNode localNode;
     private volatile boolean connected;
+    private volatile RpcReplyChannel replyChannel;
+    private volatile OtpErlangAtom remoteNode;
 
     public OtpRpc(final OtpNode localNode, final String nodeName) {
         this.localNode = localNode;
@@ -64,6 +86,10 @@ public class OtpRpc implements IOtpRpc {
     @Override
     public void setConnected(final boolean connected) {
         this.connected = connected;
+        if (!connected) {
+            remoteNode = null;
+            closeReplyChannel();
+        }
     }
 
     @Override
@@ -125,6 +151,7 @@ public class OtpRpc implements IOtpRpc {
                         result = future.checkedGet(timeout, TimeUnit.MILLISECONDS);
                         cb.onSuccess(result);
                     } catch (final Exception e) {
+                        future.cancel(false);
                         ErlLogger.error("Could not execute RPC " + module + ":" + fun
                                 + " : " + e.getMessage());
                         cb.onFailure(e);
@@ -144,9 +171,10 @@ public class OtpRpc implements IOtpRpc {
             final Object... args0) throws RpcException {
         checkConnected();
         OtpErlangObject result = null;
+        RpcFuture future = null;
         try {
-            final RpcFuture future = sendRpcCall(localNode, nodeName, false, gleader,
-                    module, fun, signature, args0);
+            future = sendRpcCall(localNode, nodeName, false, gleader, module, fun,
+                    signature, args0);
             result = future.checkedGet(timeout, TimeUnit.MILLISECONDS);
             if (CHECK_RPC) {
                 ErlLogger.debug("RPC result:: " + result);
@@ -157,7 +185,11 @@ public class OtpRpc implements IOtpRpc {
         } catch (final SignatureException e) {
             throw new RpcException(e);
         } catch (final TimeoutException e) {
+            future.cancel(false);
             throw new RpcTimeoutException(e.getMessage());
+        } catch (final RpcTimeoutException e) {
+            future.cancel(false);
+            throw e;
         }
         return result;
     }
@@ -168,6 +200,127 @@ public class OtpRpc implements IOtpRpc {
         return call(timeout, USER_ATOM, module, fun, signature, args0);
     }
 
+    @Override
+    public List<RpcResult> call_batch(final List<RpcRequest> requests)
+            throws RpcException {
+        return call_batch(DEFAULT_TIMEOUT, requests, false);
+    }
+
+    @Override
+    public List<RpcResult> call_batch(final long timeout,
+            final List<RpcRequest> requests, final boolean parallel)
+            throws RpcException {
+        if (requests.isEmpty()) {
+            return new ArrayList<>();
+        }
+        checkConnected();
+        if (parallel) {
+            return pipelineCalls(timeout, requests);
+        }
+        final OtpErlangList batch = mkBatch(getRemoteNode(), requests);
+        final OtpErlangObject result = call(timeout, "lists", "zipwith", "xxx",
+                APPLY_FUN, batch.elementAt(0), batch.elementAt(1));
+        return getBatchResults(result, requests.size());
+    }
+
+    /**
+     * Each request is wrapped in rpc:call/4 to the node itself, so that
+     * failures are caught per request. All of them are evaluated by a single
+     * lists:zipwith(fun erlang:apply/2, Funs, Args) call; the returned list is
+     * [Funs, Args].
+     */
+    static OtpErlangList mkBatch(final OtpErlangAtom node,
+            final List<RpcRequest> requests) throws RpcException {
+        final OtpErlangObject[] funs = new OtpErlangObject[requests.size()];
+        final OtpErlangObject[] args = new OtpErlangObject[requests.size()];
+        for (int i = 0; i < args.length; i++) {
+            funs[i] = RPC_CALL_FUN;
+            args[i] = mkCallArgs(node, requests.get(i));
+        }
+        return OtpErlang.mkList(new OtpErlangList(funs), new OtpErlangList(args));
+    }
+
+    private static OtpErlangList mkCallArgs(final OtpErlangAtom node,
+            final RpcRequest request) throws RpcException {
+        try {
+            final OtpErlangObject[] callArgs = convertArgs(request.getSignature(),
+                    request.getArgs());
+            return OtpErlang.mkList(node, new OtpErlangAtom(request.getModule()),
+                    new OtpErlangAtom(request.getFunction()),
+                    new OtpErlangList(callArgs));
+        } catch (final SignatureException e) {
+            throw new RpcException(e);
+        }
+    }
+
+    static List<RpcResult> getBatchResults(final OtpErlangObject result,
+            final int size) throws RpcException {
+        if (!(result instanceof OtpErlangList)
+                || ((OtpErlangList) result).arity() != size) {
+            throw new RpcException("Bad RPC batch result: " + result);
+        }
+        final List<RpcResult> results = new ArrayList<>(size);
+        for (final OtpErlangObject item : (OtpErlangList) result) {
+            results.add(new RpcResult(item));
+        }
+        return results;
+    }
+
+    /**
+     * All the requests are sent to <code>rex</code> on the node before waiting
+     * for the first reply. As <code>rex</code> runs each call in its own
+     * process, they are evaluated concurrently, and all on the node. Requests
+     * that are not answered before the timeout are cancelled, so that the
+     * reply channel forgets them.
+     */
+    private List<RpcResult> pipelineCalls(final long timeout,
+            final List<RpcRequest> requests) {
+        final List<RpcFuture> futures = new ArrayList<>(requests.size());
+        final List<RpcResult> results = new ArrayList<>(requests.size());
+        for (final RpcRequest request : requests) {
+            try {
+                futures.add(sendRpcCall(localNode, nodeName, false, USER_ATOM,
+                        request.getModule(), request.getFunction(),
+                        request.getSignature(), request.getArgs()));
+                results.add(null);
+            } catch (final SignatureException | RpcException e) {
+                futures.add(null);
+                results.add(RpcResult.error(String.format("Could not send %s:%s: %s",
+                        request.getModule(), request.getFunction(), e.getMessage())));
+            }
+        }
+        final long deadline = timeout == INFINITY ? INFINITY
+                : System.currentTimeMillis() + timeout;
+        for (int i = 0; i < futures.size(); i++) {
+            final RpcFuture future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+            final long left = deadline == INFINITY ? INFINITY
+                    : Math.max(0, deadline - System.currentTimeMillis());
+            try {
+                results.set(i, new RpcResult(
+                        future.checkedGet(left, TimeUnit.MILLISECONDS)));
+            } catch (final TimeoutException e) {
+                future.cancel(false);
+                results.set(i, RpcResult.error("timeout"));
+            } catch (final RpcException e) {
+                future.cancel(false);
+                results.set(i, RpcResult.error(e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private OtpErlangAtom getRemoteNode() throws RpcException {
+        OtpErlangAtom node = remoteNode;
+        if (node == null) {
+            node = (OtpErlangAtom) call("erlang", "node", "");
+            remoteNode = node;
+        }
+        return node;
+    }
+
     @Override
     public void cast(final OtpErlangObject gleader, final String module, final String fun,
             final String signature, final Object... args0) throws RpcException {
@@ -300,11 +453,61 @@ public class OtpRpc implements IOtpRpc {
         return false;
     }
 
-    private synchronized RpcFuture sendRpcCall(final OtpNode node, final String peer,
+    private RpcFuture sendRpcCall(final OtpNode node, final String peer,
             final boolean logCalls, final OtpErlangObject gleader, final String module,
             final String fun, final String signature, final Object... args0)
-            throws SignatureException {
+            throws SignatureException, RpcException {
         final OtpErlangObject[] args = convertArgs(signature, args0);
+        if (MULTIPLEXED) {
+            return sendMultiplexedRpcCall(node, peer, logCalls, gleader, module, fun,
+                    args);
+        }
+        return sendMboxRpcCall(node, peer, logCalls, gleader, module, fun, args);
+    }
+
+    private RpcFuture sendMultiplexedRpcCall(final OtpNode node, final String peer,
+            final boolean logCalls, final OtpErlangObject gleader, final String module,
+            final String fun, final OtpErlangObject[] args) throws RpcException {
+        if (logCalls) {
+            final Object[] args01 = { module, fun, argString(args) };
+            ErlLogger.debug("call -> %s:%s(%s)", args01);
+        }
+        final OtpErlangObject a = new OtpErlangList(args);
+        final RpcCallRecord record = RpcMonitor.recordRequest(module, fun);
+        final OtpErlangRef ref = node.createRef();
+        final ListenableFuture<OtpErlangObject> reply = getReplyChannel().call(ref,
+                new OtpErlangAtom(module), new OtpErlangAtom(fun), a, gleader, record);
+        if (CHECK_RPC) {
+            ErlLogger.debug("RPC " + ref + "=> " + module + ":" + fun + " " + a);
+        }
+        return new RpcFuture(reply, module + ":" + fun + "/" + args.length, logCalls);
+    }
+
+    RpcReplyChannel getReplyChannel() throws RpcException {
+        RpcReplyChannel channel = replyChannel;
+        if (channel == null || !channel.isOpen()) {
+            synchronized (this) {
+                channel = replyChannel;
+                if (channel == null || !channel.isOpen()) {
+                    checkConnected();
+                    channel = new RpcReplyChannel(localNode, nodeName, REPLY_MBOXES);
+                    replyChannel = channel;
+                }
+            }
+        }
+        return channel;
+    }
+
+    private synchronized void closeReplyChannel() {
+        if (replyChannel != null) {
+            replyChannel.close();
+            replyChannel = null;
+        }
+    }
+
+    private synchronized RpcFuture sendMboxRpcCall(final OtpNode node, final String peer,
+            final boolean logCalls, final OtpErlangObject gleader, final String module,
+            final String fun, final OtpErlangObject[] args) {
 
         OtpErlangObject res = null;
         final OtpMbox mbox = node.createMbox();
@@ -313,16 +516,16 @@ public class OtpRpc implements IOtpRpc {
             final Object[] args01 = { module, fun, argString(args) };
             ErlLogger.debug("call -> %s:%s(%s)", args01);
         }
-        //
-        final OtpErlangRef ref = RpcMonitor.recordRequest(node, peer, module, fun, args,
-                OtpErlang.sizeOf(res));
-        //
-        mbox.send("rex", peer, res);
+        final RpcCallRecord record = RpcMonitor.recordRequest(module, fun);
+        final int size = mbox.sendCounted("rex", peer, res);
+        if (record != null) {
+            record.sent(size);
+        }
         if (CHECK_RPC) {
             ErlLogger.debug("RPC " + mbox.hashCode() + "=> " + res);
         }
-        return new RpcFuture(ref, mbox, module + ":" + fun + "/" + args0.length, logCalls,
-                this);
+        return new RpcFuture(record, mbox, module + ":" + fun + "/" + args.length,
+                logCalls, this);
     }
 
     private static final String SEP = ", ";
@@ -416,8 +619,8 @@ public class OtpRpc implements IOtpRpc {
         }
     }
 
-    private OtpErlangObject[] convertArgs(final String signature, final Object... args)
-            throws SignatureException {
+    private static OtpErlangObject[] convertArgs(final String signature,
+            final Object... args) throws SignatureException {
         final Object[] args0 = args == null ? new OtpErlangObject[] {} : args;
 
         Signature[] type;
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available
+ * at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.runtime.internal.rpc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.erlide.runtime.rpc.RpcCallRecord;
+import org.erlide.runtime.rpc.RpcException;
+import org.erlide.util.ErlLogger;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangExit;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.ericsson.otp.erlang.OtpErlangRef;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpMbox;
+import com.ericsson.otp.erlang.OtpMsg;
+import com.ericsson.otp.erlang.OtpNode;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * A small pool of long-lived mailboxes that receive the replies for many
+ * concurrent RPCs.
+ *
+ * <p>
+ * Requests are sent to <code>rex</code> as regular <code>gen_server</code>
+ * calls, so that the reply comes back as <code>{Ref, Result}</code> and can be
+ * matched to the pending request by its reference. Each mailbox is drained by
+ * its own daemon thread, which also means that replies are decoded in
+ * parallel.
+ * </p>
+ */
+public class RpcReplyChannel {
+
+    private static final OtpErlangAtom GEN_CALL = new OtpErlangAtom("$gen_call");
+    private static final OtpErlangAtom CALL = new OtpErlangAtom("call");
+
+    private static final int POLL_INTERVAL = 1000;
+
+    private final OtpNode node;
+    private final String peer;
+    private final OtpMbox[] mboxes;
+    private final Map<OtpErlangRef, SettableFuture<OtpErlangObject>> pending;
+    // only used when the RPCs are monitored
+    private final Map<OtpErlangRef, RpcCallRecord> records;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean open = true;
+
+    public RpcReplyChannel(final OtpNode node, final String peer, final int size) {
+        this.node = node;
+        this.peer = peer;
+        pending = new ConcurrentHashMap<>();
+        records = new ConcurrentHashMap<>();
+        mboxes = new OtpMbox[Math.max(1, size)];
+        for (int i = 0; i < mboxes.length; i++) {
+            mboxes[i] = node.createMbox();
+            final Thread receiver = new Thread(new Receiver(mboxes[i]),
+                    "rpc-reply-" + peer + "-" + i);
+            receiver.setDaemon(true);
+            receiver.start();
+        }
+    }
+
+    /**
+     * Send <code>{'$gen_call', {Pid, Ref}, {call, M, F, A, GroupLeader}}</code>
+     * to <code>rex</code> on the peer node. The returned future is completed
+     * with the result when the reply arrives. Cancelling it forgets the
+     * request, a late reply is then dropped.
+     *
+     * @param record
+     *            updated with the request and reply sizes and the completion of
+     *            the call; can be <code>null</code>
+     */
+    public SettableFuture<OtpErlangObject> call(final OtpErlangRef ref,
+            final OtpErlangObject module, final OtpErlangObject fun,
+            final OtpErlangObject args, final OtpErlangObject gleader,
+            final RpcCallRecord record) throws RpcException {
+        if (!open) {
+            throw new RpcException(String.format("backend %s down", peer));
+        }
+        final OtpMbox mbox = mboxes[(next.getAndIncrement() & Integer.MAX_VALUE)
+                % mboxes.length];
+        final SettableFuture<OtpErlangObject> reply = SettableFuture.create();
+        if (record != null) {
+            records.put(ref, record);
+        }
+        pending.put(ref, reply);
+        reply.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (reply.isCancelled()) {
+                    forget(ref, reply);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        if (!open) {
+            // closed meanwhile, close() may have missed it
+            forget(ref, reply);
+            reply.setException(
+                    new RpcException(String.format("backend %s down", peer)));
+            return reply;
+        }
+        final OtpErlangObject from = new OtpErlangTuple(
+                new OtpErlangObject[] { mbox.self(), ref });
+        final OtpErlangObject request = new OtpErlangTuple(
+                new OtpErlangObject[] { CALL, module, fun, args, gleader });
+        final int size = mbox.sendCounted("rex", peer,
+                new OtpErlangTuple(new OtpErlangObject[] { GEN_CALL, from, request }));
+        if (record != null) {
+            record.sent(size);
+        }
+        return reply;
+    }
+
+    /**
+     * Stop accepting requests and fail all the calls that are still waiting
+     * for a reply.
+     */
+    public void close() {
+        open = false;
+        for (final OtpMbox mbox : mboxes) {
+            node.closeMbox(mbox);
+        }
+        final RpcException error = new RpcException(
+                String.format("backend %s down", peer));
+        for (final OtpErlangRef ref : pending.keySet()) {
+            final SettableFuture<OtpErlangObject> reply = pending.remove(ref);
+            if (reply != null) {
+                reply.setException(error);
+            }
+        }
+        for (final RpcCallRecord record : records.values()) {
+            record.failed();
+        }
+        records.clear();
+    }
+
+    private void forget(final OtpErlangRef ref,
+            final SettableFuture<OtpErlangObject> reply) {
+        if (pending.remove(ref, reply)) {
+            final RpcCallRecord record = records.remove(ref);
+            if (record != null) {
+                record.failed();
+            }
+        }
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public OtpErlangPid[] getPids() {
+        final OtpErlangPid[] result = new OtpErlangPid[mboxes.length];
+        for (int i = 0; i < mboxes.length; i++) {
+            result[i] = mboxes[i].self();
+        }
+        return result;
+    }
+
+    private void dispatch(final OtpErlangObject msg, final int size) {
+        if (msg instanceof OtpErlangTuple) {
+            final OtpErlangTuple t = (OtpErlangTuple) msg;
+            if (t.arity() == 2 && t.elementAt(0) instanceof OtpErlangRef) {
+                final SettableFuture<OtpErlangObject> reply = pending
+                        .remove(t.elementAt(0));
+                if (reply != null) {
+                    if (!records.isEmpty()) {
+                        final RpcCallRecord record = records.remove(t.elementAt(0));
+                        if (record != null) {
+                            record.completed(size);
+                        }
+                    }
+                    reply.set(t.elementAt(1));
+                    return;
+                }
+            }
+        }
+        ErlLogger.warn("RPC reply without pending request: %s", msg);
+    }
+
+    private class Receiver implements Runnable {
+        private final OtpMbox mbox;
+
+        public Receiver(final OtpMbox mbox) {
+            this.mbox = mbox;
+        }
+
+        @Override
+        public void run() {
+            while (open) {
+                try {
+                    final OtpMsg msg = mbox.receiveMsg(POLL_INTERVAL);
+                    if (msg != null) {
+                        dispatch(msg.getMsg(), msg.getPayloadSize());
+                    }
+                } catch (final InterruptedException e) {
+                    // timed out, check if we're still open
+                } catch (final OtpErlangExit e) {
+                    ErlLogger.warn("RPC reply mailbox got exit: %s", e.reason());
+                } catch (final Exception e) {
+                    ErlLogger.error(e);
+                }
+            }
+        }
+    }
+
+}
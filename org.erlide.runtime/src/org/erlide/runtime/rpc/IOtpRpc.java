@@ -1,5 +1,7 @@
 package org.erlide.runtime.rpc;
 
+import java.util.List;
+
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangPid;
 import com.ericsson.otp.erlang.OtpMbox;
@@ -67,6 +69,22 @@ public interface IOtpRpc {
             final String m, final String f, final String signature, final Object... a)
             throws RpcException;
 
+    /**
+     * Make several RPCs at once, instead of one round trip per call. The
+     * results are in the order of the requests; a request that fails gets an
+     * error result and doesn't affect the others. When parallel, the requests
+     * are evaluated concurrently on the node, otherwise one after the other.
+     * Either way the timeout applies to the whole batch; in parallel, requests
+     * that time out get an error result.
+     */
+    List<RpcResult> call_batch(final long timeout, final List<RpcRequest> requests,
+            final boolean parallel) throws RpcException;
+
+    /**
+     * Make several RPCs at once, one after the other on the node.
+     */
+    List<RpcResult> call_batch(final List<RpcRequest> requests) throws RpcException;
+
     /**
      * Calls a function that supports sending progress reports back. The first
      * argument is implicit and is the pid where the reports are to be sent.
@@ -0,0 +1,51 @@
+package org.erlide.runtime.rpc;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tracks one monitored RPC, from sending the request until the reply arrives.
+ * Only created when the {@link RpcMonitor} is enabled.
+ */
+public final class RpcCallRecord {
+
+    private final RpcStats stats;
+    private final long startTime;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    RpcCallRecord(final RpcStats stats) {
+        this.stats = stats;
+        startTime = System.nanoTime();
+        stats.started();
+    }
+
+    /**
+     * @param bytes
+     *            the size of the encoded request, as written to the connection
+     */
+    public void sent(final int bytes) {
+        stats.sent(bytes);
+    }
+
+    /**
+     * The reply has arrived. Only the first call to this or to
+     * {@link #failed()} is counted.
+     *
+     * @param bytes
+     *            the size of the encoded reply, or 0 if unknown
+     */
+    public void completed(final int bytes) {
+        if (done.compareAndSet(false, true)) {
+            stats.completed(System.nanoTime() - startTime, bytes);
+        }
+    }
+
+    /**
+     * No reply will come, for example because the backend went down.
+     */
+    public void failed() {
+        if (done.compareAndSet(false, true)) {
+            stats.failed();
+        }
+    }
+
+}
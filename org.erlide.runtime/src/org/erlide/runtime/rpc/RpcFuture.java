@@ -10,7 +10,11 @@
  *******************************************************************************/
 package org.erlide.runtime.rpc;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -18,30 +22,54 @@ import org.erlide.runtime.internal.rpc.OtpRpc;
 import org.erlide.util.ErlLogger;
 
 import com.ericsson.otp.erlang.OtpErlangObject;
-import com.ericsson.otp.erlang.OtpErlangRef;
 import com.ericsson.otp.erlang.OtpMbox;
 import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class RpcFuture implements CheckedFuture<OtpErlangObject, RpcException> {
 
+    // only used for futures that own a mailbox and get listeners
+    private static final ExecutorService waiters = Executors
+            .newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("rpc-wait-%d").build());
+
     private final OtpMbox mbox;
-    private OtpErlangObject result = null;
+    private volatile ListenableFuture<OtpErlangObject> reply;
+    private volatile OtpErlangObject result = null;
     private final String env;
     private final boolean logCalls;
 
     private final IOtpRpc rpc;
-    private final OtpErlangRef ref;
+    private final RpcCallRecord record;
 
-    public RpcFuture(final OtpErlangRef ref, final OtpMbox mbox, final String env,
+    public RpcFuture(final RpcCallRecord record, final OtpMbox mbox, final String env,
             final boolean logCalls, final IOtpRpc rpc) {
-        this.ref = ref;
+        this.record = record;
 
         this.mbox = mbox;
+        reply = null;
         this.env = env;
         this.logCalls = logCalls;
         this.rpc = rpc;
     }
 
+    /**
+     * A future whose result is delivered by a shared reply channel instead of
+     * a dedicated mailbox. The channel also takes care of the monitoring.
+     */
+    public RpcFuture(final ListenableFuture<OtpErlangObject> reply, final String env,
+            final boolean logCalls) {
+        record = null;
+
+        mbox = null;
+        this.reply = reply;
+        this.env = env;
+        this.logCalls = logCalls;
+        rpc = null;
+    }
+
     @Override
     public OtpErlangObject get() {
         try {
@@ -67,18 +95,34 @@ public class RpcFuture implements CheckedFuture<OtpErlangObject, RpcException> {
         return result != null;
     }
 
+    /**
+     * Register a listener that is run when the reply has arrived. The listener
+     * can then retrieve the result with {@link #get()} without blocking.
+     */
     @Override
     public void addListener(final Runnable listener, final Executor executor) {
+        if (reply == null) {
+            waitForReply();
+        }
+        reply.addListener(listener, executor);
     }
 
+    /**
+     * Give up on the reply; callers that stop waiting after a timeout must
+     * cancel, so that the request doesn't stay pending forever. Only futures
+     * whose reply is delivered by a reply channel can be cancelled.
+     */
     @Override
     public boolean cancel(final boolean mayInterruptIfRunning) {
-        return false;
+        if (result != null || mbox != null) {
+            return false;
+        }
+        return reply.cancel(false);
     }
 
     @Override
     public boolean isCancelled() {
-        return false;
+        return mbox == null && reply.isCancelled();
     }
 
     @Override
@@ -93,10 +137,27 @@ public class RpcFuture implements CheckedFuture<OtpErlangObject, RpcException> {
     @Override
     public OtpErlangObject checkedGet(final long timeout, final TimeUnit unit)
             throws TimeoutException, RpcException {
-        result = rpc.getRpcResult(mbox, TimeUnit.MILLISECONDS.convert(timeout, unit),
-                env);
+        if (result != null) {
+            return result;
+        }
+        if (reply != null) {
+            result = getReply(timeout, unit);
+        } else {
+            try {
+                result = getMboxResult(timeout, unit);
+            } catch (final RpcTimeoutException e) {
+                throw e;
+            } catch (final RpcException e) {
+                if (record != null) {
+                    record.failed();
+                }
+                throw e;
+            }
+        }
         if (isDone()) {
-            RpcMonitor.recordResponse(ref, result);
+            if (record != null) {
+                record.completed(0);
+            }
             if (logCalls) {
                 final Object[] args0 = { result };
                 ErlLogger.debug("call <- %s", args0);
@@ -105,4 +166,63 @@ public class RpcFuture implements CheckedFuture<OtpErlangObject, RpcException> {
         return result;
     }
 
+    private OtpErlangObject getReply(final long timeout, final TimeUnit unit)
+            throws RpcException {
+        try {
+            if (TimeUnit.MILLISECONDS.convert(timeout, unit) == OtpRpc.INFINITY) {
+                return reply.get();
+            }
+            return reply.get(timeout, unit);
+        } catch (final TimeoutException e) {
+            throw new RpcTimeoutException(env != null ? env : "??");
+        } catch (final CancellationException e) {
+            throw new RpcException("cancelled: " + (env != null ? env : "??"));
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RpcException) {
+                throw (RpcException) cause;
+            }
+            throw new RpcException(e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RpcException(e);
+        }
+    }
+
+    private synchronized OtpErlangObject getMboxResult(final long timeout,
+            final TimeUnit unit) throws RpcException, TimeoutException {
+        if (reply != null) {
+            // a waiter took over the mailbox while we were blocked
+            return getReply(timeout, unit);
+        }
+        return rpc.getRpcResult(mbox, TimeUnit.MILLISECONDS.convert(timeout, unit), env);
+    }
+
+    /**
+     * A future with its own mailbox can only be notified by someone blocking on
+     * that mailbox, so hand it over to a waiter thread that completes
+     * {@link #reply}.
+     */
+    private synchronized void waitForReply() {
+        if (reply != null) {
+            return;
+        }
+        final SettableFuture<OtpErlangObject> future = SettableFuture.create();
+        reply = future;
+        if (result != null) {
+            future.set(result);
+            return;
+        }
+        waiters.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    future.set(rpc.getRpcResult(mbox, OtpRpc.INFINITY, env));
+                } catch (final RpcException e) {
+                    future.setException(e);
+                }
+            }
+        });
+    }
+
 }
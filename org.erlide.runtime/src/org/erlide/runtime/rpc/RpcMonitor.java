@@ -4,209 +4,152 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
-import java.lang.ref.SoftReference;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.erlide.util.ErlLogger;
-import org.erlide.util.erlang.OtpErlang;
-
-import com.ericsson.otp.erlang.OtpErlangAtom;
-import com.ericsson.otp.erlang.OtpErlangObject;
-import com.ericsson.otp.erlang.OtpErlangRef;
-import com.ericsson.otp.erlang.OtpNode;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 
+/**
+ * Collects statistics about the RPCs made to the backends, per
+ * <code>module:fun</code>: number of calls, calls in flight, request and reply
+ * sizes and a latency histogram.
+ *
+ * <p>
+ * Monitoring is enabled with <code>-Derlide.rpcmonitor</code>. When it isn't,
+ * {@link #recordRequest(String, String)} returns <code>null</code> and the RPC
+ * code doesn't measure anything.
+ * </p>
+ */
 public class RpcMonitor {
-    private static final boolean DISABLED = System
-            .getProperty("erlide.rpcmonitor") == null;
+    private static final boolean ENABLED = System.getProperty("erlide.rpcmonitor") != null;
     private static final int COUNT = Integer
             .parseInt(System.getProperty("erlide.rpcmonitor.count", "50"));
-    private static final boolean FULL = System
-            .getProperty("erlide.rpcmonitor.full") != null;
-
-    private static class RpcData {
-        public final long startTime;
-        public final String node;
-        public final String module;
-        public final String fun;
-        public final SoftReference<Collection<OtpErlangObject>> args;
-        public final long size;
-
-        public RpcData(final long startTime, final String node, final String module,
-                final String fun, final OtpErlangObject[] args, final long size) {
-            this.startTime = startTime;
-            this.node = node;
-            this.module = module;
-            this.fun = fun;
-            this.args = new SoftReference<>(
-                    Collections.unmodifiableCollection(Lists.newArrayList(args)));
-            this.size = size;
-        }
-    }
 
-    private static class RpcInfo {
-        public final String node;
-        public final String module;
-        public final String fun;
-        public final SoftReference<Collection<OtpErlangObject>> args;
-        public final long callSize;
-        public final SoftReference<OtpErlangObject> result;
-        public final long answerSize;
-        public final long callTime;
-        public final long answerTime;
-        private final int argsSize;
-
-        public RpcInfo(final RpcData data, final OtpErlangObject result,
-                final long answerTime) {
-            node = data.node;
-            module = data.module;
-            fun = data.fun;
-            args = data.args;
-            final Collection<OtpErlangObject> collection = args.get();
-            argsSize = collection == null ? 0 : collection.size();
-            this.result = new SoftReference<>(result);
-            callTime = data.startTime;
-            this.answerTime = answerTime;
-            callSize = data.size;
-            answerSize = OtpErlang.sizeOf(result);
-        }
-
-        public void dump(final PrintStream out, final boolean full) {
-            Collection<OtpErlangObject> myArgs = args.get();
-            myArgs = myArgs == null ? new ArrayList<>() : myArgs;
-            final String argsString = full ? args.toString().replaceAll("\n|\r", " ")
-                    : "...";
-            OtpErlangObject val = result.get();
-            val = val == null ? new OtpErlangAtom("null") : val;
-            String resultString = full ? val.toString().replaceAll("\n|\r", " ") : "...";
-            if (resultString.length() > 100) {
-                resultString = new String(resultString.substring(0, 99) + "...");
-            }
-            out.format(
-                    "%30s|%25s:%-20s/%d in=%9d, out=%9d, t=%6d, args=%s -> result=%s%n",
-                    node.substring(0, Math.min(29, node.length() - 1)), module, fun,
-                    argsSize, callSize, answerSize, answerTime - callTime, argsString,
-                    resultString);
-        }
-    }
+    private static final ConcurrentMap<String, RpcStats> stats = new ConcurrentHashMap<>();
 
-    private static int callCount = 0;
-    private static final Map<OtpErlangRef, RpcData> ongoing = Maps.newHashMap();
-    private static Comparator<RpcInfo> timeComparator = new Comparator<RpcInfo>() {
+    private static Comparator<RpcStatsSnapshot> timeComparator = new Comparator<RpcStatsSnapshot>() {
         @Override
-        public int compare(final RpcInfo o1, final RpcInfo o2) {
-            return (int) (o2.answerTime - o2.callTime - (o1.answerTime - o1.callTime));
+        public int compare(final RpcStatsSnapshot o1, final RpcStatsSnapshot o2) {
+            return Long.compare(o2.getTotalTime(TimeUnit.NANOSECONDS),
+                    o1.getTotalTime(TimeUnit.NANOSECONDS));
         }
     };
-    private static Comparator<RpcInfo> sizeComparator = new Comparator<RpcInfo>() {
+    private static Comparator<RpcStatsSnapshot> sizeComparator = new Comparator<RpcStatsSnapshot>() {
         @Override
-        public int compare(final RpcInfo o1, final RpcInfo o2) {
-            return (int) (o2.callSize + o2.answerSize - (o1.callSize + o1.answerSize));
+        public int compare(final RpcStatsSnapshot o1, final RpcStatsSnapshot o2) {
+            return Long.compare(o2.getRequestBytes() + o2.getResponseBytes(),
+                    o1.getRequestBytes() + o1.getResponseBytes());
         }
     };
-    private static final List<RpcInfo> slowest = Lists.newLinkedList();
-    private static final List<RpcInfo> largest = Lists.newLinkedList();
 
-    public static synchronized void recordResponse(final OtpErlangRef ref,
-            final OtpErlangObject result) {
-        if (DISABLED) {
-            return;
-        }
-        final RpcData data = ongoing.remove(ref);
-        final long now = System.currentTimeMillis();
-        final RpcInfo info = new RpcInfo(data, result, now);
-        add(largest, sizeComparator, info);
-        add(slowest, timeComparator, info);
+    public static boolean isEnabled() {
+        return ENABLED;
     }
 
-    private static void add(final List<RpcInfo> list,
-            final Comparator<RpcInfo> comparator, final RpcInfo info) {
-        final int index = Collections.binarySearch(list, info, comparator);
-        if (index < 0) {
-            // Add the non-existent item to the list
-            list.add(-index - 1, info);
-        } else {
-            list.add(index, info);
+    /**
+     * Start tracking a call.
+     *
+     * @return the record to update when the request is sent and when the reply
+     *         arrives, or <code>null</code> if monitoring is disabled
+     */
+    public static RpcCallRecord recordRequest(final String module, final String fun) {
+        if (!ENABLED) {
+            return null;
         }
-        if (list.size() > COUNT) {
-            list.remove(list.size() - 1);
+        final String key = module + ":" + fun;
+        RpcStats s = stats.get(key);
+        if (s == null) {
+            final RpcStats created = new RpcStats(module, fun);
+            s = stats.putIfAbsent(key, created);
+            if (s == null) {
+                s = created;
+            }
         }
+        return new RpcCallRecord(s);
     }
 
-    public static OtpErlangRef recordRequest(final OtpNode node, final String peer,
-            final String module, final String fun, final OtpErlangObject[] args,
-            final long callSize) {
-        callCount++;
-        if (DISABLED) {
-            return null;
+    /**
+     * The current statistics, one entry per <code>module:fun</code> that was
+     * called.
+     */
+    public static List<RpcStatsSnapshot> getSnapshot() {
+        final List<RpcStatsSnapshot> result = new ArrayList<>(stats.size());
+        for (final RpcStats s : stats.values()) {
+            result.add(s.snapshot());
         }
-        final RpcData data = new RpcData(System.currentTimeMillis(), peer, module, fun,
-                args, callSize);
-        final OtpErlangRef ref = node.createRef();
-        ongoing.put(ref, data);
-        return ref;
+        return result;
     }
 
-    public static void dump() {
-        dump(System.out, COUNT, FULL);
-    }
-
-    public static void dump(final String file) {
-        dump(file, COUNT, FULL);
+    public static void reset() {
+        stats.clear();
     }
 
-    public static void dump(final String file, final int n) {
-        dump(file, n, FULL);
+    public static void dump() {
+        dump(System.out, COUNT);
     }
 
-    public static void dump(final String file, final boolean full) {
-        dump(file, COUNT, full);
+    public static void dump(final String file) {
+        dump(file, COUNT);
     }
 
-    public static void dump(final String fileName, final int n, final boolean full) {
-        if (DISABLED) {
+    public static void dump(final String fileName, final int n) {
+        if (!ENABLED) {
             return;
         }
         try (final PrintStream os = new PrintStream(
                 new FileOutputStream(fileName, true))) {
-            dump(os, n, full);
+            dump(os, n);
         } catch (final FileNotFoundException e) {
             ErlLogger.error(e);
         }
     }
 
-    public static synchronized void dump(final PrintStream out, final int n,
-            final boolean full) {
+    public static void dump(final PrintStream out, final int n) {
         final String delim = "--------------------------------------------------------------";
+        final List<RpcStatsSnapshot> snapshot = getSnapshot();
+        long calls = 0;
+        for (final RpcStatsSnapshot s : snapshot) {
+            calls += s.getCalls();
+        }
 
         out.println("\n" + delim);
-        out.format("*** RpcMonitor statistics%n - %d calls%n", callCount);
+        out.format("*** RpcMonitor statistics%n - %d calls to %d functions, times in us%n", calls,
+                snapshot.size());
         out.println(delim);
         out.println();
-        out.format("Slowest %d calls%n", slowest.size());
+        out.format("Slowest %d functions (total time)%n", Math.min(n, snapshot.size()));
         out.println(delim);
-        for (final RpcInfo info : slowest) {
-            info.dump(out, full);
-        }
+        Collections.sort(snapshot, timeComparator);
+        dump(out, snapshot, n);
         out.println(delim);
         out.println();
-        out.format("Largest %d calls%n", largest.size());
+        out.format("Largest %d functions (bytes in+out)%n", Math.min(n, snapshot.size()));
         out.println(delim);
-        for (final RpcInfo info : largest) {
-            if (info != null) {
-                info.dump(out, full);
-            }
-        }
+        Collections.sort(snapshot, sizeComparator);
+        dump(out, snapshot, n);
         out.println(delim);
         out.close();
     }
 
+    private static void dump(final PrintStream out, final List<RpcStatsSnapshot> list,
+            final int n) {
+        final TimeUnit us = TimeUnit.MICROSECONDS;
+        for (final RpcStatsSnapshot s : list.subList(0, Math.min(n, list.size()))) {
+            out.format(
+                    "%25s:%-25s n=%7d, err=%4d, busy=%3d, in=%10d, out=%10d, "
+                            + "t=%8d, mean=%6d, p50=%6d, p99=%6d, max=%6d%n",
+                    s.getModule(), s.getFunction(), s.getCalls(), s.getFailures(),
+                    s.getInFlight(), s.getRequestBytes(), s.getResponseBytes(),
+                    s.getTotalTime(us), s.getMeanTime(us), s.getPercentileTime(50, us),
+                    s.getPercentileTime(99, us), s.getMaxTime(us));
+        }
+    }
+
     public static void cleanupOldLogs(final String dirName, final String prefix) {
         final File dir = new File(dirName);
         for (final File f : dir.listFiles()) {
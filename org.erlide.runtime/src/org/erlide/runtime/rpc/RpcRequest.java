@@ -0,0 +1,45 @@
+package org.erlide.runtime.rpc;
+
+import java.util.Arrays;
+
+/**
+ * One call of a batch, see {@link IOtpRpc#call_batch(long, java.util.List, boolean)}.
+ * The arguments are converted with the signature, like for a regular call.
+ */
+public final class RpcRequest {
+
+    private final String module;
+    private final String function;
+    private final String signature;
+    private final Object[] args;
+
+    public RpcRequest(final String module, final String function,
+            final String signature, final Object... args) {
+        this.module = module;
+        this.function = function;
+        this.signature = signature;
+        this.args = args == null ? new Object[0] : args;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public String getFunction() {
+        return function;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    @Override
+    public String toString() {
+        return module + ":" + function + Arrays.toString(args);
+    }
+
+}
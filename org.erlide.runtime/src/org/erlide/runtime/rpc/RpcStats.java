@@ -0,0 +1,76 @@
+package org.erlide.runtime.rpc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the calls to one <code>module:fun</code>. All updates are lock
+ * free; a snapshot is not atomic across counters, which is fine for
+ * statistics.
+ */
+final class RpcStats {
+
+    // bucket i counts latencies in [2^(i-1), 2^i) microseconds
+    static final int BUCKETS = 40;
+
+    private final String module;
+    private final String fun;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    RpcStats(final String module, final String fun) {
+        this.module = module;
+        this.fun = fun;
+    }
+
+    void started() {
+        calls.increment();
+        inFlight.incrementAndGet();
+    }
+
+    void sent(final int bytes) {
+        requestBytes.add(bytes);
+    }
+
+    void completed(final long nanos, final int bytes) {
+        inFlight.decrementAndGet();
+        if (bytes > 0) {
+            responseBytes.add(bytes);
+        }
+        totalNanos.add(nanos);
+        histogram.incrementAndGet(bucket(nanos));
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    void failed() {
+        inFlight.decrementAndGet();
+        failures.increment();
+    }
+
+    RpcStatsSnapshot snapshot() {
+        final long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = histogram.get(i);
+        }
+        return new RpcStatsSnapshot(module, fun, calls.sum(), failures.sum(),
+                inFlight.get(), requestBytes.sum(), responseBytes.sum(),
+                totalNanos.sum(), maxNanos.get(), buckets);
+    }
+
+    static int bucket(final long nanos) {
+        final long micros = nanos / 1000;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+}
@@ -0,0 +1,136 @@
+package org.erlide.runtime.rpc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The state of the counters for one <code>module:fun</code> at some point in
+ * time.
+ */
+public final class RpcStatsSnapshot {
+
+    private final String module;
+    private final String fun;
+    private final long calls;
+    private final long failures;
+    private final int inFlight;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long[] histogram;
+
+    RpcStatsSnapshot(final String module, final String fun, final long calls,
+            final long failures, final int inFlight, final long requestBytes,
+            final long responseBytes, final long totalNanos, final long maxNanos,
+            final long[] histogram) {
+        this.module = module;
+        this.fun = fun;
+        this.calls = calls;
+        this.failures = failures;
+        this.inFlight = inFlight;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.histogram = histogram;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public String getFunction() {
+        return fun;
+    }
+
+    /**
+     * Number of calls that were sent, including those still in flight.
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * Bytes received in replies. Replies that didn't come over the network
+     * connection are not counted.
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * Number of calls that got a reply.
+     */
+    public long getCompleted() {
+        long result = 0;
+        for (final long n : histogram) {
+            result += n;
+        }
+        return result;
+    }
+
+    public long getTotalTime(final TimeUnit unit) {
+        return unit.convert(totalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxTime(final TimeUnit unit) {
+        return unit.convert(maxNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMeanTime(final TimeUnit unit) {
+        final long completed = getCompleted();
+        return completed == 0 ? 0 : getTotalTime(unit) / completed;
+    }
+
+    /**
+     * An upper bound for the given percentile of the latency, with the
+     * resolution of the histogram (powers of two of microseconds).
+     *
+     * @param percentile
+     *            between 0 and 100
+     */
+    public long getPercentileTime(final double percentile, final TimeUnit unit) {
+        final long completed = getCompleted();
+        if (completed == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(completed * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                final long micros = 1L << i;
+                return Math.min(unit.convert(micros, TimeUnit.MICROSECONDS),
+                        getMaxTime(unit));
+            }
+        }
+        return getMaxTime(unit);
+    }
+
+    /**
+     * The latency histogram: element <code>i</code> counts the calls that took
+     * less than <code>2^i</code> microseconds, and at least
+     * <code>2^(i-1)</code>.
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        return module + ":" + fun + " calls=" + calls;
+    }
+
+}
@@ -16,9 +16,6 @@ public class TestEventHandler extends ErlangEventHandler {
 
     @Subscribe
     public void handleEvent(final ErlEvent event) {
-        if (!event.getTopic().equals(getTopic())) {
-            return;
-        }
         if (view != null) {
             view.notifyEvent(event.getEvent());
         }
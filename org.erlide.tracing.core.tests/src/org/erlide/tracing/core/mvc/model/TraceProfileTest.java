@@ -0,0 +1,182 @@
+package org.erlide.tracing.core.mvc.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.erlide.tracing.core.TraceType;
+import org.erlide.tracing.core.mvc.model.TraceProfile.FunctionProfile;
+import org.junit.Test;
+
+public class TraceProfileTest {
+
+    private static final String P = "<0.1.0>";
+    private static final String Q = "<0.2.0>";
+
+    private final TraceProfile profile = new TraceProfile();
+
+    private void call(final String process, final String function, final long time) {
+        profile.add(process, TraceType.CALL, function, time);
+    }
+
+    private void ret(final String process, final String function, final long time) {
+        profile.add(process, TraceType.RETURN_FROM, function, time);
+    }
+
+    private FunctionProfile function(final String name) {
+        for (final FunctionProfile f : profile.getFunctions(TraceProfile.BY_NAME)) {
+            if (f.getFunction().equals(name)) {
+                return f;
+            }
+        }
+        throw new AssertionError("no profile for " + name);
+    }
+
+    private String stacks() throws IOException {
+        final StringWriter writer = new StringWriter();
+        profile.writeFoldedStacks(writer);
+        return writer.toString();
+    }
+
+    @Test
+    public void pairsCallsWithReturns() throws IOException {
+        call(P, "m:a/0", 0);
+        call(P, "m:b/0", 10);
+        ret(P, "m:b/0", 40);
+        call(P, "m:b/0", 50);
+        profile.add(P, TraceType.EXCEPTION_FROM, "m:b/0", 60);
+        ret(P, "m:a/0", 100);
+
+        final FunctionProfile a = function("m:a/0");
+        assertThat(a.getCalls()).isEqualTo(1L);
+        assertThat(a.getInclusiveTime()).isEqualTo(100L);
+        assertThat(a.getExclusiveTime()).isEqualTo(60L);
+        final FunctionProfile b = function("m:b/0");
+        assertThat(b.getCalls()).isEqualTo(2L);
+        assertThat(b.getInclusiveTime()).isEqualTo(40L);
+        assertThat(b.getExclusiveTime()).isEqualTo(40L);
+        assertThat(profile.getUnmatchedReturns()).isEqualTo(0L);
+        assertThat(stacks()).isEqualTo("<0.1.0>;m:a/0 60\n<0.1.0>;m:a/0;m:b/0 40\n");
+    }
+
+    @Test
+    public void processesHaveTheirOwnStacks() throws IOException {
+        call(P, "m:a/0", 0);
+        call(Q, "m:a/0", 5);
+        ret(P, "m:a/0", 10);
+        ret(Q, "m:a/0", 25);
+
+        assertThat(function("m:a/0").getInclusiveTime()).isEqualTo(30L);
+        assertThat(stacks()).isEqualTo("<0.1.0>;m:a/0 10\n<0.2.0>;m:a/0 20\n");
+    }
+
+    @Test
+    public void recursiveCallsCountTheirTimeOnce() throws IOException {
+        call(P, "m:fac/1", 0);
+        call(P, "m:fac/1", 10);
+        call(P, "m:fac/1", 20);
+        ret(P, "m:fac/1", 30);
+        ret(P, "m:fac/1", 40);
+        ret(P, "m:fac/1", 50);
+
+        final FunctionProfile fac = function("m:fac/1");
+        assertThat(fac.getCalls()).isEqualTo(3L);
+        assertThat(fac.getInclusiveTime()).isEqualTo(50L);
+        assertThat(fac.getExclusiveTime()).isEqualTo(50L);
+        assertThat(stacks()).isEqualTo("<0.1.0>;m:fac/1 20\n"
+                + "<0.1.0>;m:fac/1;m:fac/1 20\n"
+                + "<0.1.0>;m:fac/1;m:fac/1;m:fac/1 10\n");
+    }
+
+    @Test
+    public void mutualRecursionCountsEachFunctionOnce() {
+        call(P, "m:even/1", 0);
+        call(P, "m:odd/1", 10);
+        call(P, "m:even/1", 20);
+        ret(P, "m:even/1", 30);
+        ret(P, "m:odd/1", 40);
+        ret(P, "m:even/1", 50);
+
+        assertThat(function("m:even/1").getInclusiveTime()).isEqualTo(50L);
+        assertThat(function("m:odd/1").getInclusiveTime()).isEqualTo(30L);
+    }
+
+    @Test
+    public void returnsWithoutCallsAreCounted() {
+        ret(P, "m:a/0", 10);
+        call(P, "m:a/0", 20);
+        ret(P, "m:b/0", 30);
+        ret(P, "m:a/0", 40);
+
+        assertThat(profile.getUnmatchedReturns()).isEqualTo(2L);
+        assertThat(function("m:a/0").getInclusiveTime()).isEqualTo(20L);
+    }
+
+    @Test
+    public void callsWithoutReturnTraceAreClosedWithTheirCaller() throws IOException {
+        call(P, "m:a/0", 0);
+        // b/0 is traced without a return trace
+        call(P, "m:b/0", 10);
+        ret(P, "m:a/0", 30);
+
+        assertThat(function("m:a/0").getInclusiveTime()).isEqualTo(30L);
+        assertThat(function("m:a/0").getExclusiveTime()).isEqualTo(10L);
+        assertThat(function("m:b/0").getInclusiveTime()).isEqualTo(20L);
+        assertThat(stacks()).isEqualTo("<0.1.0>;m:a/0 10\n<0.1.0>;m:a/0;m:b/0 20\n");
+    }
+
+    @Test
+    public void exitDropsOpenCalls() {
+        call(P, "m:a/0", 0);
+        profile.add(P, TraceType.EXIT, null, 10);
+        ret(P, "m:a/0", 20);
+
+        assertThat(function("m:a/0").getInclusiveTime()).isEqualTo(0L);
+        assertThat(profile.getUnmatchedReturns()).isEqualTo(1L);
+    }
+
+    @Test
+    public void otherEventsAreIgnored() {
+        profile.add(P, TraceType.SEND, null, 0);
+        profile.add(null, TraceType.CALL, "m:a/0", 0);
+        profile.add(P, null, "m:a/0", 0);
+        profile.add(P, TraceType.CALL, null, 0);
+
+        assertThat(profile.getFunctions(TraceProfile.BY_NAME)).isEmpty();
+    }
+
+    @Test
+    public void deepStacksAreCut() throws IOException {
+        for (int i = 0; i < TraceProfile.MAX_DEPTH + 2; i++) {
+            call(P, "m:f" + i + "/0", i);
+        }
+        ret(P, "m:f0/0", 1000);
+
+        for (final String line : stacks().split("\n")) {
+            final String stack = line.substring(0, line.lastIndexOf(' '));
+            assertThat(stack.split(";").length).isAtMost(TraceProfile.MAX_DEPTH + 1);
+        }
+    }
+
+    @Test
+    public void functionsAreSorted() {
+        call(P, "m:a/0", 0);
+        ret(P, "m:a/0", 5);
+        call(P, "m:b/0", 10);
+        call(P, "m:b/0", 20);
+        ret(P, "m:b/0", 25);
+        ret(P, "m:b/0", 100);
+
+        final List<FunctionProfile> byCalls = profile
+                .getFunctions(TraceProfile.BY_CALLS);
+        assertThat(byCalls.get(0).getFunction()).isEqualTo("m:b/0");
+        final List<FunctionProfile> byTime = profile
+                .getFunctions(TraceProfile.BY_INCLUSIVE_TIME);
+        assertThat(byTime.get(0).getFunction()).isEqualTo("m:b/0");
+        final List<FunctionProfile> byName = profile.getFunctions(TraceProfile.BY_NAME);
+        assertThat(byName.get(0).getFunction()).isEqualTo("m:a/0");
+    }
+
+}
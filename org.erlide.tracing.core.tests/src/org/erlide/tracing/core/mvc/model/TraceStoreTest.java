@@ -0,0 +1,388 @@
+package org.erlide.tracing.core.mvc.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.erlide.tracing.core.TraceType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpOutputStream;
+import com.google.common.collect.Lists;
+
+public class TraceStoreTest {
+
+    private static final OtpErlangPid P1 = new OtpErlangPid("a@h", 1, 0, 0);
+    private static final OtpErlangPid P2 = new OtpErlangPid("a@h", 2, 0, 0);
+    private static final OtpErlangPid Q1 = new OtpErlangPid("b@h", 1, 0, 0);
+
+    private File dir;
+    private TraceStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("tracestore").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+        delete(dir);
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static OtpErlangObject atom(final String name) {
+        return new OtpErlangAtom(name);
+    }
+
+    private static OtpErlangTuple tuple(final OtpErlangObject... elements) {
+        return new OtpErlangTuple(elements);
+    }
+
+    private static OtpErlangTuple mfa(final String m, final String f,
+            final OtpErlangObject args) {
+        return tuple(atom(m), atom(f), args);
+    }
+
+    private static OtpErlangTuple now(final long micros) {
+        return tuple(new OtpErlangLong(micros / 1000000000000L),
+                new OtpErlangLong(micros / 1000000 % 1000000),
+                new OtpErlangLong(micros % 1000000));
+    }
+
+    /**
+     * <code>{trace_ts, Pid, Tag, Extra..., Timestamp}</code>
+     */
+    private static OtpErlangTuple event(final OtpErlangPid pid, final String tag,
+            final long micros, final OtpErlangObject... extra) {
+        final OtpErlangObject[] elements = new OtpErlangObject[extra.length + 4];
+        elements[0] = atom("trace_ts");
+        elements[1] = pid;
+        elements[2] = atom(tag);
+        System.arraycopy(extra, 0, elements, 3, extra.length);
+        elements[elements.length - 1] = now(micros);
+        return new OtpErlangTuple(elements);
+    }
+
+    private static byte[] termToBinary(final OtpErlangObject term) {
+        final OtpOutputStream out = new OtpOutputStream();
+        out.write1(131);
+        out.write_any(term);
+        return out.toByteArray();
+    }
+
+    private static void putInt(final ByteArrayOutputStream out, final int n) {
+        out.write(n >>> 24);
+        out.write(n >>> 16);
+        out.write(n >>> 8);
+        out.write(n);
+    }
+
+    /**
+     * Trace records: an event is written as tag 0, a number as a note of that
+     * many dropped events (tag 1).
+     */
+    private static byte[] records(final Object... records) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (final Object record : records) {
+            if (record instanceof Integer) {
+                out.write(1);
+                putInt(out, (Integer) record);
+            } else {
+                final byte[] bin = termToBinary((OtpErlangObject) record);
+                out.write(0);
+                putInt(out, bin.length);
+                out.write(bin, 0, bin.length);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] meta(final OtpErlangObject... terms) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (final OtpErlangObject term : terms) {
+            final byte[] bin = termToBinary(term);
+            if (bin.length > 255) {
+                final byte[] size = termToBinary(
+                        tuple(atom("$size"), new OtpErlangLong(bin.length)));
+                out.write(size.length);
+                out.write(size, 0, size.length);
+            } else {
+                out.write(bin.length);
+            }
+            out.write(bin, 0, bin.length);
+        }
+        return out.toByteArray();
+    }
+
+    private File write(final String name, final byte[] bytes) throws IOException {
+        final File file = new File(dir, name);
+        file.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+        return file;
+    }
+
+    private List<Long> timestamps() {
+        final List<Long> result = Lists.newArrayList();
+        for (int i = 0; i < store.size(); i++) {
+            result.add(store.getTimestamp(i));
+        }
+        return result;
+    }
+
+    private List<OtpErlangObject> processes() {
+        final List<OtpErlangObject> result = Lists.newArrayList();
+        for (int i = 0; i < store.size(); i++) {
+            result.add(store.getProcess(i));
+        }
+        return result;
+    }
+
+    @Test
+    public void indexesEveryTraceTag() throws IOException {
+        final OtpErlangList args = new OtpErlangList(
+                new OtpErlangObject[] { new OtpErlangLong(1), atom("x") });
+        final OtpErlangObject f2 = mfa("m", "f", args);
+        final OtpErlangObject f2a = mfa("m", "f", new OtpErlangLong(2));
+        final List<Object> records = Lists.newArrayList();
+        final long t = 1400000000000000L;
+        for (final TraceType type : TraceType.values()) {
+            final String tag = type.name().toLowerCase();
+            switch (type) {
+            case CALL:
+                records.add(event(P1, tag, t, f2));
+                break;
+            case RETURN_FROM:
+                records.add(event(P1, tag, t, f2a, atom("ok")));
+                break;
+            case EXCEPTION_FROM:
+                records.add(event(P1, tag, t, f2a, tuple(atom("error"), atom("x"))));
+                break;
+            case RETURN_TO:
+            case IN:
+            case OUT:
+                records.add(event(P1, tag, t, f2a));
+                break;
+            case SPAWN:
+                records.add(event(P1, tag, t, P2, f2));
+                break;
+            case SEND:
+            case SEND_TO_NON_EXISTING_PROCESS:
+                records.add(event(P1, tag, t, atom("msg"), P2));
+                break;
+            default:
+                records.add(event(P1, tag, t, atom("info")));
+            }
+        }
+        final int traced = records.size();
+        records.add(event(P1, "unknown_tag", t, atom("info")));
+        records.add(5);
+        records.add(tuple(atom("not_a"), atom("trace_event")));
+        write("node.trace", records(records.toArray()));
+        store = TraceStore.open(new File(dir, "node.trace"));
+
+        assertThat(store.size()).isEqualTo(traced + 3);
+        final TraceType[] types = TraceType.values();
+        for (int i = 0; i < traced; i++) {
+            assertThat(store.getType(i)).isEqualTo(types[i]);
+            assertThat(store.getProcess(i)).isEqualTo(P1);
+            assertThat(store.getTimestamp(i)).isEqualTo(t);
+            assertThat(store.isDrop(i)).isFalse();
+            switch (types[i]) {
+            case CALL:
+            case SPAWN:
+            case RETURN_FROM:
+            case RETURN_TO:
+            case EXCEPTION_FROM:
+            case IN:
+            case OUT:
+                assertThat(store.getFunction(i)).isEqualTo("m:f/2");
+                break;
+            default:
+                assertThat(store.getFunction(i)).isNull();
+            }
+            assertThat(store.getRecord(i)).isEqualTo(records.get(i));
+        }
+
+        assertThat(store.getType(traced)).isNull();
+        assertThat(store.getProcess(traced)).isEqualTo(P1);
+        assertThat(store.isDrop(traced)).isFalse();
+
+        assertThat(store.isDrop(traced + 1)).isTrue();
+        assertThat(store.getType(traced + 1)).isNull();
+        assertThat(store.getTimestamp(traced + 1)).isEqualTo(0L);
+        assertThat(store.getRecord(traced + 1))
+                .isEqualTo(tuple(atom("drop"), new OtpErlangLong(5)));
+
+        assertThat(store.getType(traced + 2)).isNull();
+        assertThat(store.getProcess(traced + 2)).isNull();
+        assertThat(store.getTimestamp(traced + 2)).isEqualTo(0L);
+    }
+
+    @Test
+    public void argumentsGivenAsStringsCountAsArity() throws IOException {
+        write("node.trace", records(event(P1, "call", 1L,
+                mfa("m", "f", new OtpErlangString("ab")))));
+        store = TraceStore.open(new File(dir, "node.trace"));
+
+        assertThat(store.getFunction(0)).isEqualTo("m:f/2");
+    }
+
+    @Test
+    public void eventsAreShownWithProcessInfoAndMarkedArguments() throws IOException {
+        final OtpErlangObject info = tuple(atom("worker"), mfa("m", "init",
+                new OtpErlangLong(1)));
+        final StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            big.append('x');
+        }
+        // the second one needs a $size prefix
+        write("node.trace.ti", meta(tuple(atom("node"), atom("a@h")),
+                tuple(atom("pid"), tuple(P1, info)),
+                tuple(atom("pid"), tuple(P2, new OtpErlangString(big.toString())))));
+        final OtpErlangList args = new OtpErlangList(new OtpErlangLong(1));
+        write("node.trace", records(event(P1, "call", 2000000L, mfa("m", "f", args)),
+                event(P2, "exit", 3000000L, atom("normal")),
+                event(P1, "send", 4000000L, atom("msg"), P2)));
+        store = TraceStore.open(new File(dir, "node.trace"));
+
+        final OtpErlangTuple call = (OtpErlangTuple) store.getEvent(0);
+        assertThat(call.elementAt(1)).isEqualTo(tuple(P1, info, atom("a@h")));
+        assertThat(call.elementAt(3)).isEqualTo(mfa("m", "f",
+                new OtpErlangList(new OtpErlangObject[] {
+                        atom("avoid_interpreting_as_string"), new OtpErlangLong(1) })));
+        // local {{Y, M, D}, {H, Mi, S}}
+        assertThat(((OtpErlangTuple) call.elementAt(4)).arity()).isEqualTo(2);
+
+        final OtpErlangTuple exit = (OtpErlangTuple) store.getEvent(1);
+        assertThat(exit.elementAt(1)).isEqualTo(
+                tuple(P2, new OtpErlangString(big.toString()), atom("a@h")));
+
+        final OtpErlangTuple send = (OtpErlangTuple) store.getEvent(2);
+        assertThat(send.elementAt(4)).isEqualTo(
+                tuple(P2, new OtpErlangString(big.toString()), atom("a@h")));
+
+        final OtpErlangTuple fileInfo = store.getFileInfo();
+        assertThat(fileInfo.arity()).isEqualTo(5);
+        assertThat(fileInfo.elementAt(4)).isEqualTo(new OtpErlangLong(3));
+        assertThat(store.getStartDate().getTime()).isEqualTo(2000L);
+        assertThat(store.getEndDate().getTime()).isEqualTo(4000L);
+    }
+
+    @Test
+    public void truncatedRecordsAreDropped() throws IOException {
+        final byte[] whole = records(event(P1, "exit", 1L, atom("a")),
+                event(P1, "exit", 2L, atom("b")));
+        final byte[] last = records(event(P1, "exit", 3L, atom("c")));
+
+        // cut in the payload of the last record
+        final byte[] cutPayload = Arrays.copyOf(whole, whole.length + last.length - 3);
+        System.arraycopy(last, 0, cutPayload, whole.length, last.length - 3);
+        write("payload.trace", cutPayload);
+        store = TraceStore.open(new File(dir, "payload.trace"));
+        assertThat(timestamps()).containsExactly(1L, 2L).inOrder();
+        store.close();
+
+        // cut in the header of the last record
+        write("header.trace", Arrays.copyOf(cutPayload, whole.length + 3));
+        store = TraceStore.open(new File(dir, "header.trace"));
+        assertThat(timestamps()).containsExactly(1L, 2L).inOrder();
+        store.close();
+
+        // not a record at all
+        final byte[] garbage = Arrays.copyOf(whole, whole.length + 5);
+        garbage[whole.length] = 7;
+        write("garbage.trace", garbage);
+        store = TraceStore.open(new File(dir, "garbage.trace"));
+        assertThat(timestamps()).containsExactly(1L, 2L).inOrder();
+    }
+
+    @Test
+    public void emptyResult() throws IOException {
+        write("node.trace", new byte[0]);
+        store = TraceStore.open(new File(dir, "node.trace"));
+
+        assertThat(store.size()).isEqualTo(0);
+        assertThat(store.getStartDate()).isNull();
+        assertThat(store.getFileInfo())
+                .isEqualTo(tuple(atom("file_info"), atom("empty")));
+    }
+
+    @Test
+    public void wrapFilesAreReadInWrapOrder() throws IOException {
+        write("a@h-ttb.ti", meta(tuple(atom("node"), atom("a@h"))));
+        write("a@h-ttb.10.wrp", records(event(P1, "exit", 10L, atom("x"))));
+        write("a@h-ttb.2.wrp", records(event(P1, "exit", 2L, atom("x"))));
+        write("a@h-ttb.1.wrp", records(event(P1, "exit", 1L, atom("x")),
+                event(P1, "exit", 1L, atom("y"))));
+        // no meta data file, so not part of the result
+        write("other.1.wrp", records(event(P1, "exit", 5L, atom("x"))));
+        store = TraceStore.open(dir);
+
+        assertThat(timestamps()).containsExactly(1L, 1L, 2L, 10L).inOrder();
+    }
+
+    @Test
+    public void nodesAreMergedByTimestamp() throws IOException {
+        write("a@h-ttb.ti", meta(tuple(atom("node"), atom("a@h"))));
+        write("a@h-ttb", records(event(P1, "exit", 1L, atom("x")),
+                event(P1, "exit", 3L, atom("x")), event(P2, "exit", 3L, atom("x")),
+                event(P1, "exit", 6L, atom("x"))));
+        write("b@h-ttb.ti", meta(tuple(atom("node"), atom("b@h"))));
+        write("b@h-ttb", records(event(Q1, "exit", 2L, atom("x")),
+                event(Q1, "exit", 3L, atom("y")), event(Q1, "exit", 7L, atom("x"))));
+        store = TraceStore.open(dir);
+
+        assertThat(timestamps()).containsExactly(1L, 2L, 3L, 3L, 3L, 6L, 7L).inOrder();
+        // on equal timestamps, the node whose file comes first wins
+        assertThat(processes()).containsExactly(P1, Q1, P1, P2, Q1, P1, Q1).inOrder();
+        // each record is still read from its own file
+        assertThat(((OtpErlangTuple) store.getRecord(4)).elementAt(3))
+                .isEqualTo(atom("y"));
+    }
+
+    @Test
+    public void partialResultsAreMergedToo() throws IOException {
+        write("a@h-ttb.ti", meta(tuple(atom("node"), atom("a@h"))));
+        write("a@h-ttb", records(event(P1, "exit", 1L, atom("x")),
+                event(P1, "exit", 4L, atom("x"))));
+        write("ttb_partial_result_1/a@h-ttb.ti",
+                meta(tuple(atom("node"), atom("a@h")),
+                        tuple(atom("pid"), tuple(P2, atom("late")))));
+        write("ttb_partial_result_1/a@h-ttb", records(event(P2, "exit", 2L, atom("x"))));
+        store = TraceStore.open(dir);
+
+        assertThat(timestamps()).containsExactly(1L, 2L, 4L).inOrder();
+        assertThat(((OtpErlangTuple) store.getEvent(1)).elementAt(1))
+                .isEqualTo(tuple(P2, atom("late"), atom("a@h")));
+    }
+
+}
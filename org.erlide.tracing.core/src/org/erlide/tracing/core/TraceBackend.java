@@ -1,11 +1,15 @@
 package org.erlide.tracing.core;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -17,7 +21,9 @@ import org.erlide.runtime.events.ErlangEventHandler;
 import org.erlide.runtime.rpc.RpcException;
 import org.erlide.runtime.runtimeinfo.RuntimeInfo;
 import org.erlide.tracing.core.mvc.model.TraceCollections;
+import org.erlide.tracing.core.mvc.model.TraceStore;
 import org.erlide.tracing.core.mvc.model.TracePattern;
+import org.erlide.tracing.core.mvc.model.TraceProfile;
 import org.erlide.tracing.core.mvc.model.TracedNode;
 import org.erlide.tracing.core.mvc.model.TracedProcess;
 import org.erlide.tracing.core.mvc.model.treenodes.ITreeNode;
@@ -29,9 +35,7 @@ import org.erlide.util.ErlLogger;
 import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangInt;
 import com.ericsson.otp.erlang.OtpErlangList;
-import com.ericsson.otp.erlang.OtpErlangLong;
 import com.ericsson.otp.erlang.OtpErlangObject;
-import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 import com.google.common.eventbus.Subscribe;
 
@@ -50,13 +54,12 @@ public class TraceBackend {
     private static final String FUN_TP = "tp";
     private static final String FUN_TPL = "tpl";
     private static final String FUN_START = "start";
-    private static final String FUN_FILE_INFO = "get_file_info";
-    private static final String FUN_LOAD = "load";
 
     private final Set<TracePattern> tracePatterns = new LinkedHashSet<>();
     private final Set<TracedNode> tracedNodes = new LinkedHashSet<>();
     private final List<ITraceNodeObserver> listeners = new ArrayList<>();
     private final Set<ProcessFlag> processFlags = new HashSet<>();
+    private final Map<String, TraceStore> stores = new HashMap<>();
     private TracedProcess[] processes;
     private ProcessMode processMode;
     private IBackend tracerBackend;
@@ -93,9 +96,6 @@ public class TraceBackend {
 
         @Subscribe
         public void handleEvent(final ErlEvent event) {
-            if (!event.getTopic().equals(getTopic())) {
-                return;
-            }
             final OtpErlangObject message = event.getEvent();
             if (message != null) {
                 OtpErlangObject errorReason = null;
@@ -151,6 +151,10 @@ public class TraceBackend {
                 if (!tracing) {
                     try {
                         tracing = true;
+                        if (handler != null) {
+                            // kept until now to get the trace data loaded
+                            tracerBackend.getRuntime().unregisterEventListener(handler);
+                        }
                         getBackend(true);
                         loadingFileInfo = true;
                         handler = new TraceEventHandler();
@@ -310,19 +314,25 @@ public class TraceBackend {
         if (!tracing && !loading) {
             synchronized (this) {
                 if (!tracing && !loading) {
+                    loading = true;
+                    loadingFileInfo = true;
+                    TracingStatus status;
                     try {
-                        loading = true;
-                        loadingFileInfo = true;
-                        handler = new TraceEventHandler();
-                        getBackend(true);
-                        tracerBackend.getRuntime().registerEventListener(handler);
-                        tracerBackend.getOtpRpc().call(Constants.ERLANG_HELPER_MODULE,
-                                FUN_FILE_INFO, "s", new OtpErlangString(path));
-                    } catch (final RpcException e) {
+                        final TraceStore store = getStore(path);
+                        final ITreeNode node = new TraceDataHandler().getData(store
+                                .getFileInfo());
+                        if (node != null) {
+                            TraceCollections.getFilesList().add(node);
+                            status = TracingStatus.OK;
+                        } else {
+                            status = TracingStatus.EMPTY;
+                        }
+                    } catch (final IOException e) {
                         ErlLogger.error(e);
                         errorObject = e;
-                        finishLoading(TracingStatus.EXCEPTION_THROWN);
+                        status = TracingStatus.EXCEPTION_THROWN;
                     }
+                    finishLoading(status);
                 }
             }
         }
@@ -342,36 +352,79 @@ public class TraceBackend {
         if (!tracing && !loading) {
             synchronized (this) {
                 if (!tracing && !loading) {
+                    loading = true;
+                    loadingFileInfo = false;
+                    startIndex = theStartIndex;
+                    TraceCollections.getTracesList().clear();
+                    TracingStatus status = TracingStatus.OK;
                     try {
-                        loading = true;
-                        loadingFileInfo = false;
-                        startIndex = theStartIndex;
-                        handler = new TraceEventHandler();
-                        getBackend(true);
-                        TraceCollections.getTracesList().clear();
-                        tracerBackend.getRuntime().registerEventListener(handler);
-                        final OtpErlangLong start = new OtpErlangLong(theStartIndex);
-                        final OtpErlangLong stop = new OtpErlangLong(endIndex);
-                        tracerBackend.getOtpRpc()
-                                .call(Constants.ERLANG_HELPER_MODULE, FUN_LOAD, "sii",
-                                        new OtpErlangString(
-                                                activeResultSet.getFileName()),
-                                        start, stop);
-                    } catch (final RpcException e) {
+                        final TraceStore store = getStore(activeResultSet.getFileName());
+                        final TraceDataHandler dataHandler = new TraceDataHandler();
+                        final int last = (int) Math.min(endIndex, store.size());
+                        for (int i = (int) Math.max(theStartIndex, 1); i <= last; i++) {
+                            final ITreeNode node = dataHandler.getData(store
+                                    .getEvent(i - 1));
+                            if (node != null) {
+                                TraceCollections.getTracesList().add(node);
+                            }
+                        }
+                    } catch (final IOException e) {
                         ErlLogger.error(e);
                         errorObject = e;
-                        finishLoading(TracingStatus.EXCEPTION_THROWN);
+                        status = TracingStatus.EXCEPTION_THROWN;
                     }
+                    finishLoading(status);
                 }
             }
         }
     }
 
+    /**
+     * Aggregates the calls of all the traces of a result set.
+     *
+     * @param results
+     *            results set
+     * @return call counts and times per function
+     * @throws IOException
+     *             if the results can't be read
+     */
+    public synchronized TraceProfile createProfile(final TracingResultsNode results)
+            throws IOException {
+        final TraceProfile profile = new TraceProfile();
+        profile.addAll(getStore(results.getFileName()));
+        return profile;
+    }
+
+    /**
+     * Returns the store of a tracing result, reading it when needed. Results
+     * of the tracer are given relative to the directory it was started in.
+     */
+    private TraceStore getStore(final String path) throws IOException {
+        TraceStore store = stores.get(path);
+        if (store == null) {
+            File file = new File(path);
+            if (!file.isAbsolute() && tracerBackend != null) {
+                file = new File(tracerBackend.getData().getWorkingDir(), path);
+            }
+            store = TraceStore.open(file);
+            stores.put(path, store);
+        }
+        return store;
+    }
+
+    private void closeStores() {
+        for (final TraceStore store : stores.values()) {
+            store.close();
+        }
+        stores.clear();
+    }
+
     /**
      * Removes tracing results from list.
      */
     public synchronized void clearTraceLists() {
         activeResultSet = null;
+        closeStores();
         TraceCollections.getFilesList().clear();
         TraceCollections.getTracesList().clear();
         for (final ITraceNodeObserver listener : listeners) {
@@ -392,6 +445,10 @@ public class TraceBackend {
     public synchronized void removeTracingResult(final TracingResultsNode tracingResult) {
         activeResultSet = null;
         TraceCollections.getFilesList().remove(tracingResult);
+        final TraceStore store = stores.remove(tracingResult.getFileName());
+        if (store != null) {
+            store.close();
+        }
         TraceCollections.getTracesList().clear();
         for (final ITraceNodeObserver listener : listeners) {
             try {
@@ -0,0 +1,73 @@
+package org.erlide.tracing.core.mvc.model;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A trace file mapped into memory in regions of at most 1GB, so that files
+ * bigger than what a single buffer can address can be read too.
+ */
+final class TraceFile implements Closeable {
+
+    private static final long REGION_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] regions;
+
+    TraceFile(final File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        size = channel.size();
+        regions = new MappedByteBuffer[(int) ((size + REGION_SIZE - 1) / REGION_SIZE)];
+        for (int i = 0; i < regions.length; i++) {
+            final long start = i * REGION_SIZE;
+            regions[i] = channel.map(MapMode.READ_ONLY, start,
+                    Math.min(REGION_SIZE, size - start));
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Copy <code>length</code> bytes starting at <code>position</code> into
+     * <code>dst</code>. Safe to call from several threads.
+     */
+    void read(final long position, final byte[] dst, final int length)
+            throws IOException {
+        if (position + length > size) {
+            throw new EOFException();
+        }
+        final int region = (int) (position / REGION_SIZE);
+        final int offset = (int) (position % REGION_SIZE);
+        if (offset + length <= regions[region].capacity()) {
+            final ByteBuffer buffer = regions[region].duplicate();
+            buffer.position(offset);
+            buffer.get(dst, 0, length);
+        } else {
+            // crosses a region boundary
+            final ByteBuffer buffer = ByteBuffer.wrap(dst, 0, length);
+            long p = position;
+            while (buffer.hasRemaining()) {
+                final int n = channel.read(buffer, p);
+                if (n < 0) {
+                    throw new EOFException();
+                }
+                p += n;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,293 @@
+package org.erlide.tracing.core.mvc.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.erlide.tracing.core.TraceType;
+
+/**
+ * Call counts and time spent per function, aggregated from trace events as
+ * they are read.
+ *
+ * <p>
+ * A <code>call</code> event is paired with the <code>return_from</code> or
+ * <code>exception_from</code> of the same function in the same process, so
+ * times are only known for functions traced with a return trace match spec.
+ * Inclusive time of recursive calls is counted once, for the outermost call.
+ * Exclusive time is the inclusive time minus that of the traced callees.
+ * </p>
+ *
+ * <p>
+ * Memory doesn't grow with the number of events: only the open calls of each
+ * live process, one entry per function and one entry per distinct call stack
+ * are kept. Stacks deeper than {@value #MAX_DEPTH} are cut, and once
+ * {@link #MAX_STACKS} stacks are known, new ones are counted as
+ * <code>[other]</code>.
+ * </p>
+ */
+public class TraceProfile {
+
+    public static final int MAX_DEPTH = 64;
+    public static final int MAX_STACKS = Integer.getInteger(
+            "erlide.tracing.profile.stacks", 50000);
+    private static final String OTHER_STACK = "[other]";
+
+    /**
+     * The aggregated calls of one function. Times are in microseconds.
+     */
+    public static final class FunctionProfile {
+        private final String function;
+        private long calls;
+        private long inclusiveTime;
+        private long exclusiveTime;
+
+        FunctionProfile(final String function) {
+            this.function = function;
+        }
+
+        public String getFunction() {
+            return function;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getInclusiveTime() {
+            return inclusiveTime;
+        }
+
+        public long getExclusiveTime() {
+            return exclusiveTime;
+        }
+    }
+
+    public static final Comparator<FunctionProfile> BY_CALLS =
+            new Comparator<FunctionProfile>() {
+                @Override
+                public int compare(final FunctionProfile a, final FunctionProfile b) {
+                    return Long.compare(b.calls, a.calls);
+                }
+            };
+
+    public static final Comparator<FunctionProfile> BY_INCLUSIVE_TIME =
+            new Comparator<FunctionProfile>() {
+                @Override
+                public int compare(final FunctionProfile a, final FunctionProfile b) {
+                    return Long.compare(b.inclusiveTime, a.inclusiveTime);
+                }
+            };
+
+    public static final Comparator<FunctionProfile> BY_EXCLUSIVE_TIME =
+            new Comparator<FunctionProfile>() {
+                @Override
+                public int compare(final FunctionProfile a, final FunctionProfile b) {
+                    return Long.compare(b.exclusiveTime, a.exclusiveTime);
+                }
+            };
+
+    public static final Comparator<FunctionProfile> BY_NAME =
+            new Comparator<FunctionProfile>() {
+                @Override
+                public int compare(final FunctionProfile a, final FunctionProfile b) {
+                    return a.function.compareTo(b.function);
+                }
+            };
+
+    private static final class Frame {
+        final FunctionProfile profile;
+        final long start;
+        final String stack;
+        final boolean recursive;
+        long calleesTime;
+
+        Frame(final FunctionProfile profile, final long start, final String stack,
+                final boolean recursive) {
+            this.profile = profile;
+            this.start = start;
+            this.stack = stack;
+            this.recursive = recursive;
+        }
+    }
+
+    private final Map<String, FunctionProfile> functions = new HashMap<>();
+    private final Map<Object, List<Frame>> openCalls = new HashMap<>();
+    private final Map<String, long[]> stacks = new HashMap<>();
+    private long unmatchedReturns;
+
+    /**
+     * Add one trace event.
+     *
+     * @param process
+     *            the traced process
+     * @param type
+     *            the kind of event; events that don't change the call stack
+     *            are ignored
+     * @param function
+     *            the function as <code>module:function/arity</code>, or
+     *            <code>null</code>
+     * @param timestamp
+     *            in microseconds
+     */
+    public void add(final Object process, final TraceType type, final String function,
+            final long timestamp) {
+        if (process == null || type == null) {
+            return;
+        }
+        switch (type) {
+        case CALL:
+            if (function != null) {
+                call(process, function, timestamp);
+            }
+            break;
+        case RETURN_FROM:
+        case EXCEPTION_FROM:
+            if (function != null) {
+                leave(process, function, timestamp);
+            }
+            break;
+        case EXIT:
+            // the calls that are still open will never return
+            openCalls.remove(process);
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Add all the events of a tracing result, in order.
+     */
+    public void addAll(final TraceStore store) {
+        for (int i = 0; i < store.size(); i++) {
+            add(store.getProcess(i), store.getType(i), store.getFunction(i),
+                    store.getTimestamp(i));
+        }
+    }
+
+    private void call(final Object process, final String function, final long timestamp) {
+        FunctionProfile profile = functions.get(function);
+        if (profile == null) {
+            profile = new FunctionProfile(function);
+            functions.put(function, profile);
+        }
+        profile.calls++;
+
+        List<Frame> frames = openCalls.get(process);
+        if (frames == null) {
+            frames = new ArrayList<>();
+            openCalls.put(process, frames);
+        }
+        boolean recursive = false;
+        for (final Frame frame : frames) {
+            if (frame.profile == profile) {
+                recursive = true;
+                break;
+            }
+        }
+        final String stack;
+        if (frames.isEmpty()) {
+            stack = String.valueOf(process) + ";" + function;
+        } else if (frames.size() < MAX_DEPTH) {
+            stack = frames.get(frames.size() - 1).stack + ";" + function;
+        } else {
+            stack = frames.get(frames.size() - 1).stack;
+        }
+        frames.add(new Frame(profile, timestamp, stack, recursive));
+    }
+
+    private void leave(final Object process, final String function,
+            final long timestamp) {
+        final List<Frame> frames = openCalls.get(process);
+        if (frames == null) {
+            unmatchedReturns++;
+            return;
+        }
+        // calls that weren't traced on return are closed with their caller
+        int i = frames.size() - 1;
+        while (i >= 0 && !frames.get(i).profile.function.equals(function)) {
+            i--;
+        }
+        if (i < 0) {
+            unmatchedReturns++;
+            return;
+        }
+        while (frames.size() > i) {
+            close(frames.remove(frames.size() - 1), frames, timestamp);
+        }
+        if (frames.isEmpty()) {
+            openCalls.remove(process);
+        }
+    }
+
+    private void close(final Frame frame, final List<Frame> callers,
+            final long timestamp) {
+        final long time = Math.max(0, timestamp - frame.start);
+        final long self = Math.max(0, time - frame.calleesTime);
+        if (!frame.recursive) {
+            frame.profile.inclusiveTime += time;
+        }
+        frame.profile.exclusiveTime += self;
+        if (!callers.isEmpty()) {
+            callers.get(callers.size() - 1).calleesTime += time;
+        }
+        long[] total = stacks.get(frame.stack);
+        if (total == null) {
+            if (stacks.size() < MAX_STACKS) {
+                total = new long[1];
+                stacks.put(frame.stack, total);
+            } else {
+                total = stacks.get(OTHER_STACK);
+                if (total == null) {
+                    total = new long[1];
+                    stacks.put(OTHER_STACK, total);
+                }
+            }
+        }
+        total[0] += self;
+    }
+
+    /**
+     * The functions that were called, in the given order.
+     */
+    public List<FunctionProfile> getFunctions(final Comparator<FunctionProfile> order) {
+        final List<FunctionProfile> result = new ArrayList<>(functions.values());
+        Collections.sort(result, order);
+        return result;
+    }
+
+    /**
+     * The number of returns that didn't match any open call, e.g. because
+     * tracing started while the function was running.
+     */
+    public long getUnmatchedReturns() {
+        return unmatchedReturns;
+    }
+
+    /**
+     * Write the time spent in each call stack in the "folded stacks" format
+     * read by flame graph tools: one line per stack, with the process and the
+     * functions separated by semicolons, followed by the exclusive time in
+     * microseconds.
+     */
+    public void writeFoldedStacks(final Writer writer) throws IOException {
+        final List<String> keys = new ArrayList<>(stacks.keySet());
+        Collections.sort(keys);
+        for (final String key : keys) {
+            final long time = stacks.get(key)[0];
+            if (time > 0) {
+                writer.write(key.replace(' ', '_'));
+                writer.write(' ');
+                writer.write(Long.toString(time));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,692 @@
+package org.erlide.tracing.core.mvc.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.erlide.tracing.core.TraceType;
+import org.erlide.util.ErlLogger;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpInputStream;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Trace events of one tracing result, read directly from the files written by
+ * the tracer.
+ *
+ * <p>
+ * The files are memory mapped and indexed once: for every event only its
+ * position in the file and a few columns (timestamp, process, trace type and
+ * function) are kept, in primitive arrays. The events of several nodes are
+ * merged by timestamp, like <code>ttb:format</code> does. A complete event is
+ * only decoded when it is asked for, so a result of any size can be paged
+ * through without going through the tracer node.
+ * </p>
+ *
+ * <p>
+ * Each file is a sequence of records made of a tag byte and a 32 bit length:
+ * tag 0 is followed by an event in external term format, tag 1 means that
+ * <code>length</code> events were dropped. The <code>.ti</code> file of a
+ * trace file holds the names and initial calls of the traced processes.
+ * </p>
+ */
+public final class TraceStore implements Closeable {
+
+    private static final String META_SUFFIX = ".ti";
+    private static final String PARTIAL_RESULT = "ttb_partial_result";
+    private static final String TRACE_TS = "trace_ts";
+    private static final OtpErlangAtom DROP = new OtpErlangAtom("drop");
+    private static final OtpErlangAtom ARGS_MARKER = new OtpErlangAtom(
+            "avoid_interpreting_as_string");
+
+    private static final byte TYPE_OTHER = -1;
+    private static final byte TYPE_DROP = -2;
+    private static final TraceType[] TYPES = TraceType.values();
+
+    private final String path;
+    private final TraceFile[] files;
+    private final Map<OtpErlangObject, OtpErlangObject> processInfo;
+    private final List<OtpErlangObject> processes;
+    private final List<String> functions;
+
+    private final int size;
+    private final long[] timestamps;
+    private final byte[] types;
+    private final int[] processIds;
+    private final int[] functionIds;
+    private final short[] fileIds;
+    private final long[] positions;
+    private final int[] lengths;
+    private final long startTime;
+    private final long endTime;
+
+    private TraceStore(final String path, final TraceFile[] files,
+            final Map<OtpErlangObject, OtpErlangObject> processInfo,
+            final Indexer indexer, final Columns merged) {
+        this.path = path;
+        this.files = files;
+        this.processInfo = processInfo;
+        processes = indexer.processes;
+        functions = indexer.functions;
+        size = merged.size;
+        timestamps = Arrays.copyOf(merged.timestamps, size);
+        types = Arrays.copyOf(merged.types, size);
+        processIds = Arrays.copyOf(merged.processIds, size);
+        functionIds = Arrays.copyOf(merged.functionIds, size);
+        fileIds = Arrays.copyOf(merged.fileIds, size);
+        positions = Arrays.copyOf(merged.positions, size);
+        lengths = Arrays.copyOf(merged.lengths, size);
+        long start = -1;
+        long end = -1;
+        for (int i = 0; i < size; i++) {
+            if (types[i] != TYPE_DROP && timestamps[i] != 0) {
+                if (start < 0) {
+                    start = timestamps[i];
+                }
+                end = timestamps[i];
+            }
+        }
+        startTime = start;
+        endTime = end;
+    }
+
+    /**
+     * Read and index a tracing result: either a directory as created by the
+     * tracer, or a single trace file.
+     */
+    public static TraceStore open(final File path) throws IOException {
+        final List<List<File>> sources = Lists.newArrayList();
+        final List<File> metaFiles = Lists.newArrayList();
+        if (path.isDirectory()) {
+            final List<File> dirs = Lists.newArrayList(path);
+            final File[] partials = path.listFiles(new FileFilter() {
+                @Override
+                public boolean accept(final File file) {
+                    return file.isDirectory()
+                            && file.getName().startsWith(PARTIAL_RESULT);
+                }
+            });
+            if (partials != null) {
+                Arrays.sort(partials);
+                dirs.addAll(Arrays.asList(partials));
+            }
+            for (final File dir : dirs) {
+                collectFiles(dir, sources, metaFiles);
+            }
+        } else {
+            sources.add(Lists.newArrayList(path));
+            metaFiles.add(new File(path.getPath() + META_SUFFIX));
+        }
+
+        final Map<OtpErlangObject, OtpErlangObject> processInfo = Maps.newHashMap();
+        for (final File metaFile : metaFiles) {
+            readProcessInfo(metaFile, processInfo);
+        }
+
+        final List<TraceFile> traceFiles = Lists.newArrayList();
+        final Indexer indexer = new Indexer();
+        final List<Columns> columns = Lists.newArrayList();
+        try {
+            for (final List<File> source : sources) {
+                final Columns c = new Columns();
+                for (final File file : source) {
+                    final TraceFile traceFile = new TraceFile(file);
+                    traceFiles.add(traceFile);
+                    indexer.index(traceFile, (short) (traceFiles.size() - 1), c);
+                }
+                columns.add(c);
+            }
+        } catch (final IOException e) {
+            for (final TraceFile traceFile : traceFiles) {
+                traceFile.close();
+            }
+            throw e;
+        }
+        return new TraceStore(path.getPath(),
+                traceFiles.toArray(new TraceFile[traceFiles.size()]), processInfo,
+                indexer, merge(columns));
+    }
+
+    /**
+     * The trace files of a directory are the ones that have a meta data file.
+     * A trace file that was written as a wrap log is a series of files.
+     */
+    private static void collectFiles(final File dir, final List<List<File>> sources,
+            final List<File> metaFiles) {
+        final File[] metas = dir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(final File file) {
+                return file.isFile() && file.getName().endsWith(META_SUFFIX);
+            }
+        });
+        if (metas == null) {
+            return;
+        }
+        Arrays.sort(metas);
+        for (final File meta : metas) {
+            final String name = meta.getName();
+            final String base = name.substring(0, name.length() - META_SUFFIX.length());
+            final File file = new File(dir, base);
+            if (file.isFile()) {
+                sources.add(Lists.newArrayList(file));
+            } else {
+                final File[] wraps = dir.listFiles(new FileFilter() {
+                    @Override
+                    public boolean accept(final File f) {
+                        return f.getName().startsWith(base + ".")
+                                && f.getName().endsWith(".wrp");
+                    }
+                });
+                if (wraps == null || wraps.length == 0) {
+                    continue;
+                }
+                Arrays.sort(wraps, new Comparator<File>() {
+                    @Override
+                    public int compare(final File a, final File b) {
+                        return Long.compare(wrapIndex(a, base), wrapIndex(b, base));
+                    }
+                });
+                sources.add(Lists.newArrayList(wraps));
+            }
+            metaFiles.add(meta);
+        }
+    }
+
+    private static long wrapIndex(final File file, final String base) {
+        final String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(base.length() + 1, name.length() - 4));
+        } catch (final NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * The meta data file is a sequence of terms, each preceded by its size in
+     * one byte; a bigger term is preceded by <code>{'$size', Size}</code>
+     * instead. Process information is stored as <code>{pid, {Pid, Info}}</code>
+     * and shown as <code>{Pid, Info, Node}</code>.
+     */
+    private static void readProcessInfo(final File metaFile,
+            final Map<OtpErlangObject, OtpErlangObject> processInfo) {
+        if (!metaFile.isFile()) {
+            return;
+        }
+        try {
+            final byte[] bytes = Files.readAllBytes(metaFile.toPath());
+            final List<OtpErlangTuple> pids = Lists.newArrayList();
+            OtpErlangObject node = new OtpErlangAtom("unknown");
+            int p = 0;
+            while (p < bytes.length) {
+                int length = bytes[p++] & 0xff;
+                OtpErlangObject term = decode(bytes, p, length);
+                p += length;
+                if (isTagged(term, "$size")) {
+                    length = (int) ((OtpErlangLong) ((OtpErlangTuple) term).elementAt(1))
+                            .longValue();
+                    term = decode(bytes, p, length);
+                    p += length;
+                }
+                if (isTagged(term, "pid")) {
+                    pids.add((OtpErlangTuple) ((OtpErlangTuple) term).elementAt(1));
+                } else if (isTagged(term, "node")) {
+                    node = ((OtpErlangTuple) term).elementAt(1);
+                }
+            }
+            for (final OtpErlangTuple pid : pids) {
+                processInfo.put(pid.elementAt(0), new OtpErlangTuple(
+                        new OtpErlangObject[] { pid.elementAt(0), pid.elementAt(1),
+                                node }));
+            }
+        } catch (final Exception e) {
+            ErlLogger.warn("Could not read trace meta data from %s: %s", metaFile, e);
+        }
+    }
+
+    private static boolean isTagged(final OtpErlangObject term, final String tag) {
+        if (term instanceof OtpErlangTuple) {
+            final OtpErlangTuple t = (OtpErlangTuple) term;
+            return t.arity() == 2 && t.elementAt(0) instanceof OtpErlangAtom
+                    && ((OtpErlangAtom) t.elementAt(0)).atomValue().equals(tag);
+        }
+        return false;
+    }
+
+    private static OtpErlangObject decode(final byte[] bytes, final int offset,
+            final int length) throws OtpErlangDecodeException {
+        return new OtpInputStream(bytes, offset, length, 0).read_any();
+    }
+
+    private static Columns merge(final List<Columns> sources) {
+        if (sources.size() == 1) {
+            return sources.get(0);
+        }
+        int total = 0;
+        for (final Columns c : sources) {
+            total += c.size;
+        }
+        final Columns result = new Columns(total);
+        final int[] next = new int[sources.size()];
+        // heads of all sources, ordered by timestamp, then by source
+        final PriorityQueue<Integer> heads = new PriorityQueue<>(
+                Math.max(1, sources.size()), new Comparator<Integer>() {
+                    @Override
+                    public int compare(final Integer a, final Integer b) {
+                        final long ta = sources.get(a).timestamps[next[a]];
+                        final long tb = sources.get(b).timestamps[next[b]];
+                        return ta != tb ? Long.compare(ta, tb) : Integer.compare(a, b);
+                    }
+                });
+        for (int s = 0; s < sources.size(); s++) {
+            if (sources.get(s).size > 0) {
+                heads.add(s);
+            }
+        }
+        while (!heads.isEmpty()) {
+            final int s = heads.poll();
+            final Columns c = sources.get(s);
+            result.add(c, next[s]);
+            next[s]++;
+            if (next[s] < c.size) {
+                heads.add(s);
+            }
+        }
+        return result;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * The number of records, including the notes about dropped events.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The time of the first event, or <code>null</code> if there are none.
+     */
+    public Date getStartDate() {
+        return startTime < 0 ? null : new Date(startTime / 1000);
+    }
+
+    /**
+     * The time of the last event, or <code>null</code> if there are none.
+     */
+    public Date getEndDate() {
+        return endTime < 0 ? null : new Date(endTime / 1000);
+    }
+
+    /**
+     * Microseconds since the epoch, or 0 if the record has no timestamp.
+     */
+    public long getTimestamp(final int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * The kind of trace event, or <code>null</code> if the record is not one.
+     */
+    public TraceType getType(final int index) {
+        final byte type = types[index];
+        return type >= 0 ? TYPES[type] : null;
+    }
+
+    public boolean isDrop(final int index) {
+        return types[index] == TYPE_DROP;
+    }
+
+    /**
+     * The traced process (or port), or <code>null</code> if the record is not
+     * a trace event.
+     */
+    public OtpErlangObject getProcess(final int index) {
+        final int id = processIds[index];
+        return id < 0 ? null : processes.get(id);
+    }
+
+    /**
+     * The function of the event as <code>module:function/arity</code>, or
+     * <code>null</code> if it isn't about a function.
+     */
+    public String getFunction(final int index) {
+        final int id = functionIds[index];
+        return id < 0 ? null : functions.get(id);
+    }
+
+    /**
+     * The record decoded from the file, as produced by the tracer.
+     */
+    public OtpErlangObject getRecord(final int index) throws IOException {
+        if (types[index] == TYPE_DROP) {
+            return new OtpErlangTuple(new OtpErlangObject[] { DROP,
+                    new OtpErlangLong(lengths[index] & 0xffffffffL) });
+        }
+        final byte[] bytes = new byte[lengths[index]];
+        files[fileIds[index]].read(positions[index], bytes, bytes.length);
+        try {
+            return decode(bytes, 0, bytes.length);
+        } catch (final OtpErlangDecodeException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * The record as it is shown: processes are described with their name or
+     * initial call and node, the timestamp is converted to local time and
+     * argument lists are marked so that they aren't taken for strings.
+     */
+    public OtpErlangObject getEvent(final int index) throws IOException {
+        final OtpErlangObject record = getRecord(index);
+        if (!(record instanceof OtpErlangTuple) || types[index] == TYPE_DROP) {
+            return record;
+        }
+        final OtpErlangTuple tuple = (OtpErlangTuple) record;
+        if (!isTraceEvent(tuple)) {
+            return record;
+        }
+        final OtpErlangObject[] elements = tuple.elements();
+        final TraceType type = getType(index);
+        if (type == TraceType.SEND || type == TraceType.SEND_TO_NON_EXISTING_PROCESS) {
+            elements[4] = describeProcess(elements[4]);
+        } else {
+            elements[1] = describeProcess(elements[1]);
+        }
+        if (type == TraceType.CALL && elements.length == 5) {
+            elements[3] = markArguments(elements[3]);
+        } else if (type == TraceType.SPAWN && elements.length == 6) {
+            elements[4] = markArguments(elements[4]);
+        }
+        elements[elements.length - 1] = localTime(timestamps[index]);
+        return new OtpErlangTuple(elements);
+    }
+
+    private OtpErlangObject describeProcess(final OtpErlangObject process) {
+        final OtpErlangObject info = processInfo.get(process);
+        return info != null ? info : process;
+    }
+
+    private static OtpErlangObject markArguments(final OtpErlangObject mfa) {
+        if (!(mfa instanceof OtpErlangTuple) || ((OtpErlangTuple) mfa).arity() != 3) {
+            return mfa;
+        }
+        final OtpErlangTuple t = (OtpErlangTuple) mfa;
+        final OtpErlangObject args = t.elementAt(2);
+        final OtpErlangObject[] marked;
+        if (args instanceof OtpErlangList) {
+            final OtpErlangObject[] list = ((OtpErlangList) args).elements();
+            marked = new OtpErlangObject[list.length + 1];
+            System.arraycopy(list, 0, marked, 1, list.length);
+        } else if (args instanceof OtpErlangString) {
+            final OtpErlangObject[] list = new OtpErlangList(
+                    ((OtpErlangString) args).stringValue()).elements();
+            marked = new OtpErlangObject[list.length + 1];
+            System.arraycopy(list, 0, marked, 1, list.length);
+        } else {
+            return mfa;
+        }
+        marked[0] = ARGS_MARKER;
+        return new OtpErlangTuple(new OtpErlangObject[] { t.elementAt(0),
+                t.elementAt(1), new OtpErlangList(marked) });
+    }
+
+    /**
+     * A summary of the result:
+     * <code>{file_info, Start, End, Path, Count}</code>, or
+     * <code>{file_info, empty}</code> if it has no trace events.
+     */
+    public OtpErlangTuple getFileInfo() {
+        final OtpErlangAtom tag = new OtpErlangAtom("file_info");
+        if (startTime < 0) {
+            return new OtpErlangTuple(new OtpErlangObject[] { tag,
+                    new OtpErlangAtom("empty") });
+        }
+        return new OtpErlangTuple(new OtpErlangObject[] { tag, localTime(startTime),
+                localTime(endTime), new OtpErlangString(path), new OtpErlangLong(size) });
+    }
+
+    /**
+     * <code>{{Year, Month, Day}, {Hour, Minute, Second}}</code> in local time.
+     */
+    private static OtpErlangTuple localTime(final long micros) {
+        final Calendar c = Calendar.getInstance();
+        c.setTimeInMillis(micros / 1000);
+        return new OtpErlangTuple(new OtpErlangObject[] {
+                new OtpErlangTuple(new OtpErlangObject[] {
+                        new OtpErlangLong(c.get(Calendar.YEAR)),
+                        new OtpErlangLong(c.get(Calendar.MONTH) + 1),
+                        new OtpErlangLong(c.get(Calendar.DAY_OF_MONTH)) }),
+                new OtpErlangTuple(new OtpErlangObject[] {
+                        new OtpErlangLong(c.get(Calendar.HOUR_OF_DAY)),
+                        new OtpErlangLong(c.get(Calendar.MINUTE)),
+                        new OtpErlangLong(c.get(Calendar.SECOND)) }) });
+    }
+
+    private static boolean isTraceEvent(final OtpErlangTuple tuple) {
+        return tuple.arity() >= 4 && tuple.elementAt(0) instanceof OtpErlangAtom
+                && ((OtpErlangAtom) tuple.elementAt(0)).atomValue().equals(TRACE_TS);
+    }
+
+    @Override
+    public void close() {
+        for (final TraceFile file : files) {
+            try {
+                file.close();
+            } catch (final IOException e) {
+                ErlLogger.warn(e);
+            }
+        }
+    }
+
+    /**
+     * Scans trace files and fills the columns. Processes and functions are
+     * shared by all the files of a result.
+     */
+    private static final class Indexer {
+        final List<OtpErlangObject> processes = Lists.newArrayList();
+        final List<String> functions = Lists.newArrayList();
+        private final Map<OtpErlangObject, Integer> processIds = Maps.newHashMap();
+        private final Map<String, Integer> functionIds = Maps.newHashMap();
+        private byte[] buffer = new byte[256];
+
+        void index(final TraceFile file, final short fileId, final Columns columns)
+                throws IOException {
+            final byte[] header = new byte[5];
+            long p = 0;
+            final long end = file.size();
+            while (p + header.length <= end) {
+                file.read(p, header, header.length);
+                final int tag = header[0];
+                final int length = (header[1] & 0xff) << 24 | (header[2] & 0xff) << 16
+                        | (header[3] & 0xff) << 8 | header[4] & 0xff;
+                p += header.length;
+                if (tag == 1) {
+                    columns.add(0, TYPE_DROP, -1, -1, fileId, p, length);
+                    continue;
+                }
+                if (tag != 0 || length < 0 || p + length > end) {
+                    // a file cut short while the tracer was writing it
+                    ErlLogger.warn("Trace file truncated at %d", p - header.length);
+                    break;
+                }
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                file.read(p, buffer, length);
+                OtpErlangObject term;
+                try {
+                    term = decode(buffer, 0, length);
+                } catch (final OtpErlangDecodeException e) {
+                    term = null;
+                }
+                add(term, fileId, p, length, columns);
+                p += length;
+            }
+        }
+
+        private void add(final OtpErlangObject term, final short fileId,
+                final long position, final int length, final Columns columns) {
+            long timestamp = 0;
+            byte type = TYPE_OTHER;
+            int process = -1;
+            int function = -1;
+            if (term instanceof OtpErlangTuple && isTraceEvent((OtpErlangTuple) term)) {
+                final OtpErlangTuple t = (OtpErlangTuple) term;
+                timestamp = toMicros(t.elementAt(t.arity() - 1));
+                process = processId(t.elementAt(1));
+                if (t.elementAt(2) instanceof OtpErlangAtom) {
+                    final String name = ((OtpErlangAtom) t.elementAt(2)).atomValue();
+                    try {
+                        type = (byte) TraceType.valueOf(name.toUpperCase()).ordinal();
+                    } catch (final IllegalArgumentException e) {
+                        type = TYPE_OTHER;
+                    }
+                }
+                if (type >= 0) {
+                    function = functionId(TYPES[type], t);
+                }
+            }
+            columns.add(timestamp, type, process, function, fileId, position, length);
+        }
+
+        private int processId(final OtpErlangObject process) {
+            Integer id = processIds.get(process);
+            if (id == null) {
+                id = processes.size();
+                processes.add(process);
+                processIds.put(process, id);
+            }
+            return id;
+        }
+
+        private int functionId(final TraceType type, final OtpErlangTuple t) {
+            final OtpErlangObject mfa;
+            switch (type) {
+            case CALL:
+            case RETURN_FROM:
+            case RETURN_TO:
+            case EXCEPTION_FROM:
+            case IN:
+            case OUT:
+                mfa = t.elementAt(3);
+                break;
+            case SPAWN:
+                mfa = t.arity() > 5 ? t.elementAt(4) : null;
+                break;
+            default:
+                mfa = null;
+            }
+            if (!(mfa instanceof OtpErlangTuple) || ((OtpErlangTuple) mfa).arity() != 3) {
+                return -1;
+            }
+            final OtpErlangTuple m = (OtpErlangTuple) mfa;
+            final OtpErlangObject args = m.elementAt(2);
+            final String arity;
+            if (args instanceof OtpErlangList) {
+                arity = String.valueOf(((OtpErlangList) args).arity());
+            } else if (args instanceof OtpErlangString) {
+                arity = String.valueOf(((OtpErlangString) args).stringValue().length());
+            } else {
+                arity = args.toString();
+            }
+            final String name = m.elementAt(0) + ":" + m.elementAt(1) + "/" + arity;
+            Integer id = functionIds.get(name);
+            if (id == null) {
+                id = functions.size();
+                functions.add(name);
+                functionIds.put(name, id);
+            }
+            return id;
+        }
+
+        private static long toMicros(final OtpErlangObject now) {
+            if (!(now instanceof OtpErlangTuple) || ((OtpErlangTuple) now).arity() != 3) {
+                return 0;
+            }
+            final OtpErlangTuple t = (OtpErlangTuple) now;
+            try {
+                return (((OtpErlangLong) t.elementAt(0)).longValue() * 1000000
+                        + ((OtpErlangLong) t.elementAt(1)).longValue()) * 1000000
+                        + ((OtpErlangLong) t.elementAt(2)).longValue();
+            } catch (final ClassCastException e) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Growable columns, used while indexing.
+     */
+    private static final class Columns {
+        int size;
+        long[] timestamps;
+        byte[] types;
+        int[] processIds;
+        int[] functionIds;
+        short[] fileIds;
+        long[] positions;
+        int[] lengths;
+
+        Columns() {
+            this(1024);
+        }
+
+        Columns(final int capacity) {
+            timestamps = new long[capacity];
+            types = new byte[capacity];
+            processIds = new int[capacity];
+            functionIds = new int[capacity];
+            fileIds = new short[capacity];
+            positions = new long[capacity];
+            lengths = new int[capacity];
+        }
+
+        void add(final long timestamp, final byte type, final int process,
+                final int function, final short fileId, final long position,
+                final int length) {
+            if (size == timestamps.length) {
+                final int capacity = Math.max(16, size * 2);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                types = Arrays.copyOf(types, capacity);
+                processIds = Arrays.copyOf(processIds, capacity);
+                functionIds = Arrays.copyOf(functionIds, capacity);
+                fileIds = Arrays.copyOf(fileIds, capacity);
+                positions = Arrays.copyOf(positions, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            timestamps[size] = timestamp;
+            types[size] = type;
+            processIds[size] = process;
+            functionIds[size] = function;
+            fileIds[size] = fileId;
+            positions[size] = position;
+            lengths[size] = length;
+            size++;
+        }
+
+        void add(final Columns from, final int i) {
+            add(from.timestamps[i], from.types[i], from.processIds[i],
+                    from.functionIds[i], from.fileIds[i], from.positions[i],
+                    from.lengths[i]);
+        }
+    }
+}
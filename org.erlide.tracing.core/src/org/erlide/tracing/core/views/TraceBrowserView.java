@@ -1,11 +1,21 @@
 package org.erlide.tracing.core.views;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.debug.ui.DebugUITools;
 import org.eclipse.debug.ui.IDebugUIConstants;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.dialogs.ProgressMonitorDialog;
+import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.jface.viewers.ISelectionChangedListener;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.SelectionChangedEvent;
@@ -16,6 +26,7 @@ import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.DirectoryDialog;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.ISharedImages;
 import org.eclipse.ui.PlatformUI;
@@ -46,6 +57,7 @@ public class TraceBrowserView extends ViewPart implements ITraceNodeObserver {
     private Action removeAllAction;
     private Action loadAction;
     private Action removeAction;
+    private Action exportAction;
     private RunnableWithProgress task;
     private TracingStatus status;
 
@@ -128,6 +140,20 @@ public class TraceBrowserView extends ViewPart implements ITraceNodeObserver {
                 DebugUITools.getImageDescriptor(IDebugUIConstants.IMG_LCL_REMOVE));
         removeAction.setToolTipText("Remove selected");
 
+        exportAction = new Action() {
+            @Override
+            public void run() {
+                final TracingResultsNode node = (TracingResultsNode) ((IStructuredSelection) treeViewer
+                        .getSelection()).getFirstElement();
+                if (node != null) {
+                    exportFlameGraph(node);
+                }
+            }
+        };
+        exportAction.setImageDescriptor(PlatformUI.getWorkbench().getSharedImages()
+                .getImageDescriptor(ISharedImages.IMG_ETOOL_SAVEAS_EDIT));
+        exportAction.setToolTipText("Export selected as flame graph stacks...");
+
         removeAllAction = new Action() {
             @Override
             public void run() {
@@ -140,12 +166,14 @@ public class TraceBrowserView extends ViewPart implements ITraceNodeObserver {
 
         final IToolBarManager manager = getViewSite().getActionBars().getToolBarManager();
         manager.add(loadAction);
+        manager.add(exportAction);
         manager.add(removeAction);
         manager.add(removeAllAction);
     }
 
     private void enableActions(final boolean enabled) {
         loadAction.setEnabled(enabled);
+        exportAction.setEnabled(enabled);
         removeAction.setEnabled(enabled);
         removeAllAction.setEnabled(enabled);
         treeViewer.getTree().setEnabled(enabled);
@@ -210,6 +238,52 @@ public class TraceBrowserView extends ViewPart implements ITraceNodeObserver {
         }
     }
 
+    /**
+     * Writes the time spent in each call stack of a result set, in the format
+     * read by flame graph tools. The result set is read and aggregated in the
+     * background while a progress dialog is shown.
+     *
+     * @param node
+     *            results set
+     */
+    private void exportFlameGraph(final TracingResultsNode node) {
+        final FileDialog dialog = new FileDialog(PlatformUI.getWorkbench().getDisplay()
+                .getActiveShell(), SWT.SAVE);
+        dialog.setText("Export flame graph stacks...");
+        dialog.setFileName("stacks.folded");
+        dialog.setOverwrite(true);
+        final String selected = dialog.open();
+        if (selected == null) {
+            return;
+        }
+        final IRunnableWithProgress export = new IRunnableWithProgress() {
+            @Override
+            public void run(final IProgressMonitor monitor)
+                    throws InvocationTargetException {
+                monitor.beginTask("Export flame graph stacks...",
+                        IProgressMonitor.UNKNOWN);
+                try (Writer writer = new OutputStreamWriter(
+                        new FileOutputStream(selected), StandardCharsets.UTF_8)) {
+                    TraceBackend.getInstance().createProfile(node)
+                            .writeFoldedStacks(writer);
+                } catch (final IOException e) {
+                    throw new InvocationTargetException(e);
+                } finally {
+                    monitor.done();
+                }
+            }
+        };
+        try {
+            new ProgressMonitorDialog(getSite().getShell()).run(true, false, export);
+        } catch (final InvocationTargetException e) {
+            ErlLogger.error(e.getCause());
+            MessageDialog.openError(getSite().getShell(), "Export failed",
+                    e.getCause().getMessage());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private void doAfterLoadingFile() {
         if (TracingStatus.OK.equals(status)) {
             treeViewer.refresh();
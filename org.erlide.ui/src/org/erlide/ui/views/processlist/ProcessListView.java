@@ -95,6 +95,7 @@ public class ProcessListView extends ViewPart {
 
         @Override
         public void dispose() {
+            getBackend().getRuntime().unregisterEventListener(handler);
         }
 
         @Override
@@ -127,9 +128,6 @@ public class ProcessListView extends ViewPart {
 
             @Subscribe
             public void handleEvent(final ErlEvent event) {
-                if (!event.getTopic().equals(getTopic())) {
-                    return;
-                }
                 DisplayUtils.asyncExec(new Runnable() {
                     @Override
                     public void run() {
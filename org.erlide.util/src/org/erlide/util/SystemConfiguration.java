@@ -16,6 +16,7 @@ public final class SystemConfiguration {
     private int warnProcessSizeLimitMB;
     private int killProcessSizeLimitMB;
     private int maxParallelBuilds;
+    private int maxCompilesInFlight;
     private static final int MIN_WARN_LIMIT = 5;
     private static final int MIN_KILL_LIMIT = 10;
 
@@ -30,6 +31,8 @@ public final class SystemConfiguration {
         setKillProcessSizeLimit(
                 System.getProperty("erlide.process.heap.kill.limit", "50"));
         setMaxParallelBuilds(System.getProperty("erlide.max.parallel.builds", "4"));
+        setMaxCompilesInFlight(
+                System.getProperty("erlide.max.compiles.in.flight", "32"));
     }
 
     public boolean isDeveloper() {
@@ -134,4 +137,21 @@ public final class SystemConfiguration {
     public int getMaxParallelBuilds() {
         return maxParallelBuilds;
     }
+
+    private void setMaxCompilesInFlight(final String text) {
+        try {
+            maxCompilesInFlight = Integer.parseInt(text);
+        } catch (final Exception e) {
+            maxCompilesInFlight = 32;
+        }
+        maxCompilesInFlight = Math.max(maxCompilesInFlight, 1);
+    }
+
+    /**
+     * How many compile requests a build may have outstanding on the build
+     * backend at the same time.
+     */
+    public int getMaxCompilesInFlight() {
+        return maxCompilesInFlight;
+    }
 }
@@ -0,0 +1,707 @@
+package org.erlide.wrangler.refactoring.duplicatedcode.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.services.parsing.ErlToken;
+import org.erlide.engine.services.parsing.ScannerException;
+import org.erlide.engine.services.parsing.SimpleScannerService;
+import org.erlide.util.ErlLogger;
+
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+
+/**
+ * Finds identical code in Erlang modules, without calling Wrangler.
+ *
+ * <p>
+ * Each module is scanned into a token stream where variables and literals
+ * are replaced by a placeholder and layout and comments are dropped, so code
+ * that only differs in these is found as a clone. The streams of all the
+ * modules are joined and sorted into a suffix array; runs of suffixes sharing
+ * a prefix of at least the minimal number of tokens are the clones. A clone
+ * never spans two forms.
+ * </p>
+ *
+ * <p>
+ * The token streams are kept between runs and a module is only scanned again
+ * when its file changed. They are dropped when the file is deleted or its
+ * project closed. Modules are scanned in parallel. Token ids are given
+ * by each detection, so they don't accumulate and concurrent detections don't
+ * share any state but the scanned modules.
+ * </p>
+ */
+public class CloneDetector {
+
+    private static final String VAR = "$var";
+    private static final String LITERAL = "$lit";
+    private static final String[] OPEN = { "(", "[", "{", "<<" };
+    private static final String[] CLOSE = { ")", "]", "}", ">>" };
+    private static final String[] SEPARATORS = { ",", ";", "->", "|", "||" };
+    private static final byte OPEN_ROLE = 1;
+    private static final byte CLOSE_ROLE = 2;
+    private static final byte SEPARATOR_ROLE = 3;
+
+    /**
+     * A scanned module. Tokens are kept as their normalized text, with
+     * <code>null</code> for the full stops ending forms.
+     */
+    static final class Module {
+        final String path;
+        final long lastModified;
+        final long length;
+        final String text;
+        final String[] tokens;
+        final int[] starts;
+        final int[] ends;
+        final int[] lineStarts;
+
+        Module(final String path, final long lastModified, final long length,
+                final String text, final String[] tokens, final int[] starts,
+                final int[] ends, final int[] lineStarts) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.text = text;
+            this.tokens = tokens;
+            this.starts = starts;
+            this.ends = ends;
+            this.lineStarts = lineStarts;
+        }
+
+        int line(final int offset) {
+            final int i = Arrays.binarySearch(lineStarts, offset);
+            return i >= 0 ? i : -i - 2;
+        }
+    }
+
+    /**
+     * One clone class: the positions in the joined token stream where the
+     * same <code>length</code> tokens occur.
+     */
+    private static final class Clone {
+        final int length;
+        final int[] positions;
+
+        Clone(final int length, final int[] positions) {
+            this.length = length;
+            this.positions = positions;
+        }
+    }
+
+    /**
+     * Dense ids for the distinct tokens of one detection.
+     */
+    private static final class TokenTable {
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        @SuppressWarnings("boxing")
+        int id(final String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = ids.size();
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        int size() {
+            return ids.size();
+        }
+    }
+
+    private static final CloneDetector instance = new CloneDetector();
+
+    private final Map<String, Module> modules = new ConcurrentHashMap<>();
+
+    public static CloneDetector getInstance() {
+        return instance;
+    }
+
+    /**
+     * Collects the Erlang source files in the given files and directories.
+     */
+    public static List<File> findSourceFiles(final Collection<String> paths) {
+        final List<File> result = new ArrayList<>();
+        for (final String path : paths) {
+            collectSourceFiles(new File(path), result);
+        }
+        return result;
+    }
+
+    private static void collectSourceFiles(final File file, final List<File> result) {
+        if (file.isDirectory()) {
+            final File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (final File child : children) {
+                    collectSourceFiles(child, result);
+                }
+            }
+        } else if (file.getName().endsWith(".erl") && file.isFile()) {
+            result.add(file);
+        }
+    }
+
+    /**
+     * Finds the code that occurs at least <code>minClones</code> times in the
+     * given files and is at least <code>minToks</code> tokens long.
+     *
+     * @return the clones in the form returned by
+     *         <code>wrangler_refacs:duplicated_code_eclipse</code>, to be read
+     *         by {@link DuplicateDetectionParser}
+     */
+    public OtpErlangList detect(final List<File> files, final int minToks,
+            final int minClones) throws IOException {
+        return findClones(scan(files), minToks, minClones);
+    }
+
+    /**
+     * Finds the clones in scanned modules, like {@link #detect}.
+     */
+    static OtpErlangList findClones(final List<Module> scanned, final int minToks,
+            final int minClones) {
+        final int minLength = Math.max(1, minToks);
+        final int minCount = Math.max(2, minClones);
+
+        final TokenTable table = new TokenTable();
+        final byte[] roles = roles(table);
+        int size = 0;
+        for (final Module module : scanned) {
+            size += module.tokens.length + 1;
+        }
+        // the token stream of all modules, each followed by a separator
+        final int[] text = new int[size];
+        final int[] moduleStarts = new int[scanned.size()];
+        int pos = 0;
+        for (int m = 0; m < scanned.size(); m++) {
+            final String[] tokens = scanned.get(m).tokens;
+            moduleStarts[m] = pos;
+            for (final String token : tokens) {
+                text[pos++] = token == null ? -1 : table.id(token);
+            }
+            text[pos++] = -1;
+        }
+        // separators and form ends get ids that occur only once, above the
+        // ids of all the tokens
+        int separator = table.size();
+        for (int i = 0; i < size; i++) {
+            if (text[i] < 0) {
+                text[i] = separator++;
+            }
+        }
+
+        final int[] sa = suffixArray(text);
+        final int[] lcp = lcp(text, sa);
+        final List<Clone> clones = clones(text, sa, lcp, roles, minLength,
+                minCount);
+        Collections.sort(clones, new Comparator<Clone>() {
+            @Override
+            public int compare(final Clone a, final Clone b) {
+                final int c = Integer.compare(b.length, a.length);
+                return c != 0 ? c : Integer.compare(a.positions[0], b.positions[0]);
+            }
+        });
+
+        final OtpErlangObject[] result = new OtpErlangObject[clones.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = toTerm(clones.get(i), scanned, moduleStarts);
+        }
+        return new OtpErlangList(result);
+    }
+
+    /**
+     * The role of each token id in the bracket structure of the code. The ids
+     * of the brackets and separators are the first ones of the table.
+     */
+    private static byte[] roles(final TokenTable table) {
+        final int[] open = new int[OPEN.length];
+        final int[] close = new int[CLOSE.length];
+        final int[] separators = new int[SEPARATORS.length];
+        for (int i = 0; i < OPEN.length; i++) {
+            open[i] = table.id(OPEN[i]);
+            close[i] = table.id(CLOSE[i]);
+        }
+        for (int i = 0; i < SEPARATORS.length; i++) {
+            separators[i] = table.id(SEPARATORS[i]);
+        }
+        final byte[] roles = new byte[table.size()];
+        for (final int id : open) {
+            roles[id] = OPEN_ROLE;
+        }
+        for (final int id : close) {
+            roles[id] = CLOSE_ROLE;
+        }
+        for (final int id : separators) {
+            roles[id] = SEPARATOR_ROLE;
+        }
+        return roles;
+    }
+
+    /**
+     * Forgets the scanned modules.
+     */
+    public void clear() {
+        modules.clear();
+    }
+
+    /**
+     * Forgets the modules whose file was deleted or is in a closed project.
+     */
+    private void prune() {
+        final IProject[] projects = ResourcesPlugin.getWorkspace().getRoot()
+                .getProjects();
+        for (final Iterator<Module> it = modules.values().iterator(); it.hasNext();) {
+            final Module module = it.next();
+            if (!new File(module.path).isFile()
+                    || inClosedProject(new Path(module.path), projects)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static boolean inClosedProject(final IPath path, final IProject[] projects) {
+        for (final IProject project : projects) {
+            final IPath location = project.getLocation();
+            if (!project.isOpen() && location != null && location.isPrefixOf(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Module> scan(final List<File> files) throws IOException {
+        prune();
+        final List<Module> result = new ArrayList<>(files.size());
+        final List<Future<Module>> pending = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+                Math.min(files.size(), Runtime.getRuntime().availableProcessors())));
+        try {
+            for (final File file : files) {
+                final String path = file.getAbsolutePath();
+                final Module module = modules.get(path);
+                if (module != null && module.lastModified == file.lastModified()
+                        && module.length == file.length()) {
+                    pending.add(null);
+                    result.add(module);
+                } else {
+                    pending.add(executor.submit(new Callable<Module>() {
+                        @Override
+                        public Module call() throws IOException, ScannerException {
+                            return scan(file);
+                        }
+                    }));
+                    result.add(null);
+                }
+            }
+            for (int i = 0; i < result.size(); i++) {
+                final Future<Module> future = pending.get(i);
+                if (future != null) {
+                    final Module module = future.get();
+                    modules.put(module.path, module);
+                    result.set(i, module);
+                }
+            }
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    private Module scan(final File file) throws IOException, ScannerException {
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        final String text = new String(Files.readAllBytes(file.toPath()), charset(file));
+        final SimpleScannerService scanner = ErlangEngine.getInstance()
+                .getSimpleScannerService();
+        return module(file.getAbsolutePath(), lastModified, length, text,
+                scanner.lightScanString(text, 0));
+    }
+
+    /**
+     * The charset of the workspace file at the given location, or the
+     * workspace's default one for files outside the workspace.
+     */
+    private static Charset charset(final File file) {
+        final IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+        try {
+            for (final IFile resource : root.findFilesForLocationURI(file.toURI())) {
+                if (resource.isAccessible()) {
+                    return Charset.forName(resource.getCharset());
+                }
+            }
+            return Charset.forName(root.getDefaultCharset());
+        } catch (final CoreException | IllegalArgumentException e) {
+            ErlLogger.warn(e);
+            return Charset.defaultCharset();
+        }
+    }
+
+    /**
+     * Normalizes the scanned tokens of a module. Equal token texts share one
+     * string.
+     */
+    static Module module(final String path, final long lastModified, final long length,
+            final String text, final List<ErlToken> all) {
+        final Map<String, String> values = new HashMap<>();
+        final String[] tokens = new String[all.size()];
+        final int[] starts = new int[all.size()];
+        final int[] ends = new int[all.size()];
+        int n = 0;
+        for (int i = 0; i < all.size(); i++) {
+            final ErlToken token = all.get(i);
+            final int kind = token.getKind();
+            if (kind == ErlToken.KIND_WHITESPACE || kind == ErlToken.KIND_COMMENT) {
+                continue;
+            }
+            final int start = token.getOffset();
+            final int end = start + token.getLength();
+            final String value;
+            switch (kind) {
+            case ErlToken.KIND_VAR:
+                value = VAR;
+                break;
+            case ErlToken.KIND_STRING:
+            case ErlToken.KIND_CHAR:
+            case ErlToken.KIND_INTEGER:
+            case ErlToken.KIND_FLOAT:
+                value = LITERAL;
+                break;
+            default:
+                value = text.substring(start, end);
+                break;
+            }
+            tokens[n] = ".".equals(value) && isFormEnd(all, i) ? null
+                    : share(values, value);
+            starts[n] = start;
+            ends[n] = end;
+            n++;
+        }
+        return new Module(path, lastModified, length, text,
+                Arrays.copyOf(tokens, n), Arrays.copyOf(starts, n),
+                Arrays.copyOf(ends, n), lineStarts(text));
+    }
+
+    private static String share(final Map<String, String> values, final String value) {
+        final String shared = values.get(value);
+        if (shared != null) {
+            return shared;
+        }
+        values.put(value, value);
+        return value;
+    }
+
+    private static boolean isFormEnd(final List<ErlToken> tokens, final int index) {
+        if (index + 1 == tokens.size()) {
+            return true;
+        }
+        final int kind = tokens.get(index + 1).getKind();
+        return kind == ErlToken.KIND_WHITESPACE || kind == ErlToken.KIND_COMMENT;
+    }
+
+    private static int[] lineStarts(final String text) {
+        int[] result = new int[64];
+        int n = 0;
+        result[n++] = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == '\n' || c == '\r'
+                    && (i + 1 == text.length() || text.charAt(i + 1) != '\n')) {
+                if (n == result.length) {
+                    result = Arrays.copyOf(result, n * 2);
+                }
+                result[n++] = i + 1;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Suffix array by prefix doubling, with radix sorted rank pairs.
+     */
+    static int[] suffixArray(final int[] text) {
+        final int n = text.length;
+        final int[] sa = new int[n];
+        if (n == 0) {
+            return sa;
+        }
+        // initial ranks: the tokens, numbered densely in their order
+        final int[] sorted = text.clone();
+        Arrays.sort(sorted);
+        int classes = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[classes++] = sorted[i];
+            }
+        }
+        int[] rank = new int[n];
+        int[] tmp = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[i] = Arrays.binarySearch(sorted, 0, classes, text[i]);
+        }
+        final int[] count = new int[n + 1];
+        final int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        sortByRank(order, rank, classes, count, sa);
+
+        for (int k = 1; classes < n; k <<= 1) {
+            // sa is sorted by the first k tokens; order the suffixes by their
+            // second half, those without one first, then sort by the first
+            int p = 0;
+            for (int i = n - k; i < n; i++) {
+                order[p++] = i;
+            }
+            for (int i = 0; i < n; i++) {
+                if (sa[i] >= k) {
+                    order[p++] = sa[i] - k;
+                }
+            }
+            sortByRank(order, rank, classes, count, sa);
+
+            tmp[sa[0]] = 0;
+            classes = 1;
+            for (int i = 1; i < n; i++) {
+                final int x = sa[i - 1];
+                final int y = sa[i];
+                final int rx = x + k < n ? rank[x + k] : -1;
+                final int ry = y + k < n ? rank[y + k] : -1;
+                if (rank[x] != rank[y] || rx != ry) {
+                    classes++;
+                }
+                tmp[y] = classes - 1;
+            }
+            final int[] t = rank;
+            rank = tmp;
+            tmp = t;
+        }
+        return sa;
+    }
+
+    /**
+     * Stable counting sort of <code>order</code> by rank into
+     * <code>sa</code>.
+     */
+    private static void sortByRank(final int[] order, final int[] rank,
+            final int classes, final int[] count, final int[] sa) {
+        Arrays.fill(count, 0, classes + 1, 0);
+        for (final int i : order) {
+            count[rank[i] + 1]++;
+        }
+        for (int i = 1; i <= classes; i++) {
+            count[i] += count[i - 1];
+        }
+        for (final int i : order) {
+            sa[count[rank[i]]++] = i;
+        }
+    }
+
+    /**
+     * Kasai's algorithm: <code>lcp[i]</code> is the length of the common
+     * prefix of the suffixes at <code>sa[i - 1]</code> and <code>sa[i]</code>.
+     */
+    static int[] lcp(final int[] text, final int[] sa) {
+        final int n = text.length;
+        final int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[sa[i]] = i;
+        }
+        final int[] lcp = new int[n];
+        int h = 0;
+        for (int i = 0; i < n; i++) {
+            if (rank[i] > 0) {
+                final int j = sa[rank[i] - 1];
+                while (i + h < n && j + h < n && text[i + h] == text[j + h]) {
+                    h++;
+                }
+                lcp[rank[i]] = h;
+                if (h > 0) {
+                    h--;
+                }
+            } else {
+                h = 0;
+            }
+        }
+        return lcp;
+    }
+
+    /**
+     * Walks the LCP intervals bottom up and keeps those that are long enough,
+     * occur often enough and can't be extended to the left.
+     */
+    private static List<Clone> clones(final int[] text, final int[] sa, final int[] lcp,
+            final byte[] roles, final int minLength, final int minCount) {
+        final List<Clone> result = new ArrayList<>();
+        final Set<Long> found = new HashSet<>();
+        final int n = sa.length;
+        final int[] stackLcp = new int[n + 1];
+        final int[] stackLb = new int[n + 1];
+        int top = 0;
+        stackLcp[0] = 0;
+        stackLb[0] = 0;
+        for (int i = 1; i <= n; i++) {
+            final int l = i < n ? lcp[i] : 0;
+            int lb = i - 1;
+            while (l < stackLcp[top]) {
+                final int length = stackLcp[top];
+                lb = stackLb[top];
+                top--;
+                if (length >= minLength && i - lb >= minCount) {
+                    addClone(result, found, text, sa, roles, lb, i - 1, length,
+                            minLength, minCount);
+                }
+            }
+            if (l > stackLcp[top]) {
+                top++;
+                stackLcp[top] = l;
+                stackLb[top] = lb;
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("boxing")
+    private static void addClone(final List<Clone> result, final Set<Long> found,
+            final int[] text, final int[] sa, final byte[] roles, final int lb,
+            final int rb, final int matched, final int minLength, final int minCount) {
+        final int[] positions = Arrays.copyOfRange(sa, lb, rb + 1);
+        // a clone that is always preceded by the same token is part of a
+        // longer one
+        boolean leftMaximal = false;
+        int before = -1;
+        for (final int p : positions) {
+            if (p == 0 || before != -1 && text[p - 1] != before) {
+                leftMaximal = true;
+                break;
+            }
+            before = text[p - 1];
+        }
+        if (!leftMaximal) {
+            return;
+        }
+
+        // keep the outermost balanced part, without separators at the ends
+        final int first = positions[0];
+        int depth = 0;
+        int minDepth = 0;
+        int start = 0;
+        int end = 0;
+        for (int i = 0; i <= matched; i++) {
+            if (depth < minDepth) {
+                minDepth = depth;
+                start = i;
+            }
+            if (depth == minDepth) {
+                end = i;
+            }
+            if (i < matched) {
+                final int role = role(roles, text[first + i]);
+                depth += role == OPEN_ROLE ? 1 : role == CLOSE_ROLE ? -1 : 0;
+            }
+        }
+        while (start < end && role(roles, text[first + start]) == SEPARATOR_ROLE) {
+            start++;
+        }
+        while (start < end && role(roles, text[first + end - 1]) == SEPARATOR_ROLE) {
+            end--;
+        }
+        final int length = end - start;
+        if (length < minLength) {
+            return;
+        }
+
+        // repetitions like "a, a, a" overlap themselves
+        Arrays.sort(positions);
+        int count = 0;
+        for (final int p : positions) {
+            if (count == 0 || p + start >= positions[count - 1] + length) {
+                positions[count++] = p + start;
+            }
+        }
+        if (count >= minCount && found.add((long) positions[0] << 32 | length)) {
+            result.add(new Clone(length, Arrays.copyOf(positions, count)));
+        }
+    }
+
+    private static int role(final byte[] roles, final int token) {
+        return token < roles.length ? roles[token] : 0;
+    }
+
+    private static OtpErlangObject toTerm(final Clone clone, final List<Module> scanned,
+            final int[] moduleStarts) {
+        final OtpErlangObject[] instances = new OtpErlangObject[clone.positions.length];
+        String code = "";
+        for (int i = 0; i < instances.length; i++) {
+            final int p = clone.positions[i];
+            int m = Arrays.binarySearch(moduleStarts, p);
+            if (m < 0) {
+                m = -m - 2;
+            }
+            final Module module = scanned.get(m);
+            final int first = p - moduleStarts[m];
+            final int start = module.starts[first];
+            final int end = module.ends[first + clone.length - 1];
+            if (i == 0) {
+                code = module.text.substring(start, end);
+            }
+            instances[i] = new OtpErlangTuple(new OtpErlangObject[] {
+                    position(module, start), position(module, end - 1) });
+        }
+        return new OtpErlangTuple(new OtpErlangObject[] {
+                new OtpErlangList(instances), new OtpErlangLong(clone.length),
+                new OtpErlangLong(instances.length), new OtpErlangString(code) });
+    }
+
+    /**
+     * <code>{File, Line, Column}</code>, both counted from 1.
+     */
+    private static OtpErlangTuple position(final Module module, final int offset) {
+        final int line = module.line(offset);
+        return new OtpErlangTuple(new OtpErlangObject[] {
+                new OtpErlangString(module.path), new OtpErlangLong(line + 1),
+                new OtpErlangLong(offset - module.lineStarts[line] + 1) });
+    }
+}
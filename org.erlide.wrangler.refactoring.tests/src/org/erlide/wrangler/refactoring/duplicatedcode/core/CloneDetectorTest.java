@@ -0,0 +1,283 @@
+package org.erlide.wrangler.refactoring.duplicatedcode.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.erlide.engine.services.parsing.ErlToken;
+import org.erlide.wrangler.refactoring.duplicatedcode.core.CloneDetector.Module;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+
+public class CloneDetectorTest {
+
+    private static final Pattern TOKEN = Pattern
+            .compile("(\\s+)|([A-Z_]\\w*)|(\\d+)|([a-z]\\w*)|->|\\|\\||<<|>>|.");
+
+    /**
+     * A module scanned by a tokenizer that knows just enough Erlang for the
+     * tests.
+     */
+    private static Module module(final String path, final String text) {
+        final List<ErlToken> tokens = new ArrayList<>();
+        final Matcher m = TOKEN.matcher(text);
+        while (m.find()) {
+            final int kind;
+            if (m.group(1) != null) {
+                kind = ErlToken.KIND_WHITESPACE;
+            } else if (m.group(2) != null) {
+                kind = ErlToken.KIND_VAR;
+            } else if (m.group(3) != null) {
+                kind = ErlToken.KIND_INTEGER;
+            } else if (m.group(4) != null) {
+                kind = ErlToken.KIND_ATOM;
+            } else {
+                kind = ErlToken.KIND_OTHER;
+            }
+            tokens.add(new ErlToken(kind, m.start(), m.end() - m.start()));
+        }
+        return CloneDetector.module(path, 0, text.length(), text, tokens);
+    }
+
+    private static List<OtpErlangTuple> clones(final int minToks, final int minClones,
+            final Module... modules) {
+        final OtpErlangList result = CloneDetector.findClones(Arrays.asList(modules),
+                minToks, minClones);
+        final List<OtpErlangTuple> clones = new ArrayList<>();
+        for (final OtpErlangObject clone : result) {
+            clones.add((OtpErlangTuple) clone);
+        }
+        return clones;
+    }
+
+    private static String code(final OtpErlangTuple clone) {
+        return ((OtpErlangString) clone.elementAt(3)).stringValue();
+    }
+
+    private static long length(final OtpErlangTuple clone) {
+        return ((OtpErlangLong) clone.elementAt(1)).longValue();
+    }
+
+    private static OtpErlangTuple position(final String path, final int line,
+            final int column) {
+        return new OtpErlangTuple(new OtpErlangObject[] { new OtpErlangString(path),
+                new OtpErlangLong(line), new OtpErlangLong(column) });
+    }
+
+    private static OtpErlangTuple instance(final OtpErlangTuple start,
+            final OtpErlangTuple end) {
+        return new OtpErlangTuple(new OtpErlangObject[] { start, end });
+    }
+
+    private static int[] naiveSuffixArray(final int[] text) {
+        final Integer[] order = new Integer[text.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                int i = a;
+                int j = b;
+                while (i < text.length && j < text.length) {
+                    if (text[i] != text[j]) {
+                        return Integer.compare(text[i], text[j]);
+                    }
+                    i++;
+                    j++;
+                }
+                // the shorter one is a prefix of the other
+                return Integer.compare(b, a);
+            }
+        });
+        final int[] result = new int[order.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    private static int[] naiveLcp(final int[] text, final int[] sa) {
+        final int[] result = new int[sa.length];
+        for (int i = 1; i < sa.length; i++) {
+            int h = 0;
+            while (sa[i - 1] + h < text.length && sa[i] + h < text.length
+                    && text[sa[i - 1] + h] == text[sa[i] + h]) {
+                h++;
+            }
+            result[i] = h;
+        }
+        return result;
+    }
+
+    @Test
+    public void suffixArrayAndLcpMatchNaiveOnes() {
+        final Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            final int length = random.nextInt(60);
+            final int alphabet = 1 + random.nextInt(round % 3 == 0 ? 2 : 20);
+            final int[] text = new int[length];
+            for (int i = 0; i < length; i++) {
+                text[i] = random.nextInt(alphabet) * 7;
+            }
+            final int[] sa = CloneDetector.suffixArray(text);
+            assertThat(sa).isEqualTo(naiveSuffixArray(text));
+            assertThat(CloneDetector.lcp(text, sa)).isEqualTo(naiveLcp(text, sa));
+        }
+    }
+
+    @Test
+    public void suffixArrayOfRepeatedToken() {
+        final int[] text = new int[100];
+        Arrays.fill(text, 3);
+        final int[] sa = CloneDetector.suffixArray(text);
+        assertThat(sa).isEqualTo(naiveSuffixArray(text));
+        assertThat(CloneDetector.lcp(text, sa)).isEqualTo(naiveLcp(text, sa));
+    }
+
+    @Test
+    public void clonesDifferingInVariablesAndLiteralsAreFound() {
+        final String a = "f(X) -> g(X, 1), h(X).\n";
+        final String b = "-module(b).\n\nk(Y) ->\n    g(Y, 2), h(Y).\n";
+        final List<OtpErlangTuple> clones = clones(5, 2, module("/a.erl", a),
+                module("/b.erl", b));
+
+        assertThat(clones).hasSize(1);
+        final OtpErlangTuple clone = clones.get(0);
+        assertThat(clone.arity()).isEqualTo(4);
+        // ( X ) -> g ( X , 1 ) , h ( X )
+        assertThat(length(clone)).isEqualTo(15L);
+        assertThat(clone.elementAt(2)).isEqualTo(new OtpErlangLong(2));
+        assertThat(code(clone)).isEqualTo("(X) -> g(X, 1), h(X)");
+        assertThat(clone.elementAt(0)).isEqualTo(new OtpErlangList(
+                new OtpErlangObject[] {
+                        instance(position("/a.erl", 1, 2), position("/a.erl", 1, 21)),
+                        instance(position("/b.erl", 3, 2),
+                                position("/b.erl", 4, 17)) }));
+    }
+
+    @Test
+    public void onlyLeftMaximalClonesAreReported() {
+        final String body = "g(A, B), h(A), i(B), j(A, B)";
+        final List<OtpErlangTuple> clones = clones(3, 2,
+                module("/a.erl", "f(A, B) -> " + body + ".\n"),
+                module("/b.erl", "k(A, B) -> " + body + ".\n"));
+
+        assertThat(code(clones.get(0))).isEqualTo("(A, B) -> " + body);
+        // the suffixes of the clone are always preceded by the same token, so
+        // they aren't reported on their own; only code that occurs elsewhere
+        // too, like "(A, B)", is
+        for (final OtpErlangTuple clone : clones.subList(1, clones.size())) {
+            assertThat(((OtpErlangLong) clone.elementAt(2)).longValue())
+                    .isGreaterThan(2L);
+        }
+    }
+
+    @Test
+    public void clonesAreTrimmedToBalancedCode() {
+        final List<OtpErlangTuple> clones = clones(4, 2,
+                module("/a.erl", "f() -> p(z, a, b), g(c, d).\n"),
+                module("/b.erl", "k() -> q(y, a, b), g(c, d).\n"));
+
+        // the shared ", a, b), g(c, d)" is cut after the closing bracket and
+        // the separator
+        assertThat(clones).hasSize(1);
+        assertThat(code(clones.get(0))).isEqualTo("g(c, d)");
+        assertThat(length(clones.get(0))).isEqualTo(6L);
+    }
+
+    @Test
+    public void clonesDontSpanForms() {
+        final List<OtpErlangTuple> clones = clones(3, 2,
+                module("/a.erl", "f() -> a.\ng() -> b.\n"),
+                module("/b.erl", "f() -> a.\ng() -> b.\n"));
+
+        for (final OtpErlangTuple clone : clones) {
+            assertThat(code(clone)).doesNotContain("\n");
+        }
+        assertThat(clones).hasSize(2);
+    }
+
+    @Test
+    public void overlappingInstancesAreDropped() {
+        final List<OtpErlangTuple> clones = clones(3, 2,
+                module("/a.erl", "f() -> [a, a, a, a, a, a, a].\n"));
+
+        assertThat(clones).isNotEmpty();
+        for (final OtpErlangTuple clone : clones) {
+            final OtpErlangObject[] instances = ((OtpErlangList) clone.elementAt(0))
+                    .elements();
+            assertThat((long) instances.length)
+                    .isEqualTo(((OtpErlangLong) clone.elementAt(2)).longValue());
+            assertThat(instances.length).isAtLeast(2);
+            for (int i = 1; i < instances.length; i++) {
+                final OtpErlangTuple previous = (OtpErlangTuple) instances[i - 1];
+                final OtpErlangTuple current = (OtpErlangTuple) instances[i];
+                assertThat(column(current.elementAt(0)))
+                        .isGreaterThan(column(previous.elementAt(1)));
+            }
+        }
+    }
+
+    private static long column(final OtpErlangObject position) {
+        return ((OtpErlangLong) ((OtpErlangTuple) position).elementAt(2)).longValue();
+    }
+
+    @Test
+    public void minimalCountIsRespected() {
+        final Module a = module("/a.erl", "f(X) -> g(X, 1), h(X).\n");
+        final Module b = module("/b.erl", "k(Y) -> g(Y, 2), h(Y).\n");
+        assertThat(clones(5, 3, a, b)).isEmpty();
+        assertThat(clones(15, 2, a, b)).hasSize(1);
+        assertThat(clones(16, 2, a, b)).isEmpty();
+    }
+
+    @Test
+    public void concurrentDetectionsDontInterfere() throws Exception {
+        final List<Module[]> inputs = new ArrayList<>();
+        final List<List<OtpErlangTuple>> expected = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final String body = "g" + i + "(A, B), h(A), i" + i + "(B)";
+            final Module[] modules = {
+                    module("/a" + i + ".erl", "f(A, B) -> " + body + ".\n"),
+                    module("/b" + i + ".erl", "k(A, B) -> x, " + body + ".\n") };
+            inputs.add(modules);
+            expected.add(clones(3, 2, modules));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                final List<Future<List<OtpErlangTuple>>> results = new ArrayList<>();
+                for (final Module[] modules : inputs) {
+                    results.add(executor.submit(new Callable<List<OtpErlangTuple>>() {
+                        @Override
+                        public List<OtpErlangTuple> call() {
+                            return clones(3, 2, modules);
+                        }
+                    }));
+                }
+                for (int i = 0; i < results.size(); i++) {
+                    assertThat(results.get(i).get()).isEqualTo(expected.get(i));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package org.erlide.wrangler.refactoring.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.junit.Test;
+
+public class ChangesetMakerTest {
+
+    /**
+     * Applies the edits made for <code>in</code> and <code>out</code> to a
+     * document holding <code>in</code>, and checks that it then holds
+     * <code>out</code>.
+     */
+    private static List<TextEdit> roundTrip(final String in, final String out)
+            throws BadLocationException {
+        final List<TextEdit> edits = ChangesetMaker.createEdits(in, out);
+        final MultiTextEdit all = new MultiTextEdit();
+        for (final TextEdit edit : edits) {
+            all.addChild(edit);
+        }
+        final IDocument document = new Document(in);
+        all.apply(document);
+        assertThat(document.get()).isEqualTo(out);
+        return edits;
+    }
+
+    @Test
+    public void equalTextsNeedNoEdits() throws BadLocationException {
+        assertThat(roundTrip("a\nb\n", "a\nb\n")).isEmpty();
+        assertThat(roundTrip("", "")).isEmpty();
+    }
+
+    @Test
+    public void emptyInputOrOutput() throws BadLocationException {
+        final List<TextEdit> inserted = roundTrip("", "a\nb\n");
+        assertThat(inserted).hasSize(1);
+        assertThat(inserted.get(0)).isInstanceOf(InsertEdit.class);
+
+        final List<TextEdit> deleted = roundTrip("a\nb\n", "");
+        assertThat(deleted).hasSize(1);
+        assertThat(deleted.get(0)).isInstanceOf(DeleteEdit.class);
+    }
+
+    @Test
+    public void pureInsertions() throws BadLocationException {
+        final List<TextEdit> edits = roundTrip("a\nc\ne\n", "a\nb\nc\nd\ne\nf\n");
+        for (final TextEdit edit : edits) {
+            assertThat(edit).isInstanceOf(InsertEdit.class);
+        }
+        roundTrip("foo(X) -> X.\n", "foo(X, Y) -> {X, Y}.\n");
+    }
+
+    @Test
+    public void pureDeletions() throws BadLocationException {
+        final List<TextEdit> edits = roundTrip("a\nb\nc\nd\ne\nf\n", "a\nc\ne\n");
+        for (final TextEdit edit : edits) {
+            assertThat(edit).isInstanceOf(DeleteEdit.class);
+        }
+        roundTrip("foo(X, Y) -> {X, Y}.\n", "foo(X) -> X.\n");
+    }
+
+    @Test
+    public void lineChangesAreEditedByCharacter() throws BadLocationException {
+        final String in = "-module(a).\nfoo() -> ok.\nbar() -> ok.\n";
+        final String out = "-module(a).\nfoo() -> yes.\nbar() -> ok.\n";
+        final List<TextEdit> edits = ChangesetMaker.createEdits(in, out);
+        assertThat(edits).hasSize(1);
+        assertThat(edits.get(0)).isInstanceOf(ReplaceEdit.class);
+        assertThat(edits.get(0).getOffset()).isEqualTo(21);
+        assertThat(edits.get(0).getLength()).isEqualTo(2);
+        roundTrip(in, out);
+    }
+
+    @Test
+    public void crlfLineEnds() throws BadLocationException {
+        roundTrip("a\r\nb\r\nc\r\n", "a\r\nx\r\nc\r\n");
+        roundTrip("a\r\nb\r\n", "a\nb\n");
+        roundTrip("a\nb\n", "a\r\nb\r\n");
+        roundTrip("a\rb\rc", "a\r\nb\nc\r");
+        // a line ending split between \r and \n
+        roundTrip("a\r\nb", "a\rx\nb");
+    }
+
+    @Test
+    public void tooManyDifferencesReplaceTheWholeText() throws BadLocationException {
+        final StringBuilder in = new StringBuilder();
+        final StringBuilder out = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            in.append("line ").append(i).append('\n');
+            out.append(i % 2 == 0 ? "LINE " : "line ").append(i).append('\n');
+        }
+        final List<TextEdit> edits = roundTrip(in.toString(), out.toString());
+        assertThat(edits).hasSize(1);
+        assertThat(edits.get(0)).isInstanceOf(ReplaceEdit.class);
+    }
+
+    @Test
+    public void randomChanges() throws BadLocationException {
+        final Random random = new Random(4711);
+        final String alphabet = "ab\r\n";
+        for (int n = 0; n < 500; n++) {
+            final StringBuilder in = new StringBuilder();
+            for (int i = random.nextInt(60); i > 0; i--) {
+                in.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            final StringBuilder out = new StringBuilder(in);
+            for (int i = random.nextInt(8); i > 0; i--) {
+                final int at = random.nextInt(out.length() + 1);
+                if (random.nextBoolean() || out.length() == at) {
+                    out.insert(at, alphabet.charAt(random.nextInt(alphabet.length())));
+                } else {
+                    out.deleteCharAt(at);
+                }
+            }
+            roundTrip(in.toString(), out.toString());
+        }
+    }
+}
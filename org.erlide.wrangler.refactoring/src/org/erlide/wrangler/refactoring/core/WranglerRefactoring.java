@@ -11,7 +11,13 @@
 package org.erlide.wrangler.refactoring.core;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -28,6 +34,8 @@ import org.erlide.wrangler.refactoring.backend.IRefactoringRpcMessage;
 import org.erlide.wrangler.refactoring.selection.IErlSelection;
 import org.erlide.wrangler.refactoring.util.WranglerUtils;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Abstract class for implementing Wrangler refactorings. Implementors should
  * extend this.
@@ -70,21 +78,44 @@ public abstract class WranglerRefactoring extends Refactoring {
         final CompositeChange change = new CompositeChange(getName());
         pm.internalWorked(1);
 
+        // the files are compared in parallel, the changes are added in order
+        final int threads = Math.min(changedFiles.size(),
+                Runtime.getRuntime().availableProcessors());
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, threads), new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("wrangler-changes-%d").build());
         try {
-            Change c;
+            final List<Future<Change>> changes = new ArrayList<>();
             for (final ChangedFile e : changedFiles) {
-                c = e.createChanges();
+                changes.add(executor.submit(new Callable<Change>() {
+                    @Override
+                    public Change call() throws IOException {
+                        return e.createChanges();
+                    }
+                }));
+            }
+            Change c;
+            for (final Future<Change> f : changes) {
+                c = f.get();
                 if (c != null) {
                     change.add(c);
                     pm.internalWorked(1);
                 }
             }
-        } catch (final IOException e) {
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
             final Status s = new Status(IStatus.ERROR, Activator.PLUGIN_ID,
-                    e.getMessage());
+                    cause.getMessage());
 
             throw new CoreException(s);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException();
         } finally {
+            executor.shutdownNow();
             pm.done();
         }
 
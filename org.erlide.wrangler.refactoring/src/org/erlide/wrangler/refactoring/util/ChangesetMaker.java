@@ -10,102 +10,42 @@
  ******************************************************************************/
 package org.erlide.wrangler.refactoring.util;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.text.edits.DeleteEdit;
 import org.eclipse.text.edits.InsertEdit;
-import org.eclipse.text.edits.MultiTextEdit;
 import org.eclipse.text.edits.ReplaceEdit;
 import org.eclipse.text.edits.TextEdit;
-import org.incava.util.diff.Diff;
-import org.incava.util.diff.Difference;
 
 /**
  * Tool for comparing the refactor tool's output with the original file.
  *
+ * <p>
+ * The files are first compared line by line, and only the lines that changed
+ * are compared character by character, so the cost depends on the size of the
+ * changes rather than on the size of the file. Both steps use Myers' O(ND)
+ * algorithm on <code>int</code> arrays. Hunks with more than
+ * {@value #MAX_EDITS} differences are replaced as a whole.
+ * </p>
+ *
+ * <p>
+ * The methods keep no state, so files can be compared in parallel.
+ * </p>
+ *
  * @author Gyorgy Orosz
  * @version %I%, %G%
  */
 public final class ChangesetMaker {
 
-    static private File inFile;
-    // static private File outFile;
-
-    static Diff<Character> algorithm;
-    static private List<Character> inFileCharArray;
-    static private List<Character> outFileCharArray;
-    static private List<Difference> differencesList;
-
-    /**
-     * Converts the given char array to list.
-     *
-     * @param charArray
-     * @return list of chars
-     */
-    @SuppressWarnings("boxing")
-    private static List<Character> convertArrayToArrayList(final char[] charArray) {
-        final List<Character> result = new ArrayList<>();
-        for (final char c : charArray) {
-            result.add(c);
-        }
-        return result;
-    }
-
-    /**
-     * Creates <code>Edit</code> object from a <code>Difference</code> object
-     *
-     * @param diff
-     * @return
-     */
-    private static TextEdit createEditFromDiff(final Difference diff) {
-        TextEdit result = null;
-
-        // delete
-        if (diff.getAddedEnd() == -1 && diff.getDeletedEnd() != -1) {
-            result = new DeleteEdit(diff.getDeletedStart(),
-                    diff.getDeletedEnd() - diff.getDeletedStart() + 1);
-        }
-        // replace
-        else if (diff.getAddedEnd() != -1 && diff.getDeletedEnd() != -1) {
-            result = createReplaceEdit(diff.getAddedStart(), diff.getAddedEnd(),
-                    diff.getDeletedStart(), diff.getDeletedEnd());
-        }
-        // insert
-        else if (diff.getAddedEnd() != -1 && diff.getDeletedEnd() == -1) {
-            result = new InsertEdit(diff.getDeletedStart(),
-                    getString(diff.getAddedStart(), diff.getAddedEnd()));
-        }
-
-        return result;
-    }
-
-    // @SuppressWarnings("unchecked")
-    // static public ArrayList<TextEdit> createEdits(File in, File out)
-    // throws IOException {
-    // inFile = in;
-    // outFile = out;
-    //
-    // ArrayList<TextEdit> edits = new ArrayList<TextEdit>();
-    // inFileCharArray = null;
-    // outFileCharArray = null;
-    //
-    // inFileCharArray = splitFile(inFile);
-    // outFileCharArray = splitFile(outFile);
-    //
-    // algorithm = new Diff(inFileCharArray, outFileCharArray);
-    //
-    // differencesList = algorithm.diff();
-    // for (Difference d : differencesList) {
-    // edits.add(createEditFromDiff(d));
-    // }
-    //
-    // return edits;
-    // }
+    private static final int MAX_EDITS = 1000;
 
     /**
      * Reads the input file, compares with the given new string, then creates
@@ -121,107 +61,258 @@ public final class ChangesetMaker {
      */
     static public List<TextEdit> createEdits(final File in, final String out)
             throws IOException {
-        inFile = in;
+        return createEdits(readFile(in), out);
+    }
 
+    /**
+     * Compares two strings and creates the <code>TextEdit</code>-s that
+     * transform the first into the second. The edits are sorted and don't
+     * overlap.
+     *
+     * @param in
+     *            original content
+     * @param out
+     *            modified content
+     * @return list of edit objects
+     */
+    static public List<TextEdit> createEdits(final String in, final String out) {
         final List<TextEdit> edits = new ArrayList<>();
-        inFileCharArray = null;
-        outFileCharArray = null;
-
-        inFileCharArray = readFile(inFile);
-        outFileCharArray = new ArrayList<>();
-        outFileCharArray = convertArrayToArrayList(out.toCharArray());
-
-        algorithm = new Diff<>(inFileCharArray, outFileCharArray);
+        final int[] inLines = lineStarts(in);
+        final int[] outLines = lineStarts(out);
+        final int[][] ids = lineIds(in, inLines, out, outLines);
 
-        differencesList = algorithm.diff();
-        for (final Difference d : differencesList) {
-            edits.add(createEditFromDiff(d));
+        final List<int[]> hunks = diff(ids[0], 0, ids[0].length, ids[1], 0,
+                ids[1].length);
+        if (hunks == null) {
+            addCharEdits(edits, in, 0, in.length(), out, 0, out.length());
+            return edits;
+        }
+        for (final int[] hunk : hunks) {
+            addCharEdits(edits, in, inLines[hunk[0]], inLines[hunk[1]], out,
+                    outLines[hunk[2]], outLines[hunk[3]]);
         }
-
         return edits;
     }
 
     /**
-     * Creates a <code>ReplaceEdit</code> object from the given parameters and
-     * the stored input/output strings.
-     *
-     * @param addedStart
-     * @param addedEnd
-     * @param deletedStart
-     * @param deletedEnd
-     * @return
+     * Compares the given ranges character by character.
      */
-    private static TextEdit createReplaceEdit(final int addedStart, final int addedEnd,
-            final int deletedStart, final int deletedEnd) {
-        final TextEdit result = new MultiTextEdit();
-
-        final int addedLength = addedEnd - addedStart + 1;
-        final int deletedLength = deletedEnd - deletedStart + 1;
-        final int minLength = Math.min(addedLength, deletedLength);
-
-        if (deletedLength < addedLength) {
-            result.addChild(new InsertEdit(deletedStart + minLength,
-                    getString(addedStart + minLength, addedEnd)));
+    private static void addCharEdits(final List<TextEdit> edits, final String in,
+            final int inStart, final int inEnd, final String out,
+            final int outStart, final int outEnd) {
+        int is = inStart;
+        int ie = inEnd;
+        int os = outStart;
+        int oe = outEnd;
+        while (is < ie && os < oe && in.charAt(is) == out.charAt(os)) {
+            is++;
+            os++;
         }
-
-        result.addChild(new ReplaceEdit(deletedStart, minLength,
-                getString(addedStart, addedStart + minLength - 1)));
-
-        if (addedLength < deletedLength) {
-            result.addChild(
-                    new DeleteEdit(deletedStart + minLength, deletedLength - minLength));
+        while (is < ie && os < oe && in.charAt(ie - 1) == out.charAt(oe - 1)) {
+            ie--;
+            oe--;
+        }
+        if (is == ie || os == oe) {
+            addEdit(edits, out, is, ie, os, oe);
+            return;
+        }
+        final int[] a = new int[ie - is];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = in.charAt(is + i);
+        }
+        final int[] b = new int[oe - os];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = out.charAt(os + i);
+        }
+        final List<int[]> hunks = diff(a, 0, a.length, b, 0, b.length);
+        if (hunks == null) {
+            addEdit(edits, out, is, ie, os, oe);
+            return;
         }
+        for (final int[] hunk : hunks) {
+            addEdit(edits, out, is + hunk[0], is + hunk[1], os + hunk[2],
+                    os + hunk[3]);
+        }
+    }
 
-        return result;
+    private static void addEdit(final List<TextEdit> edits, final String out,
+            final int inStart, final int inEnd, final int outStart,
+            final int outEnd) {
+        if (outStart == outEnd) {
+            if (inStart < inEnd) {
+                edits.add(new DeleteEdit(inStart, inEnd - inStart));
+            }
+        } else if (inStart == inEnd) {
+            edits.add(new InsertEdit(inStart, out.substring(outStart, outEnd)));
+        } else {
+            edits.add(new ReplaceEdit(inStart, inEnd - inStart,
+                    out.substring(outStart, outEnd)));
+        }
     }
 
     /**
-     * Gets the string from the new source file, according to the given
-     * parameters.
-     *
-     * @param from
-     *            string's starting position
-     * @param to
-     *            string's ending position
-     * @return
+     * Offsets where the lines of the text start, followed by the length of
+     * the text. Line terminators belong to the line they end.
      */
-    private static String getString(final int from, final int to) {
-        String s = "";
-        // from, to+1
-        for (final char c : outFileCharArray) {
-            s += c;
+    private static int[] lineStarts(final String text) {
+        int[] starts = new int[64];
+        int count = 0;
+        int i = 0;
+        final int length = text.length();
+        while (i < length) {
+            if (count + 1 >= starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            starts[count++] = i;
+            while (i < length) {
+                final char c = text.charAt(i++);
+                if (c == '\n') {
+                    break;
+                }
+                if (c == '\r') {
+                    if (i < length && text.charAt(i) == '\n') {
+                        i++;
+                    }
+                    break;
+                }
+            }
         }
-        return s.substring(from, to + 1);
+        starts[count] = length;
+        return Arrays.copyOf(starts, count + 1);
     }
 
     /**
-     * Read the given files into a list of <code>Character</code>-s.
-     *
-     * @param file
-     *            the file which is read
-     * @return
-     * @throws IOException
-     *             if any i/o error occurs this exception is raised.
+     * Numbers the lines of both texts so that equal lines get the same id.
      */
+    private static int[][] lineIds(final String in, final int[] inLines,
+            final String out, final int[] outLines) {
+        final Map<String, Integer> ids = new HashMap<>();
+        return new int[][] { lineIds(ids, in, inLines),
+                lineIds(ids, out, outLines) };
+    }
+
     @SuppressWarnings("boxing")
-    static private List<Character> readFile(final File file) throws IOException {
-
-        final List<Character> result = new ArrayList<>();
-        try (final BufferedReader input = new BufferedReader(new FileReader(file))) {
-            final char c[] = new char[1];
-            while (input.read(c) > 0) {
-                /*
-                 * char[] chars = line.toCharArray(); for (int i = 0; i <
-                 * chars.length; ++i) { result.add(chars[i]); }
-                 * result.add('\n'); } input.close(); if (result.size() != 0) {
-                 * result.remove(result.size() - 1);
-                 */
-                result.add(c[0]);
+    private static int[] lineIds(final Map<String, Integer> ids, final String text,
+            final int[] lines) {
+        final int[] result = new int[lines.length - 1];
+        for (int i = 0; i < result.length; i++) {
+            final String line = text.substring(lines[i], lines[i + 1]);
+            Integer id = ids.get(line);
+            if (id == null) {
+                id = ids.size();
+                ids.put(line, id);
             }
+            result[i] = id;
         }
         return result;
     }
 
+    /**
+     * Myers' diff of two ranges. The common prefix and suffix are skipped
+     * first.
+     *
+     * @return the differing hunks in order, as
+     *         <code>{aStart, aEnd, bStart, bEnd}</code>, or <code>null</code>
+     *         if there are more than {@value #MAX_EDITS} differences
+     */
+    private static List<int[]> diff(final int[] a, final int aFrom, final int aTo,
+            final int[] b, final int bFrom, final int bTo) {
+        int as = aFrom;
+        int ae = aTo;
+        int bs = bFrom;
+        int be = bTo;
+        while (as < ae && bs < be && a[as] == b[bs]) {
+            as++;
+            bs++;
+        }
+        while (as < ae && bs < be && a[ae - 1] == b[be - 1]) {
+            ae--;
+            be--;
+        }
+        final List<int[]> hunks = new ArrayList<>();
+        if (as == ae && bs == be) {
+            return hunks;
+        }
+        if (as == ae || bs == be) {
+            hunks.add(new int[] { as, ae, bs, be });
+            return hunks;
+        }
+
+        final int n = ae - as;
+        final int m = be - bs;
+        final int maxD = Math.min(n + m, MAX_EDITS);
+        // v[d][k + d] is the furthest x reached on diagonal k with d edits
+        final List<int[]> v = new ArrayList<>();
+        int found = -1;
+        for (int d = 0; d <= maxD && found < 0; d++) {
+            final int[] prev = d == 0 ? null : v.get(d - 1);
+            final int[] cur = new int[2 * d + 1];
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (d == 0) {
+                    x = 0;
+                } else if (k == -d
+                        || k != d && prev[k - 1 + d - 1] < prev[k + 1 + d - 1]) {
+                    x = prev[k + 1 + d - 1];
+                } else {
+                    x = prev[k - 1 + d - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && a[as + x] == b[bs + y]) {
+                    x++;
+                    y++;
+                }
+                cur[k + d] = x;
+                if (x >= n && y >= m) {
+                    found = d;
+                }
+            }
+            v.add(cur);
+        }
+        if (found < 0) {
+            return null;
+        }
+
+        // walk back from the end, collecting the single edits as
+        // {x, y, 1 if inserting b[y] or 0 if deleting a[x]}
+        final int[] edits = new int[3 * found];
+        int x = n;
+        int y = m;
+        for (int d = found; d > 0; d--) {
+            final int[] prev = v.get(d - 1);
+            final int k = x - y;
+            final boolean insert = k == -d
+                    || k != d && prev[k - 1 + d - 1] < prev[k + 1 + d - 1];
+            final int prevK = insert ? k + 1 : k - 1;
+            x = prev[prevK + d - 1];
+            y = x - prevK;
+            edits[3 * (d - 1)] = x;
+            edits[3 * (d - 1) + 1] = y;
+            edits[3 * (d - 1) + 2] = insert ? 1 : 0;
+        }
+
+        // join adjacent edits into hunks
+        int[] hunk = null;
+        for (int i = 0; i < edits.length; i += 3) {
+            final int ex = as + edits[i];
+            final int ey = bs + edits[i + 1];
+            if (hunk == null || hunk[1] != ex || hunk[3] != ey) {
+                hunk = new int[] { ex, ex, ey, ey };
+                hunks.add(hunk);
+            }
+            if (edits[i + 2] == 1) {
+                hunk[3]++;
+            } else {
+                hunk[1]++;
+            }
+        }
+        return hunks;
+    }
+
+    private static String readFile(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+    }
+
     private ChangesetMaker() {
     }
 